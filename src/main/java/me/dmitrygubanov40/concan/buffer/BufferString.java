@@ -1,5 +1,7 @@
 package me.dmitrygubanov40.concan.buffer;
 
+import java.nio.CharBuffer;
+
 
 
 /**
@@ -12,10 +14,18 @@ abstract class BufferString
     // if is ready to operate in multithread tasks
     private final boolean isSafeAsync;
     
+    // keeps the last string which was added via 'append',
+    // 'null' - chars were not added as a string, they are the last 'lastAddedLength' chars
+    private String lastStrAdded;
+    private int lastAddedLength;
+    
     
     
     public BufferString(final boolean setSafeAsyncStatus) {
         this.isSafeAsync = setSafeAsyncStatus;
+        //
+        this.lastStrAdded = "";
+        this.lastAddedLength = 0;
     }
     
     
@@ -42,6 +52,14 @@ abstract class BufferString
      */
     abstract public void append(final String newsChars);
     
+    /**
+     * Copy the part of chars to the end of buffer (no string is created).
+     * @param newsChars new characters
+     * @param start first char of the part
+     * @param end char after the part
+     */
+    abstract public void append(final CharSequence newsChars, final int start, final int end);
+    
     /**
      * @param start char position of new (sub-)string
      * @param end char position of new (sub-)string
@@ -57,6 +75,100 @@ abstract class BufferString
      */
     abstract public void delete(final int start, final int end);
     
+    /**
+     * Part of the string, possibly without copying
+     * (valid until the buffer is changed).
+     * @param start char position of the slice
+     * @param end char position after the slice
+     * @return read-only chars of the part
+     */
+    abstract public CharSequence slice(final int start, final int end);
+    
+    /**
+     * Empty the string.
+     */
+    abstract public void clear();
+    
+    
+    
+    /**
+     * @return the last string which was added via 'append'
+     */
+    public String getLastAddedStr() {
+        if ( null == this.lastStrAdded ) {
+            // chars are still the last ones in the buffer
+            final int length = this.length();
+            this.lastStrAdded = this.substring(length - this.lastAddedLength, length);
+        }
+        //
+        return this.lastStrAdded;
+    }
+    
+    /**
+     * @param newsChars string which is added now
+     */
+    protected void rememberAdded(final String newsChars) {
+        this.lastStrAdded = newsChars;
+    }
+    
+    /**
+     * Added chars are not copied to a string until it is asked.
+     * @param addedLength chars which are added now
+     */
+    protected void rememberAdded(final int addedLength) {
+        this.lastStrAdded = null;
+        this.lastAddedLength = addedLength;
+    }
+    
+    /**
+     * Call before the buffer is changed not by appending.
+     * @param changeEnd the buffer is changed before this char
+     * @param length current length of the buffer
+     */
+    protected void keepLastAdded(final int changeEnd, final int length) {
+        if ( null != this.lastStrAdded ) return;
+        if ( changeEnd <= length - this.lastAddedLength ) return;
+        //
+        this.lastStrAdded = this.substring(length - this.lastAddedLength, length);
+    }
+    
+    /**
+     * The buffer is empty.
+     */
+    protected void forgetAdded() {
+        this.lastStrAdded = "";
+    }
+    
+    
+    
+    /**
+     * Copy chars the fastest way the sequence has.
+     * @param source chars to copy
+     * @param start first char to copy
+     * @param end char after the last one to copy
+     * @param target where to copy
+     * @param targetStart place of the first char in 'target'
+     */
+    protected static void copyChars(final CharSequence source,
+                                    final int start,
+                                    final int end,
+                                    final char[] target,
+                                    final int targetStart) {
+        if ( source instanceof String ) {
+            ((String) source).getChars(start, end, target, targetStart);
+        } else if ( source instanceof StringBuilder ) {
+            ((StringBuilder) source).getChars(start, end, target, targetStart);
+        } else if ( source instanceof CharBuffer && ((CharBuffer) source).hasArray() ) {
+            final CharBuffer sourceBuffer = (CharBuffer) source;
+            final int sourceStart = sourceBuffer.arrayOffset() + sourceBuffer.position() + start;
+            System.arraycopy(sourceBuffer.array(), sourceStart, target, targetStart, end - start);
+        } else {
+            for ( int i = start; i < end; i++ ) {
+                target[ targetStart + i - start ] = source.charAt(i);
+            }
+        }
+    }
+    
     
     
 }
@@ -1,5 +1,8 @@
 package me.dmitrygubanov40.concan.buffer;
 
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.strain.PrintLatency;
 
 
 /**
@@ -14,6 +17,8 @@ public class OutputBuffer
     // less or larger buffer is not efficient
     private final static int MIN_BUFFER_SIZE;
     private final static int MAX_BUFFER_SIZE;
+    // larger buffers keep chars in pooled chunks (not in one growing array)
+    private final static int SEGMENTED_BUFFER_SIZE;
     
     // if buffer is ready to work with many threads (in cost of performance)
     private final static boolean DEFAULT_SAFE_ASYNC_STATUS;
@@ -29,6 +34,7 @@ public class OutputBuffer
         DEFAULT_BUFFER_SIZE = 120;
         MIN_BUFFER_SIZE = 10;
         MAX_BUFFER_SIZE = 100000;
+        SEGMENTED_BUFFER_SIZE = OutputBufferChunkPool.CHUNK_SIZE;
         //
         DEFAULT_SAFE_ASYNC_STATUS = false;
         DEFAULT_AUTOFLUSH_MODE = true;
@@ -38,7 +44,7 @@ public class OutputBuffer
     }
     
     
-    private OutputBufferString buffer;
+    private BufferString buffer;
     protected int bufferSize;
     private int bufferLength;
     
@@ -49,6 +55,15 @@ public class OutputBuffer
     // for appending purposes?
     private boolean strictSizeControl;
     
+    // accounting of everything sent to the terminal
+    private OutputCounters outputCounters;
+    
+    // phases of window prints (optional, 'null' when is not measured)
+    private PrintLatency printLatency;
+    
+    // 'output()' is not overridden, so stored chunks may go to the sink as they are
+    private final boolean isOwnOutput;
+    
     
     
     /**
@@ -66,6 +81,8 @@ public class OutputBuffer
                         final boolean strictSizeControlMode,
                         final int minSize,
                         final int maxSize) {
+        this.outputCounters = OutputStats.global();
+        this.isOwnOutput = OutputBuffer.isOwnOutput(this.getClass());
         //
         this.checkBufferSize(initSize, minSize, maxSize);
         this.bufferSize = initSize;
@@ -118,7 +135,8 @@ public class OutputBuffer
     }
     
     /**
-     * Create base data storage element for chars.
+     * Create base data storage element for chars:
+     * one array for regular buffers, or chain of chunks for large ones.
      * @param isSafeAsync in case we need safety with many threads (in cost of speed)
      * @throws IllegalStateException when buffer is already initialized
      */
@@ -127,7 +145,11 @@ public class OutputBuffer
             String excMsg = "Cannot reinitialize already initialized buffer";
             throw new IllegalStateException(excMsg);
         }
-        this.buffer = new OutputBufferString(isSafeAsync);
+        if ( this.bufferSize > SEGMENTED_BUFFER_SIZE ) {
+            this.buffer = new OutputBufferChunks(isSafeAsync);
+        } else {
+            this.buffer = new OutputBufferString(isSafeAsync);
+        }
         this.setBufferLength(0);
     }
     
@@ -143,9 +165,8 @@ public class OutputBuffer
         }
         //
         // buffer was initialized, and it knows status itself
-        // re-new with the same one
-        boolean wasSafeAsyncStatus = this.buffer.isSafeAsync();
-        this.buffer = new OutputBufferString(wasSafeAsyncStatus);
+        // (its array is kept for next chars, or chunks go back to the pool)
+        this.buffer.clear();
         this.setBufferLength(0);
     }
     
@@ -290,19 +311,32 @@ public class OutputBuffer
     }
     
     /**
-     * Add string to the buffer without direct size.
-     * Appropriate for regular text, not commands.
-     * @param newChars what to add
-     * @throws IllegalArgumentException when command line is given
+     * Add the part of chars to the buffer string (copied directly, without a string).
+     * @param newChars chars we want to add
+     * @param start first char of the part
+     * @param end char after the part
+     * @param newCharsLength we presume the part we are adding has such length
+     * @throws IllegalArgumentException when 'newCharsLength' less than zero
      */
-    private void appendToBuffer(final String newChars) {
-        if ( this.isCmdStr(newChars) ) {
-            String excMsg = "Cannot append the command to the buffer";
+    private void appendToBuffer(final CharSequence newChars,
+                                final int start,
+                                final int end,
+                                final int newCharsLength)
+                        throws IllegalArgumentException {
+        if ( start == 0 && end == newChars.length() && newChars instanceof String ) {
+            this.appendToBuffer((String) newChars, newCharsLength);
+            return;
+        }
+        if ( newCharsLength < 0 ) {
+            String excMsg = "Cannot work with the string, which length considered to be less than zero,"
+                                + " string length: '" + newCharsLength + "'";
             throw new IllegalArgumentException(excMsg);
         }
         //
-        final int newCharsLength = newChars.length();
-        this.appendToBuffer(newChars, newCharsLength);
+        if ( end - start <= 0 ) return;// no real characters to add
+        //
+        this.buffer.append(newChars, start, end);
+        this.changeBufferLength(newCharsLength);
     }
     
     
@@ -315,22 +349,98 @@ public class OutputBuffer
      */
     protected void output(final String outputStr) {
         //
-        System.out.print(outputStr);
+        if ( null == this.printLatency ) {
+            OutputSink.write(outputStr, this.outputCounters);
+        } else {
+            final long writeStartNs = System.nanoTime();
+            OutputSink.write(outputStr, this.outputCounters);
+            this.printLatency.addWriteNs(System.nanoTime() - writeStartNs);
+        }
         //
     }
     
     /**
      * Print the part of buffer (when we slice it).
-     * @param slice part of buffer to be shown
+     * @param slice part of buffer to be shown (valid only during the call)
      */
-    protected void outputSlice(final String slice) {
+    protected void outputSlice(final CharSequence slice) {
         //
-        this.output(slice);
+        this.output(slice.toString());
         //
     }
     
     
     
+    /**
+     * Print all the buffer's content (at flush).
+     * Segmented content is written chunk by chunk without joining it into one string,
+     * but only when 'output()' is the own one: any other 'output()' gets the whole string.
+     */
+    private void outputStored() {
+        if ( !this.isOwnOutput || !(this.buffer instanceof OutputBufferChunks) ) {
+            this.output(this.buffer.toString());
+            return;
+        }
+        //
+        final OutputBufferChunks chunks = (OutputBufferChunks) this.buffer;
+        if ( null == this.printLatency ) {
+            OutputSink.write(chunks, this.outputCounters);
+        } else {
+            final long writeStartNs = System.nanoTime();
+            OutputSink.write(chunks, this.outputCounters);
+            this.printLatency.addWriteNs(System.nanoTime() - writeStartNs);
+        }
+    }
+    
+    /**
+     * @param bufferClass class of the buffer
+     * @return 'true' if no class between the buffer's one and 'OutputBuffer' declares 'output(String)'
+     */
+    private static boolean isOwnOutput(final Class<?> bufferClass) {
+        for ( Class<?> curClass = bufferClass; OutputBuffer.class != curClass; curClass = curClass.getSuperclass() ) {
+            try {
+                curClass.getDeclaredMethod("output", String.class);
+                return false;
+            } catch ( NoSuchMethodException | SecurityException exc ) {
+                // not declared here, look at the parent
+            }
+        }
+        //
+        return true;
+    }
+    
+    
+    
+    /**
+     * Count the output of the buffer in the scope (i.e. window's counters).
+     * @param counters where to count output, flushes and autoflushes
+     * @throws NullPointerException when no counters given
+     */
+    public void setOutputCounters(final OutputCounters counters) throws NullPointerException {
+        if ( null == counters ) {
+            String excMsg = "Output counters of the buffer cannot be null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.outputCounters = counters;
+    }
+    public OutputCounters getOutputCounters() {
+        return this.outputCounters;
+    }
+    
+    /**
+     * Measure writing time of the buffer for print phases.
+     * @param latency phases of window prints, 'null' to stop measuring
+     */
+    public void setPrintLatency(final PrintLatency latency) {
+        this.printLatency = latency;
+    }
+    public PrintLatency getPrintLatency() {
+        return this.printLatency;
+    }
+    
+    
+    
     /**
      * For technical control of buffer state (in case when autoflush may be off).
      * @return whether our buffer is full (over its limit), or there is more space
@@ -372,7 +482,8 @@ public class OutputBuffer
      * Can be used any time by outsource.
      */
     public void flush() {
-        this.output(this.buffer.toString());
+        this.outputCounters.countFlush();
+        this.outputStored();
         this.clearBuffer();
     }
     
@@ -387,6 +498,7 @@ public class OutputBuffer
         }
         //
         // do regular flush
+        this.outputCounters.countAutoflush();
         this.flush();
     }
     
@@ -434,9 +546,8 @@ public class OutputBuffer
             return;
         }
         //
-        // show the part we are removing:
-        String slice = this.buffer.substring(startSliceIndex, endSliceIndex);
-        this.outputSlice(slice);
+        // show the part we are removing (no copy of the buffer's part):
+        this.outputSlice(this.buffer.slice(startSliceIndex, endSliceIndex));
         //
         // make the buffer shorter:
         this.deleteFromBuffer(startSliceIndex, endSliceIndex, calculatedBufLength);
@@ -528,6 +639,18 @@ public class OutputBuffer
         // * * * * *
     }
     
+    /**
+     * 'isCmdStr()' for the part of chars (which is not a string).
+     * @param charsToCheck chars to analyze
+     * @param start first char of the part
+     * @param end char after the part
+     * @return 'true' in case we consider the part to have a command
+     */
+    protected boolean isCmdChars(final CharSequence charsToCheck, final int start, final int end) {
+        // as 'isCmdStr()'
+        return false;
+    }
+    
     
     
     /**
@@ -573,27 +696,63 @@ public class OutputBuffer
         // Here we must keep buffer size
         // (and add new chars by pieces under strict buffer limit).
         // This block can not process "empty" (command) strings.
-        StringBuilder newCharsToBufferOverSize = new StringBuilder(newCharsToBuffer);
-        while ( (this.getBufferLength() + newCharsToBufferOverSize.length()) > this.bufferSize ) {
-            int cutStart = 0;
-            int cutEnd = this.bufferSize - this.getBufferLength();
-            //
-            String pieceOfNewCharsToAdd = newCharsToBufferOverSize.substring(cutStart, cutEnd);
-            this.appendToBuffer(pieceOfNewCharsToAdd);
-            //
-            newCharsToBufferOverSize = newCharsToBufferOverSize.delete(cutStart, cutEnd);
-            //
-            this.autoflush();
-        }
-        String lastPieceStrAdded = newCharsToBufferOverSize.toString();
-        // Now we have a piece less then the size. Add it.
-        this.appendToBuffer(lastPieceStrAdded);
+        this.addByPieces(newCharsToBuffer, 0, newCharsToBuffer.length());
     }
     // shot useful wrapper, where length is real length of a char/string
     protected void doAdd(final String newCharsToBuffer) {
         this.doAdd(newCharsToBuffer, newCharsToBuffer.length());
     }
     
+    /**
+     * 'doAdd()' for the part of chars, which are copied into the buffer directly.
+     * @param newCharsToBuffer chars to add to the buffer
+     * @param start first char of the part
+     * @param end char after the part
+     * @throws StringIndexOutOfBoundsException if the part is too long and auto-flush is off
+     */
+    protected void doAdd(final CharSequence newCharsToBuffer, final int start, final int end)
+                    throws StringIndexOutOfBoundsException {
+        final int newCharsToBufferLength = end - start;
+        if ( newCharsToBufferLength <= 0 ) return;
+        //
+        if ( this.isUnderBufferSizeLimit(newCharsToBufferLength) ) {
+            this.appendToBuffer(newCharsToBuffer, start, end, newCharsToBufferLength);
+            return;
+        }
+        //
+        if ( !this.autoFlush ) {
+            String excMsg = this.getAddExceptionMsg(newCharsToBuffer.subSequence(start, end).toString());
+            throw new StringIndexOutOfBoundsException(excMsg);
+        }
+        //
+        if ( !this.strictSizeControl ) {
+            this.appendToBuffer(newCharsToBuffer, start, end, newCharsToBufferLength);
+            this.autoflush();
+            return;
+        }
+        //
+        this.addByPieces(newCharsToBuffer, start, end);
+    }
+    
+    /**
+     * Add text by pieces under strict buffer limit, with autoflush after each full piece.
+     * @param newChars text to add
+     * @param start first char of the text
+     * @param end char after the text
+     */
+    private void addByPieces(final CharSequence newChars, final int start, final int end) {
+        int pieceStart = start;
+        while ( (this.getBufferLength() + (end - pieceStart)) > this.bufferSize ) {
+            final int pieceEnd = pieceStart + (this.bufferSize - this.getBufferLength());
+            this.appendToBuffer(newChars, pieceStart, pieceEnd, pieceEnd - pieceStart);
+            pieceStart = pieceEnd;
+            //
+            this.autoflush();
+        }
+        // Now we have a piece less then the size. Add it.
+        this.appendToBuffer(newChars, pieceStart, end, end - pieceStart);
+    }
+    
     /**
      * Put any new chars into the buffer.
      * Auto-detection whether it is a command or a visual text.
@@ -611,6 +770,34 @@ public class OutputBuffer
         this.addText(newCharsToBuffer);
     }
     
+    /**
+     * Put the part of chars into the buffer without creating a string of them
+     * (commands are added as strings, they need parsing).
+     * @param newCharsToBuffer chars to add to the buffer
+     * @param start first char of the part
+     * @param end char after the part
+     * @throws IndexOutOfBoundsException when the part is out of the chars
+     */
+    public void add(final CharSequence newCharsToBuffer, final int start, final int end)
+                    throws IndexOutOfBoundsException {
+        if ( start < 0 || start > end || end > newCharsToBuffer.length() ) {
+            String excMsg = "Part of chars to add to the buffer is out of them,"
+                                + " start: '" + start + "', end: '" + end
+                                + "', length: '" + newCharsToBuffer.length() + "'";
+            throw new IndexOutOfBoundsException(excMsg);
+        }
+        //
+        if ( this.isCmdChars(newCharsToBuffer, start, end) ) {
+            this.add(newCharsToBuffer.subSequence(start, end).toString());
+            return;
+        }
+        //
+        this.doAdd(newCharsToBuffer, start, end);
+    }
+    public void add(final CharSequence newCharsToBuffer) {
+        this.add(newCharsToBuffer, 0, newCharsToBuffer.length());
+    }
+    
     /**
      * Regular, visual user's text - to buffer.
      * @param newTextCharsToBuffer visual text string to add to the buffer
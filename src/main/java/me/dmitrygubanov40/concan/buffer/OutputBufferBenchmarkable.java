@@ -2,6 +2,8 @@ package me.dmitrygubanov40.concan.buffer;
 
 import java.util.Random;
 
+import me.dmitrygubanov40.concan.strain.Benchmark;
+import me.dmitrygubanov40.concan.strain.BenchmarkSweep;
 import me.dmitrygubanov40.concan.strain.Benchmarkable;
 
 
@@ -13,11 +15,56 @@ import me.dmitrygubanov40.concan.strain.Benchmarkable;
 public class OutputBufferBenchmarkable extends OutputBuffer implements Benchmarkable
 {
     
+    // same seed for all runs, so they measure the same strings
+    private static final long DEFAULT_SEED;
+    
+    static {
+        DEFAULT_SEED = 40L;
+    }
+    
+    ////////////
+    
+    private final long seed;
+    
+    
+    
     public OutputBufferBenchmarkable(final int initSize,
                                      final boolean isSafeAsync,
                                      final boolean autoFlushMode,
-                                     final boolean strictSizeControlMode) {
+                                     final boolean strictSizeControlMode,
+                                     final long initSeed) {
         super(initSize, isSafeAsync, autoFlushMode, strictSizeControlMode);
+        //
+        this.seed = initSeed;
+    }
+    public OutputBufferBenchmarkable(final int initSize,
+                                     final boolean isSafeAsync,
+                                     final boolean autoFlushMode,
+                                     final boolean strictSizeControlMode) {
+        this(initSize, isSafeAsync, autoFlushMode, strictSizeControlMode, DEFAULT_SEED);
+    }
+    
+    
+    
+    /**
+     * Sweep over buffer sizes, strict/non-strict size control and async safety on/off
+     * (autoflush is always on, as it is the main working mode).
+     * Usage: BenchmarkReport.writeJson(OutputBufferBenchmarkable.getSweep().run(3), path)
+     * @return prepared sweep of all the combinations
+     */
+    public static BenchmarkSweep getSweep() {
+        BenchmarkSweep sweep = new BenchmarkSweep("OutputBuffer",
+                                                    params -> new Benchmark(new OutputBufferBenchmarkable(
+                                                                            params.getInt("size"),
+                                                                            params.getBoolean("async"),
+                                                                            true,
+                                                                            params.getBoolean("strict"))));
+        //
+        sweep.addParam("size", 10, 120, 1000, 100000)
+                .addParam("strict", false, true)
+                .addParam("async", false, true);
+        //
+        return sweep;
     }
     
     
@@ -39,14 +86,15 @@ public class OutputBufferBenchmarkable extends OutputBuffer implements Benchmark
     //////////
     
     /**
-     * Get random console string just for system load purposes.
+     * Get pseudo-random console string just for system load purposes.
+     * The string depends only on the seed and the parameters, so all runs are comparable.
      * @param minLength string min length
      * @param maxLength string max length
      * @param randomParam randomizer for chars
      * @return 
      */
     public String getBenchmarkStr(final int minLength, final int maxLength, final int randomParam) {
-        Random rnd = new Random(System.currentTimeMillis() + (long) randomParam);
+        Random rnd = new Random(this.seed + (long) randomParam);
         final int strLength = rnd.nextInt(minLength, maxLength);
         final String CHARS =     " ABCDEFGHIJKLMNOPQRSTUVWXYZ"
                                 + "abcdefghijklmnopqrstuvwxyz"
@@ -0,0 +1,75 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+/**
+ * Shared pool of char chunks for segmented buffers ('OutputBufferChunks').
+ * Chunks of cleared buffers come back here and are taken by the next appends,
+ * so large frames do not allocate their memory again and again.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class OutputBufferChunkPool
+{
+    
+    // chars in one chunk
+    public static final int CHUNK_SIZE;
+    // more free chunks are left to the garbage collector
+    private static final int MAX_POOLED_CHUNKS;
+    
+    private static final Queue<char[]> freeChunks;
+    private static final AtomicInteger freeChunksCount;
+    
+    static {
+        CHUNK_SIZE = 4096;
+        MAX_POOLED_CHUNKS = 256;// 2 MB of chars
+        //
+        freeChunks = new ConcurrentLinkedQueue<>();
+        freeChunksCount = new AtomicInteger(0);
+    }
+    
+    
+    
+    private OutputBufferChunkPool() {
+        // utility class
+    }
+    
+    
+    
+    /**
+     * @return free chunk of 'CHUNK_SIZE' chars (with any old chars inside)
+     */
+    public static char[] take() {
+        final char[] chunk = freeChunks.poll();
+        if ( null == chunk ) return new char[ CHUNK_SIZE ];
+        //
+        freeChunksCount.decrementAndGet();
+        return chunk;
+    }
+    
+    /**
+     * @param chunk chunk which is not used anymore
+     */
+    public static void give(final char[] chunk) {
+        if ( null == chunk || CHUNK_SIZE != chunk.length ) return;
+        //
+        if ( freeChunksCount.incrementAndGet() > MAX_POOLED_CHUNKS ) {
+            freeChunksCount.decrementAndGet();
+            return;
+        }
+        freeChunks.offer(chunk);
+    }
+    
+    /**
+     * @return chunks waiting in the pool
+     */
+    public static int getFreeChunks() {
+        return freeChunksCount.get();
+    }
+    
+    
+    
+}
@@ -0,0 +1,394 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.io.PrintStream;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/**
+ * Segmented variant of 'OutputBufferString' for large buffers.
+ * Chars are kept in a chain of fixed-size chunks from 'OutputBufferChunkPool':
+ * appending never copies the chars already stored, deleting from the head
+ * gives whole chunks back, and the content is written to a stream chunk by chunk.
+ * The string is also a 'CharSequence', so it can be read without 'toString()'.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public class OutputBufferChunks extends BufferString implements CharSequence
+{
+    
+    private static final int CHUNK_SIZE;
+    
+    static {
+        CHUNK_SIZE = OutputBufferChunkPool.CHUNK_SIZE;
+    }
+    
+    
+    /////
+    
+    
+    // chars of the string are from 'head' of the first chunk till 'tail' of the last one
+    private final List<char[]> chunks;
+    private int head;
+    private int tail;
+    private int length;
+    // (safe variant synchronizes on the object itself)
+    
+    
+    /////
+    
+    /**
+     * @param setSafeAsyncStatus readiness for async duties (which is slower)
+     */
+    public OutputBufferChunks(final boolean setSafeAsyncStatus) {
+        //
+        super(setSafeAsyncStatus);
+        //
+        this.chunks = new ArrayList<>();
+        this.head = 0;
+        this.tail = 0;
+        this.length = 0;
+    }
+    
+    /**
+     * @return chunks the string takes now
+     */
+    public int getChunksCount() {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.chunks.size();
+            }
+        }
+        //
+        return this.chunks.size();
+    }
+    
+    
+    //////////
+    
+    @Override
+    public int length() {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.length;
+            }
+        }
+        //
+        return this.length;
+    }
+    
+    @Override
+    public char charAt(final int index) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.doCharAt(index);
+            }
+        }
+        //
+        return this.doCharAt(index);
+    }
+    
+    private char doCharAt(final int index) {
+        if ( index < 0 || index >= this.length ) {
+            String excMsg = "index " + index + ", length " + this.length;
+            throw new StringIndexOutOfBoundsException(excMsg);
+        }
+        //
+        final int position = this.head + index;
+        return this.chunks.get(position / CHUNK_SIZE)[ position % CHUNK_SIZE ];
+    }
+    
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return this.slice(start, end);
+    }
+    
+    @Override
+    public String toString() {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.doSubstring(0, this.length);
+            }
+        }
+        //
+        return this.doSubstring(0, this.length);
+    }
+    
+    @Override
+    public void append(final String newsChars) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doAppend(newsChars);
+            }
+        } else {
+            this.doAppend(newsChars);
+        }
+        //
+        // always know exactly what was added last
+        this.rememberAdded(newsChars);
+    }
+    
+    @Override
+    public void append(final CharSequence newsChars, final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doAppend(newsChars, start, end);
+            }
+        } else {
+            this.doAppend(newsChars, start, end);
+        }
+        //
+        this.rememberAdded(end - start);
+    }
+    
+    /**
+     * Fill the last chunk, then take new ones from the pool.
+     */
+    private void doAppend(final CharSequence newsChars, final int start, final int end) {
+        int added = start;
+        while ( added < end ) {
+            if ( this.chunks.isEmpty() || CHUNK_SIZE == this.tail ) {
+                this.chunks.add(OutputBufferChunkPool.take());
+                this.tail = 0;
+            }
+            //
+            final int piece = Math.min(CHUNK_SIZE - this.tail, end - added);
+            BufferString.copyChars(newsChars, added, added + piece, this.chunks.get(this.chunks.size() - 1), this.tail);
+            this.tail += piece;
+            added += piece;
+        }
+        this.length += end - start;
+    }
+    private void doAppend(final String newsChars) {
+        this.doAppend(newsChars, 0, newsChars.length());
+    }
+    
+    @Override
+    public String substring(final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.doSubstring(start, end);
+            }
+        }
+        //
+        return this.doSubstring(start, end);
+    }
+    
+    @Override
+    public String substring(final int start) {
+        return this.substring(start, this.length());
+    }
+    
+    private String doSubstring(final int start, final int end) {
+        this.checkRange(start, end);
+        //
+        final char[] result = new char[ end - start ];
+        int copied = 0;
+        int position = this.head + start;
+        while ( copied < result.length ) {
+            final int offset = position % CHUNK_SIZE;
+            final int piece = Math.min(CHUNK_SIZE - offset, result.length - copied);
+            System.arraycopy(this.chunks.get(position / CHUNK_SIZE), offset, result, copied, piece);
+            copied += piece;
+            position += piece;
+        }
+        //
+        return new String(result);
+    }
+    
+    /**
+     * Part of the string: without copying when it is inside one chunk.
+     * The slice reads the buffer itself: it is valid until the buffer is changed.
+     * @param start char position of the slice
+     * @param end char position after the slice
+     * @return read-only chars of the part
+     */
+    @Override
+    public CharSequence slice(final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.doSlice(start, end);
+            }
+        }
+        //
+        return this.doSlice(start, end);
+    }
+    
+    private CharSequence doSlice(final int start, final int end) {
+        this.checkRange(start, end);
+        if ( start == end ) return "";
+        //
+        final int first = this.head + start;
+        final int last = this.head + end - 1;
+        if ( first / CHUNK_SIZE != last / CHUNK_SIZE ) {
+            // on the border of chunks
+            return this.doSubstring(start, end);
+        }
+        //
+        return CharBuffer.wrap(this.chunks.get(first / CHUNK_SIZE), first % CHUNK_SIZE, end - start)
+                            .asReadOnlyBuffer();
+    }
+    
+    @Override
+    public void delete(final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doDelete(start, end);
+            }
+        } else {
+            this.doDelete(start, end);
+        }
+    }
+    
+    /**
+     * Deleting from the head moves the head only (whole chunks go back to the pool),
+     * other deletions move the chars after the deleted part.
+     */
+    private void doDelete(final int start, final int end) {
+        // as 'StringBuilder.delete()': 'end' can be over the length
+        final int realEnd = Math.min(end, this.length);
+        this.checkRange(start, realEnd);
+        //
+        final int deleteLength = realEnd - start;
+        if ( 0 == deleteLength ) return;
+        this.keepLastAdded(realEnd, this.length);
+        //
+        if ( 0 == start ) {
+            this.cutHead(deleteLength);
+            return;
+        }
+        //
+        for ( int from = this.head + realEnd, to = this.head + start; from < this.head + this.length; from++, to++ ) {
+            this.chunks.get(to / CHUNK_SIZE)[ to % CHUNK_SIZE ] = this.chunks.get(from / CHUNK_SIZE)[ from % CHUNK_SIZE ];
+        }
+        this.cutTail(this.length - deleteLength);
+    }
+    
+    private void cutHead(final int cutLength) {
+        if ( cutLength >= this.length ) {
+            this.releaseChunks();
+            return;
+        }
+        //
+        this.head += cutLength;
+        this.length -= cutLength;
+        while ( this.head >= CHUNK_SIZE ) {
+            OutputBufferChunkPool.give(this.chunks.remove(0));
+            this.head -= CHUNK_SIZE;
+        }
+    }
+    
+    private void cutTail(final int newLength) {
+        if ( newLength <= 0 ) {
+            this.releaseChunks();
+            return;
+        }
+        //
+        final int end = this.head + newLength;
+        final int lastChunk = (end - 1) / CHUNK_SIZE;
+        while ( this.chunks.size() > lastChunk + 1 ) {
+            OutputBufferChunkPool.give(this.chunks.remove(this.chunks.size() - 1));
+        }
+        this.tail = end - lastChunk * CHUNK_SIZE;
+        this.length = newLength;
+    }
+    
+    /**
+     * Empty the string, its chunks go back to the pool.
+     */
+    @Override
+    public void clear() {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.releaseChunks();
+            }
+        } else {
+            this.releaseChunks();
+        }
+        //
+        this.forgetAdded();
+    }
+    
+    private void releaseChunks() {
+        for ( char[] curChunk : this.chunks ) {
+            OutputBufferChunkPool.give(curChunk);
+        }
+        this.chunks.clear();
+        this.head = 0;
+        this.tail = 0;
+        this.length = 0;
+    }
+    
+    
+    //////////
+    
+    /**
+     * Write all the string to the stream chunk by chunk, holding the stream
+     * (so other threads cannot get between the chunks).
+     * Whole chunks are written as they are, only the first and the last ones may be copied.
+     * @param out where to write
+     */
+    public void writeTo(final PrintStream out) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doWriteTo(out);
+            }
+        } else {
+            this.doWriteTo(out);
+        }
+    }
+    
+    private void doWriteTo(final PrintStream out) {
+        final int lastChunk = this.chunks.size() - 1;
+        synchronized ( out ) {
+            for ( int i = 0; i <= lastChunk; i++ ) {
+                final char[] curChunk = this.chunks.get(i);
+                final int from = (0 == i) ? this.head : 0;
+                final int to = (lastChunk == i) ? this.tail : CHUNK_SIZE;
+                //
+                if ( 0 == from && CHUNK_SIZE == to ) {
+                    out.print(curChunk);
+                } else {
+                    out.print(new String(curChunk, from, to - from));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Copy all the string to the builder (i.e. output held by 'OutputSink').
+     * @param out where to append
+     */
+    void appendTo(final StringBuilder out) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doAppendTo(out);
+            }
+        } else {
+            this.doAppendTo(out);
+        }
+    }
+    
+    private void doAppendTo(final StringBuilder out) {
+        final int lastChunk = this.chunks.size() - 1;
+        for ( int i = 0; i <= lastChunk; i++ ) {
+            final int from = (0 == i) ? this.head : 0;
+            final int to = (lastChunk == i) ? this.tail : CHUNK_SIZE;
+            out.append(this.chunks.get(i), from, to - from);
+        }
+    }
+    
+    /**
+     * @throws StringIndexOutOfBoundsException as 'StringBuilder' does
+     */
+    private void checkRange(final int start, final int end) throws StringIndexOutOfBoundsException {
+        if ( start < 0 || start > end || end > this.length ) {
+            String excMsg = "start " + start + ", end " + end + ", length " + this.length;
+            throw new StringIndexOutOfBoundsException(excMsg);
+        }
+    }
+    
+    
+    
+}
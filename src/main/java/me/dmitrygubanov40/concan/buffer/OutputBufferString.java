@@ -1,21 +1,35 @@
 package me.dmitrygubanov40.concan.buffer;
 
+import java.nio.CharBuffer;
+
 
 
 /**
  * A dual-faced class for buffering, which provides a single object
  * both for fast- OR multithread-safe buffering.
+ * Chars are kept in an array between the read offset ('head') and the end ('tail'),
+ * so deleting from the head (slicing, wrapping of long lines) only moves the offset,
+ * and any deletion moves the shorter side of the string.
  * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
  */
 public class OutputBufferString extends BufferString
 {
     
-    private StringBuilder bufferFast;   // is faster, but not for multithreading
-    private StringBuffer  bufferSafe;   // safe for many threads, but about x2 slower
-    // (only one var would be initialized)
+    private static final int INIT_CAPACITY;
+    
+    static {
+        INIT_CAPACITY = 16;
+    }
+    
+    
+    /////
+    
     
-    // keeps the last string which was added via 'append'
-    private String lastStrAdded;
+    // chars of the string are in [head, tail)
+    private char[] chars;
+    private int head;
+    private int tail;
+    // (safe variant synchronizes on the object itself)
     
     
     /////
@@ -27,17 +41,9 @@ public class OutputBufferString extends BufferString
         //
         super(setSafeAsyncStatus);
         //
-        if ( this.isSafeAsync() ) {
-            this.bufferSafe = new StringBuffer();
-        } else {
-            this.bufferFast = new StringBuilder();
-        }
-        //
-        this.lastStrAdded = "";
-    }
-    
-    public String getLastAddedStr() {
-        return this.lastStrAdded;
+        this.chars = new char[ OutputBufferString.INIT_CAPACITY ];
+        this.head = 0;
+        this.tail = 0;
     }
     
     
@@ -45,57 +51,194 @@ public class OutputBufferString extends BufferString
     
     @Override
     public int length() {
-        int lengthResult;
-        //
-        if ( this.isSafeAsync() )   lengthResult = this.bufferSafe.length();
-        else                        lengthResult = this.bufferFast.length();
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.tail - this.head;
+            }
+        }
         //
-        return lengthResult;
+        return this.tail - this.head;
     }
     
     @Override
     public String toString() {
-        String stringResult;
-        //
-        if ( this.isSafeAsync() )   stringResult = this.bufferSafe.toString();
-        else                        stringResult = this.bufferFast.toString();
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return new String(this.chars, this.head, this.tail - this.head);
+            }
+        }
         //
-        return stringResult;
+        return new String(this.chars, this.head, this.tail - this.head);
     }
     
     @Override
     public void append(final String newsChars) {
-        if ( this.isSafeAsync() )   this.bufferSafe.append(newsChars);
-        else                        this.bufferFast.append(newsChars);
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doAppend(newsChars);
+            }
+        } else {
+            this.doAppend(newsChars);
+        }
         //
         // always know exactly what was added last
-        this.lastStrAdded = newsChars;
+        this.rememberAdded(newsChars);
     }
     
     @Override
-    public String substring(final int start, final int end) {
-        String stringResult;
+    public void append(final CharSequence newsChars, final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doAppend(newsChars, start, end);
+            }
+        } else {
+            this.doAppend(newsChars, start, end);
+        }
         //
-        if ( this.isSafeAsync() )   stringResult = this.bufferSafe.substring(start, end);
-        else                        stringResult = this.bufferFast.substring(start, end);
+        this.rememberAdded(end - start);
+    }
+    
+    private void doAppend(final CharSequence newsChars, final int start, final int end) {
+        final int addLength = end - start;
+        this.ensureTailSpace(addLength);
+        BufferString.copyChars(newsChars, start, end, this.chars, this.tail);
+        this.tail += addLength;
+    }
+    private void doAppend(final String newsChars) {
+        this.doAppend(newsChars, 0, newsChars.length());
+    }
+    
+    /**
+     * Free space after the tail: move the string to the array start when it is enough
+     * (space of the sliced head is reused), or grow the array.
+     * @param addLength chars to be added
+     */
+    private void ensureTailSpace(final int addLength) {
+        if ( this.tail + addLength <= this.chars.length ) return;
+        //
+        final int length = this.tail - this.head;
+        final int needCapacity = length + addLength;
+        if ( needCapacity <= this.chars.length / 2 + 1 ) {
+            // half of the array is free - compact only
+            System.arraycopy(this.chars, this.head, this.chars, 0, length);
+        } else {
+            char[] newChars = new char[ Math.max(needCapacity, this.chars.length * 2) ];
+            System.arraycopy(this.chars, this.head, newChars, 0, length);
+            this.chars = newChars;
+        }
+        this.head = 0;
+        this.tail = length;
+    }
+    
+    @Override
+    public String substring(final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                return this.doSubstring(start, end);
+            }
+        }
         //
-        return stringResult;
+        return this.doSubstring(start, end);
     }
     
     @Override
     public String substring(final int start) {
-        String stringResult;
+        return this.substring(start, this.length());
+    }
+    
+    private String doSubstring(final int start, final int end) {
+        this.checkRange(start, end);
         //
-        if ( this.isSafeAsync() )   stringResult = this.bufferSafe.substring(start);
-        else                        stringResult = this.bufferFast.substring(start);
+        return new String(this.chars, this.head + start, end - start);
+    }
+    
+    /**
+     * Part of the string without copying.
+     * The slice reads the buffer itself: it is valid until the buffer is changed.
+     * @param start char position of the slice
+     * @param end char position after the slice
+     * @return read-only chars of the part
+     */
+    @Override
+    public CharSequence slice(final int start, final int end) {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.checkRange(start, end);
+                return CharBuffer.wrap(this.chars, this.head + start, end - start).asReadOnlyBuffer();
+            }
+        }
         //
-        return stringResult;
+        this.checkRange(start, end);
+        return CharBuffer.wrap(this.chars, this.head + start, end - start).asReadOnlyBuffer();
     }
     
     @Override
     public void delete(final int start, final int end) {
-        if ( this.isSafeAsync() )   this.bufferSafe.delete(start, end);
-        else                        this.bufferFast.delete(start, end);
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.doDelete(start, end);
+            }
+        } else {
+            this.doDelete(start, end);
+        }
+    }
+    
+    /**
+     * Move the shorter side: the head part to the right, or the tail part to the left.
+     * Deleting from the head or up to the tail does not move chars at all.
+     */
+    private void doDelete(final int start, final int end) {
+        final int length = this.tail - this.head;
+        // as 'StringBuilder.delete()': 'end' can be over the length
+        final int realEnd = Math.min(end, length);
+        this.checkRange(start, realEnd);
+        //
+        final int deleteLength = realEnd - start;
+        if ( 0 == deleteLength ) return;
+        this.keepLastAdded(realEnd, length);
+        //
+        if ( start < length - realEnd ) {
+            System.arraycopy(this.chars, this.head, this.chars, this.head + deleteLength, start);
+            this.head += deleteLength;
+        } else {
+            System.arraycopy(this.chars, this.head + realEnd, this.chars, this.head + start, length - realEnd);
+            this.tail -= deleteLength;
+        }
+        //
+        if ( this.head == this.tail ) {
+            // empty - start from the array beginning
+            this.head = 0;
+            this.tail = 0;
+        }
+    }
+    
+    /**
+     * Empty the string, keeping the array for next chars.
+     */
+    @Override
+    public void clear() {
+        if ( this.isSafeAsync() ) {
+            synchronized ( this ) {
+                this.head = 0;
+                this.tail = 0;
+            }
+        } else {
+            this.head = 0;
+            this.tail = 0;
+        }
+        //
+        this.forgetAdded();
+    }
+    
+    /**
+     * @throws StringIndexOutOfBoundsException as 'StringBuilder' does
+     */
+    private void checkRange(final int start, final int end) throws StringIndexOutOfBoundsException {
+        final int length = this.tail - this.head;
+        if ( start < 0 || start > end || end > length ) {
+            String excMsg = "start " + start + ", end " + end + ", length " + length;
+            throw new StringIndexOutOfBoundsException(excMsg);
+        }
     }
     
     
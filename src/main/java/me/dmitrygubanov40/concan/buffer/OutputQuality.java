@@ -0,0 +1,382 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+
+
+/**
+ * Adaptive output quality for slow terminal links (i.e. SSH with high latency).
+ * When it is enabled, 'OutputSink' measures each terminal write: mean write time
+ * and writes waiting for the terminal (backlog).
+ * When the link is saturated, the quality is degraded:
+ *  - true-color commands are written as 256-color ones (less bytes),
+ *  - periodic redraws (i.e. 'ConWinHud') skip frames, see 'getFrameDivisor()',
+ *  - decorative redraws ('ConWin.redrawFrame()') wait, see 'runOnRestore()'.
+ * Full quality comes back when writes are fast again (and the backlog is clear).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class OutputQuality
+{
+    
+    public static final double DEFAULT_DEGRADE_MS;
+    public static final double DEFAULT_RESTORE_MS;
+    // writes waiting for the terminal to degrade at
+    private static final int BACKLOG_LIMIT;
+    // only each N-th frame is drawn with degraded quality
+    private static final int DEGRADED_FRAME_DIVISOR;
+    // degraded quality is kept at least for this time (not to switch on every write)
+    private static final long MIN_DEGRADED_NS;
+    private static final long CHECK_PERIOD_MS;
+    // weight of a new write in the mean write time
+    private static final double WRITE_WEIGHT;
+    
+    // 256-color palette: levels of the color cube
+    private static final int[] CUBE_LEVELS;
+    private static final String TRUE_COLOR_PREFIX;
+    private static final String TRUE_BACKGROUND_PREFIX;
+    
+    private static final Object qualityLock;
+    private static final ScheduledExecutorService checker;
+    // what to do when full quality is back (under the lock)
+    private static final List<Runnable> restoreTasks;
+    
+    private static volatile boolean enabled;
+    private static volatile boolean degraded;
+    private static volatile long degradeNs;
+    private static volatile long restoreNs;
+    // source of time ('System.nanoTime()' unless tests set another one)
+    private static volatile LongSupplier clock;
+    
+    // under the lock:
+    private static double meanWriteNs;
+    private static long lastWriteEndNs;
+    private static long degradedSinceNs;
+    private static ScheduledFuture<?> checking;
+    
+    private static final AtomicInteger writesInProgress;
+    private static final LongAdder degradations;
+    private static final LongAdder savedChars;
+    
+    static {
+        DEFAULT_DEGRADE_MS = 5.0;
+        DEFAULT_RESTORE_MS = 1.0;
+        BACKLOG_LIMIT = 4;
+        DEGRADED_FRAME_DIVISOR = 4;
+        MIN_DEGRADED_NS = TimeUnit.SECONDS.toNanos(1);
+        CHECK_PERIOD_MS = 100;
+        WRITE_WEIGHT = 1.0 / 8;
+        //
+        CUBE_LEVELS = new int[] { 0, 95, 135, 175, 215, 255 };
+        TRUE_COLOR_PREFIX = "\u001b[38;2;";
+        TRUE_BACKGROUND_PREFIX = "\u001b[48;2;";
+        //
+        qualityLock = new Object();
+        checker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread checkerThread = new Thread(task, "concan-quality");
+            checkerThread.setDaemon(true);
+            return checkerThread;
+        });
+        restoreTasks = new ArrayList<>();
+        //
+        enabled = false;
+        degraded = false;
+        degradeNs = OutputQuality.msToNs(DEFAULT_DEGRADE_MS);
+        restoreNs = OutputQuality.msToNs(DEFAULT_RESTORE_MS);
+        clock = System::nanoTime;
+        //
+        meanWriteNs = 0;
+        lastWriteEndNs = 0;
+        degradedSinceNs = 0;
+        checking = null;
+        //
+        writesInProgress = new AtomicInteger(0);
+        degradations = new LongAdder();
+        savedChars = new LongAdder();
+    }
+    
+    
+    
+    private OutputQuality() {
+        // utility class
+    }
+    
+    private static long msToNs(final double ms) {
+        return (long) (ms * 1_000_000.0);
+    }
+    
+    
+    
+    /**
+     * Start measuring terminal writes and adapting the quality.
+     * @param degradeMs mean write time to degrade at
+     * @param restoreMs mean write time to restore full quality at
+     * @throws IllegalArgumentException when times are not positive, or restore time is not less
+     */
+    public static void enable(final double degradeMs, final double restoreMs)
+                    throws IllegalArgumentException {
+        if ( !(restoreMs > 0) || !(degradeMs > restoreMs) ) {
+            String excMsg = "Write times must be positive, and restore time less than degrade one,"
+                                + " given: '" + degradeMs + "', '" + restoreMs + "'";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        OutputQuality.degradeNs = OutputQuality.msToNs(degradeMs);
+        OutputQuality.restoreNs = OutputQuality.msToNs(restoreMs);
+        OutputQuality.enabled = true;
+    }
+    public static void enable() {
+        OutputQuality.enable(DEFAULT_DEGRADE_MS, DEFAULT_RESTORE_MS);
+    }
+    
+    /**
+     * Stop adapting, full quality is restored at once.
+     */
+    public static void disable() {
+        OutputQuality.enabled = false;
+        OutputQuality.restore();
+    }
+    
+    public static boolean isEnabled() {
+        return OutputQuality.enabled;
+    }
+    
+    public static boolean isDegraded() {
+        return OutputQuality.degraded;
+    }
+    
+    /**
+     * Periodic redraws draw only each N-th frame (the latest state is drawn, the rest are dropped).
+     * @return 1 with full quality
+     */
+    public static int getFrameDivisor() {
+        return OutputQuality.degraded ? DEGRADED_FRAME_DIVISOR : 1;
+    }
+    
+    /**
+     * @return mean time of a terminal write
+     */
+    public static double getWriteLatencyMs() {
+        synchronized ( OutputQuality.qualityLock ) {
+            return OutputQuality.meanWriteNs / 1_000_000.0;
+        }
+    }
+    
+    /**
+     * @return writes waiting for the terminal now
+     */
+    public static int getBacklog() {
+        return OutputQuality.writesInProgress.get();
+    }
+    
+    /**
+     * @return how many times the quality was degraded
+     */
+    public static long getDegradations() {
+        return OutputQuality.degradations.sum();
+    }
+    
+    /**
+     * @return chars not written thanks to 256-color commands
+     */
+    public static long getSavedChars() {
+        return OutputQuality.savedChars.sum();
+    }
+    
+    
+    
+    /**
+     * Tests: time goes as they say.
+     * @param newClock source of nanoseconds, 'null' - 'System.nanoTime()'
+     */
+    static void setClock(final LongSupplier newClock) {
+        OutputQuality.clock = (null == newClock) ? System::nanoTime : newClock;
+    }
+    
+    /**
+     * Full quality, and the mean write time is measured from scratch.
+     */
+    static void reset() {
+        OutputQuality.restore();
+        synchronized ( OutputQuality.qualityLock ) {
+            OutputQuality.meanWriteNs = 0;
+            OutputQuality.lastWriteEndNs = OutputQuality.clock.getAsLong();
+        }
+    }
+    
+    
+    
+    /**
+     * Run the task when full quality is back (at once if it is not degraded).
+     * Tasks run on the quality thread.
+     * @param task i.e. redraw of a decoration
+     */
+    public static void runOnRestore(final Runnable task) {
+        synchronized ( OutputQuality.qualityLock ) {
+            if ( OutputQuality.degraded ) {
+                OutputQuality.restoreTasks.add(task);
+                return;
+            }
+        }
+        OutputQuality.checker.execute(task);
+    }
+    
+    
+    
+    /**
+     * Sink: a terminal write is started.
+     */
+    static void beginWrite() {
+        OutputQuality.writesInProgress.incrementAndGet();
+    }
+    
+    /**
+     * Sink: a terminal write is done.
+     * @param writeNs time of the write
+     */
+    static void endWrite(final long writeNs) {
+        final int backlog = OutputQuality.writesInProgress.decrementAndGet();
+        synchronized ( OutputQuality.qualityLock ) {
+            OutputQuality.meanWriteNs += (writeNs - OutputQuality.meanWriteNs) * WRITE_WEIGHT;
+            OutputQuality.lastWriteEndNs = OutputQuality.clock.getAsLong();
+            //
+            if ( OutputQuality.degraded || !OutputQuality.enabled ) return;
+            if ( OutputQuality.meanWriteNs < OutputQuality.degradeNs && backlog < BACKLOG_LIMIT ) return;
+            //
+            OutputQuality.degraded = true;
+            OutputQuality.degradedSinceNs = OutputQuality.lastWriteEndNs;
+            OutputQuality.degradations.increment();
+            OutputQuality.checking = OutputQuality.checker.scheduleAtFixedRate(OutputQuality::check,
+                                                                                CHECK_PERIOD_MS, CHECK_PERIOD_MS,
+                                                                                TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Quality thread: restore full quality when writes are fast again.
+     * No writes during the check period mean the link is idle.
+     */
+    static void check() {
+        synchronized ( OutputQuality.qualityLock ) {
+            final long nowNs = OutputQuality.clock.getAsLong();
+            if ( nowNs - OutputQuality.lastWriteEndNs > TimeUnit.MILLISECONDS.toNanos(CHECK_PERIOD_MS) ) {
+                OutputQuality.meanWriteNs /= 2;
+            }
+            if ( nowNs - OutputQuality.degradedSinceNs < MIN_DEGRADED_NS ) return;
+            if ( OutputQuality.meanWriteNs >= OutputQuality.restoreNs ) return;
+            if ( OutputQuality.writesInProgress.get() > 0 ) return;
+        }
+        OutputQuality.restore();
+    }
+    
+    private static void restore() {
+        final List<Runnable> tasks;
+        synchronized ( OutputQuality.qualityLock ) {
+            if ( !OutputQuality.degraded ) return;
+            //
+            OutputQuality.degraded = false;
+            if ( null != OutputQuality.checking ) OutputQuality.checking.cancel(false);
+            OutputQuality.checking = null;
+            tasks = new ArrayList<>(OutputQuality.restoreTasks);
+            OutputQuality.restoreTasks.clear();
+        }
+        //
+        for ( Runnable curTask : tasks ) {
+            OutputQuality.checker.execute(curTask);
+        }
+    }
+    
+    
+    
+    /**
+     * True-color commands of the text are replaced with the nearest 256-color ones.
+     * @param str text for the terminal
+     * @return text with less bytes (the same string when there are no true-color commands)
+     */
+    static String reduceColors(final String str) {
+        int cmdStart = OutputQuality.nextTrueColor(str, 0);
+        if ( cmdStart < 0 ) return str;
+        //
+        final StringBuilder reduced = new StringBuilder(str.length());
+        int copied = 0;
+        while ( cmdStart >= 0 ) {
+            final int prefixEnd = cmdStart + TRUE_COLOR_PREFIX.length();
+            final int[] rgb = new int[ 3 ];
+            int pos = prefixEnd;
+            int part = 0;
+            // "R;G;Bm"
+            while ( pos < str.length() && part < 3 ) {
+                final char curChar = str.charAt(pos);
+                if ( curChar >= '0' && curChar <= '9' ) {
+                    rgb[ part ] = rgb[ part ] * 10 + (curChar - '0');
+                } else if ( (';' == curChar && part < 2) || ('m' == curChar && 2 == part) ) {
+                    part++;
+                } else {
+                    break;
+                }
+                pos++;
+            }
+            if ( 3 == part ) {
+                reduced.append(str, copied, prefixEnd - 2)
+                        .append("5;")
+                        .append(OutputQuality.toColor256(rgb[ 0 ], rgb[ 1 ], rgb[ 2 ]))
+                        .append('m');
+                copied = pos;
+            }
+            cmdStart = OutputQuality.nextTrueColor(str, Math.max(pos, prefixEnd));
+        }
+        reduced.append(str, copied, str.length());
+        //
+        OutputQuality.savedChars.add(str.length() - reduced.length());
+        return reduced.toString();
+    }
+    
+    private static int nextTrueColor(final String str, final int from) {
+        final int color = str.indexOf(TRUE_COLOR_PREFIX, from);
+        final int background = str.indexOf(TRUE_BACKGROUND_PREFIX, from);
+        if ( color < 0 ) return background;
+        if ( background < 0 ) return color;
+        return Math.min(color, background);
+    }
+    
+    /**
+     * @return code of the nearest color of the 256-color palette (cube or grays)
+     */
+    private static int toColor256(final int red, final int green, final int blue) {
+        final int cubeRed = OutputQuality.nearestCubeLevel(red);
+        final int cubeGreen = OutputQuality.nearestCubeLevel(green);
+        final int cubeBlue = OutputQuality.nearestCubeLevel(blue);
+        final int cubeDistance = OutputQuality.distance(red, green, blue,
+                                                        CUBE_LEVELS[ cubeRed ],
+                                                        CUBE_LEVELS[ cubeGreen ],
+                                                        CUBE_LEVELS[ cubeBlue ]);
+        // 24 grays: 8, 18 ... 238
+        final int grayIndex = Math.max(0, Math.min(23, ((red + green + blue) / 3 - 3) / 10));
+        final int gray = 8 + grayIndex * 10;
+        final int grayDistance = OutputQuality.distance(red, green, blue, gray, gray, gray);
+        //
+        if ( grayDistance < cubeDistance ) return 232 + grayIndex;
+        return 16 + 36 * cubeRed + 6 * cubeGreen + cubeBlue;
+    }
+    
+    private static int nearestCubeLevel(final int value) {
+        if ( value < 48 ) return 0;
+        if ( value < 115 ) return 1;
+        return Math.min(5, (value - 35) / 40);
+    }
+    
+    private static int distance(final int r1, final int g1, final int b1,
+                                final int r2, final int g2, final int b2) {
+        return (r1 - r2) * (r1 - r2) + (g1 - g2) * (g1 - g2) + (b1 - b2) * (b1 - b2);
+    }
+    
+    
+    
+}
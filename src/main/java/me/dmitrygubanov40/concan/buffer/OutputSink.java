@@ -0,0 +1,323 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+
+
+
+/**
+ * The only way of the library's output to the terminal.
+ * By default every write goes to 'System.out' at once (and is flushed by it),
+ * so many tiny prints make many tiny terminal writes.
+ * With coalescing on, writes are held for up to the delay, or until
+ * there are enough chars, and then are written in one go (Nagle-style).
+ * The order of output is kept, 'flush()' writes everything held immediately.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class OutputSink
+{
+    
+    // held chars are written at this length, if no other is set
+    public static final int DEFAULT_FLUSH_THRESHOLD;
+    // less or larger thresholds are not efficient
+    private static final int MIN_FLUSH_THRESHOLD;
+    private static final int MAX_FLUSH_THRESHOLD;
+    // longer delay makes the output look frozen
+    private static final long MAX_DELAY_MICROS;
+    
+    // guards held chars and the deadline
+    private static final Object sinkLock;
+    private static final StringBuilder pending;
+    private static final ScheduledExecutorService deadlineTimer;
+    
+    // how long writes are held, '0' - coalescing is off
+    private static volatile long delayNs;
+    private static volatile int flushThreshold;
+    // writing of held chars at the deadline, 'null' - not scheduled (under the lock)
+    private static ScheduledFuture<?> deadline;
+    // held chars are written at exit (the hook is added once, 'null' - not yet)
+    private static Thread exitHook;
+    
+    // writes given to the sink, and writes done to the terminal
+    private static final LongAdder sinkWrites;
+    private static final LongAdder terminalWrites;
+    
+    static {
+        DEFAULT_FLUSH_THRESHOLD = 16384;
+        MIN_FLUSH_THRESHOLD = 64;
+        MAX_FLUSH_THRESHOLD = 1 << 20;
+        MAX_DELAY_MICROS = 1_000_000;
+        //
+        sinkLock = new Object();
+        pending = new StringBuilder();
+        deadlineTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread timerThread = new Thread(task, "concan-sink");
+            timerThread.setDaemon(true);
+            return timerThread;
+        });
+        //
+        delayNs = 0;
+        flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+        deadline = null;
+        exitHook = null;
+        //
+        sinkWrites = new LongAdder();
+        terminalWrites = new LongAdder();
+    }
+    
+    
+    
+    private OutputSink() {
+        // utility class
+    }
+    
+    
+    
+    /**
+     * Hold output for up to the delay, or until the threshold, and write it in one go.
+     * @param delayMicros max time output is held, '0' - write at once (coalescing is off)
+     * @param thresholdChars held chars are written at this length
+     * @throws IllegalArgumentException with delay or threshold out of limits
+     */
+    public static void setCoalescing(final long delayMicros, final int thresholdChars)
+                    throws IllegalArgumentException {
+        if ( delayMicros < 0 || delayMicros > MAX_DELAY_MICROS ) {
+            String excMsg = "Output delay must be from 0 to " + MAX_DELAY_MICROS
+                                + " microseconds, given: '" + delayMicros + "'";
+            throw new IllegalArgumentException(excMsg);
+        }
+        if ( thresholdChars < MIN_FLUSH_THRESHOLD || thresholdChars > MAX_FLUSH_THRESHOLD ) {
+            String excMsg = "Output threshold must be from " + MIN_FLUSH_THRESHOLD
+                                + " to " + MAX_FLUSH_THRESHOLD + " chars, given: '" + thresholdChars + "'";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        synchronized ( OutputSink.sinkLock ) {
+            if ( 0 == delayMicros ) OutputSink.writePending();
+            if ( delayMicros > 0 && null == OutputSink.exitHook ) {
+                OutputSink.exitHook = new Thread(OutputSink::flush, "concan-sink-exit");
+                Runtime.getRuntime().addShutdownHook(OutputSink.exitHook);
+            }
+            OutputSink.flushThreshold = thresholdChars;
+            OutputSink.delayNs = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        }
+    }
+    public static void setCoalescing(final long delayMicros) throws IllegalArgumentException {
+        OutputSink.setCoalescing(delayMicros, DEFAULT_FLUSH_THRESHOLD);
+    }
+    /**
+     * Write everything held and write at once from now on.
+     */
+    public static void disableCoalescing() {
+        OutputSink.setCoalescing(0, OutputSink.flushThreshold);
+    }
+    
+    public static boolean isCoalescing() {
+        return OutputSink.delayNs > 0;
+    }
+    
+    public static long getDelayMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(OutputSink.delayNs);
+    }
+    
+    public static int getFlushThreshold() {
+        return OutputSink.flushThreshold;
+    }
+    
+    
+    
+    /**
+     * @param str text (with commands) for the terminal
+     */
+    public static void write(final String str) {
+        if ( str.isEmpty() ) return;
+        //
+        OutputSink.sinkWrites.increment();
+        if ( 0 == OutputSink.delayNs ) {
+            OutputSink.toTerminal(str);
+            return;
+        }
+        //
+        synchronized ( OutputSink.sinkLock ) {
+            if ( 0 == OutputSink.delayNs ) {
+                // coalescing was just turned off
+                OutputSink.toTerminal(str);
+                return;
+            }
+            OutputSink.pending.append(str);
+            OutputSink.afterAppend();
+        }
+    }
+    
+    /**
+     * Write and count it (every write of the library is counted by its owner).
+     * @param str text (with commands) for the terminal
+     * @param counters where the write is counted, 'null' - it is not counted
+     */
+    public static void write(final String str, final OutputCounters counters) {
+        OutputSink.write(str);
+        if ( null != counters ) counters.countWrite(str);
+    }
+    
+    /**
+     * Segmented buffer's content is written chunk by chunk (not joined into a string).
+     * @param chunks chars for the terminal
+     * @param counters where the write is counted
+     */
+    static void write(final OutputBufferChunks chunks, final OutputCounters counters) {
+        OutputSink.write(chunks);
+        counters.countWrite(chunks);
+    }
+    
+    /**
+     * Segmented buffer's content is written chunk by chunk (not joined into a string).
+     * @param chunks chars for the terminal
+     */
+    static void write(final OutputBufferChunks chunks) {
+        OutputSink.sinkWrites.increment();
+        if ( 0 == OutputSink.delayNs ) {
+            OutputSink.toTerminal(chunks);
+            return;
+        }
+        //
+        synchronized ( OutputSink.sinkLock ) {
+            if ( 0 == OutputSink.delayNs ) {
+                OutputSink.toTerminal(chunks);
+                return;
+            }
+            chunks.appendTo(OutputSink.pending);
+            OutputSink.afterAppend();
+        }
+    }
+    
+    /**
+     * Under the lock: write held chars when there are enough of them,
+     * or make sure they are written at the deadline.
+     */
+    private static void afterAppend() {
+        if ( OutputSink.pending.length() >= OutputSink.flushThreshold ) {
+            OutputSink.writePending();
+            return;
+        }
+        if ( null != OutputSink.deadline ) return;
+        //
+        OutputSink.deadline = OutputSink.deadlineTimer.schedule(OutputSink::writeAtDeadline,
+                                                                OutputSink.delayNs,
+                                                                TimeUnit.NANOSECONDS);
+    }
+    
+    private static void writeAtDeadline() {
+        synchronized ( OutputSink.sinkLock ) {
+            OutputSink.deadline = null;
+            OutputSink.writePending();
+        }
+    }
+    
+    /**
+     * Under the lock: all held chars go to the terminal (nothing is left for the deadline).
+     */
+    private static void writePending() {
+        if ( OutputSink.pending.length() <= 0 ) return;
+        //
+        if ( null != OutputSink.deadline ) {
+            OutputSink.deadline.cancel(false);
+            OutputSink.deadline = null;
+        }
+        OutputSink.toTerminal(OutputSink.pending.toString());
+        OutputSink.pending.setLength(0);
+    }
+    
+    /**
+     * The write itself (measured for 'OutputQuality' when it is enabled).
+     * @param str text for the terminal
+     */
+    private static void toTerminal(final String str) {
+        OutputSink.terminalWrites.increment();
+        if ( !OutputQuality.isEnabled() ) {
+            System.out.print(str);
+            return;
+        }
+        //
+        final String out = OutputQuality.isDegraded() ? OutputQuality.reduceColors(str) : str;
+        OutputQuality.beginWrite();
+        final long writeStartNs = System.nanoTime();
+        try {
+            System.out.print(out);
+        } finally {
+            OutputQuality.endWrite(System.nanoTime() - writeStartNs);
+        }
+    }
+    private static void toTerminal(final OutputBufferChunks chunks) {
+        if ( OutputQuality.isDegraded() ) {
+            // colors are reduced in one string
+            OutputSink.toTerminal(chunks.toString());
+            return;
+        }
+        //
+        OutputSink.terminalWrites.increment();
+        if ( !OutputQuality.isEnabled() ) {
+            chunks.writeTo(System.out);
+            return;
+        }
+        //
+        OutputQuality.beginWrite();
+        final long writeStartNs = System.nanoTime();
+        try {
+            chunks.writeTo(System.out);
+        } finally {
+            OutputQuality.endWrite(System.nanoTime() - writeStartNs);
+        }
+    }
+    
+    /**
+     * Write everything held to the terminal immediately.
+     */
+    public static void flush() {
+        synchronized ( OutputSink.sinkLock ) {
+            OutputSink.writePending();
+        }
+        System.out.flush();
+    }
+    
+    
+    
+    /**
+     * @return chars held now
+     */
+    public static int getPendingChars() {
+        synchronized ( OutputSink.sinkLock ) {
+            return OutputSink.pending.length();
+        }
+    }
+    
+    /**
+     * @return hook which writes held chars at exit, 'null' when coalescing was never on
+     */
+    static Thread getExitHook() {
+        synchronized ( OutputSink.sinkLock ) {
+            return OutputSink.exitHook;
+        }
+    }
+    
+    /**
+     * @return writes given to the sink
+     */
+    public static long getSinkWrites() {
+        return OutputSink.sinkWrites.sum();
+    }
+    
+    /**
+     * @return writes done to the terminal (less than sink writes with coalescing)
+     */
+    public static long getTerminalWrites() {
+        return OutputSink.terminalWrites.sum();
+    }
+    
+    
+    
+}
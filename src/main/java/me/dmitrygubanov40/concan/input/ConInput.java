@@ -0,0 +1,285 @@
+package me.dmitrygubanov40.concan.input;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.utility.TermSession;
+
+
+
+/**
+ * ONLY FOR UNIX AND LINUX.
+ * Keyboard and mouse input of the terminal, without blocking reads of 'System.in':
+ * input is read by 'TermSession' (together with answers to cursor queries),
+ * decoded into 'ConInputEvent'-s, and the events are
+ * given to handlers (when there are some) or put into the queue for 'poll()'.
+ * Handlers run by one "concan-input" thread in order, or by the executor given
+ * (i.e. one with a thread per task, then the order is not kept).
+ * A handler must not wait for input itself.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConInput
+{
+    
+    // events not taken by 'poll()', the oldest ones are dropped after it
+    public static final int QUEUE_CAPACITY;
+    // lone 'Esc' key is told from the start of a sequence by such a pause
+    private static final long ESC_TIMEOUT_MS;
+    
+    // terminal modes: bracketed paste, mouse with dragging in SGR format
+    private static final String PASTE_ON;
+    private static final String PASTE_OFF;
+    private static final String MOUSE_ON;
+    private static final String MOUSE_OFF;
+    
+    private static final Object inputLock;
+    // decoding is done under the lock
+    private static final ConInputDecoder decoder;
+    private static final BlockingQueue<ConInputEvent> events;
+    private static final List<Consumer<ConInputEvent>> handlers;
+    private static final Executor defaultExecutor;
+    private static final ScheduledExecutorService escTimer;
+    
+    private static volatile Executor executor;
+    private static volatile boolean isStarted;
+    private static boolean isMouseOn;
+    // number of the last input (under the lock, for the 'Esc' timeout)
+    private static long inputNumber;
+    
+    private static final LongAdder decodedEvents;
+    private static final LongAdder droppedEvents;
+    private static final LongAdder failedHandlers;
+    
+    static {
+        QUEUE_CAPACITY = 1024;
+        ESC_TIMEOUT_MS = 50;
+        //
+        final String csi = "\u001b[";
+        PASTE_ON = csi + "?2004h";
+        PASTE_OFF = csi + "?2004l";
+        MOUSE_ON = csi + "?1002h" + csi + "?1006h";
+        MOUSE_OFF = csi + "?1006l" + csi + "?1002l";
+        //
+        inputLock = new Object();
+        decoder = new ConInputDecoder(ConInput::deliver);
+        events = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        handlers = new CopyOnWriteArrayList<>();
+        defaultExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread inputThread = new Thread(task, "concan-input");
+            inputThread.setDaemon(true);
+            return inputThread;
+        });
+        escTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread timerThread = new Thread(task, "concan-input-esc");
+            timerThread.setDaemon(true);
+            return timerThread;
+        });
+        //
+        executor = defaultExecutor;
+        isStarted = false;
+        isMouseOn = false;
+        inputNumber = 0;
+        //
+        decodedEvents = new LongAdder();
+        droppedEvents = new LongAdder();
+        failedHandlers = new LongAdder();
+    }
+    
+    
+    
+    private ConInput() {
+        // utility class
+    }
+    
+    
+    
+    /**
+     * Start reading of input (the terminal session is held, and opened if it is not open).
+     * Nothing happens when the input is already started.
+     * @param isMouse report mouse buttons, wheel and dragging too
+     * @throws RuntimeException when the terminal session cannot be opened
+     */
+    public static void start(final boolean isMouse) throws RuntimeException {
+        synchronized ( ConInput.inputLock ) {
+            if ( ConInput.isStarted ) return;
+            //
+            // the session is held till 'stop()'
+            TermSession.acquire();
+            TermSession.setInputConsumer(ConInput::onInput);
+            ConInput.isMouseOn = isMouse;
+            ConInput.sendModes(ConInput.PASTE_ON + (isMouse ? ConInput.MOUSE_ON : ""));
+            ConInput.isStarted = true;
+        }
+    }
+    public static void start() throws RuntimeException {
+        ConInput.start(false);
+    }
+    
+    /**
+     * Stop reading of input, the terminal's modes are restored.
+     * Events already decoded are still given.
+     */
+    public static void stop() {
+        synchronized ( ConInput.inputLock ) {
+            if ( !ConInput.isStarted ) return;
+            //
+            ConInput.sendModes(ConInput.PASTE_OFF + (ConInput.isMouseOn ? ConInput.MOUSE_OFF : ""));
+            TermSession.setInputConsumer(null);
+            ConInput.decoder.flush();
+            ConInput.isStarted = false;
+        }
+        // closing waits for the reading thread, which may be waiting for the lock ('onInput()')
+        TermSession.release();
+    }
+    
+    public static boolean isStarted() {
+        return ConInput.isStarted;
+    }
+    
+    private static void sendModes(final String modes) {
+        OutputSink.write(modes, OutputStats.global());
+        OutputSink.flush();
+    }
+    
+    
+    
+    /**
+     * Events go to handlers (not to the queue) while there are some.
+     * @param handler who gets events
+     * @throws NullPointerException when there is no handler
+     */
+    public static void addHandler(final Consumer<ConInputEvent> handler) throws NullPointerException {
+        if ( null == handler ) {
+            String excMsg = "Cannot add null-handler of input";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        ConInput.handlers.add(handler);
+    }
+    
+    public static void removeHandler(final Consumer<ConInputEvent> handler) {
+        ConInput.handlers.remove(handler);
+    }
+    
+    /**
+     * @param newExecutor runs handlers of each event, 'null' - one "concan-input" thread (the order is kept)
+     */
+    public static void setExecutor(final Executor newExecutor) {
+        ConInput.executor = (null == newExecutor) ? ConInput.defaultExecutor : newExecutor;
+    }
+    
+    
+    
+    /**
+     * @param timeoutMs how long to wait for an event
+     * @return the next event, 'null' when there was none in time
+     * @throws InterruptedException when waiting is interrupted
+     */
+    public static ConInputEvent poll(final long timeoutMs) throws InterruptedException {
+        return ConInput.events.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+    /**
+     * @return the next event, 'null' when there is none
+     */
+    public static ConInputEvent poll() {
+        return ConInput.events.poll();
+    }
+    
+    /**
+     * @return events waiting for 'poll()'
+     */
+    public static int getQueued() {
+        return ConInput.events.size();
+    }
+    
+    public static long getDecodedEvents() {
+        return ConInput.decodedEvents.sum();
+    }
+    
+    /**
+     * @return events dropped from the full queue, or not taken by the executor
+     */
+    public static long getDroppedEvents() {
+        return ConInput.droppedEvents.sum();
+    }
+    
+    /**
+     * @return calls of handlers which threw exceptions
+     */
+    public static long getFailedHandlers() {
+        return ConInput.failedHandlers.sum();
+    }
+    
+    
+    
+    /**
+     * Reading thread of the session: bytes which are not reports.
+     * @param input bytes of the terminal
+     */
+    private static void onInput(final byte[] input) {
+        synchronized ( ConInput.inputLock ) {
+            ConInput.decoder.feed(input, 0, input.length);
+            if ( !ConInput.decoder.hasPending() ) return;
+            //
+            final long curInputNumber = ++ConInput.inputNumber;
+            ConInput.escTimer.schedule(() -> ConInput.flushPending(curInputNumber),
+                                        ConInput.ESC_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Nothing came after kept bytes: they are keys (i.e. 'Esc').
+     * @param lastInputNumber number of the input which left the bytes
+     */
+    private static void flushPending(final long lastInputNumber) {
+        synchronized ( ConInput.inputLock ) {
+            if ( lastInputNumber == ConInput.inputNumber ) ConInput.decoder.flush();
+        }
+    }
+    
+    /**
+     * Under the lock: decoded event goes to handlers or to the queue.
+     * @param event decoded event
+     */
+    private static void deliver(final ConInputEvent event) {
+        ConInput.decodedEvents.increment();
+        if ( ConInput.handlers.isEmpty() ) {
+            while ( !ConInput.events.offer(event) ) {
+                ConInput.events.poll();
+                ConInput.droppedEvents.increment();
+            }
+            return;
+        }
+        //
+        try {
+            ConInput.executor.execute(() -> ConInput.dispatch(event));
+        } catch ( RejectedExecutionException rejectExc ) {
+            ConInput.droppedEvents.increment();
+        }
+    }
+    
+    private static void dispatch(final ConInputEvent event) {
+        for ( Consumer<ConInputEvent> curHandler : ConInput.handlers ) {
+            try {
+                curHandler.accept(event);
+            } catch ( RuntimeException handlerExc ) {
+                // a broken handler must not stop the others
+                ConInput.failedHandlers.increment();
+            }
+        }
+    }
+    
+    
+    
+}
@@ -0,0 +1,457 @@
+package me.dmitrygubanov40.concan.input;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import me.dmitrygubanov40.concan.utility.ConCord;
+
+
+
+/**
+ * Turns bytes of the terminal (in raw mode) into input events:
+ * UTF-8 chars and control chars, escape-encoded keys (CSI and SS3 forms, with modifiers),
+ * bracketed paste and SGR mouse reports.
+ * Bytes of an incomplete sequence are kept till the next bytes come,
+ * or till 'flush()' (i.e. a lone 'Esc' key).
+ * Unknown sequences are skipped.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class ConInputDecoder
+{
+    
+    private static final int ESC;
+    // longer sequences are not taken as sequences
+    private static final int MAX_SEQUENCE_LENGTH;
+    // bracketed paste: "ESC[200~" text "ESC[201~"
+    private static final int PASTE_START;
+    private static final byte[] PASTE_END;
+    // invalid UTF-8 gives this char
+    private static final int REPLACEMENT_CHAR;
+    
+    static {
+        ESC = 0x1B;
+        MAX_SEQUENCE_LENGTH = 64;
+        PASTE_START = 200;
+        PASTE_END = "\u001b[201~".getBytes(StandardCharsets.US_ASCII);
+        REPLACEMENT_CHAR = 0xFFFD;
+    }
+    
+    ////////////
+    
+    private final Consumer<ConInputEvent> receiver;
+    
+    // bytes of an incomplete sequence or char
+    private final ByteArrayOutputStream pending;
+    private boolean isInPaste;
+    private final ByteArrayOutputStream paste;
+    
+    
+    
+    /**
+     * @param initReceiver who gets decoded events
+     * @throws NullPointerException when there is no receiver
+     */
+    ConInputDecoder(final Consumer<ConInputEvent> initReceiver) throws NullPointerException {
+        if ( null == initReceiver ) {
+            String excMsg = "Cannot decode input without a receiver";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.receiver = initReceiver;
+        this.pending = new ByteArrayOutputStream();
+        this.isInPaste = false;
+        this.paste = new ByteArrayOutputStream();
+    }
+    
+    
+    
+    /**
+     * @param data bytes of the terminal
+     * @param offset first byte to decode
+     * @param length bytes to decode
+     */
+    void feed(final byte[] data, final int offset, final int length) {
+        this.pending.write(data, offset, length);
+        this.decodePending(false);
+    }
+    
+    /**
+     * Nothing more came for a while: incomplete sequence is taken as it is
+     * (a started paste waits for its end anyway).
+     */
+    void flush() {
+        this.decodePending(true);
+    }
+    
+    /**
+     * @return are there kept bytes
+     */
+    boolean hasPending() {
+        return this.pending.size() > 0;
+    }
+    
+    
+    
+    /**
+     * @param isFinal no more bytes will come for kept ones
+     */
+    private void decodePending(final boolean isFinal) {
+        final byte[] buf = this.pending.toByteArray();
+        this.pending.reset();
+        //
+        int pos = 0;
+        while ( pos < buf.length ) {
+            final int used = this.isInPaste
+                                ? this.decodePaste(buf, pos)
+                                : this.decodeNext(buf, pos, isFinal);
+            if ( 0 == used ) break;
+            pos += used;
+        }
+        this.pending.write(buf, pos, buf.length - pos);
+    }
+    
+    /**
+     * @param buf bytes
+     * @param pos first byte to decode
+     * @param isFinal no more bytes will come
+     * @return bytes used, '0' when more bytes are needed
+     */
+    private int decodeNext(final byte[] buf, final int pos, final boolean isFinal) {
+        final int firstByte = buf[ pos ] & 0xFF;
+        if ( ConInputDecoder.ESC == firstByte ) return this.decodeEscape(buf, pos, isFinal);
+        if ( firstByte >= 0x80 ) return this.decodeUtf8(buf, pos, isFinal, 0);
+        //
+        this.decodeAscii(firstByte, 0);
+        return 1;
+    }
+    
+    /**
+     * @param asciiByte char or control char
+     * @param modifiers modifiers already known (i.e. 'ALT' after 'Esc')
+     */
+    private void decodeAscii(final int asciiByte, final int modifiers) {
+        if ( '\r' == asciiByte || '\n' == asciiByte ) {
+            this.giveKey(ConKey.ENTER, modifiers);
+        } else if ( '\t' == asciiByte ) {
+            this.giveKey(ConKey.TAB, modifiers);
+        } else if ( 0x7F == asciiByte || 0x08 == asciiByte ) {
+            this.giveKey(ConKey.BACKSPACE, modifiers);
+        } else if ( ConInputDecoder.ESC == asciiByte ) {
+            this.giveKey(ConKey.ESCAPE, modifiers);
+        } else if ( 0x00 == asciiByte ) {
+            // 'Ctrl' + 'Space'
+            this.giveChar(' ', modifiers | ConInputEvent.CTRL);
+        } else if ( asciiByte <= 0x1A ) {
+            // 'Ctrl' + letter
+            this.giveChar('a' + asciiByte - 1, modifiers | ConInputEvent.CTRL);
+        } else if ( asciiByte <= 0x1F ) {
+            // 'Ctrl' + one of "\]^_"
+            this.giveChar(asciiByte + 0x40, modifiers | ConInputEvent.CTRL);
+        } else {
+            this.giveChar(asciiByte, modifiers);
+        }
+    }
+    
+    private int decodeEscape(final byte[] buf, final int pos, final boolean isFinal) {
+        if ( pos + 1 >= buf.length ) {
+            if ( !isFinal ) return 0;
+            this.giveKey(ConKey.ESCAPE, 0);
+            return 1;
+        }
+        //
+        final int nextByte = buf[ pos + 1 ] & 0xFF;
+        if ( '[' == nextByte ) return this.decodeCsi(buf, pos, isFinal);
+        if ( 'O' == nextByte ) return this.decodeSs3(buf, pos, isFinal);
+        if ( ConInputDecoder.ESC == nextByte ) {
+            this.giveKey(ConKey.ESCAPE, 0);
+            return 1;
+        }
+        if ( nextByte >= 0x80 ) {
+            // 'Alt' + non-ASCII char
+            final int used = this.decodeUtf8(buf, pos + 1, isFinal, ConInputEvent.ALT);
+            return (0 == used) ? 0 : used + 1;
+        }
+        // 'Alt' + key
+        this.decodeAscii(nextByte, ConInputEvent.ALT);
+        return 2;
+    }
+    
+    /**
+     * "ESC[" parameters and the final char.
+     */
+    private int decodeCsi(final byte[] buf, final int pos, final boolean isFinal) {
+        int finalPos = -1;
+        for ( int i = pos + 2; i < buf.length && finalPos < 0; i++ ) {
+            final int curByte = buf[ i ] & 0xFF;
+            if ( curByte >= 0x40 && curByte <= 0x7E ) {
+                finalPos = i;
+            } else if ( curByte < 0x20 || curByte > 0x3F || i - pos > ConInputDecoder.MAX_SEQUENCE_LENGTH ) {
+                // not a sequence: 'Alt' + '['
+                this.giveChar('[', ConInputEvent.ALT);
+                return 2;
+            }
+        }
+        if ( finalPos < 0 ) {
+            if ( !isFinal ) return 0;
+            this.giveChar('[', ConInputEvent.ALT);
+            return 2;
+        }
+        //
+        final String params = new String(buf, pos + 2, finalPos - pos - 2, StandardCharsets.US_ASCII);
+        this.onCsi(params, (char) buf[ finalPos ]);
+        return finalPos - pos + 1;
+    }
+    
+    /**
+     * @param params chars between "ESC[" and the final char
+     * @param finalChar last char of the sequence
+     */
+    private void onCsi(final String params, final char finalChar) {
+        if ( params.startsWith("<") ) {
+            if ( 'M' == finalChar || 'm' == finalChar ) this.onSgrMouse(params.substring(1), 'm' == finalChar);
+            return;
+        }
+        final int[] numbers = ConInputDecoder.parseNumbers(params);
+        if ( null == numbers ) return;
+        // "1;5A" - 'Ctrl' + 'Up' (modifiers are '1' + bits)
+        final int modifiers = (numbers.length >= 2 && numbers[ 1 ] > 0) ? numbers[ 1 ] - 1 : 0;
+        //
+        if ( '~' == finalChar ) {
+            final int code = (numbers.length > 0) ? numbers[ 0 ] : 0;
+            if ( ConInputDecoder.PASTE_START == code ) {
+                this.isInPaste = true;
+                this.paste.reset();
+                return;
+            }
+            final ConKey tildeKey = ConInputDecoder.getTildeKey(code);
+            if ( null != tildeKey ) this.giveKey(tildeKey, modifiers);
+            return;
+        }
+        if ( 'Z' == finalChar ) {
+            // 'Shift' + 'Tab'
+            this.giveKey(ConKey.TAB, modifiers | ConInputEvent.SHIFT);
+            return;
+        }
+        final ConKey letterKey = ConInputDecoder.getLetterKey(finalChar);
+        if ( null != letterKey ) this.giveKey(letterKey, modifiers);
+    }
+    
+    /**
+     * "ESC[<b;x;y" and 'M' (press) or 'm' (release).
+     * @param params "b;x;y"
+     * @param isRelease the final char was 'm'
+     */
+    private void onSgrMouse(final String params, final boolean isRelease) {
+        final int[] numbers = ConInputDecoder.parseNumbers(params);
+        if ( null == numbers || 3 != numbers.length || numbers[ 1 ] < 1 || numbers[ 2 ] < 1 ) return;
+        //
+        final int code = numbers[ 0 ];
+        if ( 0 != (code & 128) ) {
+            // extra buttons are not supported
+            return;
+        }
+        int modifiers = 0;
+        if ( 0 != (code & 4) )  modifiers |= ConInputEvent.SHIFT;
+        if ( 0 != (code & 8) )  modifiers |= ConInputEvent.ALT;
+        if ( 0 != (code & 16) ) modifiers |= ConInputEvent.CTRL;
+        // reports are console positions (from '1')
+        final ConCord position = new ConCord(numbers[ 1 ], numbers[ 2 ]).removeConsoleShift();
+        //
+        final int button = code & 3;
+        final ConMouseAction action;
+        int eventButton = button;
+        if ( 0 != (code & 64) ) {
+            action = (0 == button) ? ConMouseAction.WHEEL_UP : ConMouseAction.WHEEL_DOWN;
+            eventButton = ConInputEvent.NO_BUTTON;
+        } else if ( 0 != (code & 32) ) {
+            action = (3 == button) ? ConMouseAction.MOVE : ConMouseAction.DRAG;
+        } else {
+            action = (isRelease || 3 == button) ? ConMouseAction.RELEASE : ConMouseAction.PRESS;
+        }
+        if ( 3 == button ) eventButton = ConInputEvent.NO_BUTTON;
+        //
+        this.receiver.accept(ConInputEvent.ofMouse(action, eventButton, position, modifiers));
+    }
+    
+    /**
+     * "ESC O" and a letter (keys in application mode, 'F1'-'F4').
+     */
+    private int decodeSs3(final byte[] buf, final int pos, final boolean isFinal) {
+        if ( pos + 2 >= buf.length ) {
+            if ( !isFinal ) return 0;
+            this.giveChar('O', ConInputEvent.ALT);
+            return 2;
+        }
+        //
+        final ConKey letterKey = ConInputDecoder.getLetterKey((char) buf[ pos + 2 ]);
+        if ( null == letterKey ) {
+            this.giveChar('O', ConInputEvent.ALT);
+            return 2;
+        }
+        this.giveKey(letterKey, 0);
+        return 3;
+    }
+    
+    /**
+     * @param buf bytes
+     * @param pos first byte of the char
+     * @param isFinal no more bytes will come
+     * @param modifiers modifiers already known
+     * @return bytes used, '0' when more bytes are needed
+     */
+    private int decodeUtf8(final byte[] buf, final int pos, final boolean isFinal, final int modifiers) {
+        final int firstByte = buf[ pos ] & 0xFF;
+        final int length;
+        if ( firstByte >= 0xF0 && firstByte <= 0xF4 )       length = 4;
+        else if ( firstByte >= 0xE0 && firstByte < 0xF0 )   length = 3;
+        else if ( firstByte >= 0xC2 && firstByte < 0xE0 )   length = 2;
+        else                                                length = 1;
+        if ( 1 == length ) {
+            this.giveChar(ConInputDecoder.REPLACEMENT_CHAR, modifiers);
+            return 1;
+        }
+        //
+        for ( int i = pos + 1; i < pos + length; i++ ) {
+            if ( i >= buf.length ) {
+                if ( !isFinal ) return 0;
+                this.giveChar(ConInputDecoder.REPLACEMENT_CHAR, modifiers);
+                return buf.length - pos;
+            }
+            if ( 0x80 != (buf[ i ] & 0xC0) ) {
+                // broken char, the byte starts something else
+                this.giveChar(ConInputDecoder.REPLACEMENT_CHAR, modifiers);
+                return i - pos;
+            }
+        }
+        final String decoded = new String(buf, pos, length, StandardCharsets.UTF_8);
+        this.giveChar(decoded.codePointAt(0), modifiers);
+        return length;
+    }
+    
+    /**
+     * Paste goes till its end mark, kept bytes may be the start of the mark.
+     * @return bytes used
+     */
+    private int decodePaste(final byte[] buf, final int pos) {
+        final int endPos = ConInputDecoder.indexOf(buf, pos, ConInputDecoder.PASTE_END);
+        if ( endPos >= 0 ) {
+            this.paste.write(buf, pos, endPos - pos);
+            this.isInPaste = false;
+            // raw mode gives 'CR' for new lines
+            final String text = this.paste.toString(StandardCharsets.UTF_8)
+                                    .replace("\r\n", "\n")
+                                    .replace('\r', '\n');
+            this.paste.reset();
+            this.receiver.accept(ConInputEvent.ofPaste(text));
+            return endPos - pos + ConInputDecoder.PASTE_END.length;
+        }
+        //
+        int safeEnd = buf.length;
+        for ( int i = Math.max(pos, buf.length - ConInputDecoder.PASTE_END.length + 1); i < buf.length; i++ ) {
+            if ( ConInputDecoder.isMarkStart(buf, i) ) {
+                safeEnd = i;
+                break;
+            }
+        }
+        this.paste.write(buf, pos, safeEnd - pos);
+        return safeEnd - pos;
+    }
+    
+    private static boolean isMarkStart(final byte[] buf, final int from) {
+        for ( int i = from; i < buf.length; i++ ) {
+            if ( buf[ i ] != ConInputDecoder.PASTE_END[ i - from ] ) return false;
+        }
+        return true;
+    }
+    
+    private static int indexOf(final byte[] buf, final int from, final byte[] mark) {
+        for ( int i = from; i <= buf.length - mark.length; i++ ) {
+            int j = 0;
+            while ( j < mark.length && buf[ i + j ] == mark[ j ] ) j++;
+            if ( mark.length == j ) return i;
+        }
+        return -1;
+    }
+    
+    
+    
+    /**
+     * @param params parameters like "1;5", empty ones are '0'
+     * @return the numbers, 'null' when there are not only numbers
+     */
+    static int[] parseNumbers(final String params) {
+        if ( params.isEmpty() ) return new int[ 0 ];
+        //
+        final String[] parts = params.split(";", -1);
+        final int[] numbers = new int[ parts.length ];
+        for ( int i = 0; i < parts.length; i++ ) {
+            final String curPart = parts[ i ];
+            if ( curPart.length() > 9 ) return null;
+            for ( int j = 0; j < curPart.length(); j++ ) {
+                if ( curPart.charAt(j) < '0' || curPart.charAt(j) > '9' ) return null;
+            }
+            numbers[ i ] = curPart.isEmpty() ? 0 : Integer.parseInt(curPart);
+        }
+        return numbers;
+    }
+    
+    /**
+     * @param finalChar final char of "ESC[1;#X" or "ESC OX"
+     * @return the key, 'null' for unknown chars
+     */
+    private static ConKey getLetterKey(final char finalChar) {
+        switch ( finalChar ) {
+            case 'A': return ConKey.UP;
+            case 'B': return ConKey.DOWN;
+            case 'C': return ConKey.RIGHT;
+            case 'D': return ConKey.LEFT;
+            case 'H': return ConKey.HOME;
+            case 'F': return ConKey.END;
+            case 'P': return ConKey.F1;
+            case 'Q': return ConKey.F2;
+            case 'R': return ConKey.F3;
+            case 'S': return ConKey.F4;
+            default:  return null;
+        }
+    }
+    
+    /**
+     * @param code number of "ESC[#~"
+     * @return the key, 'null' for unknown codes
+     */
+    private static ConKey getTildeKey(final int code) {
+        switch ( code ) {
+            case 1: case 7: return ConKey.HOME;
+            case 2:         return ConKey.INSERT;
+            case 3:         return ConKey.DELETE;
+            case 4: case 8: return ConKey.END;
+            case 5:         return ConKey.PAGE_UP;
+            case 6:         return ConKey.PAGE_DOWN;
+            case 11:        return ConKey.F1;
+            case 12:        return ConKey.F2;
+            case 13:        return ConKey.F3;
+            case 14:        return ConKey.F4;
+            case 15:        return ConKey.F5;
+            case 17:        return ConKey.F6;
+            case 18:        return ConKey.F7;
+            case 19:        return ConKey.F8;
+            case 20:        return ConKey.F9;
+            case 21:        return ConKey.F10;
+            case 23:        return ConKey.F11;
+            case 24:        return ConKey.F12;
+            default:        return null;
+        }
+    }
+    
+    private void giveKey(final ConKey key, final int modifiers) {
+        this.receiver.accept(ConInputEvent.ofKey(key, modifiers));
+    }
+    
+    private void giveChar(final int codePoint, final int modifiers) {
+        this.receiver.accept(ConInputEvent.ofChar(codePoint, modifiers));
+    }
+    
+    
+    
+}
@@ -0,0 +1,264 @@
+package me.dmitrygubanov40.concan.input;
+
+import java.util.Objects;
+
+import me.dmitrygubanov40.concan.utility.ConCord;
+
+
+
+/**
+ * One input event of the terminal: a key, pasted text, or a mouse report.
+ * Events are immutable, what is not about the event's type is empty
+ * (i.e. a key event has no text and no position).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConInputEvent
+{
+    
+    // modifiers (bits, see 'getModifiers()')
+    public static final int SHIFT;
+    public static final int ALT;
+    public static final int CTRL;
+    
+    // mouse event without a button (moving, wheel)
+    public static final int NO_BUTTON;
+    // not a char key
+    public static final int NO_CHAR;
+    
+    static {
+        SHIFT = 1;
+        ALT = 2;
+        CTRL = 4;
+        //
+        NO_BUTTON = -1;
+        NO_CHAR = -1;
+    }
+    
+    ////////////
+    
+    private final ConInputEventType type;
+    private final int modifiers;
+    // key events
+    private final ConKey key;
+    private final int codePoint;
+    // paste events
+    private final String text;
+    // mouse events
+    private final ConMouseAction mouseAction;
+    private final int button;
+    private final ConCord position;
+    // when the event was decoded (not a part of the event's value)
+    private final long timeNs;
+    
+    
+    
+    private ConInputEvent(final ConInputEventType initType, final int initModifiers,
+                            final ConKey initKey, final int initCodePoint,
+                            final String initText,
+                            final ConMouseAction initMouseAction, final int initButton,
+                            final ConCord initPosition) {
+        this.type = initType;
+        this.modifiers = initModifiers;
+        this.key = initKey;
+        this.codePoint = initCodePoint;
+        this.text = initText;
+        this.mouseAction = initMouseAction;
+        this.button = initButton;
+        this.position = initPosition;
+        this.timeNs = System.nanoTime();
+    }
+    
+    /**
+     * @param key pressed key (not 'CHAR', see 'ofChar()')
+     * @param modifiers bits of 'SHIFT', 'ALT', 'CTRL'
+     * @return key event
+     * @throws NullPointerException when there is no key
+     * @throws IllegalArgumentException for 'CHAR' key
+     */
+    public static ConInputEvent ofKey(final ConKey key, final int modifiers)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == key ) {
+            String excMsg = "Key event needs a key";
+            throw new NullPointerException(excMsg);
+        }
+        if ( ConKey.CHAR == key ) {
+            String excMsg = "Char key event needs a char";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        return new ConInputEvent(ConInputEventType.KEY, modifiers, key, ConInputEvent.NO_CHAR,
+                                    null, null, ConInputEvent.NO_BUTTON, null);
+    }
+    
+    /**
+     * @param codePoint typed char (with 'CTRL' it is a letter, i.e. 'c' for 'Ctrl' + 'C')
+     * @param modifiers bits of 'SHIFT', 'ALT', 'CTRL'
+     * @return key event of 'CHAR' key
+     * @throws IllegalArgumentException when it is not a char
+     */
+    public static ConInputEvent ofChar(final int codePoint, final int modifiers)
+                    throws IllegalArgumentException {
+        if ( !Character.isValidCodePoint(codePoint) ) {
+            String excMsg = "Not a char: " + codePoint;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        return new ConInputEvent(ConInputEventType.KEY, modifiers, ConKey.CHAR, codePoint,
+                                    null, null, ConInputEvent.NO_BUTTON, null);
+    }
+    
+    /**
+     * @param text pasted text
+     * @return paste event
+     * @throws NullPointerException when there is no text
+     */
+    public static ConInputEvent ofPaste(final String text) throws NullPointerException {
+        if ( null == text ) {
+            String excMsg = "Paste event needs a text";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        return new ConInputEvent(ConInputEventType.PASTE, 0, null, ConInputEvent.NO_CHAR,
+                                    text, null, ConInputEvent.NO_BUTTON, null);
+    }
+    
+    /**
+     * @param action what the mouse did
+     * @param button '0' - left, '1' - middle, '2' - right, or 'NO_BUTTON'
+     * @param position (X;Y) of the mouse, first column/line are '0'
+     * @param modifiers bits of 'SHIFT', 'ALT', 'CTRL'
+     * @return mouse event
+     * @throws NullPointerException when there is no action or position
+     */
+    public static ConInputEvent ofMouse(final ConMouseAction action, final int button,
+                                        final ConCord position, final int modifiers)
+                    throws NullPointerException {
+        if ( null == action || null == position ) {
+            String excMsg = "Mouse event needs an action and a position";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        return new ConInputEvent(ConInputEventType.MOUSE, modifiers, null, ConInputEvent.NO_CHAR,
+                                    null, action, button, position);
+    }
+    
+    
+    
+    public ConInputEventType getType() {
+        return this.type;
+    }
+    
+    /**
+     * @return bits of 'SHIFT', 'ALT', 'CTRL'
+     */
+    public int getModifiers() {
+        return this.modifiers;
+    }
+    public boolean isShift() {
+        return 0 != (this.modifiers & ConInputEvent.SHIFT);
+    }
+    public boolean isAlt() {
+        return 0 != (this.modifiers & ConInputEvent.ALT);
+    }
+    public boolean isCtrl() {
+        return 0 != (this.modifiers & ConInputEvent.CTRL);
+    }
+    
+    /**
+     * @return key of key event, 'null' for others
+     */
+    public ConKey getKey() {
+        return this.key;
+    }
+    
+    /**
+     * @return char of 'CHAR' key, 'NO_CHAR' for others
+     */
+    public int getCodePoint() {
+        return this.codePoint;
+    }
+    
+    /**
+     * @return text of paste event, 'null' for others
+     */
+    public String getText() {
+        return this.text;
+    }
+    
+    /**
+     * @return action of mouse event, 'null' for others
+     */
+    public ConMouseAction getMouseAction() {
+        return this.mouseAction;
+    }
+    
+    /**
+     * @return button of mouse event, 'NO_BUTTON' for others
+     */
+    public int getButton() {
+        return this.button;
+    }
+    
+    /**
+     * @return position of mouse event, 'null' for others
+     */
+    public ConCord getPosition() {
+        return this.position;
+    }
+    
+    /**
+     * @return 'System.nanoTime()' when the event was decoded
+     */
+    public long getTimeNs() {
+        return this.timeNs;
+    }
+    
+    
+    
+    @Override
+    public boolean equals(final Object obj) {
+        if ( this == obj ) return true;
+        if ( !(obj instanceof ConInputEvent) ) return false;
+        //
+        final ConInputEvent other = (ConInputEvent) obj;
+        return this.type == other.type
+                && this.modifiers == other.modifiers
+                && this.key == other.key
+                && this.codePoint == other.codePoint
+                && Objects.equals(this.text, other.text)
+                && this.mouseAction == other.mouseAction
+                && this.button == other.button
+                && Objects.equals(this.position, other.position);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.type, this.modifiers, this.key, this.codePoint,
+                                this.text, this.mouseAction, this.button, this.position);
+    }
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName() + ": [" + this.type.getTypeName();
+        switch ( this.type ) {
+            case KEY:
+                str += ", key: " + this.key.getKeyName();
+                if ( ConKey.CHAR == this.key ) str += " '" + new String(Character.toChars(this.codePoint)) + "'";
+                break;
+            case PASTE:
+                str += ", chars: " + this.text.length();
+                break;
+            case MOUSE:
+                str += ", action: " + this.mouseAction.getActionName()
+                        + ", button: " + this.button
+                        + ", position: " + this.position;
+                break;
+        }
+        if ( 0 != this.modifiers ) str += ", modifiers: " + this.modifiers;
+        str += "]";
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,51 @@
+package me.dmitrygubanov40.concan.input;
+
+/**
+ * Kinds of input events (see 'ConInputEvent').
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum ConInputEventType
+{
+    
+    // key with modifiers
+    KEY      ("key"),
+    // text pasted at once (bracketed paste), it is not split into keys
+    PASTE    ("paste"),
+    // SGR mouse report
+    MOUSE    ("mouse");
+    
+    ////////////////////////////
+    
+    private final String typeName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initTypeName text code
+     */
+    ConInputEventType(final String initTypeName) {
+        this.typeName = initTypeName;
+    }
+    
+    
+    
+    /**
+     * @return string of type name
+     */
+    public String getTypeName() {
+        return this.typeName;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.typeName;
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,76 @@
+package me.dmitrygubanov40.concan.input;
+
+/**
+ * Keys of keyboard events (see 'ConInputEvent').
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum ConKey
+{
+    
+    // regular char (the char is in the event), with 'Ctrl' it is a control char like 'Ctrl' + 'C'
+    CHAR         ("char"),
+    //
+    ENTER        ("enter"),
+    TAB          ("tab"),
+    BACKSPACE    ("backspace"),
+    ESCAPE       ("escape"),
+    //
+    UP           ("up"),
+    DOWN         ("down"),
+    LEFT         ("left"),
+    RIGHT        ("right"),
+    HOME         ("home"),
+    END          ("end"),
+    INSERT       ("insert"),
+    DELETE       ("delete"),
+    PAGE_UP      ("pageUp"),
+    PAGE_DOWN    ("pageDown"),
+    //
+    F1           ("f1"),
+    F2           ("f2"),
+    F3           ("f3"),
+    F4           ("f4"),
+    F5           ("f5"),
+    F6           ("f6"),
+    F7           ("f7"),
+    F8           ("f8"),
+    F9           ("f9"),
+    F10          ("f10"),
+    F11          ("f11"),
+    F12          ("f12");
+    
+    ////////////////////////////
+    
+    private final String keyName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initKeyName text code
+     */
+    ConKey(final String initKeyName) {
+        this.keyName = initKeyName;
+    }
+    
+    
+    
+    /**
+     * @return string of key name
+     */
+    public String getKeyName() {
+        return this.keyName;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.keyName;
+        return str;
+    }
+    
+    
+    
+}
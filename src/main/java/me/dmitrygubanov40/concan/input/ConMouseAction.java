@@ -0,0 +1,53 @@
+package me.dmitrygubanov40.concan.input;
+
+/**
+ * What the mouse did (see 'ConInputEvent').
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum ConMouseAction
+{
+    
+    PRESS         ("press"),
+    RELEASE       ("release"),
+    // moving with a pressed button
+    DRAG          ("drag"),
+    // moving without buttons (not every terminal reports it)
+    MOVE          ("move"),
+    WHEEL_UP      ("wheelUp"),
+    WHEEL_DOWN    ("wheelDown");
+    
+    ////////////////////////////
+    
+    private final String actionName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initActionName text code
+     */
+    ConMouseAction(final String initActionName) {
+        this.actionName = initActionName;
+    }
+    
+    
+    
+    /**
+     * @return string of action name
+     */
+    public String getActionName() {
+        return this.actionName;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.actionName;
+        return str;
+    }
+    
+    
+    
+}
@@ -3,6 +3,10 @@ package me.dmitrygubanov40.concan.paint;
 import java.awt.Color;
 import java.util.ArrayList;
 
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.strain.JfrDrawEvent;
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+import me.dmitrygubanov40.concan.strain.OutputStats;
 import me.dmitrygubanov40.concan.utility.ConCol;
 import me.dmitrygubanov40.concan.utility.ConCord;
 import me.dmitrygubanov40.concan.utility.ConStyles;
@@ -25,12 +29,17 @@ public class ConDraw
     // terminal save switcher
     private static boolean useTermSave;
     
+    // output accounting scope prefix, full scope is i.e. "draw-ConBar"
+    public static final String STATS_SCOPE_PREFIX;
+    
     
     static {
         // initialized with default values in 'ConDrawFill'
         ConDraw.staticFill = new ConDrawFill();
         // by default we use terminal SAVE/RESTORE
         useTermSave = true;
+        //
+        STATS_SCOPE_PREFIX = "draw-";
     }
     
     
@@ -104,12 +113,15 @@ public class ConDraw
      * @param coords all console positions we should paint
      * @param symbols special characters if necessary
      * @param fill parameters of filling
+     * @param counters output accounting of the primitive
+     * @return number of painted cells (out of terminal are skipped)
      * @throws NullPointerException if empty coordinates or filling parameters
      * @throws IllegalArgumentException when 'coords' and 'symbols' are inappropriate
      */
-    private static void doDraw(final ArrayList<ConCord> coords,
+    private static int doDraw(final ArrayList<ConCord> coords,
                                 final ArrayList<Character> symbols,
-                                final ConDrawFill fill)
+                                final ConDrawFill fill,
+                                final OutputCounters counters)
                             throws NullPointerException {
         if ( null == coords ) {
             String excMsg = "No coordinates for drawing";
@@ -129,6 +141,7 @@ public class ConDraw
         }
         //
         ConUt conTool = new ConUt();
+        conTool.setOutputCounters(counters);
         //
         // save cursor
         if ( ConDraw.useTermSave ) Term.get().save();
@@ -141,11 +154,12 @@ public class ConDraw
         ArrayList<ConStyles> currentStyles = fill.getStyles();
         if ( !currentStyles.isEmpty() ) {
             for ( ConStyles curStyle : currentStyles ) {
-                System.out.print(curStyle.getStyleCmd());
+                OutputSink.write(curStyle.getStyleCmd(), counters);
             }
         }
         //
         // main drawing:
+        int paintedCells = 0;
         for ( int i = 0; i < coords.size(); i++ ) {
             ConCord curDrawPoint = coords.get(i);
             //
@@ -161,11 +175,14 @@ public class ConDraw
             }
             //
             conTool.sendGoto(curDrawPoint);
-            System.out.print(curBrush);
+            OutputSink.write(curBrush, counters);
+            paintedCells++;
         }
         //
         // restore cursor
         if ( ConDraw.useTermSave ) Term.get().restore();
+        //
+        return paintedCells;
     }
     
     /**
@@ -186,7 +203,21 @@ public class ConDraw
         //
         ArrayList<ConCord> coordsToDraw = figureToDraw.getCoords();
         ArrayList<Character> charactersToDraw = figureToDraw.getSymbols();
-        ConDraw.doDraw(coordsToDraw, charactersToDraw, fill);
+        final OutputCounters counters = OutputStats.scope(STATS_SCOPE_PREFIX
+                                                            + figureToDraw.getClass().getSimpleName());
+        //
+        final JfrDrawEvent jfrEvent = new JfrDrawEvent();
+        final long bytesBefore = jfrEvent.isEnabled() ? counters.getBytes() : 0;
+        jfrEvent.begin();
+        //
+        final int paintedCells = ConDraw.doDraw(coordsToDraw, charactersToDraw, fill, counters);
+        //
+        if ( jfrEvent.shouldCommit() ) {
+            jfrEvent.figure = figureToDraw.getClass().getSimpleName();
+            jfrEvent.cells = paintedCells;
+            jfrEvent.bytes = counters.getBytes() - bytesBefore;
+            jfrEvent.commit();
+        }
     }
     
     
@@ -1,8 +1,11 @@
 package me.dmitrygubanov40.concan.strain;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 
@@ -28,13 +31,21 @@ public class Benchmark
     private Object obj;
     private String methodName;
     private Object[] params;
-    private Method highloadMethod;
+    // (Object[])Object-shaped handle of the method (bound to 'obj' for non-static)
+    private MethodHandle highloadHandle;
     
     // 'Benchmarkable'-object to measure
     private final Benchmarkable theBenchmarkableObj;
     
     private long maxBenchTime;// ms
     
+    // how results are named (for reports and sweeps)
+    private String runName;
+    private BenchmarkParams runParams;
+    
+    // measurements of the last 'runHighload'
+    private BenchmarkResult lastResult;
+    
     
     
     /**
@@ -51,6 +62,9 @@ public class Benchmark
         this.isByMethod = false;
         this.theBenchmarkableObj = benchObj;
         this.setMaxBenchTime(DEFAULT_MAX_BENCH_TIME);
+        //
+        this.runName = benchObj.getClass().getSimpleName();
+        this.runParams = new BenchmarkParams();
     }
     
     /**
@@ -66,6 +80,7 @@ public class Benchmark
         this.BenchmarkInitByMethod(obj, obj.getClass(), methodName, params);
         //
         this.setMaxBenchTime(DEFAULT_MAX_BENCH_TIME);
+        this.runParams = new BenchmarkParams();
     }
     
     /**
@@ -81,6 +96,7 @@ public class Benchmark
         this.BenchmarkInitByMethod(null, thisClass, methodName, params);
         //
         this.setMaxBenchTime(DEFAULT_MAX_BENCH_TIME);
+        this.runParams = new BenchmarkParams();
     }
     
     /**
@@ -117,17 +133,25 @@ public class Benchmark
         }
         //
         try {
-            this.highloadMethod = this.getMethodByName();
+            final Method highloadMethod = this.getMethodByName();
             //
-            if ( null == this.obj && !Modifier.isStatic(this.highloadMethod.getModifiers()) ) {
+            if ( null == this.obj && !Modifier.isStatic(highloadMethod.getModifiers()) ) {
                 throw new NoSuchMethodException();
             }
             //
+            this.highloadHandle = this.getMethodHandle(highloadMethod);
+            //
         } catch ( NoSuchMethodException | SecurityException ex ) {
             System.out.println("\n\n[Benchmark] failed. There is no object's '" + this.methodName + "'-method.");
             System.out.println("Context: " + ex.getMessage());
             throw new IllegalArgumentException();
+        } catch ( IllegalAccessException ex ) {
+            System.out.println("\n\n[Benchmark] failed. The '" + this.methodName + "'-method is not accessible.");
+            System.out.println("Context: " + ex.getMessage());
+            throw new IllegalArgumentException();
         }
+        //
+        this.runName = this.theClass.getSimpleName() + "." + this.methodName;
     }
     
     
@@ -145,6 +169,29 @@ public class Benchmark
         this.maxBenchTime = msMaxTime;
     }
     
+    /**
+     * How the results of the benchmark are named in reports.
+     * @param name name of the run (class/method name by default)
+     * @param params parameters the benchmark was prepared with
+     * @throws NullPointerException when name or parameters are not given
+     */
+    public final void setRunInfo(final String name, final BenchmarkParams params) throws NullPointerException {
+        if ( null == name || null == params ) {
+            String excMsg = "[Benchmark] failed. Run name and parameters cannot be null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.runName = name;
+        this.runParams = params;
+    }
+    
+    /**
+     * @return all measurements of the last run ('null' if there was no successful run)
+     */
+    public BenchmarkResult getLastResult() {
+        return this.lastResult;
+    }
+    
     
     
     /**
@@ -172,6 +219,23 @@ public class Benchmark
         return methodResult;
     }
     
+    /**
+     * Direct method handle does not pay for access checks and arguments boxing
+     * on each call (like 'Method.invoke' does), so it doesn't spoil the timings.
+     * @param method found method to execute
+     * @return handle of (Object[])Object type, bound to the object for non-static methods
+     * @throws IllegalAccessException when the method is not accessible
+     */
+    private MethodHandle getMethodHandle(final Method method) throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+        if ( !Modifier.isStatic(method.getModifiers()) ) {
+            handle = handle.bindTo(this.obj);
+        }
+        //
+        return handle.asSpreader(Object[].class, this.params.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+    
     
     
     /**
@@ -198,9 +262,9 @@ public class Benchmark
         }
         System.out.println("\n");
         //
-        long startTimeStep, benchmarkStep;
+        long startTimeStep, benchmarkStepNs, benchmarkStep;
         long benchmarkAll = 0;
-        double benchmarkResult = 0.0;
+        long[] samples = new long[ iterations ];
         //
         int i;
         for ( i = 0; i < iterations; ) {
@@ -211,13 +275,14 @@ public class Benchmark
                 // created to execute some custom method
                 try {
                     //
-                    highloadMethod.invoke(this.obj, this.params);
+                    final Object unused = (Object) this.highloadHandle.invokeExact(this.params);
                     //
-                } catch ( IllegalAccessException | IllegalArgumentException | InvocationTargetException ex ) {
+                } catch ( Throwable ex ) {
                     System.out.println("\n\n[Benchmark] failed. '" + this.methodName + "'-method execution issues.");
                     System.out.println("Context: " + ex.getMessage());
                     ex.printStackTrace(System.out);
                     //
+                    this.lastResult = null;
                     return 0.0;
                     //
                 }
@@ -227,13 +292,11 @@ public class Benchmark
                 //
             }
             ////////////////////////////////////
-            benchmarkStep = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeStep);
+            benchmarkStepNs = System.nanoTime() - startTimeStep;
+            samples[ i - 1 ] = benchmarkStepNs;
+            benchmarkStep = TimeUnit.NANOSECONDS.toMillis(benchmarkStepNs);
             benchmarkAll += benchmarkStep;
             //
-            // medium iteration result
-            if ( 1 == i ) benchmarkResult = benchmarkStep;
-            else benchmarkResult = (benchmarkResult + (double) benchmarkStep) / 2.0;
-            //
             System.out.println("\n\n[Benchmark] current iteration: " + i 
                           + ", current result: " + benchmarkStep + " ms\n");
             //
@@ -245,6 +308,12 @@ public class Benchmark
             }
         }
         //
+        // 'i' is the number of really executed iterations
+        this.lastResult = new BenchmarkResult(this.runName,
+                                                this.runParams.asMap(),
+                                                Arrays.copyOf(samples, i));
+        final double benchmarkResult = this.lastResult.getMeanMs();
+        //
         System.out.println("\n[Benchmark] medium result: " + benchmarkResult + " ms"
                                 + " (" + i + " iterations)");
         //
@@ -0,0 +1,200 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+
+/**
+ * Local file with named sets of benchmark results (i.e. "v1.2", "master", "current").
+ * Each line of the file is one result:
+ *      set <TAB> name <TAB> a=1;b=2 <TAB> timestampMs <TAB> sample1,sample2,... (ns)
+ * Samples are stored as is, so the comparison can be statistically aware.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public class BenchmarkBaseline
+{
+    
+    private static final char FIELD_SEPARATOR;
+    private static final int FIELDS_NUMBER;
+    
+    static {
+        FIELD_SEPARATOR = '\t';
+        FIELDS_NUMBER = 5;
+    }
+    
+    ////////////
+    
+    private final Path file;
+    
+    
+    
+    /**
+     * @param initFile baseline file (may not exist yet)
+     * @throws NullPointerException when no file is given
+     */
+    public BenchmarkBaseline(final Path initFile) throws NullPointerException {
+        if ( null == initFile ) {
+            String excMsg = "[Benchmark] baseline file cannot be null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.file = initFile;
+    }
+    
+    public Path getFile() {
+        return this.file;
+    }
+    
+    
+    
+    /**
+     * Store the results under the name, previous results of the set are replaced.
+     * @param setName name of the result set
+     * @param results results to store
+     * @throws IOException when the file cannot be read or written
+     * @throws IllegalArgumentException for incorrect set name
+     */
+    public synchronized void save(final String setName, final List<BenchmarkResult> results)
+                    throws IOException, IllegalArgumentException {
+        BenchmarkBaseline.checkSetName(setName);
+        //
+        Map<String, List<BenchmarkResult>> allSets = this.loadAll();
+        allSets.put(setName, new ArrayList<>(results));
+        //
+        StringBuilder content = new StringBuilder();
+        for ( Map.Entry<String, List<BenchmarkResult>> curSet : allSets.entrySet() ) {
+            for ( BenchmarkResult curResult : curSet.getValue() ) {
+                content.append(BenchmarkBaseline.toLine(curSet.getKey(), curResult)).append('\n');
+            }
+        }
+        //
+        Files.writeString(this.file, content.toString(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @param setName name of the result set
+     * @return stored results of the set (empty if there is no such set)
+     * @throws IOException when the file cannot be read
+     */
+    public synchronized List<BenchmarkResult> load(final String setName) throws IOException {
+        final List<BenchmarkResult> results = this.loadAll().get(setName);
+        if ( null == results ) return Collections.emptyList();
+        //
+        return Collections.unmodifiableList(results);
+    }
+    
+    /**
+     * @return names of all stored sets
+     * @throws IOException when the file cannot be read
+     */
+    public synchronized List<String> getSetNames() throws IOException {
+        return new ArrayList<>(this.loadAll().keySet());
+    }
+    
+    ////////////
+    
+    /**
+     * @return all sets in order of the file ('LinkedHashMap' to keep the order)
+     * @throws IOException when the file cannot be read
+     * @throws IllegalStateException when the file is broken
+     */
+    private Map<String, List<BenchmarkResult>> loadAll() throws IOException, IllegalStateException {
+        Map<String, List<BenchmarkResult>> allSets = new LinkedHashMap<>();
+        if ( !Files.exists(this.file) ) return allSets;
+        //
+        int lineNumber = 0;
+        for ( String curLine : Files.readAllLines(this.file, StandardCharsets.UTF_8) ) {
+            lineNumber++;
+            if ( curLine.isBlank() ) continue;
+            //
+            final String[] fields = curLine.split(String.valueOf(FIELD_SEPARATOR), -1);
+            if ( FIELDS_NUMBER != fields.length ) {
+                String excMsg = "[Benchmark] baseline file '" + this.file + "' is broken at line " + lineNumber;
+                throw new IllegalStateException(excMsg);
+            }
+            //
+            try {
+                final BenchmarkResult curResult = new BenchmarkResult(fields[ 1 ],
+                                                                        BenchmarkBaseline.parseParams(fields[ 2 ]),
+                                                                        BenchmarkBaseline.parseSamples(fields[ 4 ]),
+                                                                        Long.parseLong(fields[ 3 ]));
+                allSets.computeIfAbsent(fields[ 0 ], k -> new ArrayList<>()).add(curResult);
+            } catch ( IllegalArgumentException ex ) {
+                String excMsg = "[Benchmark] baseline file '" + this.file + "' is broken at line " + lineNumber
+                                    + ": " + ex.getMessage();
+                throw new IllegalStateException(excMsg);
+            }
+        }
+        //
+        return allSets;
+    }
+    
+    private static String toLine(final String setName, final BenchmarkResult result) {
+        StringBuilder line = new StringBuilder();
+        line.append(setName).append(FIELD_SEPARATOR)
+            .append(BenchmarkBaseline.clean(result.getName())).append(FIELD_SEPARATOR)
+            .append(BenchmarkBaseline.clean(result.getParamsKey())).append(FIELD_SEPARATOR)
+            .append(result.getTimestampMs()).append(FIELD_SEPARATOR);
+        //
+        final long[] samples = result.getSamples();
+        for ( int i = 0; i < samples.length; i++ ) {
+            if ( i > 0 ) line.append(',');
+            line.append(samples[ i ]);
+        }
+        //
+        return line.toString();
+    }
+    
+    private static Map<String, String> parseParams(final String paramsKey) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if ( paramsKey.isEmpty() ) return params;
+        //
+        for ( String curParam : paramsKey.split(";") ) {
+            final int eqPos = curParam.indexOf('=');
+            if ( eqPos <= 0 ) {
+                String excMsg = "incorrect parameter '" + curParam + "'";
+                throw new IllegalArgumentException(excMsg);
+            }
+            params.put(curParam.substring(0, eqPos), curParam.substring(eqPos + 1));
+        }
+        //
+        return params;
+    }
+    
+    private static long[] parseSamples(final String samplesStr) {
+        final String[] parts = samplesStr.split(",");
+        long[] samples = new long[ parts.length ];
+        for ( int i = 0; i < parts.length; i++ ) {
+            samples[ i ] = Long.parseLong(parts[ i ].trim());
+        }
+        //
+        return samples;
+    }
+    
+    /**
+     * @param str text for the file field
+     * @return the text without separators of lines and fields
+     */
+    private static String clean(final String str) {
+        return str.replace(FIELD_SEPARATOR, ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+    
+    private static void checkSetName(final String setName) throws IllegalArgumentException {
+        if ( null == setName || setName.isBlank()
+                || setName.indexOf(FIELD_SEPARATOR) >= 0 || setName.indexOf('\n') >= 0 ) {
+            String excMsg = "[Benchmark] incorrect baseline set name: '" + setName + "'";
+            throw new IllegalArgumentException(excMsg);
+        }
+    }
+    
+    
+    
+}
@@ -0,0 +1,91 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+
+/**
+ * Comparison of one benchmark result (same name and parameters) with its baseline:
+ * relative change and verdict for each checked metric.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class BenchmarkComparison
+{
+    
+    private final String key;
+    
+    private final BenchmarkResult baseline;
+    private final BenchmarkResult current;
+    
+    // relative change ('0.1' is 10% slower, '-0.1' is 10% faster)
+    private final Map<BenchmarkMetric, Double> changes;
+    private final Map<BenchmarkMetric, BenchmarkVerdict> verdicts;
+    
+    
+    
+    BenchmarkComparison(final BenchmarkResult initBaseline,
+                        final BenchmarkResult initCurrent,
+                        final Map<BenchmarkMetric, Double> initChanges,
+                        final Map<BenchmarkMetric, BenchmarkVerdict> initVerdicts) {
+        this.key = initCurrent.getKey();
+        this.baseline = initBaseline;
+        this.current = initCurrent;
+        this.changes = Collections.unmodifiableMap(new EnumMap<>(initChanges));
+        this.verdicts = Collections.unmodifiableMap(new EnumMap<>(initVerdicts));
+    }
+    
+    
+    
+    public String getKey() {
+        return this.key;
+    }
+    
+    public BenchmarkResult getBaseline() {
+        return this.baseline;
+    }
+    
+    public BenchmarkResult getCurrent() {
+        return this.current;
+    }
+    
+    public Map<BenchmarkMetric, Double> getChanges() {
+        return this.changes;
+    }
+    
+    public Map<BenchmarkMetric, BenchmarkVerdict> getVerdicts() {
+        return this.verdicts;
+    }
+    
+    /**
+     * @return the worst verdict among metrics (regression wins over improvement)
+     */
+    public BenchmarkVerdict getVerdict() {
+        if ( this.verdicts.containsValue(BenchmarkVerdict.REGRESSED) ) return BenchmarkVerdict.REGRESSED;
+        if ( this.verdicts.containsValue(BenchmarkVerdict.IMPROVED) ) return BenchmarkVerdict.IMPROVED;
+        //
+        return BenchmarkVerdict.UNCHANGED;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append(this.getVerdict()).append(' ').append(this.key).append(':');
+        for ( Map.Entry<BenchmarkMetric, BenchmarkVerdict> curVerdict : this.verdicts.entrySet() ) {
+            final BenchmarkMetric metric = curVerdict.getKey();
+            str.append(' ').append(metric.getMetricName())
+                .append(' ').append(String.format(Locale.ROOT, "%.3f", metric.getValueMs(this.baseline)))
+                .append(" -> ").append(String.format(Locale.ROOT, "%.3f", metric.getValueMs(this.current))).append(" ms")
+                .append(String.format(Locale.ROOT, " (%+.1f%%, %s);", this.changes.get(metric) * 100.0, curVerdict.getValue()));
+        }
+        //
+        return str.toString();
+    }
+    
+    
+    
+}
@@ -0,0 +1,289 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+
+/**
+ * Regression gate: compares current benchmark results with a baseline set.
+ * Every metric has its own relative tolerance. Means are also checked with
+ * Welch's t-test on the samples, so noise of a few iterations is not a regression.
+ * Command line (for CI, both sets are in the same baseline file):
+ *      java ...strain.BenchmarkGate <baseline file> <baseline set> <current set> [mean tolerance]
+ * exits with '1' when something regressed, with '3' when nothing was compared
+ * or some baseline result has no current one.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public class BenchmarkGate
+{
+    
+    private static final double DEFAULT_MEAN_TOLERANCE;
+    
+    // 95% two-sided critical values of Student's t-distribution, index is degrees of freedom
+    private static final double[] T_CRITICAL;
+    private static final double T_CRITICAL_INFINITE;
+    
+    public static final int EXIT_OK;
+    public static final int EXIT_REGRESSED;
+    public static final int EXIT_USAGE;
+    public static final int EXIT_INCOMPLETE;
+    
+    static {
+        DEFAULT_MEAN_TOLERANCE = 0.05;
+        //
+        T_CRITICAL = new double[] { Double.POSITIVE_INFINITY,
+                                    12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+                                    2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+                                    2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042 };
+        T_CRITICAL_INFINITE = 1.960;
+        //
+        EXIT_OK = 0;
+        EXIT_REGRESSED = 1;
+        EXIT_USAGE = 2;
+        EXIT_INCOMPLETE = 3;
+    }
+    
+    ////////////
+    
+    // metric -> allowed relative slowdown/speedup ('0.05' is 5%)
+    private final Map<BenchmarkMetric, Double> tolerances;
+    
+    
+    
+    /**
+     * Gate checks only the mean with default tolerance, add more with 'setTolerance'.
+     */
+    public BenchmarkGate() {
+        this.tolerances = new EnumMap<>(BenchmarkMetric.class);
+        this.tolerances.put(BenchmarkMetric.MEAN, DEFAULT_MEAN_TOLERANCE);
+    }
+    
+    
+    
+    /**
+     * @param metric metric to check
+     * @param relTolerance allowed relative change ('0.05' is 5%)
+     * @return the gate itself
+     * @throws IllegalArgumentException for negative tolerance
+     */
+    public BenchmarkGate setTolerance(final BenchmarkMetric metric, final double relTolerance)
+                    throws IllegalArgumentException {
+        if ( null == metric || relTolerance < 0.0 || Double.isNaN(relTolerance) ) {
+            String excMsg = "[Benchmark] incorrect tolerance for metric " + metric + ": " + relTolerance;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.tolerances.put(metric, relTolerance);
+        return this;
+    }
+    
+    /**
+     * @param metric metric not to check any more
+     * @return the gate itself
+     */
+    public BenchmarkGate removeTolerance(final BenchmarkMetric metric) {
+        this.tolerances.remove(metric);
+        return this;
+    }
+    
+    
+    
+    /**
+     * Results are matched by name and parameters, unmatched ones are skipped
+     * (see 'getUnmatched()' to find the skipped baseline results).
+     * @param baselineResults stored results
+     * @param currentResults fresh results
+     * @return comparison of each matched result
+     */
+    public List<BenchmarkComparison> compare(final List<BenchmarkResult> baselineResults,
+                                                final List<BenchmarkResult> currentResults) {
+        Map<String, BenchmarkResult> baselineByKey = new HashMap<>();
+        for ( BenchmarkResult curBaseline : baselineResults ) {
+            baselineByKey.put(curBaseline.getKey(), curBaseline);
+        }
+        //
+        List<BenchmarkComparison> comparisons = new ArrayList<>();
+        for ( BenchmarkResult curResult : currentResults ) {
+            final BenchmarkResult curBaseline = baselineByKey.get(curResult.getKey());
+            if ( null == curBaseline ) continue;
+            //
+            comparisons.add(this.compare(curBaseline, curResult));
+        }
+        //
+        return Collections.unmodifiableList(comparisons);
+    }
+    
+    /**
+     * @param baselineResults stored results
+     * @param currentResults fresh results
+     * @return keys of baseline results without a fresh result (in order of the baseline)
+     */
+    public static List<String> getUnmatched(final List<BenchmarkResult> baselineResults,
+                                                final List<BenchmarkResult> currentResults) {
+        Set<String> currentKeys = new HashSet<>();
+        for ( BenchmarkResult curResult : currentResults ) {
+            currentKeys.add(curResult.getKey());
+        }
+        //
+        List<String> unmatched = new ArrayList<>();
+        for ( BenchmarkResult curBaseline : baselineResults ) {
+            if ( !currentKeys.contains(curBaseline.getKey()) ) unmatched.add(curBaseline.getKey());
+        }
+        //
+        return Collections.unmodifiableList(unmatched);
+    }
+    
+    /**
+     * @param baseline stored result
+     * @param current fresh result of the same benchmark
+     * @return verdict for each metric with tolerance
+     */
+    public BenchmarkComparison compare(final BenchmarkResult baseline, final BenchmarkResult current) {
+        Map<BenchmarkMetric, Double> changes = new EnumMap<>(BenchmarkMetric.class);
+        Map<BenchmarkMetric, BenchmarkVerdict> verdicts = new EnumMap<>(BenchmarkMetric.class);
+        //
+        for ( Map.Entry<BenchmarkMetric, Double> curTolerance : this.tolerances.entrySet() ) {
+            final BenchmarkMetric metric = curTolerance.getKey();
+            final double baseValue = metric.getValueMs(baseline);
+            final double curValue = metric.getValueMs(current);
+            //
+            final double change;
+            if ( baseValue > 0.0 ) change = (curValue - baseValue) / baseValue;
+            else change = (curValue > 0.0) ? Double.POSITIVE_INFINITY : 0.0;
+            changes.put(metric, change);
+            //
+            BenchmarkVerdict verdict = BenchmarkVerdict.UNCHANGED;
+            if ( Math.abs(change) > curTolerance.getValue() ) {
+                // only the mean has enough data for the test
+                final boolean isSignificant = (BenchmarkMetric.MEAN != metric)
+                                                || BenchmarkGate.isMeanChangeSignificant(baseline, current);
+                if ( isSignificant ) {
+                    verdict = (change > 0.0) ? BenchmarkVerdict.REGRESSED : BenchmarkVerdict.IMPROVED;
+                }
+            }
+            verdicts.put(metric, verdict);
+        }
+        //
+        return new BenchmarkComparison(baseline, current, changes, verdicts);
+    }
+    
+    /**
+     * @param comparisons checked results
+     * @return 'true' if at least one result regressed
+     */
+    public static boolean hasRegressions(final List<BenchmarkComparison> comparisons) {
+        for ( BenchmarkComparison curComparison : comparisons ) {
+            if ( BenchmarkVerdict.REGRESSED == curComparison.getVerdict() ) return true;
+        }
+        //
+        return false;
+    }
+    
+    /**
+     * Print all comparisons and get the exit status.
+     * The gate fails when nothing was compared or some baseline results were not matched:
+     * a gate which checked nothing must not pass.
+     * @param comparisons checked results
+     * @param unmatchedKeys baseline results without a fresh result (see 'getUnmatched()')
+     * @return 'EXIT_REGRESSED' if something regressed, 'EXIT_INCOMPLETE' if not everything
+     *          was compared, 'EXIT_OK' otherwise
+     */
+    public static int report(final List<BenchmarkComparison> comparisons, final List<String> unmatchedKeys) {
+        for ( BenchmarkComparison curComparison : comparisons ) {
+            System.out.println("[Benchmark] " + curComparison);
+        }
+        for ( String curKey : unmatchedKeys ) {
+            System.out.println("[Benchmark] no current result for baseline " + curKey);
+        }
+        //
+        if ( BenchmarkGate.hasRegressions(comparisons) ) {
+            System.out.println("[Benchmark] gate failed: regression found");
+            return EXIT_REGRESSED;
+        }
+        if ( comparisons.isEmpty() ) {
+            System.out.println("[Benchmark] gate failed: no results compared");
+            return EXIT_INCOMPLETE;
+        }
+        if ( !unmatchedKeys.isEmpty() ) {
+            System.out.println("[Benchmark] gate failed: " + unmatchedKeys.size() + " baseline results not compared");
+            return EXIT_INCOMPLETE;
+        }
+        //
+        System.out.println("[Benchmark] gate passed (" + comparisons.size() + " results compared)");
+        return EXIT_OK;
+    }
+    /**
+     * Print all comparisons and get the exit status (every baseline result is taken as matched).
+     * @param comparisons checked results
+     * @return see 'report(comparisons, unmatchedKeys)'
+     */
+    public static int report(final List<BenchmarkComparison> comparisons) {
+        return BenchmarkGate.report(comparisons, Collections.emptyList());
+    }
+    
+    ////////////
+    
+    /**
+     * Welch's t-test (unequal variances), 95% two-sided.
+     * With less than two samples on any side there is no way to test, so the change is taken as is.
+     */
+    private static boolean isMeanChangeSignificant(final BenchmarkResult baseline, final BenchmarkResult current) {
+        final int baseN = baseline.getIterations();
+        final int curN = current.getIterations();
+        if ( baseN < 2 || curN < 2 ) return true;
+        //
+        final double baseVarN = Math.pow(baseline.getStdDevMs(), 2) / baseN;
+        final double curVarN = Math.pow(current.getStdDevMs(), 2) / curN;
+        final double stdError = Math.sqrt(baseVarN + curVarN);
+        if ( stdError <= 0.0 ) return true;
+        //
+        final double t = Math.abs(current.getMeanMs() - baseline.getMeanMs()) / stdError;
+        final double freedom = Math.pow(baseVarN + curVarN, 2)
+                                / (baseVarN * baseVarN / (baseN - 1) + curVarN * curVarN / (curN - 1));
+        //
+        return t > BenchmarkGate.getTCritical(freedom);
+    }
+    
+    private static double getTCritical(final double freedom) {
+        final int df = (int) Math.floor(freedom);// rounding down is the conservative way
+        if ( df < 1 ) return T_CRITICAL[ 1 ];
+        if ( df >= T_CRITICAL.length ) return T_CRITICAL_INFINITE;
+        //
+        return T_CRITICAL[ df ];
+    }
+    
+    
+    
+    /**
+     * Command line gate for CI.
+     * @param args baseline file, baseline set name, current set name, optional mean tolerance
+     * @throws IOException when the baseline file cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if ( args.length < 3 ) {
+            System.out.println("Usage: BenchmarkGate <baseline file> <baseline set> <current set> [mean tolerance]");
+            System.exit(EXIT_USAGE);
+        }
+        //
+        BenchmarkBaseline baselineFile = new BenchmarkBaseline(Path.of(args[ 0 ]));
+        BenchmarkGate gate = new BenchmarkGate();
+        if ( args.length > 3 ) gate.setTolerance(BenchmarkMetric.MEAN, Double.parseDouble(args[ 3 ]));
+        //
+        final List<BenchmarkResult> baselineResults = baselineFile.load(args[ 1 ]);
+        final List<BenchmarkResult> currentResults = baselineFile.load(args[ 2 ]);
+        final List<BenchmarkComparison> comparisons = gate.compare(baselineResults, currentResults);
+        System.exit(BenchmarkGate.report(comparisons, BenchmarkGate.getUnmatched(baselineResults, currentResults)));
+    }
+    
+    
+    
+}
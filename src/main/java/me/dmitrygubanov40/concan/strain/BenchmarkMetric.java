@@ -0,0 +1,67 @@
+package me.dmitrygubanov40.concan.strain;
+
+/**
+ * Metrics of 'BenchmarkResult' which can be compared with a baseline.
+ * For all of them less is better.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum BenchmarkMetric
+{
+    
+    MEAN        ("mean"),
+    MIN         ("min"),
+    MAX         ("max"),
+    STD_DEV     ("stdDev");
+    
+    ////////////////////////////
+    
+    private final String metricName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initMetricName text code of the metric
+     */
+    BenchmarkMetric(final String initMetricName) {
+        this.metricName = initMetricName;
+    }
+    
+    
+    
+    /**
+     * @return string of metric name
+     */
+    public String getMetricName() {
+        return this.metricName;
+    }
+    
+    /**
+     * @param result measurements
+     * @return value of the metric, ms
+     */
+    public double getValueMs(final BenchmarkResult result) {
+        switch ( this ) {
+            case MIN:
+                return result.getMinMs();
+            case MAX:
+                return result.getMaxMs();
+            case STD_DEV:
+                return result.getStdDevMs();
+            default:
+                return result.getMeanMs();
+        }
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.metricName;
+        return str;
+    }
+    
+    
+    
+}
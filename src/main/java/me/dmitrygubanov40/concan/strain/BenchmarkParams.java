@@ -0,0 +1,87 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+
+/**
+ * One combination of parameters of a benchmark sweep
+ * (i.e. "size=120, strict=true, async=false").
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class BenchmarkParams
+{
+    
+    // parameter name -> parameter value (as text), in order of declaration
+    private final Map<String, String> values;
+    
+    
+    
+    /**
+     * @param initValues parameters of the combination
+     * @throws NullPointerException when no parameters map is given
+     */
+    public BenchmarkParams(final Map<String, String> initValues) throws NullPointerException {
+        if ( null == initValues ) {
+            String excMsg = "[Benchmark] parameters map cannot be null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(initValues));
+    }
+    public BenchmarkParams() {
+        this(new LinkedHashMap<>());
+    }
+    
+    
+    
+    /**
+     * @return all parameters (read-only)
+     */
+    public Map<String, String> asMap() {
+        return this.values;
+    }
+    
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+    
+    /**
+     * @param name parameter name
+     * @return text value of the parameter
+     * @throws IllegalArgumentException when there is no such parameter
+     */
+    public String getString(final String name) throws IllegalArgumentException {
+        final String value = this.values.get(name);
+        if ( null == value ) {
+            String excMsg = "[Benchmark] there is no parameter '" + name + "' in " + this.values;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        return value;
+    }
+    
+    public int getInt(final String name) {
+        return Integer.parseInt(this.getString(name));
+    }
+    
+    public long getLong(final String name) {
+        return Long.parseLong(this.getString(name));
+    }
+    
+    public boolean getBoolean(final String name) {
+        return Boolean.parseBoolean(this.getString(name));
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        return this.values.toString();
+    }
+    
+    
+    
+}
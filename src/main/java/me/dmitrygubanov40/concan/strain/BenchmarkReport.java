@@ -0,0 +1,174 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+
+/**
+ * Machine-readable (JSON, CSV) output of benchmark results,
+ * to be stored and charted by CI.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class BenchmarkReport
+{
+    
+    private static final String CSV_HEADER;
+    
+    static {
+        CSV_HEADER = "name,params,iterations,mean_ms,min_ms,max_ms,stddev_ms,timestamp_ms";
+    }
+    
+    
+    
+    private BenchmarkReport() {
+        // utility class
+    }
+    
+    
+    
+    /**
+     * JSON document:
+     * {"results":[{"name":..,"params":{..},"iterations":..,"meanMs":..,"minMs":..,
+     *              "maxMs":..,"stdDevMs":..,"timestampMs":..,"samplesNs":[..]}, ..]}
+     * @param results results to show
+     * @return JSON text
+     */
+    public static String toJson(final List<BenchmarkResult> results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"results\":[");
+        //
+        for ( int i = 0; i < results.size(); i++ ) {
+            final BenchmarkResult curResult = results.get(i);
+            if ( i > 0 ) json.append(',');
+            json.append("\n  {\"name\":").append(BenchmarkReport.jsonStr(curResult.getName()));
+            //
+            json.append(",\"params\":{");
+            boolean isFirst = true;
+            for ( Map.Entry<String, String> curParam : curResult.getParams().entrySet() ) {
+                if ( !isFirst ) json.append(',');
+                isFirst = false;
+                json.append(BenchmarkReport.jsonStr(curParam.getKey()))
+                        .append(':')
+                        .append(BenchmarkReport.jsonStr(curParam.getValue()));
+            }
+            json.append('}');
+            //
+            json.append(",\"iterations\":").append(curResult.getIterations());
+            json.append(",\"meanMs\":").append(BenchmarkReport.num(curResult.getMeanMs()));
+            json.append(",\"minMs\":").append(BenchmarkReport.num(curResult.getMinMs()));
+            json.append(",\"maxMs\":").append(BenchmarkReport.num(curResult.getMaxMs()));
+            json.append(",\"stdDevMs\":").append(BenchmarkReport.num(curResult.getStdDevMs()));
+            json.append(",\"timestampMs\":").append(curResult.getTimestampMs());
+            //
+            json.append(",\"samplesNs\":[");
+            final long[] samples = curResult.getSamples();
+            for ( int j = 0; j < samples.length; j++ ) {
+                if ( j > 0 ) json.append(',');
+                json.append(samples[ j ]);
+            }
+            json.append("]}");
+        }
+        //
+        json.append("\n]}\n");
+        return json.toString();
+    }
+    
+    /**
+     * CSV table, one line per result (parameters are joined as "a=1;b=2").
+     * @param results results to show
+     * @return CSV text with header
+     */
+    public static String toCsv(final List<BenchmarkResult> results) {
+        StringBuilder csv = new StringBuilder();
+        csv.append(CSV_HEADER).append('\n');
+        //
+        for ( BenchmarkResult curResult : results ) {
+            csv.append(BenchmarkReport.csvStr(curResult.getName())).append(',')
+                .append(BenchmarkReport.csvStr(curResult.getParamsKey())).append(',')
+                .append(curResult.getIterations()).append(',')
+                .append(BenchmarkReport.num(curResult.getMeanMs())).append(',')
+                .append(BenchmarkReport.num(curResult.getMinMs())).append(',')
+                .append(BenchmarkReport.num(curResult.getMaxMs())).append(',')
+                .append(BenchmarkReport.num(curResult.getStdDevMs())).append(',')
+                .append(curResult.getTimestampMs())
+                .append('\n');
+        }
+        //
+        return csv.toString();
+    }
+    
+    
+    
+    /**
+     * @param results results to save
+     * @param file where to write JSON
+     * @throws IOException when the file cannot be written
+     */
+    public static void writeJson(final List<BenchmarkResult> results, final Path file) throws IOException {
+        Files.writeString(file, BenchmarkReport.toJson(results), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @param results results to save
+     * @param file where to write CSV
+     * @throws IOException when the file cannot be written
+     */
+    public static void writeCsv(final List<BenchmarkResult> results, final Path file) throws IOException {
+        Files.writeString(file, BenchmarkReport.toCsv(results), StandardCharsets.UTF_8);
+    }
+    
+    ////////////
+    
+    private static String num(final double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+    
+    private static String jsonStr(final String str) {
+        StringBuilder result = new StringBuilder(str.length() + 2);
+        result.append('"');
+        for ( int i = 0; i < str.length(); i++ ) {
+            final char curChar = str.charAt(i);
+            switch ( curChar ) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    if ( curChar < 0x20 ) {
+                        result.append(String.format(Locale.ROOT, "\\u%04x", (int) curChar));
+                    } else {
+                        result.append(curChar);
+                    }
+            }
+        }
+        result.append('"');
+        //
+        return result.toString();
+    }
+    
+    private static String csvStr(final String str) {
+        if ( str.indexOf(',') < 0 && str.indexOf('"') < 0 && str.indexOf('\n') < 0 ) return str;
+        //
+        return "\"" + str.replace("\"", "\"\"") + "\"";
+    }
+    
+    
+    
+}
@@ -0,0 +1,186 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+
+/**
+ * Immutable set of measurements of one benchmark run.
+ * Keeps every iteration time (in nanoseconds) and the parameters
+ * the run was made with, so results can be compared and reported.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class BenchmarkResult
+{
+    
+    private static final double NANOS_IN_MS;
+    
+    static {
+        NANOS_IN_MS = 1000000.0;
+    }
+    
+    ////////////
+    
+    // name of the measured subject (free text)
+    private final String name;
+    
+    // parameters of the run (name -> value), in the order they were given
+    private final Map<String, String> params;
+    
+    // time of each iteration, ns
+    private final long[] samples;
+    
+    // local time moment the run was finished, ms after 01.01.1970
+    private final long timestampMs;
+    
+    ////////////
+    
+    /**
+     * @param initName name of the run
+     * @param initParams parameters of the run (may be empty)
+     * @param initSamples time of each iteration, in nanoseconds
+     * @param initTimestampMs time moment of the result
+     * @throws NullPointerException when name, parameters or samples are not given
+     * @throws IllegalArgumentException when there are no samples
+     */
+    public BenchmarkResult(final String initName,
+                            final Map<String, String> initParams,
+                            final long[] initSamples,
+                            final long initTimestampMs)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == initName || null == initParams || null == initSamples ) {
+            String excMsg = "[Benchmark] result cannot be created without name, parameters or samples";
+            throw new NullPointerException(excMsg);
+        }
+        if ( initSamples.length <= 0 ) {
+            String excMsg = "[Benchmark] result must have at least one sample";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.name = initName;
+        this.params = Collections.unmodifiableMap(new LinkedHashMap<>(initParams));
+        this.samples = Arrays.copyOf(initSamples, initSamples.length);
+        this.timestampMs = initTimestampMs;
+    }
+    public BenchmarkResult(final String initName,
+                            final Map<String, String> initParams,
+                            final long[] initSamples) {
+        this(initName, initParams, initSamples, System.currentTimeMillis());
+    }
+    
+    ////////////
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    public Map<String, String> getParams() {
+        return this.params;
+    }
+    
+    /**
+     * @return text key of parameters like "size=120;strict=true", empty for no parameters
+     */
+    public String getParamsKey() {
+        StringBuilder key = new StringBuilder();
+        for ( Map.Entry<String, String> curParam : this.params.entrySet() ) {
+            if ( key.length() > 0 ) key.append(';');
+            key.append(curParam.getKey()).append('=').append(curParam.getValue());
+        }
+        //
+        return key.toString();
+    }
+    
+    /**
+     * @return unique name of the result inside a result set ("name[params]")
+     */
+    public String getKey() {
+        if ( this.params.isEmpty() ) return this.name;
+        //
+        return this.name + "[" + this.getParamsKey() + "]";
+    }
+    
+    public long getTimestampMs() {
+        return this.timestampMs;
+    }
+    
+    public int getIterations() {
+        return this.samples.length;
+    }
+    
+    /**
+     * @return copy of iteration times, ns
+     */
+    public long[] getSamples() {
+        return Arrays.copyOf(this.samples, this.samples.length);
+    }
+    
+    ////////////
+    
+    /**
+     * @return arithmetic mean of iterations, ms
+     */
+    public double getMeanMs() {
+        double sum = 0.0;
+        for ( long curSample : this.samples ) sum += curSample;
+        //
+        return (sum / this.samples.length) / NANOS_IN_MS;
+    }
+    
+    /**
+     * @return the fastest iteration, ms
+     */
+    public double getMinMs() {
+        long min = this.samples[ 0 ];
+        for ( long curSample : this.samples ) min = Math.min(min, curSample);
+        //
+        return min / NANOS_IN_MS;
+    }
+    
+    /**
+     * @return the slowest iteration, ms
+     */
+    public double getMaxMs() {
+        long max = this.samples[ 0 ];
+        for ( long curSample : this.samples ) max = Math.max(max, curSample);
+        //
+        return max / NANOS_IN_MS;
+    }
+    
+    /**
+     * Sample (n-1) standard deviation.
+     * @return standard deviation of iterations, ms ('0' for a single iteration)
+     */
+    public double getStdDevMs() {
+        if ( this.samples.length < 2 ) return 0.0;
+        //
+        final double mean = this.getMeanMs();
+        double squares = 0.0;
+        for ( long curSample : this.samples ) {
+            final double diff = (curSample / NANOS_IN_MS) - mean;
+            squares += diff * diff;
+        }
+        //
+        return Math.sqrt(squares / (this.samples.length - 1));
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ", " + this.getKey()
+                    + ": [iterations: " + this.getIterations()
+                    + ", mean: "        + this.getMeanMs() + " ms"
+                    + ", min: "         + this.getMinMs() + " ms"
+                    + ", max: "         + this.getMaxMs() + " ms"
+                    + ", std dev: "     + this.getStdDevMs() + " ms]";
+        return str;
+    }
+    
+    
+    
+}
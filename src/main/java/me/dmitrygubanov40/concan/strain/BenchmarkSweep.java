@@ -0,0 +1,161 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+
+
+/**
+ * Runs the same benchmark over all combinations of given parameters
+ * (cartesian product) and collects the results of every combination.
+ * Usage:
+ *      new BenchmarkSweep("buffer", p -> new Benchmark(new SomeBenchmarkable(p.getInt("size"))))
+ *          .addParam("size", 10, 120, 1000)
+ *          .addParam("strict", false, true)
+ *          .run(5);
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public class BenchmarkSweep
+{
+    
+    // name of the sweep, goes to every result
+    private final String name;
+    
+    // creates prepared benchmark for the combination of parameters
+    private final Function<BenchmarkParams, Benchmark> factory;
+    
+    // parameter name -> its possible values (as text)
+    private final Map<String, List<String>> axes;
+    
+    // max execution time of each combination, ms ('0' for default)
+    private long maxBenchTime;
+    
+    
+    
+    /**
+     * @param initName name of the sweep (will be the name of each result)
+     * @param initFactory how to create a benchmark for the combination
+     * @throws NullPointerException when name or factory are not given
+     */
+    public BenchmarkSweep(final String initName,
+                            final Function<BenchmarkParams, Benchmark> initFactory)
+                    throws NullPointerException {
+        if ( null == initName || null == initFactory ) {
+            String excMsg = "[Benchmark] sweep cannot be created without name or benchmark factory";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.name = initName;
+        this.factory = initFactory;
+        this.axes = new LinkedHashMap<>();
+        this.maxBenchTime = 0;
+    }
+    
+    
+    
+    /**
+     * Declare one more parameter of the sweep.
+     * @param paramName name of the parameter
+     * @param paramValues all values to check (stored as text)
+     * @return the sweep itself
+     * @throws IllegalArgumentException when the parameter has no values or is declared twice
+     */
+    public BenchmarkSweep addParam(final String paramName, final Object... paramValues)
+                    throws IllegalArgumentException {
+        if ( null == paramName || null == paramValues || paramValues.length <= 0 ) {
+            String excMsg = "[Benchmark] sweep parameter must have a name and at least one value";
+            throw new IllegalArgumentException(excMsg);
+        }
+        if ( this.axes.containsKey(paramName) ) {
+            String excMsg = "[Benchmark] sweep parameter '" + paramName + "' is already declared";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        List<String> textValues = new ArrayList<>(paramValues.length);
+        for ( Object curValue : paramValues ) {
+            textValues.add(String.valueOf(curValue));
+        }
+        this.axes.put(paramName, textValues);
+        //
+        return this;
+    }
+    
+    /**
+     * @param msMaxTime max execution time of each combination (all its iterations)
+     * @return the sweep itself
+     */
+    public BenchmarkSweep setMaxBenchTime(final long msMaxTime) {
+        if ( msMaxTime <= 0 ) {
+            String excMsg = "[Benchmark] failed. Incorrect max execution time given: '" + msMaxTime + "'";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.maxBenchTime = msMaxTime;
+        return this;
+    }
+    
+    
+    
+    /**
+     * @return all combinations of declared parameters (single empty one if nothing declared)
+     */
+    public List<BenchmarkParams> getCombinations() {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new LinkedHashMap<>());
+        //
+        for ( Map.Entry<String, List<String>> curAxis : this.axes.entrySet() ) {
+            List<Map<String, String>> nextCombinations = new ArrayList<>();
+            for ( Map<String, String> curCombination : combinations ) {
+                for ( String curValue : curAxis.getValue() ) {
+                    Map<String, String> nextCombination = new LinkedHashMap<>(curCombination);
+                    nextCombination.put(curAxis.getKey(), curValue);
+                    nextCombinations.add(nextCombination);
+                }
+            }
+            combinations = nextCombinations;
+        }
+        //
+        List<BenchmarkParams> result = new ArrayList<>(combinations.size());
+        for ( Map<String, String> curCombination : combinations ) {
+            result.add(new BenchmarkParams(curCombination));
+        }
+        //
+        return Collections.unmodifiableList(result);
+    }
+    
+    
+    
+    /**
+     * Run the benchmark for every combination of parameters.
+     * @param iterations number of attempts of each combination
+     * @return results in order of combinations (failed combinations are skipped)
+     */
+    public List<BenchmarkResult> run(final int iterations) {
+        List<BenchmarkResult> results = new ArrayList<>();
+        //
+        for ( BenchmarkParams curParams : this.getCombinations() ) {
+            System.out.println("\n[Benchmark] sweep '" + this.name + "', parameters: " + curParams);
+            //
+            Benchmark curBenchmark = this.factory.apply(curParams);
+            curBenchmark.setRunInfo(this.name, curParams);
+            if ( this.maxBenchTime > 0 ) curBenchmark.setMaxBenchTime(this.maxBenchTime);
+            //
+            curBenchmark.runHighload(iterations);
+            //
+            final BenchmarkResult curResult = curBenchmark.getLastResult();
+            if ( null != curResult ) results.add(curResult);
+        }
+        //
+        return Collections.unmodifiableList(results);
+    }
+    public List<BenchmarkResult> run() {
+        return this.run(1);
+    }
+    
+    
+    
+}
@@ -0,0 +1,14 @@
+package me.dmitrygubanov40.concan.strain;
+
+/**
+ * Result of comparison of a benchmark metric with the baseline.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum BenchmarkVerdict
+{
+    
+    IMPROVED,       // faster than baseline beyond tolerance (and significant)
+    UNCHANGED,      // within tolerance or not significant
+    REGRESSED;      // slower than baseline beyond tolerance (and significant)
+    
+}
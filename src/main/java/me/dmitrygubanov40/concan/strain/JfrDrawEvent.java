@@ -0,0 +1,37 @@
+package me.dmitrygubanov40.concan.strain;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+
+/**
+ * Flight Recorder event: drawing of a 'ConDraw' primitive.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+@Name("me.dmitrygubanov40.concan.Draw")
+@Label("Draw Primitive")
+@Description("Drawing of a figure (bar, rectangle, label...) in the terminal")
+@Category({ "Concan", "Output" })
+@StackTrace(false)
+public final class JfrDrawEvent extends Event
+{
+    
+    @Label("Figure")
+    public String figure;
+    
+    @Label("Cells")
+    @Description("Terminal cells painted")
+    public int cells;
+    
+    @Label("Bytes")
+    @Description("Bytes sent to the terminal")
+    @DataAmount
+    public long bytes;
+    
+}
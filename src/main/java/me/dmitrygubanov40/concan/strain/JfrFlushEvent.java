@@ -0,0 +1,43 @@
+package me.dmitrygubanov40.concan.strain;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+
+/**
+ * Flight Recorder event: flush (or autoflush) of a window's buffer,
+ * with all the window work it causes (cursor moves, brushes, events).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+@Name("me.dmitrygubanov40.concan.Flush")
+@Label("Buffer Flush")
+@Description("Output of a window buffer to the terminal")
+@Category({ "Concan", "Output" })
+@StackTrace(false)
+public final class JfrFlushEvent extends Event
+{
+    
+    @Label("Scope")
+    @Description("Output accounting scope, i.e. 'window-1'")
+    public String scope;
+    
+    @Label("Automatic")
+    @Description("Flush was caused by the full buffer")
+    public boolean automatic;
+    
+    @Label("Chars")
+    @Description("Chars in the buffer")
+    public int chars;
+    
+    @Label("Bytes")
+    @Description("Bytes sent to the terminal, control sequences included")
+    @DataAmount
+    public long bytes;
+    
+}
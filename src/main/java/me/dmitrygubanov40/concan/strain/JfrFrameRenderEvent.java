@@ -0,0 +1,33 @@
+package me.dmitrygubanov40.concan.strain;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+
+/**
+ * Flight Recorder event: render pass of a window frame (padding, border, caption).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+@Name("me.dmitrygubanov40.concan.FrameRender")
+@Label("Frame Render")
+@Description("Redraw of a window's padding, border and caption")
+@Category({ "Concan", "Output" })
+@StackTrace(false)
+public final class JfrFrameRenderEvent extends Event
+{
+    
+    @Label("Window Id")
+    public int windowId;
+    
+    @Label("Bytes")
+    @Description("Bytes sent to the terminal")
+    @DataAmount
+    public long bytes;
+    
+}
@@ -0,0 +1,39 @@
+package me.dmitrygubanov40.concan.strain;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+
+/**
+ * Flight Recorder event: one scroll step of a window zone
+ * (visible lines are repainted from the storage).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+@Name("me.dmitrygubanov40.concan.Scroll")
+@Label("Window Scroll")
+@Description("Repaint of window lines to scroll one line down")
+@Category({ "Concan", "Output" })
+@StackTrace(false)
+public final class JfrScrollEvent extends Event
+{
+    
+    @Label("Scope")
+    @Description("Output accounting scope, i.e. 'window-1'")
+    public String scope;
+    
+    @Label("Lines")
+    @Description("Lines repainted")
+    public int lines;
+    
+    @Label("Bytes")
+    @Description("Bytes sent to the terminal")
+    @DataAmount
+    public long bytes;
+    
+}
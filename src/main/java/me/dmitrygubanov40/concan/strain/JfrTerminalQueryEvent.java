@@ -0,0 +1,29 @@
+package me.dmitrygubanov40.concan.strain;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+
+/**
+ * Flight Recorder event: request to the terminal with waiting for its answer
+ * (i.e. cursor position report), the thread is blocked for the duration.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+@Name("me.dmitrygubanov40.concan.TerminalQuery")
+@Label("Terminal Query")
+@Description("Request to the terminal and reading of its report")
+@Category({ "Concan", "Input" })
+public final class JfrTerminalQueryEvent extends Event
+{
+    
+    @Label("Query")
+    public String query;
+    
+    @Label("Success")
+    public boolean success;
+    
+}
@@ -0,0 +1,186 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+
+/**
+ * Lock-free histogram of durations (nanoseconds) with logarithmic buckets.
+ * Each power of two is split into 8 sub-buckets, so any percentile
+ * is given with error under 12.5%, and memory is fixed (~4 KB) for any values.
+ * Recording is one atomic increment, so it is cheap enough for hot paths.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class LatencyHistogram
+{
+    
+    // 2^SUB_BUCKET_BITS sub-buckets in each power of two
+    private static final int SUB_BUCKET_BITS;
+    private static final int SUB_BUCKETS;
+    private static final int BUCKETS_NUMBER;
+    
+    static {
+        SUB_BUCKET_BITS = 3;
+        SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // values up to 2^63, first 'SUB_BUCKETS' buckets are exact values
+        BUCKETS_NUMBER = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    }
+    
+    ////////////
+    
+    private final AtomicLongArray buckets;
+    
+    private final AtomicLong count;
+    private final AtomicLong sumNs;
+    private final AtomicLong maxNs;
+    
+    
+    
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS_NUMBER);
+        //
+        this.count = new AtomicLong();
+        this.sumNs = new AtomicLong();
+        this.maxNs = new AtomicLong();
+    }
+    
+    
+    
+    /**
+     * @param valueNs duration
+     * @return index of the bucket for the duration
+     */
+    static int getBucketIndex(final long valueNs) {
+        if ( valueNs < SUB_BUCKETS ) return (int) valueNs;
+        //
+        final int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(valueNs);
+        final int subBucket = (int) (valueNs >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        //
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * @param index index of the bucket
+     * @return the largest duration which goes to the bucket
+     */
+    static long getBucketUpperNs(final int index) {
+        if ( index < SUB_BUCKETS ) return index;
+        //
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKETS;
+        final long lowerNs = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        //
+        return lowerNs + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+    
+    
+    
+    /**
+     * @param durationNs measured duration (negative is counted as zero)
+     */
+    public void record(final long durationNs) {
+        final long valueNs = Math.max(0L, durationNs);
+        //
+        this.buckets.incrementAndGet(LatencyHistogram.getBucketIndex(valueNs));
+        this.count.incrementAndGet();
+        this.sumNs.addAndGet(valueNs);
+        this.maxNs.accumulateAndGet(valueNs, Math::max);
+    }
+    
+    /**
+     * Record the time passed since the start.
+     * @param startNs 'System.nanoTime()' at the start
+     */
+    public void recordSince(final long startNs) {
+        this.record(System.nanoTime() - startNs);
+    }
+    
+    
+    
+    public long getCount() {
+        return this.count.get();
+    }
+    
+    public long getMaxNs() {
+        return this.maxNs.get();
+    }
+    
+    /**
+     * @return mean duration ('0' when nothing was recorded)
+     */
+    public double getMeanNs() {
+        final long curCount = this.count.get();
+        if ( 0 == curCount ) return 0.0;
+        //
+        return (double) this.sumNs.get() / curCount;
+    }
+    
+    /**
+     * @param percentile from '0' to '100' (i.e. '99.9')
+     * @return duration which is not exceeded by the 'percentile' of records
+     *          (upper bound of its bucket, never above the maximum), '0' when nothing was recorded
+     * @throws IllegalArgumentException for percentile out of range
+     */
+    public long getPercentileNs(final double percentile) throws IllegalArgumentException {
+        if ( percentile < 0.0 || percentile > 100.0 ) {
+            String excMsg = "[Benchmark] percentile must be in range 0 ... 100, given: " + percentile;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        // counts are read once: concurrent records are not lost for the next call
+        final long[] counts = new long[ BUCKETS_NUMBER ];
+        long total = 0;
+        for ( int i = 0; i < BUCKETS_NUMBER; i++ ) {
+            counts[ i ] = this.buckets.get(i);
+            total += counts[ i ];
+        }
+        if ( 0 == total ) return 0;
+        //
+        final long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long passed = 0;
+        for ( int i = 0; i < BUCKETS_NUMBER; i++ ) {
+            passed += counts[ i ];
+            if ( passed >= rank ) {
+                return Math.min(LatencyHistogram.getBucketUpperNs(i), this.maxNs.get());
+            }
+        }
+        //
+        return this.maxNs.get();
+    }
+    
+    public double getPercentileMs(final double percentile) {
+        return this.getPercentileNs(percentile) / 1_000_000.0;
+    }
+    
+    
+    
+    /**
+     * Forget all records.
+     */
+    public void reset() {
+        for ( int i = 0; i < BUCKETS_NUMBER; i++ ) {
+            this.buckets.set(i, 0);
+        }
+        this.count.set(0);
+        this.sumNs.set(0);
+        this.maxNs.set(0);
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ": [count: " + this.getCount()
+                    + String.format(Locale.ROOT, ", mean: %.3f ms", this.getMeanNs() / 1_000_000.0)
+                    + String.format(Locale.ROOT, ", p50: %.3f ms", this.getPercentileMs(50.0))
+                    + String.format(Locale.ROOT, ", p99: %.3f ms", this.getPercentileMs(99.0))
+                    + String.format(Locale.ROOT, ", max: %.3f ms]", this.getMaxNs() / 1_000_000.0);
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,201 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+
+/**
+ * Lock-free accounting of what is sent to the terminal.
+ * Each scope (window, drawing primitive...) has its own counters,
+ * everything counted in a scope is also counted in the parent ('OutputStats.global()').
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class OutputCounters
+{
+    
+    private static final char ESC_CHAR;
+    private static final char CSI_CHAR;
+    
+    static {
+        ESC_CHAR = '\033';
+        CSI_CHAR = '[';
+    }
+    
+    ////////////
+    
+    private final String scope;
+    // 'null' for the global counters
+    private final OutputCounters parent;
+    
+    // UTF-8 bytes written to the terminal
+    private final LongAdder bytes;
+    // number of print calls
+    private final LongAdder writes;
+    // all flushes (automatic ones included) and automatic flushes only
+    private final LongAdder flushes;
+    private final LongAdder autoflushes;
+    // cursor positioning sequences ('ESC[y;xH')
+    private final LongAdder gotos;
+    // style/color sequences ('ESC[...m')
+    private final LongAdder sgr;
+    // visible chars (no commands, no control chars)
+    private final LongAdder printable;
+    
+    
+    
+    OutputCounters(final String initScope, final OutputCounters initParent) {
+        this.scope = initScope;
+        this.parent = initParent;
+        //
+        this.bytes = new LongAdder();
+        this.writes = new LongAdder();
+        this.flushes = new LongAdder();
+        this.autoflushes = new LongAdder();
+        this.gotos = new LongAdder();
+        this.sgr = new LongAdder();
+        this.printable = new LongAdder();
+    }
+    
+    
+    
+    public String getScope() {
+        return this.scope;
+    }
+    
+    
+    
+    /**
+     * Count one print call to the terminal.
+     * One pass through the text: bytes, sequences and visible chars.
+     * @param str text which was printed
+     */
+    public void countWrite(final CharSequence str) {
+        if ( !OutputStats.isEnabled() || null == str ) return;
+        //
+        long strBytes = 0;
+        long strGotos = 0;
+        long strSgr = 0;
+        long strPrintable = 0;
+        //
+        final int length = str.length();
+        for ( int i = 0; i < length; i++ ) {
+            final char curChar = str.charAt(i);
+            //
+            if ( ESC_CHAR == curChar && i + 1 < length && CSI_CHAR == str.charAt(i + 1) ) {
+                // control sequence: skip parameters up to the final char
+                int finalIndex = i + 2;
+                while ( finalIndex < length
+                        && (str.charAt(finalIndex) < 0x40 || str.charAt(finalIndex) > 0x7E) ) {
+                    finalIndex++;
+                }
+                if ( finalIndex < length ) {
+                    final char finalChar = str.charAt(finalIndex);
+                    if ( 'H' == finalChar || 'f' == finalChar ) strGotos++;
+                    if ( 'm' == finalChar ) strSgr++;
+                } else {
+                    finalIndex = length - 1;// broken sequence till the end
+                }
+                strBytes += finalIndex - i + 1;// sequences are ASCII
+                i = finalIndex;
+                continue;
+            }
+            //
+            if ( curChar < 0x80 ) {
+                strBytes += 1;
+            } else if ( curChar < 0x800 ) {
+                strBytes += 2;
+            } else if ( Character.isHighSurrogate(curChar) && i + 1 < length
+                        && Character.isLowSurrogate(str.charAt(i + 1)) ) {
+                strBytes += 4;
+                i++;// the pair is one visible char
+            } else {
+                strBytes += 3;
+            }
+            //
+            if ( curChar >= 0x20 && 0x7F != curChar ) strPrintable++;
+        }
+        //
+        this.add(1, strBytes, strGotos, strSgr, strPrintable);
+    }
+    
+    private void add(final long addWrites,
+                        final long addBytes,
+                        final long addGotos,
+                        final long addSgr,
+                        final long addPrintable) {
+        this.writes.add(addWrites);
+        this.bytes.add(addBytes);
+        if ( addGotos > 0 ) this.gotos.add(addGotos);
+        if ( addSgr > 0 ) this.sgr.add(addSgr);
+        if ( addPrintable > 0 ) this.printable.add(addPrintable);
+        //
+        if ( null != this.parent ) this.parent.add(addWrites, addBytes, addGotos, addSgr, addPrintable);
+    }
+    
+    /**
+     * Count a flush of a buffer (any).
+     */
+    public void countFlush() {
+        if ( !OutputStats.isEnabled() ) return;
+        //
+        this.flushes.increment();
+        if ( null != this.parent ) this.parent.countFlush();
+    }
+    
+    /**
+     * Count an automatic flush (buffer is full), it is also counted by 'countFlush'.
+     */
+    public void countAutoflush() {
+        if ( !OutputStats.isEnabled() ) return;
+        //
+        this.autoflushes.increment();
+        if ( null != this.parent ) this.parent.countAutoflush();
+    }
+    
+    
+    
+    /**
+     * @return UTF-8 bytes counted so far (cheaper than 'snapshot()')
+     */
+    public long getBytes() {
+        return this.bytes.sum();
+    }
+    
+    /**
+     * Not atomic over all counters, but each value is exact.
+     * @return current values
+     */
+    public OutputCountersSnapshot snapshot() {
+        return new OutputCountersSnapshot(this.scope,
+                                            this.bytes.sum(),
+                                            this.writes.sum(),
+                                            this.flushes.sum(),
+                                            this.autoflushes.sum(),
+                                            this.gotos.sum(),
+                                            this.sgr.sum(),
+                                            this.printable.sum());
+    }
+    
+    /**
+     * Set all counters of the scope to zero (parent is not changed).
+     */
+    public void reset() {
+        this.bytes.reset();
+        this.writes.reset();
+        this.flushes.reset();
+        this.autoflushes.reset();
+        this.gotos.reset();
+        this.sgr.reset();
+        this.printable.reset();
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        return this.snapshot().toString();
+    }
+    
+    
+    
+}
@@ -0,0 +1,130 @@
+package me.dmitrygubanov40.concan.strain;
+
+
+
+/**
+ * Immutable values of 'OutputCounters' at some moment.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class OutputCountersSnapshot
+{
+    
+    private final String scope;
+    
+    private final long bytes;
+    private final long writes;
+    private final long flushes;
+    private final long autoflushes;
+    private final long gotos;
+    private final long sgr;
+    private final long printable;
+    
+    
+    
+    OutputCountersSnapshot(final String initScope,
+                            final long initBytes,
+                            final long initWrites,
+                            final long initFlushes,
+                            final long initAutoflushes,
+                            final long initGotos,
+                            final long initSgr,
+                            final long initPrintable) {
+        this.scope = initScope;
+        this.bytes = initBytes;
+        this.writes = initWrites;
+        this.flushes = initFlushes;
+        this.autoflushes = initAutoflushes;
+        this.gotos = initGotos;
+        this.sgr = initSgr;
+        this.printable = initPrintable;
+    }
+    
+    
+    
+    public String getScope() {
+        return this.scope;
+    }
+    
+    public long getBytes() {
+        return this.bytes;
+    }
+    
+    public long getWrites() {
+        return this.writes;
+    }
+    
+    /**
+     * @return all flushes, automatic ones included
+     */
+    public long getFlushes() {
+        return this.flushes;
+    }
+    
+    public long getAutoflushes() {
+        return this.autoflushes;
+    }
+    
+    /**
+     * @return flushes called from outside (not automatic)
+     */
+    public long getExplicitFlushes() {
+        return this.flushes - this.autoflushes;
+    }
+    
+    public long getGotos() {
+        return this.gotos;
+    }
+    
+    public long getSgr() {
+        return this.sgr;
+    }
+    
+    public long getPrintable() {
+        return this.printable;
+    }
+    
+    /**
+     * @return how many bytes are spent for a visible char ('0' if nothing visible)
+     */
+    public double getBytesPerPrintable() {
+        if ( 0 == this.printable ) return 0.0;
+        //
+        return (double) this.bytes / this.printable;
+    }
+    
+    
+    
+    /**
+     * @param before earlier snapshot of the same scope
+     * @return what was counted since 'before'
+     */
+    public OutputCountersSnapshot minus(final OutputCountersSnapshot before) {
+        return new OutputCountersSnapshot(this.scope,
+                                            this.bytes - before.bytes,
+                                            this.writes - before.writes,
+                                            this.flushes - before.flushes,
+                                            this.autoflushes - before.autoflushes,
+                                            this.gotos - before.gotos,
+                                            this.sgr - before.sgr,
+                                            this.printable - before.printable);
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ", " + this.scope
+                    + ": [bytes: "      + this.bytes
+                    + ", writes: "      + this.writes
+                    + ", flushes: "     + this.flushes
+                    + ", autoflushes: " + this.autoflushes
+                    + ", gotos: "       + this.gotos
+                    + ", sgr: "         + this.sgr
+                    + ", printable: "   + this.printable + "]";
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,165 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+
+/**
+ * Registry of output accounting: global counters and named scopes
+ * ("window-1", "draw-ConBar", "term"...).
+ * Counting is on by default and cheap enough to stay on.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class OutputStats
+{
+    
+    public static final String GLOBAL_SCOPE;
+    
+    // domain of all library MBeans
+    public static final String MBEAN_DOMAIN;
+    private static final String MBEAN_NAME;
+    
+    private static final OutputCounters globalCounters;
+    private static final Map<String, OutputCounters> scopes;
+    
+    private static volatile boolean enabled;
+    
+    // start of measurements ('System.nanoTime()'), rates are counted since it
+    private static volatile long statsSinceNs;
+    
+    static {
+        GLOBAL_SCOPE = "global";
+        //
+        MBEAN_DOMAIN = "me.dmitrygubanov40.concan";
+        MBEAN_NAME = MBEAN_DOMAIN + ":type=OutputStats";
+        //
+        globalCounters = new OutputCounters(GLOBAL_SCOPE, null);
+        scopes = new ConcurrentHashMap<>();
+        //
+        enabled = true;
+        statsSinceNs = System.nanoTime();
+    }
+    
+    
+    
+    private OutputStats() {
+        // utility class
+    }
+    
+    
+    
+    /**
+     * @return counters of all the output
+     */
+    public static OutputCounters global() {
+        return OutputStats.globalCounters;
+    }
+    
+    /**
+     * @param scopeName name of the scope
+     * @return counters of the scope (created at the first call)
+     */
+    public static OutputCounters scope(final String scopeName) {
+        if ( null == scopeName || GLOBAL_SCOPE.equals(scopeName) ) return OutputStats.globalCounters;
+        //
+        return OutputStats.scopes.computeIfAbsent(scopeName,
+                                                    name -> new OutputCounters(name, OutputStats.globalCounters));
+    }
+    
+    /**
+     * Forget the scope (i.e. the window is closed). Global counters keep its values.
+     * @param scopeName name of the scope
+     */
+    public static void removeScope(final String scopeName) {
+        if ( null == scopeName ) return;
+        //
+        OutputStats.scopes.remove(scopeName);
+    }
+    
+    
+    
+    public static boolean isEnabled() {
+        return OutputStats.enabled;
+    }
+    
+    public static void setEnabled(final boolean setEnabled) {
+        OutputStats.enabled = setEnabled;
+    }
+    
+    
+    
+    /**
+     * @return snapshots of all scopes by name (sorted), global included
+     */
+    public static Map<String, OutputCountersSnapshot> snapshotAll() {
+        Map<String, OutputCountersSnapshot> result = new TreeMap<>();
+        result.put(GLOBAL_SCOPE, OutputStats.globalCounters.snapshot());
+        for ( Map.Entry<String, OutputCounters> curScope : OutputStats.scopes.entrySet() ) {
+            result.put(curScope.getKey(), curScope.getValue().snapshot());
+        }
+        //
+        return result;
+    }
+    
+    /**
+     * Set all counters to zero.
+     */
+    public static void resetAll() {
+        OutputStats.globalCounters.reset();
+        for ( OutputCounters curCounters : OutputStats.scopes.values() ) {
+            curCounters.reset();
+        }
+        OutputStats.statsSinceNs = System.nanoTime();
+    }
+    
+    /**
+     * @return 'System.nanoTime()' of the start or the last 'resetAll()'
+     */
+    public static long getStatsSinceNs() {
+        return OutputStats.statsSinceNs;
+    }
+    
+    
+    
+    /**
+     * Make global accounting visible via JMX (jconsole, VisualVM...)
+     * as "me.dmitrygubanov40.concan:type=OutputStats".
+     * @return name of the registered MBean
+     * @throws IllegalStateException when MBean cannot be registered
+     */
+    public static ObjectName registerMBean() throws IllegalStateException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName mbeanName = new ObjectName(MBEAN_NAME);
+            if ( !server.isRegistered(mbeanName) ) server.registerMBean(new OutputStatsMonitor(), mbeanName);
+            //
+            return mbeanName;
+        } catch ( JMException jmxExc ) {
+            String excMsg = "Cannot register output accounting MBean: " + jmxExc.getMessage();
+            throw new IllegalStateException(excMsg);
+        }
+    }
+    
+    /**
+     * Remove global accounting MBean (if it was registered).
+     */
+    public static void unregisterMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName mbeanName = new ObjectName(MBEAN_NAME);
+            if ( server.isRegistered(mbeanName) ) server.unregisterMBean(mbeanName);
+        } catch ( JMException jmxExc ) {
+            // was unregistered at the same time
+        }
+    }
+    
+    
+    
+}
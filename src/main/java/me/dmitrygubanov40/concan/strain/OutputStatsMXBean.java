@@ -0,0 +1,57 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Map;
+
+
+
+/**
+ * Management interface of all output, see 'OutputStats.registerMBean()'.
+ * Rates are given for the time since the start or the last reset.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public interface OutputStatsMXBean
+{
+    
+    public boolean isEnabled();
+    
+    public void setEnabled(final boolean setEnabled);
+    
+    public long getMeasuredTimeMs();
+    
+    
+    
+    public long getBytes();
+    
+    public double getBytesPerSecond();
+    
+    public long getWrites();
+    
+    public long getFlushes();
+    
+    public long getAutoflushes();
+    
+    public double getFlushesPerSecond();
+    
+    public long getGotos();
+    
+    public long getSgr();
+    
+    public long getPrintable();
+    
+    public double getBytesPerPrintable();
+    
+    
+    
+    /**
+     * @return bytes by scope name ("window-1", "draw-ConBar", "term"...)
+     */
+    public Map<String, Long> getBytesByScope();
+    
+    
+    
+    /**
+     * Set counters of all scopes to zero.
+     */
+    public void resetCounters();
+    
+}
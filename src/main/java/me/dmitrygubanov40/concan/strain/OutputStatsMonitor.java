@@ -0,0 +1,118 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+
+
+/**
+ * JMX view of the global output accounting.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class OutputStatsMonitor implements OutputStatsMXBean
+{
+    
+    OutputStatsMonitor() {
+        // all data is in 'OutputStats'
+    }
+    
+    
+    
+    private OutputCountersSnapshot getGlobal() {
+        return OutputStats.global().snapshot();
+    }
+    
+    private double getPerSecond(final long value) {
+        final long measuredNs = System.nanoTime() - OutputStats.getStatsSinceNs();
+        if ( measuredNs <= 0 ) return 0.0;
+        //
+        return value * 1_000_000_000.0 / measuredNs;
+    }
+    
+    
+    
+    @Override
+    public boolean isEnabled() {
+        return OutputStats.isEnabled();
+    }
+    
+    @Override
+    public void setEnabled(final boolean setEnabled) {
+        OutputStats.setEnabled(setEnabled);
+    }
+    
+    @Override
+    public long getMeasuredTimeMs() {
+        return (System.nanoTime() - OutputStats.getStatsSinceNs()) / 1_000_000L;
+    }
+    
+    @Override
+    public long getBytes() {
+        return this.getGlobal().getBytes();
+    }
+    
+    @Override
+    public double getBytesPerSecond() {
+        return this.getPerSecond(this.getBytes());
+    }
+    
+    @Override
+    public long getWrites() {
+        return this.getGlobal().getWrites();
+    }
+    
+    @Override
+    public long getFlushes() {
+        return this.getGlobal().getFlushes();
+    }
+    
+    @Override
+    public long getAutoflushes() {
+        return this.getGlobal().getAutoflushes();
+    }
+    
+    @Override
+    public double getFlushesPerSecond() {
+        return this.getPerSecond(this.getFlushes());
+    }
+    
+    @Override
+    public long getGotos() {
+        return this.getGlobal().getGotos();
+    }
+    
+    @Override
+    public long getSgr() {
+        return this.getGlobal().getSgr();
+    }
+    
+    @Override
+    public long getPrintable() {
+        return this.getGlobal().getPrintable();
+    }
+    
+    @Override
+    public double getBytesPerPrintable() {
+        return this.getGlobal().getBytesPerPrintable();
+    }
+    
+    @Override
+    public Map<String, Long> getBytesByScope() {
+        Map<String, Long> bytesByScope = new TreeMap<>();
+        for ( Map.Entry<String, OutputCountersSnapshot> curScope : OutputStats.snapshotAll().entrySet() ) {
+            bytesByScope.put(curScope.getKey(), curScope.getValue().getBytes());
+        }
+        //
+        return bytesByScope;
+    }
+    
+    
+    
+    @Override
+    public void resetCounters() {
+        OutputStats.resetAll();
+    }
+    
+    
+    
+}
@@ -0,0 +1,150 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+
+/**
+ * Phase latencies of window prints ('PrintPhase'), each phase has its own histogram.
+ * One print at a time is measured: the window calls 'beginPrint()'/'endPrint()'
+ * under its print lock, buffers report flushes and writes in between.
+ * Flushes and writes out of a print (i.e. stamps from other threads) are ignored.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class PrintLatency
+{
+    
+    private final Map<PrintPhase, LatencyHistogram> histograms;
+    
+    // state of the print in progress
+    private boolean inPrint;
+    private long entryNs;
+    private long lockedNs;
+    // nested flushes (temporary zones in a flush) are counted once
+    private int flushDepth;
+    private long flushStartNs;
+    private long flushNs;
+    private long writeNs;
+    
+    
+    
+    public PrintLatency() {
+        Map<PrintPhase, LatencyHistogram> initHistograms = new EnumMap<>(PrintPhase.class);
+        for ( PrintPhase curPhase : PrintPhase.values() ) {
+            initHistograms.put(curPhase, new LatencyHistogram());
+        }
+        this.histograms = Collections.unmodifiableMap(initHistograms);
+        //
+        this.inPrint = false;
+    }
+    
+    
+    
+    /**
+     * Print has got the window (lock is taken).
+     * @param printEntryNs 'System.nanoTime()' when print was called
+     */
+    public void beginPrint(final long printEntryNs) {
+        this.entryNs = printEntryNs;
+        this.lockedNs = System.nanoTime();
+        //
+        this.flushDepth = 0;
+        this.flushNs = 0;
+        this.writeNs = 0;
+        this.inPrint = true;
+    }
+    
+    /**
+     * Print is complete: record all phases.
+     */
+    public void endPrint() {
+        if ( !this.inPrint ) return;
+        //
+        final long doneNs = System.nanoTime();
+        this.inPrint = false;
+        //
+        this.histograms.get(PrintPhase.ENQUEUE).record(this.lockedNs - this.entryNs);
+        this.histograms.get(PrintPhase.PARSE).record((doneNs - this.lockedNs) - this.flushNs);
+        this.histograms.get(PrintPhase.RENDER).record(this.flushNs - this.writeNs);
+        this.histograms.get(PrintPhase.WRITE).record(this.writeNs);
+        this.histograms.get(PrintPhase.TOTAL).record(doneNs - this.entryNs);
+    }
+    
+    /**
+     * Buffer starts flush.
+     */
+    public void enterFlush() {
+        if ( !this.inPrint ) return;
+        //
+        if ( 0 == this.flushDepth++ ) this.flushStartNs = System.nanoTime();
+    }
+    
+    /**
+     * Buffer has finished flush.
+     */
+    public void exitFlush() {
+        if ( !this.inPrint || this.flushDepth <= 0 ) return;
+        //
+        if ( 0 == --this.flushDepth ) this.flushNs += System.nanoTime() - this.flushStartNs;
+    }
+    
+    /**
+     * @param durationNs time spent writing to the terminal's stream
+     */
+    public void addWriteNs(final long durationNs) {
+        if ( !this.inPrint ) return;
+        //
+        this.writeNs += durationNs;
+    }
+    
+    
+    
+    /**
+     * @param phase phase of print
+     * @return histogram of the phase
+     */
+    public LatencyHistogram getHistogram(final PrintPhase phase) {
+        return this.histograms.get(phase);
+    }
+    
+    /**
+     * @param phase phase of print
+     * @param percentile from '0' to '100'
+     * @return latency of the phase, ms
+     */
+    public double getPercentileMs(final PrintPhase phase, final double percentile) {
+        return this.histograms.get(phase).getPercentileMs(percentile);
+    }
+    
+    /**
+     * Forget all records.
+     */
+    public void reset() {
+        for ( LatencyHistogram curHistogram : this.histograms.values() ) {
+            curHistogram.reset();
+        }
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder(this.getClass().getSimpleName());
+        str.append(": [prints: ").append(this.histograms.get(PrintPhase.TOTAL).getCount());
+        for ( PrintPhase curPhase : PrintPhase.values() ) {
+            str.append(", ").append(curPhase.getPhaseName())
+                .append(String.format(Locale.ROOT, " p50/p99: %.3f/%.3f ms",
+                                        this.getPercentileMs(curPhase, 50.0),
+                                        this.getPercentileMs(curPhase, 99.0)));
+        }
+        str.append(']');
+        //
+        return str.toString();
+    }
+    
+    
+    
+}
@@ -0,0 +1,55 @@
+package me.dmitrygubanov40.concan.strain;
+
+/**
+ * Phases of a window print, from the call till the bytes are written to the terminal.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum PrintPhase
+{
+    
+    // waiting for the window (other threads are printing)
+    ENQUEUE     ("enqueue"),
+    // splitting of text and commands, buffering (out of flushes)
+    PARSE       ("parse"),
+    // window work in flushes: cursor moves, scrolling, brushes (without writing)
+    RENDER      ("render"),
+    // writing to the terminal's stream
+    WRITE       ("write"),
+    // from the call till the print is complete
+    TOTAL       ("total");
+    
+    ////////////////////////////
+    
+    private final String phaseName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initPhaseName text code of the phase
+     */
+    PrintPhase(final String initPhaseName) {
+        this.phaseName = initPhaseName;
+    }
+    
+    
+    
+    /**
+     * @return string of phase name
+     */
+    public String getPhaseName() {
+        return this.phaseName;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.phaseName;
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,331 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+
+
+/**
+ * Deterministic console output corpus for benchmarks.
+ * The same profile and seed always give the same chunks, and a workload
+ * recorded to a file is replayed byte-for-byte, so benchmarks on different
+ * machines and versions measure the same input.
+ * Replay goes to any string consumer, i.e.:
+ *      workload.replay(outputBuffer::add);
+ *      workload.replay(windowBuffer::addToWinBuf);
+ *      workload.replay(conWin::print);
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class Workload
+{
+    
+    // file signature ("CCWL") and format version
+    private static final int FILE_MAGIC;
+    private static final int FILE_VERSION;
+    
+    private static final String[] WORDS;
+    private static final String[] LEVELS;
+    private static final String SPINNER;
+    
+    static {
+        FILE_MAGIC = 0x4343574C;
+        FILE_VERSION = 1;
+        //
+        WORDS = new String[] { "buffer", "window", "flush", "request", "session", "user", "cache", "timeout",
+                                "connection", "accepted", "rejected", "запрос", "окно", "поток", "готово",
+                                "12345", "0x7f3a", "ok", "retry", "#42", "(id=17)", "done;", "path=/var/log" };
+        LEVELS = new String[] { "TRACE", "DEBUG", "INFO", "INFO", "INFO", "WARN", "ERROR" };
+        SPINNER = "|/-\\";
+    }
+    
+    ////////////
+    
+    // profile name or any name of a recorded workload
+    private final String name;
+    private final long seed;
+    
+    // output pieces exactly as they are given to the output
+    private final List<String> chunks;
+    
+    
+    
+    /**
+     * @param initName name of the workload
+     * @param initSeed seed it was generated with ('0' if unknown)
+     * @param initChunks output pieces
+     * @throws NullPointerException when name or chunks are not given
+     */
+    public Workload(final String initName, final long initSeed, final List<String> initChunks)
+                    throws NullPointerException {
+        if ( null == initName || null == initChunks ) {
+            String excMsg = "[Benchmark] workload cannot be created without name or chunks";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.name = initName;
+        this.seed = initSeed;
+        this.chunks = Collections.unmodifiableList(new ArrayList<>(initChunks));
+    }
+    
+    
+    
+    /**
+     * Generate the workload of the profile.
+     * @param profile kind of the output
+     * @param seed random seed (same seed - same output)
+     * @param chunksNumber number of output pieces
+     * @return generated workload
+     * @throws IllegalArgumentException for non-positive number of chunks
+     */
+    public static Workload generate(final WorkloadProfile profile, final long seed, final int chunksNumber)
+                    throws IllegalArgumentException {
+        if ( chunksNumber <= 0 ) {
+            String excMsg = "[Benchmark] workload must have at least one chunk, given: " + chunksNumber;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        Random rnd = new Random(seed);
+        List<String> generated = new ArrayList<>(chunksNumber);
+        //
+        for ( int i = 0; i < chunksNumber; i++ ) {
+            switch ( profile ) {
+                case SGR_LOG:
+                    generated.add(Workload.getSgrLogLine(rnd, i));
+                    break;
+                case TUI_CURSOR:
+                    generated.add(Workload.getTuiChunk(rnd, i, chunksNumber));
+                    break;
+                case LONG_LINES:
+                    generated.add(Workload.getLongLine(rnd));
+                    break;
+                default:
+                    generated.add(Workload.getPlainLogLine(rnd, i));
+            }
+        }
+        //
+        return new Workload(profile.getProfileName(), seed, generated);
+    }
+    
+    ////////////
+    
+    private static String getTime(final int lineNmb) {
+        final int ms = lineNmb * 37;
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d",
+                                (ms / 3600000) % 24, (ms / 60000) % 60, (ms / 1000) % 60, ms % 1000);
+    }
+    
+    private static String getMessage(final Random rnd, final int minWords, final int maxWords) {
+        final int wordsNumber = minWords + rnd.nextInt(maxWords - minWords + 1);
+        StringBuilder message = new StringBuilder();
+        for ( int i = 0; i < wordsNumber; i++ ) {
+            if ( i > 0 ) message.append(' ');
+            message.append(WORDS[ rnd.nextInt(WORDS.length) ]);
+        }
+        //
+        return message.toString();
+    }
+    
+    private static String getPlainLogLine(final Random rnd, final int lineNmb) {
+        return Workload.getTime(lineNmb)
+                + " " + String.format(Locale.ROOT, "%-5s", LEVELS[ rnd.nextInt(LEVELS.length) ])
+                + " [worker-" + rnd.nextInt(8) + "] "
+                + Workload.getMessage(rnd, 3, 10)
+                + ConUt.LF;
+    }
+    
+    private static String getSgrLogLine(final Random rnd, final int lineNmb) {
+        final ConCol[] colors = ConCol.values();
+        final String level = LEVELS[ rnd.nextInt(LEVELS.length) ];
+        //
+        StringBuilder line = new StringBuilder();
+        line.append(ConUt.DIM).append(Workload.getTime(lineNmb)).append(ConUt.DIM_OFF).append(' ');
+        line.append(ConUt.COLOR_8B(colors[ rnd.nextInt(colors.length) ]))
+            .append(ConUt.BOLD).append(String.format(Locale.ROOT, "%-5s", level)).append(ConUt.BOLD_OFF)
+            .append(ConUt.COLOR_DEFAULT).append(' ');
+        line.append(ConUt.COLOR(colors[ rnd.nextInt(colors.length) ]))
+            .append("[worker-").append(rnd.nextInt(8)).append("]")
+            .append(ConUt.COLOR_DEFAULT).append(' ');
+        //
+        final int wordsNumber = 3 + rnd.nextInt(8);
+        for ( int i = 0; i < wordsNumber; i++ ) {
+            if ( i > 0 ) line.append(' ');
+            final String word = WORDS[ rnd.nextInt(WORDS.length) ];
+            switch ( rnd.nextInt(6) ) {
+                case 0:
+                    line.append(ConUt.UNDERLINE).append(word).append(ConUt.UNDERLINE_OFF);
+                    break;
+                case 1:
+                    line.append(ConUt.BACKGROUND_8B(colors[ rnd.nextInt(colors.length) ]))
+                        .append(word).append(ConUt.BACKGROUND_DEFAULT);
+                    break;
+                default:
+                    line.append(word);
+            }
+        }
+        //
+        line.append(ConUt.RESET).append(ConUt.LF);
+        return line.toString();
+    }
+    
+    private static String getTuiChunk(final Random rnd, final int chunkNmb, final int chunksNumber) {
+        if ( 0 == chunkNmb ) return ConUt.CURSOR_OFF;
+        if ( chunksNumber - 1 == chunkNmb ) return ConUt.CURSOR_ON + ConUt.LF;
+        //
+        final int barWidth = 30;
+        final int percent = (chunkNmb * 100) / chunksNumber;
+        final int filled = (percent * barWidth) / 100;
+        //
+        switch ( rnd.nextInt(4) ) {
+            case 0:
+                // spinner step over the last char
+                return ConUt.BS + SPINNER.charAt(chunkNmb % SPINNER.length());
+            case 1:
+                // status at saved position
+                return ConUt.SAVE + ConUt.HT + Workload.getMessage(rnd, 1, 2) + ConUt.RESTORE;
+            case 2:
+                // finished step
+                return ConUt.CR + "step " + chunkNmb + ConUt.HT + "ok" + ConUt.LF;
+            default:
+                // progress bar redraw
+                return ConUt.CR + "[" + "#".repeat(filled) + " ".repeat(barWidth - filled) + "] "
+                        + String.format(Locale.ROOT, "%3d%%", percent) + " ";
+        }
+    }
+    
+    private static String getLongLine(final Random rnd) {
+        final int lineLength = 200 + rnd.nextInt(1800);
+        StringBuilder line = new StringBuilder(lineLength + 1);
+        while ( line.length() < lineLength ) {
+            line.append(WORDS[ rnd.nextInt(WORDS.length) ]);
+            if ( 0 != rnd.nextInt(3) ) line.append('_');// mostly without spaces
+        }
+        //
+        line.setLength(lineLength);
+        line.append(ConUt.LF);
+        return line.toString();
+    }
+    
+    ////////////
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    public List<String> getChunks() {
+        return this.chunks;
+    }
+    
+    /**
+     * @return total number of chars in all chunks
+     */
+    public long getLength() {
+        long length = 0;
+        for ( String curChunk : this.chunks ) length += curChunk.length();
+        //
+        return length;
+    }
+    
+    
+    
+    /**
+     * Give all chunks, in order, to the target.
+     * @param target where the output goes (i.e. 'outputBuffer::add')
+     */
+    public void replay(final Consumer<String> target) {
+        for ( String curChunk : this.chunks ) {
+            target.accept(curChunk);
+        }
+    }
+    
+    /**
+     * @param target where the output goes
+     * @return benchmarkable replay of the workload into the target
+     */
+    public Benchmarkable asBenchmarkable(final Consumer<String> target) {
+        return () -> this.replay(target);
+    }
+    
+    
+    
+    /**
+     * Save the workload: header, then each chunk as length-prefixed UTF-8 bytes.
+     * @param file where to save
+     * @throws IOException when the file cannot be written
+     */
+    public void record(final Path file) throws IOException {
+        try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))) ) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeUTF(this.name);
+            out.writeLong(this.seed);
+            out.writeInt(this.chunks.size());
+            //
+            for ( String curChunk : this.chunks ) {
+                final byte[] bytes = curChunk.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+    
+    /**
+     * @param file saved workload
+     * @return workload exactly as it was recorded
+     * @throws IOException when the file cannot be read or has incorrect format
+     */
+    public static Workload load(final Path file) throws IOException {
+        try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+            if ( FILE_MAGIC != in.readInt() || FILE_VERSION != in.readInt() ) {
+                String excMsg = "[Benchmark] '" + file + "' is not a workload file";
+                throw new IOException(excMsg);
+            }
+            //
+            final String loadedName = in.readUTF();
+            final long loadedSeed = in.readLong();
+            final int chunksNumber = in.readInt();
+            //
+            List<String> loadedChunks = new ArrayList<>(chunksNumber);
+            for ( int i = 0; i < chunksNumber; i++ ) {
+                byte[] bytes = new byte[ in.readInt() ];
+                in.readFully(bytes);
+                loadedChunks.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            //
+            return new Workload(loadedName, loadedSeed, loadedChunks);
+        }
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ": [name: " + this.name
+                    + ", seed: " + this.seed
+                    + ", chunks: " + this.chunks.size()
+                    + ", length: " + this.getLength() + "]";
+        return str;
+    }
+    
+    
+    
+}
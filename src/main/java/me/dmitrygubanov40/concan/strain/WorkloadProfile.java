@@ -0,0 +1,64 @@
+package me.dmitrygubanov40.concan.strain;
+
+/**
+ * Kinds of realistic console output a 'Workload' can be generated of.
+ * All profiles use only sequences legal for windows ('WindowOutputBuffer').
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum WorkloadProfile
+{
+    
+    PLAIN_LOG       ("plainLog"),       // short plain log lines with LF
+    SGR_LOG         ("sgrLog"),         // log lines heavily colored with SGR sequences
+    TUI_CURSOR      ("tuiCursor"),      // progress redraws: CR, BS, HT, save/restore, cursor on/off
+    LONG_LINES      ("longLines");      // long unbroken lines which must be wrapped
+    
+    ////////////////////////////
+    
+    private final String profileName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initProfileName text code of the profile
+     */
+    WorkloadProfile(final String initProfileName) {
+        this.profileName = initProfileName;
+    }
+    
+    
+    
+    /**
+     * @return string of profile name
+     */
+    public String getProfileName() {
+        return this.profileName;
+    }
+    
+    /**
+     * @param name text code of the profile
+     * @return profile with the name
+     * @throws IllegalArgumentException when there is no such profile
+     */
+    public static WorkloadProfile getByName(final String name) throws IllegalArgumentException {
+        for ( WorkloadProfile curProfile : WorkloadProfile.values() ) {
+            if ( curProfile.profileName.equals(name) ) return curProfile;
+        }
+        //
+        String excMsg = "[Benchmark] unknown workload profile: '" + name + "'";
+        throw new IllegalArgumentException(excMsg);
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.profileName;
+        return str;
+    }
+    
+    
+    
+}
@@ -2,6 +2,9 @@ package me.dmitrygubanov40.concan.utility;
 
 import java.awt.Color;
 
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+
 
 
 /**
@@ -32,12 +35,17 @@ public class Term
     // character just to cover space (empty)
     public static final String EMPTY_CHAR;
     
+    // output accounting scope of terminal's own commands
+    public static final String STATS_SCOPE;
+    
     
     static {
         DEFAULT_COLOR = ConCol.WHITE.getTrueColor();
         DEFAULT_BACKGROUND = ConCol.GREYSCALE4.getTrueColor();
         //
         EMPTY_CHAR = " ";
+        //
+        STATS_SCOPE = "term";
     }
     
     
@@ -66,7 +74,8 @@ public class Term
      */
     private Term() {
         this.maxCoords = ConUt.getTerminalMaxCoord();
-        this.maxSize = ConUt.getTerminalSize();
+        // the same as 'getTerminalSize()', without one more query
+        this.maxSize = this.maxCoords.addConsoleShift();
         this.isSaved = false;
         //
         this.resetColors();
@@ -206,7 +215,7 @@ public class Term
             return;
         }
         //
-        System.out.print(ConUt.SAVE);
+        OutputSink.write(ConUt.SAVE, OutputStats.scope(STATS_SCOPE));
         this.isSaved = true;
     }
     /**
@@ -218,7 +227,7 @@ public class Term
             return;
         }
         //
-        System.out.print(ConUt.RESTORE);
+        OutputSink.write(ConUt.RESTORE, OutputStats.scope(STATS_SCOPE));
         this.isSaved = false;
     }
     
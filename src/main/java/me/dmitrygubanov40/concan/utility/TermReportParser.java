@@ -0,0 +1,242 @@
+package me.dmitrygubanov40.concan.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+
+
+/**
+ * Splits bytes read from the terminal into its reports (answers to queries)
+ * and the rest of input (keys and so on), which is given on as it is.
+ * Reports: cursor position "ESC[#;#R" (only when it is awaited, the same looks
+ * like some modified function keys), size "ESC[8;#;#t", device attributes "ESC[?...c".
+ * A sequence may come in several reads, the parser keeps its state between them.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class TermReportParser
+{
+    
+    private static final int ESC;
+    private static final int CSI_START;
+    // longer sequences are not reports (and are given on as input)
+    private static final int MAX_SEQUENCE_LENGTH;
+    // parameters of reports are not longer (i.e. coordinates)
+    private static final int MAX_NUMBER_LENGTH;
+    
+    static {
+        ESC = UtilityEngine.getIntCharByName("ESC");
+        CSI_START = '[';
+        MAX_SEQUENCE_LENGTH = 64;
+        MAX_NUMBER_LENGTH = 9;
+    }
+    
+    ////////////
+    
+    /**
+     * Who gets the parsed bytes.
+     */
+    interface Receiver
+    {
+        /**
+         * @return is there a cursor position query without an answer
+         */
+        boolean isCursorAwaited();
+    
+        /**
+         * @param row line of the cursor (from '1')
+         * @param column column of the cursor (from '1')
+         */
+        void onCursorReport(int row, int column);
+    
+        /**
+         * @param rows lines of the terminal
+         * @param columns columns of the terminal
+         */
+        void onSizeReport(int rows, int columns);
+    
+        /**
+         * @param attributes parameters of the answer without '?' (like "62;22")
+         */
+        void onDeviceAttributes(String attributes);
+    
+        /**
+         * @param input bytes which are not reports, in order
+         */
+        void onInput(byte[] input);
+    }
+    
+    ////////////
+    
+    private final Receiver receiver;
+    
+    // escape sequence being read
+    private final ByteArrayOutputStream sequence;
+    // other bytes of the current read
+    private final ByteArrayOutputStream input;
+    
+    
+    
+    /**
+     * @param initReceiver who gets reports and input
+     * @throws NullPointerException when there is no receiver
+     */
+    TermReportParser(final Receiver initReceiver) throws NullPointerException {
+        if ( null == initReceiver ) {
+            String excMsg = "Cannot parse terminal input without a receiver";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.receiver = initReceiver;
+        this.sequence = new ByteArrayOutputStream();
+        this.input = new ByteArrayOutputStream();
+    }
+    
+    
+    
+    /**
+     * @param data bytes read from the terminal
+     * @param offset first byte to parse
+     * @param length bytes to parse
+     */
+    void feed(final byte[] data, final int offset, final int length) {
+        for ( int i = offset; i < offset + length; i++ ) {
+            this.next(data[ i ] & 0xFF);
+        }
+        this.giveInput();
+    }
+    
+    /**
+     * Nothing more came for a while: started sequence is not a report (i.e. 'Esc' key).
+     */
+    void flush() {
+        this.sequenceToInput();
+        this.giveInput();
+    }
+    
+    /**
+     * @return is a sequence being read
+     */
+    boolean isInSequence() {
+        return this.sequence.size() > 0;
+    }
+    
+    
+    
+    private void next(final int nextByte) {
+        final int sequenceLength = this.sequence.size();
+        if ( 0 == sequenceLength ) {
+            if ( TermReportParser.ESC == nextByte ) this.sequence.write(nextByte);
+            else                                    this.input.write(nextByte);
+            return;
+        }
+        if ( 1 == sequenceLength ) {
+            if ( TermReportParser.CSI_START == nextByte ) {
+                this.sequence.write(nextByte);
+                return;
+            }
+            // not a control sequence (i.e. 'Alt' + key)
+            this.sequenceToInput();
+            this.next(nextByte);
+            return;
+        }
+        //
+        if ( nextByte >= 0x20 && nextByte <= 0x3F ) {
+            // parameters and intermediate bytes
+            if ( sequenceLength >= TermReportParser.MAX_SEQUENCE_LENGTH ) {
+                this.sequenceToInput();
+                this.input.write(nextByte);
+                return;
+            }
+            this.sequence.write(nextByte);
+            return;
+        }
+        if ( nextByte >= 0x40 && nextByte <= 0x7E ) {
+            // final byte
+            this.sequence.write(nextByte);
+            this.onSequence();
+            return;
+        }
+        // broken sequence
+        this.sequenceToInput();
+        this.next(nextByte);
+    }
+    
+    /**
+     * Whole sequence is read: a report goes to the receiver, anything else is input.
+     */
+    private void onSequence() {
+        final byte[] seq = this.sequence.toByteArray();
+        this.sequence.reset();
+        //
+        final String params = new String(seq, 2, seq.length - 3, StandardCharsets.US_ASCII);
+        final char finalChar = (char) seq[ seq.length - 1 ];
+        if ( !this.isReport(finalChar, params) ) this.input.write(seq, 0, seq.length);
+    }
+    
+    /**
+     * @param finalChar last char of the sequence
+     * @param params chars between "ESC[" and the final char
+     * @return was it a report (given to the receiver)
+     */
+    private boolean isReport(final char finalChar, final String params) {
+        final int[] numbers;
+        switch ( finalChar ) {
+            case 'R':
+                if ( !this.receiver.isCursorAwaited() ) return false;
+                numbers = TermReportParser.parseNumbers(params, 2);
+                if ( null == numbers ) return false;
+                this.receiver.onCursorReport(numbers[ 0 ], numbers[ 1 ]);
+                return true;
+            case 't':
+                numbers = TermReportParser.parseNumbers(params, 3);
+                if ( null == numbers || 8 != numbers[ 0 ] ) return false;
+                this.receiver.onSizeReport(numbers[ 1 ], numbers[ 2 ]);
+                return true;
+            case 'c':
+                if ( !params.startsWith("?") ) return false;
+                this.receiver.onDeviceAttributes(params.substring(1));
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * @param params parameters like "12;40"
+     * @param count how many numbers must be there
+     * @return the numbers, 'null' when parameters are not such numbers
+     */
+    static int[] parseNumbers(final String params, final int count) {
+        final String[] parts = params.split(";", -1);
+        if ( parts.length != count ) return null;
+        //
+        final int[] numbers = new int[ count ];
+        for ( int i = 0; i < count; i++ ) {
+            final String curPart = parts[ i ];
+            if ( curPart.isEmpty() || curPart.length() > TermReportParser.MAX_NUMBER_LENGTH ) return null;
+            for ( int j = 0; j < curPart.length(); j++ ) {
+                if ( !Character.isDigit(curPart.charAt(j)) ) return null;
+            }
+            numbers[ i ] = Integer.parseInt(curPart);
+        }
+        return numbers;
+    }
+    
+    private void sequenceToInput() {
+        if ( 0 == this.sequence.size() ) return;
+        //
+        this.input.write(this.sequence.toByteArray(), 0, this.sequence.size());
+        this.sequence.reset();
+    }
+    
+    private void giveInput() {
+        if ( 0 == this.input.size() ) return;
+        //
+        final byte[] inputBytes = this.input.toByteArray();
+        this.input.reset();
+        this.receiver.onInput(inputBytes);
+    }
+    
+    
+    
+}
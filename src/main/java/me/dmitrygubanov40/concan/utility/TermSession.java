@@ -0,0 +1,464 @@
+package me.dmitrygubanov40.concan.utility;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+
+
+
+/**
+ * ONLY FOR UNIX AND LINUX.
+ * Terminal in raw mode for the whole session: the mode is switched once (not for each query),
+ * and one thread reads '/dev/tty' all the time.
+ * Reports of the terminal (cursor position, size, device attributes) complete
+ * the futures of the queries, so a query is one round trip to the terminal.
+ * The rest of input (keys) goes to the input consumer, if there is one.
+ * While the session is open, the terminal's input belongs to it: keys are not echoed,
+ * and reading of 'System.in' gets nothing.
+ * Users of the session (queries, input) hold it with 'acquire()' / 'release()':
+ * the session is closed a moment after the last one releases it (unless it was opened by 'open()'),
+ * so back-to-back queries use one session.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class TermSession
+{
+    
+    // how long queries wait for the terminal, if no other is set
+    public static final long DEFAULT_QUERY_TIMEOUT_MS;
+    // how long the session opened by holders stays open after the last 'release()'
+    public static final long HOLDERS_LINGER_MS;
+    
+    private static final String TTY;
+    private static final int READ_BUFFER_SIZE;
+    // how long closing waits for the reading thread (a read returns in 0.1 second)
+    private static final long READER_JOIN_TIMEOUT_MS;
+    // raw mode without echo, reading returns after 0.1 second even with no input
+    // (so the reading thread notices closing, and a lone 'Esc' is not held)
+    private static final String STTY_RAW;
+    
+    // queries (not in the table of commands: windows must not send them)
+    private static final String SIZE_REPORT;
+    private static final String DEVICE_REPORT;
+    
+    private static final Object sessionLock;
+    // closes the session of holders when nobody holds it for a while
+    private static final ScheduledExecutorService lingerTimer;
+    
+    // all below is changed under the lock (but read without it)
+    private static volatile boolean isOpen;
+    // terminal settings before the session ('stty -g')
+    private static String savedMode;
+    private static InputStream tty;
+    private static Thread reader;
+    private static Reports reports;
+    // users of the session ('acquire()' without 'release()')
+    private static int holders;
+    // the session was opened by 'acquire()' (and is closed by the last 'release()')
+    private static boolean isOpenByHolders;
+    // closing after the last 'release()', 'null' - not scheduled
+    private static ScheduledFuture<?> linger;
+    // each scheduled closing has its number (a late one, cancelled meanwhile, does nothing)
+    private static long lingerNumber;
+    // settings are restored at exit (the hook is added once)
+    private static boolean isExitHookAdded;
+    
+    // who gets keys and other input, 'null' - input is dropped
+    private static volatile Consumer<byte[]> inputConsumer;
+    
+    static {
+        DEFAULT_QUERY_TIMEOUT_MS = 1000;
+        HOLDERS_LINGER_MS = 500;
+        //
+        TTY = "/dev/tty";
+        READ_BUFFER_SIZE = 256;
+        READER_JOIN_TIMEOUT_MS = 500;
+        STTY_RAW = "raw -echo min 0 time 1";
+        //
+        final String csi = UtilityEngine.getStrCharByName("ESC") + UtilityEngine.ESC_CMD_SEPARATOR;
+        SIZE_REPORT = csi + "18t";
+        DEVICE_REPORT = csi + "c";
+        //
+        sessionLock = new Object();
+        lingerTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread timerThread = new Thread(task, "concan-tty-linger");
+            timerThread.setDaemon(true);
+            return timerThread;
+        });
+        //
+        isOpen = false;
+        savedMode = null;
+        tty = null;
+        reader = null;
+        reports = null;
+        holders = 0;
+        isOpenByHolders = false;
+        linger = null;
+        lingerNumber = 0;
+        isExitHookAdded = false;
+        inputConsumer = null;
+    }
+    
+    ////////////
+    
+    /**
+     * Reading thread gives everything here.
+     */
+    private static final class Reports implements TermReportParser.Receiver
+    {
+        private final Queue<CompletableFuture<ConCord>> cursorQueries;
+        private final Queue<CompletableFuture<ConCord>> sizeQueries;
+        private final Queue<CompletableFuture<String>> deviceQueries;
+    
+        private Reports() {
+            this.cursorQueries = new ConcurrentLinkedQueue<>();
+            this.sizeQueries = new ConcurrentLinkedQueue<>();
+            this.deviceQueries = new ConcurrentLinkedQueue<>();
+        }
+    
+        @Override
+        public boolean isCursorAwaited() {
+            return !this.cursorQueries.isEmpty();
+        }
+    
+        @Override
+        public void onCursorReport(final int row, final int column) {
+            final CompletableFuture<ConCord> query = this.cursorQueries.poll();
+            if ( null != query ) query.complete(new ConCord(column, row));
+        }
+    
+        @Override
+        public void onSizeReport(final int rows, final int columns) {
+            final CompletableFuture<ConCord> query = this.sizeQueries.poll();
+            if ( null != query ) query.complete(new ConCord(columns, rows));
+        }
+    
+        @Override
+        public void onDeviceAttributes(final String attributes) {
+            final CompletableFuture<String> query = this.deviceQueries.poll();
+            if ( null != query ) query.complete(attributes);
+        }
+    
+        @Override
+        public void onInput(final byte[] input) {
+            final Consumer<byte[]> consumer = TermSession.inputConsumer;
+            if ( null != consumer ) consumer.accept(input);
+        }
+    
+        private void failAll(final RuntimeException reason) {
+            CompletableFuture<?> query;
+            while ( null != (query = this.cursorQueries.poll()) ) query.completeExceptionally(reason);
+            while ( null != (query = this.sizeQueries.poll()) ) query.completeExceptionally(reason);
+            while ( null != (query = this.deviceQueries.poll()) ) query.completeExceptionally(reason);
+        }
+    }
+    
+    
+    
+    private TermSession() {
+        // utility class
+    }
+    
+    
+    
+    /**
+     * Switch the terminal to raw mode and start reading it.
+     * The session stays open till 'close()' (even when its holders release it).
+     * @throws RuntimeException if OS is not *nix, or the terminal cannot be switched or read
+     */
+    public static void open() throws RuntimeException {
+        synchronized ( TermSession.sessionLock ) {
+            TermSession.cancelLinger();
+            TermSession.isOpenByHolders = false;
+            TermSession.start();
+        }
+    }
+    
+    /**
+     * Under the lock: raw mode and the reading thread.
+     * Nothing happens when the session is already open.
+     * @throws RuntimeException if OS is not *nix, or the terminal cannot be switched or read
+     */
+    private static void start() throws RuntimeException {
+        synchronized ( TermSession.sessionLock ) {
+            if ( TermSession.isOpen ) return;
+            //
+            if ( !Os.isNx() ) {
+                String excMsg = "Terminal session is supported only by UNIX and Linux OS";
+                throw new RuntimeException(excMsg);
+            }
+            // save current settings and switch in one process
+            final String saved = TermSession.runStty(TermSession.sttyCmd("-g")
+                                                        + " && " + TermSession.sttyCmd(TermSession.STTY_RAW));
+            if ( null == saved || saved.isEmpty() ) {
+                String excMsg = "Console's mode switch failed (to raw-mode)";
+                throw new RuntimeException(excMsg);
+            }
+            try {
+                TermSession.tty = new FileInputStream(TermSession.TTY);
+            } catch ( IOException exc ) {
+                TermSession.runStty(TermSession.sttyCmd(saved));
+                String excMsg = "<IOException> Failed to open the terminal: " + TermSession.TTY;
+                throw new RuntimeException(excMsg);
+            }
+            TermSession.savedMode = saved;
+            TermSession.reports = new Reports();
+            if ( !TermSession.isExitHookAdded ) {
+                Runtime.getRuntime().addShutdownHook(new Thread(TermSession::close, "concan-tty-exit"));
+                TermSession.isExitHookAdded = true;
+            }
+            TermSession.isOpen = true;
+            //
+            final InputStream readerTty = TermSession.tty;
+            final Reports readerReports = TermSession.reports;
+            TermSession.reader = new Thread(() -> TermSession.read(readerTty, readerReports), "concan-tty");
+            TermSession.reader.setDaemon(true);
+            TermSession.reader.start();
+        }
+    }
+    
+    /**
+     * Stop reading and restore the terminal's settings (whoever holds the session:
+     * holders still release it, and the next 'acquire()' opens it again).
+     * Queries without answers fail.
+     */
+    public static void close() {
+        synchronized ( TermSession.sessionLock ) {
+            TermSession.cancelLinger();
+            TermSession.isOpenByHolders = false;
+            if ( !TermSession.isOpen ) return;
+            //
+            TermSession.isOpen = false;
+            try {
+                TermSession.reader.join(TermSession.READER_JOIN_TIMEOUT_MS);
+            } catch ( InterruptedException interruptExc ) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                TermSession.tty.close();
+            } catch ( IOException exc ) {
+                // nothing to do: the terminal is released anyway
+            }
+            TermSession.runStty(TermSession.sttyCmd(TermSession.savedMode));
+            TermSession.reports.failAll(new IllegalStateException("Terminal session is closed"));
+            //
+            TermSession.tty = null;
+            TermSession.reader = null;
+            TermSession.reports = null;
+            TermSession.savedMode = null;
+        }
+    }
+    
+    /**
+     * Hold the session (for a query or for input), it is opened if it is not open.
+     * Each call must be followed by 'release()'.
+     * @throws RuntimeException when the session cannot be opened
+     */
+    public static void acquire() throws RuntimeException {
+        synchronized ( TermSession.sessionLock ) {
+            // a lingering session is used again
+            TermSession.cancelLinger();
+            if ( !TermSession.isOpen ) {
+                TermSession.start();
+                TermSession.isOpenByHolders = true;
+            }
+            TermSession.holders++;
+        }
+    }
+    
+    /**
+     * The session is not needed by the caller any more ('acquire()').
+     * After the last holder the session is closed in 'HOLDERS_LINGER_MS',
+     * if it was opened by holders and nobody acquires it meanwhile.
+     */
+    public static void release() {
+        synchronized ( TermSession.sessionLock ) {
+            // not held (a call without 'acquire()')
+            if ( TermSession.holders <= 0 ) return;
+            //
+            TermSession.holders--;
+            if ( 0 == TermSession.holders && TermSession.isOpenByHolders ) TermSession.scheduleLinger();
+        }
+    }
+    
+    /**
+     * Under the lock: the session of holders is closed later (not by the releasing thread).
+     */
+    private static void scheduleLinger() {
+        TermSession.cancelLinger();
+        final long curNumber = ++TermSession.lingerNumber;
+        TermSession.linger = TermSession.lingerTimer.schedule(() -> TermSession.closeLingering(curNumber),
+                                                                TermSession.HOLDERS_LINGER_MS,
+                                                                TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Under the lock: the scheduled closing is not needed.
+     */
+    private static void cancelLinger() {
+        if ( null == TermSession.linger ) return;
+        //
+        TermSession.linger.cancel(false);
+        TermSession.linger = null;
+        TermSession.lingerNumber++;
+    }
+    
+    /**
+     * Timer: nobody acquired the session after the last 'release()'.
+     * @param number number of the scheduled closing
+     */
+    private static void closeLingering(final long number) {
+        synchronized ( TermSession.sessionLock ) {
+            if ( number != TermSession.lingerNumber ) return;
+            //
+            TermSession.linger = null;
+            if ( 0 == TermSession.holders && TermSession.isOpenByHolders ) TermSession.close();
+        }
+    }
+    
+    /**
+     * @return users holding the session now
+     */
+    public static int getHolders() {
+        synchronized ( TermSession.sessionLock ) {
+            return TermSession.holders;
+        }
+    }
+    
+    public static boolean isOpen() {
+        return TermSession.isOpen;
+    }
+    
+    /**
+     * @param consumer who gets input which is not a report (keys etc.), 'null' - input is dropped
+     */
+    public static void setInputConsumer(final Consumer<byte[]> consumer) {
+        TermSession.inputConsumer = consumer;
+    }
+    
+    
+    
+    /**
+     * @return future of (X;Y) cursor's position, first column/line are '0'
+     * @throws IllegalStateException when the session is not open
+     */
+    public static CompletableFuture<ConCord> requestCursorPosition() throws IllegalStateException {
+        final CompletableFuture<ConCord> query = new CompletableFuture<>();
+        TermSession.request(UtilityEscCommands.CURSOR_REPORT, TermSession.getReports().cursorQueries, query);
+        // reports are console positions (from '1')
+        return query.thenApply(ConCord::removeConsoleShift);
+    }
+    
+    /**
+     * Not every terminal answers this query (wait for it with a timeout).
+     * @return future of (width, height) of the terminal in chars
+     * @throws IllegalStateException when the session is not open
+     */
+    public static CompletableFuture<ConCord> requestSize() throws IllegalStateException {
+        final CompletableFuture<ConCord> query = new CompletableFuture<>();
+        TermSession.request(TermSession.SIZE_REPORT, TermSession.getReports().sizeQueries, query);
+        return query;
+    }
+    
+    /**
+     * @return future of primary device attributes (like "62;22", what the terminal supports)
+     * @throws IllegalStateException when the session is not open
+     */
+    public static CompletableFuture<String> requestDeviceAttributes() throws IllegalStateException {
+        final CompletableFuture<String> query = new CompletableFuture<>();
+        TermSession.request(TermSession.DEVICE_REPORT, TermSession.getReports().deviceQueries, query);
+        return query;
+    }
+    
+    private static Reports getReports() throws IllegalStateException {
+        final Reports curReports = TermSession.reports;
+        if ( !TermSession.isOpen || null == curReports ) {
+            String excMsg = "Terminal session is not open";
+            throw new IllegalStateException(excMsg);
+        }
+        return curReports;
+    }
+    
+    /**
+     * Terminal answers in order, so queries of one kind wait in order too.
+     * @param cmd query for the terminal
+     * @param queries queries of the kind
+     * @param query new query
+     */
+    private static <T> void request(final String cmd,
+                                        final Queue<CompletableFuture<T>> queries,
+                                        final CompletableFuture<T> query) {
+        synchronized ( queries ) {
+            queries.add(query);
+            OutputSink.write(cmd, OutputStats.global());
+        }
+        // the terminal must get the query now (not at the sink's deadline)
+        OutputSink.flush();
+    }
+    
+    
+    
+    /**
+     * Reading thread: everything from the terminal goes to the parser.
+     * @param readerTty input of the terminal
+     * @param readerReports receiver of the session
+     */
+    private static void read(final InputStream readerTty, final Reports readerReports) {
+        final TermReportParser parser = new TermReportParser(readerReports);
+        final byte[] buffer = new byte[ TermSession.READ_BUFFER_SIZE ];
+        try {
+            while ( TermSession.isOpen ) {
+                final int bytesRead = readerTty.read(buffer);
+                if ( bytesRead > 0 ) {
+                    parser.feed(buffer, 0, bytesRead);
+                } else {
+                    // nothing for 0.1 second
+                    parser.flush();
+                }
+            }
+        } catch ( IOException exc ) {
+            readerReports.failAll(new RuntimeException("<IOException> Failed to read the terminal"));
+        }
+    }
+    
+    /**
+     * @param args arguments of 'stty'
+     * @return shell command to run 'stty' for the terminal
+     */
+    private static String sttyCmd(final String args) {
+        return "stty " + args + " < " + TermSession.TTY;
+    }
+    
+    /**
+     * @param shellCmd command with 'stty' (see 'sttyCmd()')
+     * @return what the command printed (trimmed), 'null' when it failed
+     */
+    private static String runStty(final String shellCmd) {
+        final String[] consoleCmd = new String[] {"/bin/sh", "-c", shellCmd};
+        try {
+            final Process sttyProcess = Runtime.getRuntime().exec(consoleCmd);
+            final String output = new String(sttyProcess.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            if ( 0 != sttyProcess.waitFor() ) return null;
+            return output.trim();
+        } catch ( IOException exc ) {
+            return null;
+        } catch ( InterruptedException interruptExc ) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    
+    
+}
@@ -5,6 +5,10 @@ import java.util.HashMap;
 import java.util.Set;
 
 import me.dmitrygubanov40.concan.buffer.OutputBuffer;
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.strain.PrintLatency;
 
 
 
@@ -343,8 +347,39 @@ class UtilityEngine
     // whether to use rapid output of all buffer or output each symbol or command
     protected OutputBuffer buffer;
     
+    // accounting of direct output (not buffered)
+    private OutputCounters outputCounters = OutputStats.global();
+    
+    // phases of window prints (optional, 'null' when is not measured)
+    private PrintLatency printLatency = null;
+    
     ////////////////////
     
+    /**
+     * Count direct output of the tool in the scope (i.e. window's or primitive's counters).
+     * @param counters where to count
+     * @throws NullPointerException when no counters given
+     */
+    public void setOutputCounters(final OutputCounters counters) throws NullPointerException {
+        if ( null == counters ) {
+            String excMsg = "Output counters of the console tool cannot be null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.outputCounters = counters;
+    }
+    public OutputCounters getOutputCounters() {
+        return this.outputCounters;
+    }
+    
+    /**
+     * Measure writing time of direct output for print phases.
+     * @param latency phases of window prints, 'null' to stop measuring
+     */
+    public void setPrintLatency(final PrintLatency latency) {
+        this.printLatency = latency;
+    }
+    
     /**
      * @return do we currently use the buffer?
      */
@@ -364,7 +399,13 @@ class UtilityEngine
             return;
         }
         //
-        System.out.print(charStr);
+        if ( null == this.printLatency ) {
+            OutputSink.write(charStr, this.outputCounters);
+        } else {
+            final long writeStartNs = System.nanoTime();
+            OutputSink.write(charStr, this.outputCounters);
+            this.printLatency.addWriteNs(System.nanoTime() - writeStartNs);
+        }
     }
     
     
@@ -2,7 +2,13 @@ package me.dmitrygubanov40.concan.utility;
 
 
 import java.io.IOException;
-import java.io.Reader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.strain.JfrTerminalQueryEvent;
+import me.dmitrygubanov40.concan.strain.OutputStats;
 
 
 
@@ -13,10 +19,6 @@ import java.io.Reader;
 public class UtilityMethods extends UtilityEscCommands
 {
     
-    private final static String CONSOLE_REPORT_START_CHAR;
-    private final static String CONSOLE_REPORT_SEPARATOR_CHAR;
-    private final static String CONSOLE_REPORT_END_CHAR;
-    
     // assume terminal can not be more than it,
     // try this point to get width and height of terminal
     private final static ConCord CONSOLE_MAX_SIZE;
@@ -26,10 +28,6 @@ public class UtilityMethods extends UtilityEscCommands
     private final static ConCord CONSOLE_DEFAULT_SIZE;
     
     static {
-        CONSOLE_REPORT_START_CHAR = "[";
-        CONSOLE_REPORT_SEPARATOR_CHAR = ";";
-        CONSOLE_REPORT_END_CHAR = "R";
-        //
         CONSOLE_MAX_SIZE = new ConCord(1000, 1000);
         //
         CONSOLE_DEFAULT_SIZE = new ConCord(80, 25);
@@ -41,9 +39,15 @@ public class UtilityMethods extends UtilityEscCommands
     
     /**
      * ONLY FOR UNIX AND LINUX.
-     * @return (X;Y) console coordinate, first column/line are '1' (not '0')
+     * Query goes through 'TermSession', which is held for the query (opened if it is not open).
+     * A session opened here stays open for 'TermSession.HOLDERS_LINGER_MS' after the query,
+     * so back-to-back queries share it; otherwise each query switches the terminal's mode
+     * twice ('stty') and waits for the reading thread when the session is closed.
+     * Open it with 'TermSession.open()' for the fast path of frequent queries
+     * (and 'TermSession.close()' when they are done).
+     * @return (X;Y) console coordinate, first column/line are '0'
      * @throws RuntimeException if OS is not *nix, console manipulations failed,
-     *          or console buffer reading was interrupted 
+     *          the terminal did not answer, or waiting was interrupted
      */
     public static ConCord getCursorPosition() throws RuntimeException {
         if ( !Os.isNx() ) {
@@ -52,86 +56,52 @@ public class UtilityMethods extends UtilityEscCommands
             throw new RuntimeException(excMsg);
         }
         //
-        int byteBuffer;
-        StringBuilder positionAnswer = new StringBuilder();
-        Reader consoleKeyListener = System.console().reader();
-        //
-        if ( !UtilityMethods.isSttyRaw() ) {
-            String excMsg = "Console's mode switch failed (to raw-mode)";
-            throw new RuntimeException(excMsg);
+        // the thread waits for the terminal till the answer is parsed (opening of the session too)
+        final JfrTerminalQueryEvent jfrEvent = new JfrTerminalQueryEvent();
+        jfrEvent.begin();
+        try {
+            TermSession.acquire();
+        } catch ( RuntimeException exc ) {
+            UtilityMethods.commitQueryEvent(jfrEvent, null);
+            throw exc;
         }
-        //
-        // base esc-command to get cursor-position respond
-        System.out.print(UtilityEscCommands.CURSOR_REPORT);
-        //
-        final int endOfTextCharCode = UtilityEngine.getIntCharByName("ETX");
-        final int escapeCharCode    = UtilityEngine.getIntCharByName("ESC");
-        //
         try {
-            while ( (byteBuffer = consoleKeyListener.read()) > -1 ) {
-                if ( endOfTextCharCode == byteBuffer ) {
-                    // command to stop listening
-                    break;
-                }
-                if ( escapeCharCode == byteBuffer ) {
-                    // we do not want Esc-char in result string
-                    continue;
-                }
-                //
-                char nextBufferChar = (char) byteBuffer;
-                positionAnswer.append(nextBufferChar);
-                if ( 'R' == nextBufferChar ) {
-                    // 'R' is the end of text console self-answer
-                    break;
-                }
-            }
-        } catch ( IOException exc ) {
-            String excMsg = "<IOException> Failed to read the console's buffer (key pressed)";
+            final ConCord result = TermSession.requestCursorPosition()
+                                        .get(TermSession.DEFAULT_QUERY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            UtilityMethods.commitQueryEvent(jfrEvent, result);
+            return result;
+        } catch ( TimeoutException exc ) {
+            UtilityMethods.commitQueryEvent(jfrEvent, null);
+            String excMsg = "The console did not report cursor position in "
+                                + TermSession.DEFAULT_QUERY_TIMEOUT_MS + " ms";
             throw new RuntimeException(excMsg);
-        }
-        //
-        if ( !UtilityMethods.isSttyCoocked() ) {
-            String excMsg = "Console's mode switch failed (to coocked-mode)";
+        } catch ( ExecutionException exc ) {
+            UtilityMethods.commitQueryEvent(jfrEvent, null);
+            String excMsg = "Failed to read the console's report: " + exc.getCause().getMessage();
             throw new RuntimeException(excMsg);
+        } catch ( InterruptedException exc ) {
+            Thread.currentThread().interrupt();
+            UtilityMethods.commitQueryEvent(jfrEvent, null);
+            String excMsg = "Waiting for the console's report was interrupted";
+            throw new RuntimeException(excMsg);
+        } finally {
+            TermSession.release();
         }
-        //
-        ConCord resultWithShift = UtilityMethods.parseConsoleReport(positionAnswer);
-        // need a shift to have math coordinates, not console position:
-        ConCord result = resultWithShift.removeConsoleShift();
-        //
-        return result;
     }
     
     /**
-     * @param answer buffer we got after escape command
-     * @return ConCord object with coordinates answer (as-is)
-     * @throws IllegalArgumentException when input string is out of format ("ESC[#;#R")
+     * Fill and commit terminal query event if it is recorded.
+     * @param jfrEvent event started before the request
+     * @param result cursor position, 'null' when there is no answer
      */
-    private static ConCord parseConsoleReport(final StringBuilder answer)
-                    throws IllegalArgumentException {
-        String excMsg = "Incorrect console position answer: " + answer;
-        if ( answer.length() < 4 ) {
-            throw new IllegalArgumentException(excMsg);
-        }
-        //
-        int startIndex      = answer.indexOf(CONSOLE_REPORT_START_CHAR);
-        int separatorIndex  = answer.indexOf(CONSOLE_REPORT_SEPARATOR_CHAR);
-        int endIndex        = answer.indexOf(CONSOLE_REPORT_END_CHAR);
-        //
-        if ( (endIndex - separatorIndex) < 2 || (separatorIndex - startIndex) < 2 ) {
-            throw new IllegalArgumentException(excMsg);
-        }
+    private static void commitQueryEvent(final JfrTerminalQueryEvent jfrEvent, final ConCord result) {
+        if ( !jfrEvent.shouldCommit() ) return;
         //
-        String xCordStr = answer.substring(separatorIndex + 1, endIndex);
-        String yCordStr = answer.substring(startIndex + 1, separatorIndex);
-        int xCord = Integer.parseInt(xCordStr);
-        int yCord = Integer.parseInt(yCordStr);
-        //
-        return new ConCord(xCord, yCord);
+        jfrEvent.query = "CURSOR_REPORT";
+        jfrEvent.success = (null != result);
+        jfrEvent.commit();
     }
     
-    
-    
     /**
      * Run some console command until successfully executed.
      * @param consoleCmd array with command elements (as in 'exec()')
@@ -158,21 +128,6 @@ public class UtilityMethods extends UtilityEscCommands
         return cmdResult;
     }
     
-    /**
-     * @return 'true' for successful switch of console to awaiting mode
-     */
-    protected static boolean isSttyRaw() {
-        String[] cmdarrRaw = new String[] {"/bin/sh", "-c", "stty raw -echo < /dev/tty"};
-        return UtilityMethods.isConsoleCmdExecuted(cmdarrRaw);
-    }
-    /**
-     * @return 'true' for successful switch of console to regular mode
-     */
-    protected static boolean isSttyCoocked() {
-        String[] cmdarrCoocked = new String[] {"/bin/sh", "-c", "stty cooked echo < /dev/tty"};
-        return UtilityMethods.isConsoleCmdExecuted(cmdarrCoocked);
-    }
-    
     // end console cursor position //
     
     
@@ -193,7 +148,7 @@ public class UtilityMethods extends UtilityEscCommands
         final String lowLvlGoto = UtilityMethods.getEscCmd("GOTO",
                                                             CONSOLE_MAX_SIZE.getY(),
                                                             CONSOLE_MAX_SIZE.getX());
-        System.out.print(lowLvlGoto);
+        OutputSink.write(lowLvlGoto, OutputStats.global());
         ConCord consoleMaxCoord = UtilityMethods.getCursorPosition();
         //
         return consoleMaxCoord;
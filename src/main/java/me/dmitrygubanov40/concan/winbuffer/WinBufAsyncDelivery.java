@@ -0,0 +1,228 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+
+/**
+ * Delivers events to a listener out of the printing thread:
+ * events are put into a bounded queue and drained by an executor.
+ * Only one drain runs at a time, so the listener gets events in order.
+ * Asynchronous listener cannot change the status of an event.
+ * See 'WindowOutputBuffer.addAsyncListener()'.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class WinBufAsyncDelivery implements WinBufFastListener
+{
+    
+    // shared executor of all deliveries without their own one
+    private static final ExecutorService DEFAULT_EXECUTOR;
+    private static final AtomicInteger threadsCounter;
+    
+    static {
+        threadsCounter = new AtomicInteger(0);
+        DEFAULT_EXECUTOR = Executors.newCachedThreadPool(task -> {
+            Thread deliveryThread = new Thread(task, "concan-events-" + threadsCounter.incrementAndGet());
+            deliveryThread.setDaemon(true);
+            return deliveryThread;
+        });
+    }
+    
+    ////////////
+    
+    private final WinBufEventListener listener;
+    private final BlockingQueue<WinBufEvent> queue;
+    private final WinBufAsyncPolicy policy;
+    private final Executor executor;
+    
+    // is a drain already scheduled or running
+    private final AtomicBoolean draining;
+    
+    private final LongAdder delivered;
+    private final LongAdder dropped;
+    private final LongAdder failed;
+    
+    
+    
+    /**
+     * @param initListener listener to call asynchronously
+     * @param initCapacity max events in the queue
+     * @param initPolicy what to do when the queue is full
+     * @param initExecutor where the listener is called ('null' - shared daemon threads)
+     * @throws NullPointerException when there is no listener or policy
+     * @throws IllegalArgumentException with non-positive capacity
+     */
+    public WinBufAsyncDelivery(final WinBufEventListener initListener,
+                                final int initCapacity,
+                                final WinBufAsyncPolicy initPolicy,
+                                final Executor initExecutor)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == initListener || null == initPolicy ) {
+            String excMsg = "Asynchronous delivery needs a listener and a queue policy";
+            throw new NullPointerException(excMsg);
+        }
+        if ( initCapacity <= 0 ) {
+            String excMsg = "Queue of asynchronous listener must have positive capacity, given: " + initCapacity;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.listener = initListener;
+        this.queue = new ArrayBlockingQueue<>(initCapacity);
+        this.policy = initPolicy;
+        this.executor = (null == initExecutor) ? WinBufAsyncDelivery.DEFAULT_EXECUTOR : initExecutor;
+        //
+        this.draining = new AtomicBoolean(false);
+        this.delivered = new LongAdder();
+        this.dropped = new LongAdder();
+        this.failed = new LongAdder();
+    }
+    public WinBufAsyncDelivery(final WinBufEventListener initListener,
+                                final int initCapacity,
+                                final WinBufAsyncPolicy initPolicy) {
+        this(initListener, initCapacity, initPolicy, null);
+    }
+    
+    
+    
+    public WinBufEventListener getListener() {
+        return this.listener;
+    }
+    
+    public WinBufAsyncPolicy getPolicy() {
+        return this.policy;
+    }
+    
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+    
+    public long getDelivered() {
+        return this.delivered.sum();
+    }
+    
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+    
+    /**
+     * @return calls of the listener which ended with an exception
+     */
+    public long getFailed() {
+        return this.failed.sum();
+    }
+    
+    /**
+     * @return nothing is queued or being delivered
+     */
+    public boolean isIdle() {
+        return this.queue.isEmpty() && !this.draining.get();
+    }
+    
+    
+    
+    /**
+     * Printing thread: queue the event by the policy.
+     */
+    @Override
+    public WinBufEventStatus onWindowOutputBufferEvent(final WindowOutputBuffer source,
+                                                        final WinBufEventType eventType,
+                                                        final int eventFlags,
+                                                        final CharSequence eventText,
+                                                        final WinBufEventStatus eventStatus) {
+        final WinBufEvent event = new WinBufEvent(source,
+                                                    eventType,
+                                                    eventFlags,
+                                                    eventText.toString(),
+                                                    System.currentTimeMillis(),
+                                                    eventStatus);
+        if ( this.enqueue(event) ) {
+            this.scheduleDrain();
+        } else {
+            this.dropped.increment();
+        }
+        //
+        return eventStatus;
+    }
+    
+    /**
+     * @param event event to queue
+     * @return is the event queued
+     */
+    private boolean enqueue(final WinBufEvent event) {
+        switch ( this.policy ) {
+            case BLOCK:
+                try {
+                    this.queue.put(event);
+                    return true;
+                } catch ( InterruptedException interruptExc ) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_OLDEST:
+                while ( !this.queue.offer(event) ) {
+                    if ( null != this.queue.poll() ) this.dropped.increment();
+                }
+                return true;
+            case DROP_NEWEST:
+            default:
+                return this.queue.offer(event);
+        }
+    }
+    
+    private void scheduleDrain() {
+        if ( !this.draining.compareAndSet(false, true) ) return;
+        //
+        try {
+            this.executor.execute(this::drain);
+        } catch ( RejectedExecutionException rejectExc ) {
+            // executor is shut down: events stay in the queue
+            this.draining.set(false);
+        }
+    }
+    
+    /**
+     * Executor thread: deliver all queued events.
+     */
+    private void drain() {
+        try {
+            WinBufEvent event;
+            while ( null != (event = this.queue.poll()) ) {
+                try {
+                    this.listener.onWindowOutputBufferEvent(event);
+                    this.delivered.increment();
+                } catch ( RuntimeException listenerExc ) {
+                    // a broken listener must not stop the delivery
+                    this.failed.increment();
+                }
+            }
+        } finally {
+            this.draining.set(false);
+        }
+        // events could come after the last poll, but before the flag was dropped
+        if ( !this.queue.isEmpty() ) this.scheduleDrain();
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ": [policy: " + this.policy.getPolicyName()
+                    + ", queued: " + this.getQueueSize()
+                    + ", delivered: " + this.getDelivered()
+                    + ", dropped: " + this.getDropped()
+                    + ", failed: " + this.getFailed() + "]";
+        return str;
+    }
+    
+    
+    
+}
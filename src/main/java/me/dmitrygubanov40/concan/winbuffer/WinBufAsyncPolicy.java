@@ -0,0 +1,52 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+/**
+ * What to do with an event for an asynchronous listener when its queue is full.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum WinBufAsyncPolicy
+{
+    
+    // printing thread waits for free space (nothing is lost, output may stall;
+    // the listener must not print into the same window then)
+    BLOCK           ("block"),
+    // the new event is dropped
+    DROP_NEWEST     ("dropNewest"),
+    // the oldest queued event is dropped to make space for the new one
+    DROP_OLDEST     ("dropOldest");
+    
+    ////////////////////////////
+    
+    private final String policyName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initPolicyName text code of the policy
+     */
+    WinBufAsyncPolicy(final String initPolicyName) {
+        this.policyName = initPolicyName;
+    }
+    
+    
+    
+    /**
+     * @return string of policy name
+     */
+    public String getPolicyName() {
+        return this.policyName;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.policyName;
+        return str;
+    }
+    
+    
+    
+}
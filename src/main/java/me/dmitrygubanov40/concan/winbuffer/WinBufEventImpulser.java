@@ -1,5 +1,7 @@
 package me.dmitrygubanov40.concan.winbuffer;
 
+import java.util.Set;
+
 /**
  * Base event generator for console window's buffer.
  * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
@@ -12,6 +14,13 @@ public interface WinBufEventImpulser
      */
     public void addEventListener(final WinBufEventListener listener);
     
+    /**
+     * @param listener to add
+     * @param eventTypes only these types are sent to the listener
+     */
+    public void addEventListener(final WinBufEventListener listener,
+                                    final Set<WinBufEventType> eventTypes);
+    
     /**
      * @param listener to remove
      */
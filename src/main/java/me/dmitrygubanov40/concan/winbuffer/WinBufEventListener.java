@@ -4,7 +4,7 @@ package me.dmitrygubanov40.concan.winbuffer;
  * Base event listener for console window's buffer.
  * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
  */
-public interface WinBufEventListener
+public interface WinBufEventListener extends WinBufListener
 {
     
     /**
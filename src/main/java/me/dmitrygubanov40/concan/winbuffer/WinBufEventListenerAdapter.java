@@ -0,0 +1,56 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+/**
+ * Delivers events to an old-style 'WinBufEventListener':
+ * an event object is created for each call.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class WinBufEventListenerAdapter implements WinBufFastListener
+{
+    
+    private final WinBufEventListener listener;
+    
+    
+    
+    /**
+     * @param initListener listener which needs event objects
+     * @throws NullPointerException when there is no listener
+     */
+    public WinBufEventListenerAdapter(final WinBufEventListener initListener)
+                    throws NullPointerException {
+        if ( null == initListener ) {
+            String excMsg = "There is no listener to adapt";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.listener = initListener;
+    }
+    
+    
+    
+    public WinBufEventListener getListener() {
+        return this.listener;
+    }
+    
+    
+    
+    @Override
+    public WinBufEventStatus onWindowOutputBufferEvent(final WindowOutputBuffer source,
+                                                        final WinBufEventType eventType,
+                                                        final int eventFlags,
+                                                        final CharSequence eventText,
+                                                        final WinBufEventStatus eventStatus) {
+        WinBufEvent event = new WinBufEvent(source,
+                                            eventType,
+                                            eventFlags,
+                                            eventText.toString(),
+                                            System.currentTimeMillis(),
+                                            eventStatus);
+        this.listener.onWindowOutputBufferEvent(event);
+        //
+        return event.getEventStatus();
+    }
+    
+    
+    
+}
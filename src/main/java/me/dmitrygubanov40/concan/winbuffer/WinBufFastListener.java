@@ -0,0 +1,26 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+/**
+ * Allocation-free event listener for console window's buffer:
+ * event data comes as arguments, no 'WinBufEvent' is created.
+ * Old-style 'WinBufEventListener' works through 'WinBufEventListenerAdapter'.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public interface WinBufFastListener extends WinBufListener
+{
+    
+    /**
+     * @param source buffer which has the event
+     * @param eventType event type from 'WinBufEventType'
+     * @param eventFlags any states or conditions in integer
+     * @param eventText extra text data (valid only during the call)
+     * @param eventStatus status after previous listeners
+     * @return new status of the event ('eventStatus' not to change it)
+     */
+    public WinBufEventStatus onWindowOutputBufferEvent(final WindowOutputBuffer source,
+                                                        final WinBufEventType eventType,
+                                                        final int eventFlags,
+                                                        final CharSequence eventText,
+                                                        final WinBufEventStatus eventStatus);
+    
+}
@@ -0,0 +1,14 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+/**
+ * Any listener of console window's buffer: 'WinBufEventListener' (gets event objects)
+ * or 'WinBufFastListener' (allocation-free).
+ * Used where both kinds are kept together (subscriptions, timings).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public interface WinBufListener
+{
+    
+    // only a common type, each kind has its own method
+    
+}
@@ -0,0 +1,247 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import me.dmitrygubanov40.concan.strain.LatencyHistogram;
+
+
+
+/**
+ * Time of each listener of a window's buffer by event type.
+ * Every call of a listener is recorded into its histogram, and every 'checkEvery' calls
+ * the 99th percentile is compared with the threshold: slow listeners are reported
+ * to the handler once for each event type (until 'reset()').
+ * Time of a call includes events the listener causes itself
+ * (the window's own zone outputs in its listener).
+ * See 'WindowOutputBuffer.setListenerProfiler()'.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class WinBufListenerProfiler
+{
+    
+    public static final int DEFAULT_CHECK_EVERY;
+    
+    private static final WinBufEventType[] EVENT_TYPES;
+    
+    static {
+        // percentile is a pass over ~500 buckets, do not do it for each event
+        DEFAULT_CHECK_EVERY = 256;
+        //
+        EVENT_TYPES = WinBufEventType.values();
+    }
+    
+    ////////////
+    
+    /**
+     * Histograms of one listener, created at first event of the type.
+     */
+    private static final class ListenerTiming
+    {
+        private final AtomicReferenceArray<LatencyHistogram> histograms;
+        // '1' - listener is already reported for the type
+        private final AtomicIntegerArray reported;
+    
+        private ListenerTiming() {
+            this.histograms = new AtomicReferenceArray<>(EVENT_TYPES.length);
+            this.reported = new AtomicIntegerArray(EVENT_TYPES.length);
+        }
+    
+        private LatencyHistogram getHistogram(final WinBufEventType eventType) {
+            final int index = eventType.ordinal();
+            LatencyHistogram histogram = this.histograms.get(index);
+            if ( null == histogram ) {
+                this.histograms.compareAndSet(index, null, new LatencyHistogram());
+                histogram = this.histograms.get(index);
+            }
+            //
+            return histogram;
+        }
+    }
+    
+    ////////////
+    
+    private final Map<WinBufListener, ListenerTiming> timings;
+    
+    private final long thresholdNs;
+    private final int checkEvery;
+    // 'null' - slow listeners are only seen in 'getSlowListeners()'
+    private volatile WinBufSlowListenerHandler handler;
+    
+    
+    
+    /**
+     * @param initThresholdMs p99 of a listener above it is "slow"
+     * @param initCheckEvery calls of a listener with a type between p99 checks
+     * @throws IllegalArgumentException with non-positive threshold or check interval
+     */
+    public WinBufListenerProfiler(final double initThresholdMs, final int initCheckEvery)
+                    throws IllegalArgumentException {
+        if ( !(initThresholdMs > 0.0) || initCheckEvery <= 0 ) {
+            String excMsg = "Listener profiler needs positive threshold and check interval, given: "
+                                + initThresholdMs + " ms, every " + initCheckEvery + " calls";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.timings = new ConcurrentHashMap<>();
+        this.thresholdNs = (long) (initThresholdMs * 1_000_000.0);
+        this.checkEvery = initCheckEvery;
+        this.handler = null;
+    }
+    public WinBufListenerProfiler(final double initThresholdMs) {
+        this(initThresholdMs, WinBufListenerProfiler.DEFAULT_CHECK_EVERY);
+    }
+    
+    
+    
+    /**
+     * @param setHandler callback about slow listeners, 'null' not to call anything
+     */
+    public void setSlowListenerHandler(final WinBufSlowListenerHandler setHandler) {
+        this.handler = setHandler;
+    }
+    
+    public long getThresholdNs() {
+        return this.thresholdNs;
+    }
+    
+    
+    
+    /**
+     * One call of a listener.
+     * @param listener the called one (adapted listeners are recorded as themselves)
+     * @param eventType type of the event it got
+     * @param durationNs time of the call
+     */
+    public void record(final WinBufListener listener,
+                        final WinBufEventType eventType,
+                        final long durationNs) {
+        final WinBufListener key;
+        if ( listener instanceof WinBufEventListenerAdapter ) {
+            key = ((WinBufEventListenerAdapter) listener).getListener();
+        } else if ( listener instanceof WinBufAsyncDelivery ) {
+            // only queueing time is in the printing thread
+            key = ((WinBufAsyncDelivery) listener).getListener();
+        } else {
+            key = listener;
+        }
+        final ListenerTiming timing = this.timings.computeIfAbsent(key, newKey -> new ListenerTiming());
+        final LatencyHistogram histogram = timing.getHistogram(eventType);
+        histogram.record(durationNs);
+        //
+        if ( 0 == histogram.getCount() % this.checkEvery ) {
+            this.check(key, eventType, timing, histogram);
+        }
+    }
+    
+    private void check(final WinBufListener listener,
+                        final WinBufEventType eventType,
+                        final ListenerTiming timing,
+                        final LatencyHistogram histogram) {
+        final long p99Ns = histogram.getPercentileNs(99.0);
+        if ( p99Ns <= this.thresholdNs ) return;
+        //
+        if ( !timing.reported.compareAndSet(eventType.ordinal(), 0, 1) ) return;
+        final WinBufSlowListenerHandler curHandler = this.handler;
+        if ( null != curHandler ) {
+            curHandler.onSlowListener(listener, eventType, p99Ns, histogram.getCount());
+        }
+    }
+    
+    
+    
+    /**
+     * @return listeners which were called at least once
+     */
+    public List<WinBufListener> getListeners() {
+        return new ArrayList<>(this.timings.keySet());
+    }
+    
+    /**
+     * @param listener some listener
+     * @return histograms of the listener by event type (only types it has got)
+     */
+    public Map<WinBufEventType, LatencyHistogram> getTimings(final WinBufListener listener) {
+        Map<WinBufEventType, LatencyHistogram> result = new EnumMap<>(WinBufEventType.class);
+        final ListenerTiming timing = this.timings.get(listener);
+        if ( null == timing ) return result;
+        //
+        for ( WinBufEventType curType : EVENT_TYPES ) {
+            final LatencyHistogram histogram = timing.histograms.get(curType.ordinal());
+            if ( null != histogram ) result.put(curType, histogram);
+        }
+        //
+        return Collections.unmodifiableMap(result);
+    }
+    
+    /**
+     * @param listener some listener
+     * @return calls of the listener with all event types
+     */
+    public long getCount(final WinBufListener listener) {
+        long count = 0;
+        for ( LatencyHistogram curHistogram : this.getTimings(listener).values() ) {
+            count += curHistogram.getCount();
+        }
+        //
+        return count;
+    }
+    
+    /**
+     * Check all listeners now (not waiting for 'checkEvery' calls), the handler is not called.
+     * @return descriptions of listeners with p99 above the threshold
+     */
+    public List<String> getSlowListeners() {
+        List<String> slow = new ArrayList<>();
+        for ( WinBufListener curListener : this.getListeners() ) {
+            for ( Map.Entry<WinBufEventType, LatencyHistogram> curTiming : this.getTimings(curListener).entrySet() ) {
+                final LatencyHistogram histogram = curTiming.getValue();
+                if ( histogram.getPercentileNs(99.0) > this.thresholdNs ) {
+                    slow.add(WinBufListenerProfiler.describe(curListener, curTiming.getKey(), histogram));
+                }
+            }
+        }
+        //
+        return slow;
+    }
+    
+    private static String describe(final WinBufListener listener,
+                                    final WinBufEventType eventType,
+                                    final LatencyHistogram histogram) {
+        return listener.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(listener))
+                + " " + eventType.getTypeName() + ": " + histogram;
+    }
+    
+    /**
+     * Forget all timings and reports.
+     */
+    public void reset() {
+        this.timings.clear();
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder(this.getClass().getSimpleName());
+        str.append(String.format(Locale.ROOT, ": [threshold: %.3f ms]", this.thresholdNs / 1_000_000.0));
+        for ( WinBufListener curListener : this.getListeners() ) {
+            for ( Map.Entry<WinBufEventType, LatencyHistogram> curTiming : this.getTimings(curListener).entrySet() ) {
+                str.append(System.lineSeparator())
+                    .append(WinBufListenerProfiler.describe(curListener, curTiming.getKey(), curTiming.getValue()));
+            }
+        }
+        //
+        return str.toString();
+    }
+    
+    
+    
+}
@@ -0,0 +1,106 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+import java.util.List;
+
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+
+
+/**
+ * Text split once into regular text and commands, so many buffers can add
+ * the pieces without parsing ('addTextToWinBuf()' and 'addSingleCmdToWinBuf()').
+ * Commands are checked when the text is split: text with an unknown or banned command
+ * is not split, it stays one raw piece which each buffer parses (and rejects) as usual.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class WinBufPieces
+{
+    
+    private final String[] pieces;
+    private final boolean[] cmdFlags;
+    // the text could not be split safely
+    private final boolean isRaw;
+    
+    
+    
+    /**
+     * @param text text to split
+     * @throws NullPointerException when there is no text
+     */
+    public WinBufPieces(final String text) throws NullPointerException {
+        if ( null == text ) {
+            String excMsg = "There is no text to split into pieces";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        boolean hasCmds = false;
+        for ( int i = 0; i < text.length() && !hasCmds; i++ ) {
+            hasCmds = !ConUt.isPrintableChar(text.charAt(i));
+        }
+        if ( !hasCmds ) {
+            this.pieces = new String[] { text };
+            this.cmdFlags = new boolean[ 1 ];
+            this.isRaw = false;
+            return;
+        }
+        //
+        final List<String> split = WindowOutputBuffer.getStringsToAddFromCmdStr(text);
+        final String[] splitPieces = split.toArray(new String[ 0 ]);
+        final boolean[] splitCmdFlags = new boolean[ splitPieces.length ];
+        for ( int i = 0; i < splitPieces.length; i++ ) {
+            final String curPiece = splitPieces[ i ];
+            if ( WindowOutputBuffer.isAllowedSingleCmd(curPiece) ) {
+                splitCmdFlags[ i ] = true;
+                continue;
+            }
+            for ( int j = 0; j < curPiece.length(); j++ ) {
+                if ( !ConUt.isPrintableChar(curPiece.charAt(j)) ) {
+                    this.pieces = new String[] { text };
+                    this.cmdFlags = new boolean[ 1 ];
+                    this.isRaw = true;
+                    return;
+                }
+            }
+        }
+        this.pieces = splitPieces;
+        this.cmdFlags = splitCmdFlags;
+        this.isRaw = false;
+    }
+    
+    
+    
+    public int getCount() {
+        return this.pieces.length;
+    }
+    
+    public String getPiece(final int index) {
+        return this.pieces[ index ];
+    }
+    
+    /**
+     * @param index index of the piece
+     * @return is the piece one allowed command (or regular text)
+     */
+    public boolean isCmd(final int index) {
+        return this.cmdFlags[ index ];
+    }
+    
+    /**
+     * @return the text is one piece to be parsed by buffers as usual
+     */
+    public boolean isRaw() {
+        return this.isRaw;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName() + ": [pieces: " + this.pieces.length
+                        + ((this.isRaw) ? ", raw" : "") + "]";
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,23 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+/**
+ * Callback of 'WinBufListenerProfiler' about a listener which is too slow.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public interface WinBufSlowListenerHandler
+{
+    
+    /**
+     * Called once for the listener and the event type (until the profiler is reset),
+     * in the thread of the event (keep it short).
+     * @param listener the slow one
+     * @param eventType type of events it is slow with
+     * @param p99Ns 99th percentile of the listener's time with the events
+     * @param count calls measured so far
+     */
+    public void onSlowListener(final WinBufListener listener,
+                                final WinBufEventType eventType,
+                                final long p99Ns,
+                                final long count);
+    
+}
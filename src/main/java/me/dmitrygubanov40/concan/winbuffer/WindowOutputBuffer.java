@@ -2,11 +2,21 @@ package me.dmitrygubanov40.concan.winbuffer;
 
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import me.dmitrygubanov40.concan.buffer.OutputBuffer;
+import me.dmitrygubanov40.concan.strain.JfrFlushEvent;
+import me.dmitrygubanov40.concan.strain.PrintLatency;
 import me.dmitrygubanov40.concan.utility.ConUt;
 
 
@@ -40,6 +50,8 @@ public class WindowOutputBuffer
     // list of characters we consider to be essential part
     // of commands, not regular, visual text into window
     private static final List<String> cmdCharacters;
+    // the same characters in one string (for char-by-char checks)
+    private static final String cmdCharsJoined;
     
     // list of regex expressions of all valid (possible to be executed)
     // ESC-commands
@@ -49,6 +61,17 @@ public class WindowOutputBuffer
     // special chars, and everything we want to filter.
     private static final List<String> bannedCommands;
     
+    // single commands which have already passed the checks (see 'addSingleCmdToWinBuf()')
+    private static final Set<String> checkedCommands;
+    private static final int MAX_CHECKED_COMMANDS;
+    
+    // index of the dispatch table is the type's ordinal
+    private static final WinBufEventType[] EVENT_TYPES;
+    
+    // one-char strings of printed text, by pages of 256 chars (filled at first use)
+    private static final String[][] SYMBOL_STRS;
+    private static final int SYMBOL_PAGE_BITS;
+    
     
     static {
         WINDOW_AUTOFLUSH_MODE = true;
@@ -58,9 +81,15 @@ public class WindowOutputBuffer
         MIN_WINDOW_BUFFER_SIZE = 1;
         MAX_WINDOW_BUFFER_SIZE = 1000;
         //
+        EVENT_TYPES = WinBufEventType.values();
+        //
+        SYMBOL_PAGE_BITS = 8;
+        SYMBOL_STRS = new String[ (Character.MAX_VALUE + 1) >> SYMBOL_PAGE_BITS ][];
+        //
         // All these characters we assume can be only in command, not regular text:
         cmdCharacters = new ArrayList<>();
         initCmdCharacters();
+        cmdCharsJoined = String.join("", cmdCharacters);
         //
         // All these escape sequences are valid to be executed in the buffer:
         validCommands = new ArrayList<>();
@@ -70,6 +99,9 @@ public class WindowOutputBuffer
         bannedCommands = new ArrayList<>();
         initBannedCommandsRegex();
         //
+        checkedCommands = ConcurrentHashMap.newKeySet();
+        MAX_CHECKED_COMMANDS = 4096;
+        //
         // Check that all esc-commands from ConUt are covered with valid
         // or non-valid lists.
         checkCmdRegexCoverage();
@@ -187,6 +219,18 @@ public class WindowOutputBuffer
         }
         return false;
     }
+    private static boolean hasCmdChars(final CharSequence charsToCheck) {
+        return WindowOutputBuffer.hasCmdChars(charsToCheck, 0, charsToCheck.length());
+    }
+    private static boolean hasCmdChars(final CharSequence charsToCheck, final int start, final int end) {
+        for ( int i = start; i < end; i++ ) {
+            // all command characters are single chars
+            if ( WindowOutputBuffer.cmdCharsJoined.indexOf(charsToCheck.charAt(i)) >= 0 ) {
+                return true;
+            }
+        }
+        return false;
+    }
     
     
     
@@ -239,8 +283,31 @@ public class WindowOutputBuffer
     ////////////////////////////////
     
     
-    // list of everything which wants to react out changes
-    private List<WinBufEventListener> eventListeners;
+    /**
+     * Listener with its types and the way events are delivered to it.
+     */
+    private static final class Subscription
+    {
+        private final WinBufFastListener delivery;
+        private final Set<WinBufEventType> eventTypes;
+        
+        private Subscription(final WinBufFastListener initDelivery) {
+            this.delivery = initDelivery;
+            this.eventTypes = EnumSet.noneOf(WinBufEventType.class);
+        }
+    }
+    
+    // subscriptions by the listener object (in order of subscription)
+    private final Map<WinBufListener, Subscription> subscriptions;
+    // listeners by event type ordinal, rebuilt on each (un)subscription,
+    // so dispatching is lock-free and listeners may be changed from other threads
+    private volatile WinBufFastListener[][] dispatchTable;
+    
+    // how many events of each type were dispatched
+    private final Map<WinBufEventType, LongAdder> eventCounts;
+    
+    // time of each listener, 'null' when listeners are not measured
+    private volatile WinBufListenerProfiler listenerProfiler;
     
     
     /////////////
@@ -258,33 +325,223 @@ public class WindowOutputBuffer
                 MIN_WINDOW_BUFFER_SIZE,
                 MAX_WINDOW_BUFFER_SIZE);
         //
-        this.eventListeners = new ArrayList<>();
+        this.subscriptions = new LinkedHashMap<>();
+        this.dispatchTable = new WinBufFastListener[ EVENT_TYPES.length ][ 0 ];
+        this.listenerProfiler = null;
+        //
+        this.eventCounts = new EnumMap<>(WinBufEventType.class);
+        for ( WinBufEventType curType : EVENT_TYPES ) {
+            this.eventCounts.put(curType, new LongAdder());
+        }
     }
     
     /////////////
     
+    /**
+     * Subscribe to all event types.
+     * @param listener to add
+     */
     @Override
     public void addEventListener(final WinBufEventListener listener) {
-        this.eventListeners.add(listener);
+        this.addEventListener(listener, EnumSet.allOf(WinBufEventType.class));
+    }
+    
+    /**
+     * Subscribe to some event types (added to types the listener already has).
+     * Events of types nobody is subscribed to are not even created.
+     * The listener gets a new event object for each event (see 'WinBufEventListenerAdapter').
+     * A listener is either synchronous or asynchronous.
+     * @param listener to add
+     * @param eventTypes types the listener wants to get
+     * @throws NullPointerException when there is no listener or types
+     * @throws IllegalStateException when the listener is already asynchronous
+     */
+    @Override
+    public void addEventListener(final WinBufEventListener listener,
+                                    final Set<WinBufEventType> eventTypes)
+                    throws NullPointerException, IllegalStateException {
+        if ( null == listener ) {
+            String excMsg = "Cannot subscribe without listener";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        synchronized ( this.subscriptions ) {
+            final Subscription existing = this.subscriptions.get(listener);
+            if ( null != existing && existing.delivery instanceof WinBufAsyncDelivery ) {
+                String excMsg = "Listener is already asynchronous, remove it first";
+                throw new IllegalStateException(excMsg);
+            }
+            //
+            final WinBufFastListener delivery = (null == existing)
+                                                    ? new WinBufEventListenerAdapter(listener)
+                                                    : existing.delivery;
+            this.subscribe(listener, delivery, eventTypes);
+        }
+    }
+    
+    /**
+     * Allocation-free subscription to all event types.
+     * @param listener to add
+     */
+    public void addFastListener(final WinBufFastListener listener) {
+        this.addFastListener(listener, EnumSet.allOf(WinBufEventType.class));
+    }
+    
+    /**
+     * Allocation-free subscription to some event types
+     * (added to types the listener already has).
+     * @param listener to add
+     * @param eventTypes types the listener wants to get
+     * @throws NullPointerException when there is no listener or types
+     */
+    public void addFastListener(final WinBufFastListener listener,
+                                final Set<WinBufEventType> eventTypes)
+                    throws NullPointerException {
+        if ( null == listener ) {
+            String excMsg = "Cannot subscribe without listener";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        synchronized ( this.subscriptions ) {
+            this.subscribe(listener, listener, eventTypes);
+        }
+    }
+    
+    /**
+     * Subscribe a listener which is called out of the printing thread
+     * (auditing, mirroring...): events are queued and delivered by an executor.
+     * A listener is either synchronous or asynchronous.
+     * @param listener to add
+     * @param eventTypes types the listener wants to get
+     * @param capacity max events in the listener's queue
+     * @param policy what to do when the queue is full
+     * @param executor where the listener is called ('null' - shared daemon threads)
+     * @return delivery of the listener (queue state and counters)
+     * @throws NullPointerException when there is no listener, types or policy
+     * @throws IllegalStateException when the listener is already synchronous
+     */
+    public WinBufAsyncDelivery addAsyncListener(final WinBufEventListener listener,
+                                                final Set<WinBufEventType> eventTypes,
+                                                final int capacity,
+                                                final WinBufAsyncPolicy policy,
+                                                final Executor executor)
+                    throws NullPointerException, IllegalStateException {
+        synchronized ( this.subscriptions ) {
+            final Subscription existing = this.subscriptions.get(listener);
+            if ( null != existing && !(existing.delivery instanceof WinBufAsyncDelivery) ) {
+                String excMsg = "Listener is already synchronous, remove it first";
+                throw new IllegalStateException(excMsg);
+            }
+            //
+            final WinBufAsyncDelivery delivery = (null == existing)
+                                                    ? new WinBufAsyncDelivery(listener, capacity, policy, executor)
+                                                    : (WinBufAsyncDelivery) existing.delivery;
+            this.subscribe(listener, delivery, eventTypes);
+            //
+            return delivery;
+        }
+    }
+    
+    private void subscribe(final WinBufListener listener,
+                            final WinBufFastListener delivery,
+                            final Set<WinBufEventType> eventTypes)
+                    throws NullPointerException {
+        if ( null == eventTypes ) {
+            String excMsg = "Cannot subscribe without event types";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        Subscription subscription = this.subscriptions.get(listener);
+        if ( null == subscription ) {
+            subscription = new Subscription(delivery);
+            this.subscriptions.put(listener, subscription);
+        }
+        subscription.eventTypes.addAll(eventTypes);
+        //
+        this.rebuildDispatchTable();
     }
     
     @Override
     public void removeEventListener(final WinBufEventListener listener) {
-        this.eventListeners.remove(listener);
+        this.unsubscribe(listener);
+    }
+    
+    public void removeFastListener(final WinBufFastListener listener) {
+        this.unsubscribe(listener);
+    }
+    
+    private void unsubscribe(final WinBufListener listener) {
+        synchronized ( this.subscriptions ) {
+            if ( null == this.subscriptions.remove(listener) ) return;
+            //
+            this.rebuildDispatchTable();
+        }
+    }
+    
+    /**
+     * Listeners of each type keep the order of subscription.
+     */
+    private void rebuildDispatchTable() {
+        WinBufFastListener[][] newTable = new WinBufFastListener[ EVENT_TYPES.length ][];
+        for ( WinBufEventType curType : EVENT_TYPES ) {
+            List<WinBufFastListener> typeListeners = new ArrayList<>();
+            for ( Subscription curSubscription : this.subscriptions.values() ) {
+                if ( curSubscription.eventTypes.contains(curType) ) typeListeners.add(curSubscription.delivery);
+            }
+            newTable[ curType.ordinal() ] = typeListeners.toArray(new WinBufFastListener[ 0 ]);
+        }
+        //
+        this.dispatchTable = newTable;
+    }
+    
+    /**
+     * @param eventType some type
+     * @return is anybody subscribed to the type
+     */
+    public boolean hasEventListeners(final WinBufEventType eventType) {
+        return this.dispatchTable[ eventType.ordinal() ].length > 0;
     }
     
     @Override
     public void notifyEventListeners(final WinBufEvent event) {
-        if ( this.eventListeners.isEmpty() ) return;
+        final WinBufFastListener[] typeListeners = this.dispatchTable[ event.getEventType().ordinal() ];
+        if ( 0 == typeListeners.length ) return;
         //
-        for ( WinBufEventListener currentListener : this.eventListeners ) {
-            currentListener.onWindowOutputBufferEvent(event);
+        final WinBufEventStatus status = this.dispatch(typeListeners,
+                                                        event.getEventType(),
+                                                        event.getEventFlags(),
+                                                        event.getEventText(),
+                                                        event.getEventStatus());
+        event.updateEventStatus(status);
+    }
+    
+    /**
+     * Deliver the event to its listeners one by one.
+     * @return status of the event after the listeners
+     */
+    private WinBufEventStatus dispatch(final WinBufFastListener[] typeListeners,
+                                        final WinBufEventType eventType,
+                                        final int eventFlags,
+                                        final CharSequence eventText,
+                                        final WinBufEventStatus eventStatus) {
+        WinBufEventStatus status = eventStatus;
+        final WinBufListenerProfiler profiler = this.listenerProfiler;
+        for ( WinBufFastListener currentListener : typeListeners ) {
+            if ( null == profiler ) {
+                status = currentListener.onWindowOutputBufferEvent(this, eventType, eventFlags, eventText, status);
+            } else {
+                final long listenerStartNs = System.nanoTime();
+                status = currentListener.onWindowOutputBufferEvent(this, eventType, eventFlags, eventText, status);
+                profiler.record(currentListener, eventType, System.nanoTime() - listenerStartNs);
+            }
             //
             // some listener has changed the status to stop prolongation:
-            if ( WinBufEventStatus.WB_EVENT_ABORT == event.getEventStatus() ) {
+            if ( WinBufEventStatus.WB_EVENT_ABORT == status ) {
                 break;
             }
         }
+        //
+        return status;
     }
     
     /**
@@ -292,12 +549,15 @@ public class WindowOutputBuffer
      * @param potentialListener object we check
      * @return whether we have such a listener
      */
-    public boolean isAlreadyListener(WinBufEventListener potentialListener) {
-        return this.eventListeners.contains(potentialListener);
+    public boolean isAlreadyListener(final WinBufListener potentialListener) {
+        synchronized ( this.subscriptions ) {
+            return this.subscriptions.containsKey(potentialListener);
+        }
     }
     
     /**
      * Full version to rapid generate of events from 'WindowOutputBuffer' in one line.
+     * The event is created even if nobody listens to it.
      * @param genEventType event type from 'WinBufEventType'
      * @param genEventFlags any states or conditions in integer
      * @param genEventText extra free text in event
@@ -310,6 +570,7 @@ public class WindowOutputBuffer
                                                 genEventType,
                                                 genEventFlags,
                                                 genEventText);
+        this.eventCounts.get(genEventType).increment();
         this.notifyEventListeners(genEvent);
         //
         return genEvent;
@@ -326,6 +587,65 @@ public class WindowOutputBuffer
         return this.generateEvent(genEventType, 0, "");
     }
     
+    /**
+     * Inner generator: no event object is created (adapters of old-style listeners do it),
+     * nothing is done when nobody is subscribed to the type.
+     * @param genEventType event type from 'WinBufEventType'
+     * @param genEventFlags any states or conditions in integer
+     * @param genEventText extra free text in event
+     * @return status of the event after listeners ('WB_EVENT_OK' when there are no listeners)
+     */
+    private WinBufEventStatus fireEvent(final WinBufEventType genEventType,
+                                        final int genEventFlags,
+                                        final String genEventText) {
+        final WinBufFastListener[] typeListeners = this.dispatchTable[ genEventType.ordinal() ];
+        if ( 0 == typeListeners.length ) return WinBufEventStatus.WB_EVENT_OK;
+        //
+        this.eventCounts.get(genEventType).increment();
+        return this.dispatch(typeListeners,
+                                genEventType,
+                                genEventFlags,
+                                genEventText,
+                                WinBufEventStatus.WB_EVENT_OK);
+    }
+    private WinBufEventStatus fireEvent(final WinBufEventType genEventType,
+                                        final String genEventText) {
+        return this.fireEvent(genEventType, 0, genEventText);
+    }
+    
+    /**
+     * @return number of dispatched events by type (all types are present,
+     *          events nobody is subscribed to are not counted)
+     */
+    public Map<WinBufEventType, Long> getEventCounts() {
+        Map<WinBufEventType, Long> counts = new EnumMap<>(WinBufEventType.class);
+        for ( Map.Entry<WinBufEventType, LongAdder> curCount : this.eventCounts.entrySet() ) {
+            counts.put(curCount.getKey(), curCount.getValue().sum());
+        }
+        //
+        return counts;
+    }
+    
+    /**
+     * Set counters of dispatched events to zero.
+     */
+    public void resetEventCounts() {
+        for ( LongAdder curCount : this.eventCounts.values() ) {
+            curCount.reset();
+        }
+    }
+    
+    /**
+     * Measure time of each listener by event type.
+     * @param profiler where to record, 'null' to stop measuring
+     */
+    public void setListenerProfiler(final WinBufListenerProfiler profiler) {
+        this.listenerProfiler = profiler;
+    }
+    public WinBufListenerProfiler getListenerProfiler() {
+        return this.listenerProfiler;
+    }
+    
     
     /////////////
     
@@ -350,18 +670,41 @@ public class WindowOutputBuffer
     
     /**
      * Send pre-event, do the flush, clear visual length, and send post-event.
+     * Flush time is reported to print phases (if they are measured).
      */
     @Override
     public synchronized void flush() {
+        final PrintLatency latency = this.getPrintLatency();
+        if ( null == latency ) {
+            this.doFlush();
+            return;
+        }
+        //
+        latency.enterFlush();
+        try {
+            this.doFlush();
+        } finally {
+            latency.exitFlush();
+        }
+    }
+    
+    /**
+     * Flush with events.
+     */
+    private void doFlush() {
+        final JfrFlushEvent jfrEvent = new JfrFlushEvent();
+        final long bytesBefore = jfrEvent.isEnabled() ? this.getOutputCounters().getBytes() : 0;
+        jfrEvent.begin();
+        //
         final int keptBeforeFlushLength = this.getBufferLength();
         final String keptBeforeFlushStr = this.getBufferStr();
         //
         // know via event everything are ready to output
-        WinBufEvent beforeEvent = this.generateEvent(WinBufEventType.ON_BEFORE_FLUSH,
+        WinBufEventStatus beforeStatus = this.fireEvent(WinBufEventType.ON_BEFORE_FLUSH,
                                                         keptBeforeFlushLength,  // _our_ data about line length
                                                         keptBeforeFlushStr);    // current buffer string line
         //
-        if ( WinBufEventStatus.WB_EVENT_OK != beforeEvent.getEventStatus() ) {
+        if ( WinBufEventStatus.WB_EVENT_OK != beforeStatus ) {
             // after "before"-actions event was stoped in some way
             // the buffer will be cleared without output
             this.clearBuffer();
@@ -375,9 +718,11 @@ public class WindowOutputBuffer
         super.flush();
         //
         // 'after'-events recieves buffer data after 'before'-event
-        this.generateEvent(WinBufEventType.ON_AFTER_FLUSH,
-                            keptBehindBeforeFlushLength,
-                            keptBehindBeforeFlushStr);
+        this.fireEvent(WinBufEventType.ON_AFTER_FLUSH,
+                        keptBehindBeforeFlushLength,
+                        keptBehindBeforeFlushStr);
+        //
+        this.commitFlushEvent(jfrEvent, false, keptBeforeFlushStr.length(), bytesBefore);
     }
     
     /**
@@ -385,6 +730,10 @@ public class WindowOutputBuffer
      */
     @Override
     protected synchronized void autoflush() {
+        final JfrFlushEvent jfrEvent = new JfrFlushEvent();
+        final long bytesBefore = jfrEvent.isEnabled() ? this.getOutputCounters().getBytes() : 0;
+        jfrEvent.begin();
+        //
         final String keptStr = this.getBufferStr();
         final int calculatedKeptStrLength;
         if ( this.isCmdStr(keptStr) ) {
@@ -394,11 +743,11 @@ public class WindowOutputBuffer
         }
         // So, if 'calculatedKeptStrLength' is zero we got line with some sort of command.
         //
-        WinBufEvent beforeEvent = this.generateEvent(WinBufEventType.ON_BEFORE_AUTOFLUSH,
+        WinBufEventStatus beforeStatus = this.fireEvent(WinBufEventType.ON_BEFORE_AUTOFLUSH,
                                                         calculatedKeptStrLength,    // length we want to consider
                                                         keptStr);                   // current buffer string line
         //
-        if ( WinBufEventStatus.WB_EVENT_OK != beforeEvent.getEventStatus() ) {
+        if ( WinBufEventStatus.WB_EVENT_OK != beforeStatus ) {
             // after "before"-actions event was stoped in some way
             // the buffer will be cleared without output
             this.clearBuffer();
@@ -412,9 +761,31 @@ public class WindowOutputBuffer
         super.autoflush();
         //
         // 'after'-events recieves buffer data after 'before'-event
-        this.generateEvent(WinBufEventType.ON_AFTER_AUTOFLUSH,
-                            keptBehindBeforeAutoflushLength,
-                            keptBehindBeforeAutoflushStr);
+        this.fireEvent(WinBufEventType.ON_AFTER_AUTOFLUSH,
+                        keptBehindBeforeAutoflushLength,
+                        keptBehindBeforeAutoflushStr);
+        //
+        this.commitFlushEvent(jfrEvent, true, keptStr.length(), bytesBefore);
+    }
+    
+    /**
+     * Fill and commit flush event if it is recorded (nothing is done when JFR is off).
+     * @param jfrEvent event started before the flush
+     * @param isAutomatic autoflush or not
+     * @param chars length of flushed text
+     * @param bytesBefore terminal bytes counted before the flush
+     */
+    private void commitFlushEvent(final JfrFlushEvent jfrEvent,
+                                    final boolean isAutomatic,
+                                    final int chars,
+                                    final long bytesBefore) {
+        if ( !jfrEvent.shouldCommit() ) return;
+        //
+        jfrEvent.scope = this.getOutputCounters().getScope();
+        jfrEvent.automatic = isAutomatic;
+        jfrEvent.chars = chars;
+        jfrEvent.bytes = this.getOutputCounters().getBytes() - bytesBefore;
+        jfrEvent.commit();
     }
     
     
@@ -439,6 +810,11 @@ public class WindowOutputBuffer
         return isCmdStatus;
     }
     
+    @Override
+    protected boolean isCmdChars(final CharSequence charsToCheck, final int start, final int end) {
+        return WindowOutputBuffer.hasCmdChars(charsToCheck, start, end);
+    }
+    
     
     
     // banned
@@ -475,6 +851,92 @@ public class WindowOutputBuffer
         this.addToWinBuf(strToBuf, 0);
     }
     
+    // banned
+    @Override
+    public void add(final CharSequence newCharsToBuffer, final int start, final int end)
+                    throws IllegalCallerException {
+        String excMsg = "Does not allow to use method 'add', use 'addToWinBuf' instead.";
+        throw new IllegalCallerException(excMsg);
+    }
+    
+    /**
+     * 'addToWinBuf()' for the part of chars: regular text is copied
+     * into the buffer directly (no string is created),
+     * text with commands is parsed as a string.
+     * @param charsToBuf what we are going to add to buffer
+     * @param start first char of the part
+     * @param end char after the part
+     */
+    public void addToWinBuf(final CharSequence charsToBuf, final int start, final int end) {
+        if ( WindowOutputBuffer.hasCmdChars(charsToBuf, start, end) ) {
+            this.addToWinBuf(charsToBuf.subSequence(start, end).toString(), 0);
+            return;
+        }
+        //
+        super.add(charsToBuf, start, end);
+    }
+    
+    
+    /**
+     * Add regular text without parsing (styled text and 'WinBufPieces' are split beforehand).
+     * The text is only checked not to have commands.
+     * @param textToBuf printable text
+     * @param start first char of the part
+     * @param end char after the part
+     * @throws IllegalArgumentException when the text has commands (special chars, escape sequences)
+     */
+    public void addTextToWinBuf(final CharSequence textToBuf, final int start, final int end)
+                        throws IllegalArgumentException {
+        if ( WindowOutputBuffer.hasCmdChars(textToBuf, start, end) ) {
+            String excMsg = "Text without parsing cannot have commands (special characters or escape sequences)";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.doAdd(textToBuf, start, end);
+    }
+    
+    /**
+     * Add one command without parsing: a special char or a single escape sequence
+     * (commands of compiled markup are known beforehand).
+     * Each command string is checked once, after that it is just added whole.
+     * @param cmdStr the command
+     * @throws NullPointerException when there is no command
+     * @throws IllegalArgumentException when the string is not a single allowed command
+     */
+    public void addSingleCmdToWinBuf(final String cmdStr)
+                        throws NullPointerException, IllegalArgumentException {
+        if ( null == cmdStr ) {
+            String excMsg = "Command to add to the buffer is null";
+            throw new NullPointerException(excMsg);
+        }
+        if ( !WindowOutputBuffer.isAllowedSingleCmd(cmdStr) ) {
+            String excMsg = "Not a single allowed command (special character or escape sequence): '"
+                                + cmdStr + "'";
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.addCmdWhole(cmdStr);
+    }
+    
+    /**
+     * Each command string is checked once (see 'addSingleCmdToWinBuf()').
+     * @param cmdStr string which must be one command
+     * @return is the string one special char or one escape sequence, which is not banned
+     */
+    static boolean isAllowedSingleCmd(final String cmdStr) {
+        if ( WindowOutputBuffer.checkedCommands.contains(cmdStr) ) return true;
+        //
+        final boolean isSingleCmd = (1 == cmdStr.length())
+                                        ? WindowOutputBuffer.hasCmdChars(cmdStr, 0, 1)
+                                        : WindowOutputBuffer.isSingleEscCommand(cmdStr);
+        if ( !isSingleCmd || WindowOutputBuffer.hasBannedCmd(cmdStr) ) return false;
+        //
+        if ( WindowOutputBuffer.checkedCommands.size() < WindowOutputBuffer.MAX_CHECKED_COMMANDS ) {
+            WindowOutputBuffer.checkedCommands.add(cmdStr);
+        }
+        return true;
+    }
+    
     
     /**
      * Full 'Add'-method, only for a command.
@@ -520,7 +982,7 @@ public class WindowOutputBuffer
         //
         // Get a set of strings we want to add sequentially.
         // Here we make a guarantee each command will be sent separately.
-        List<String> toAdd = this.getStringsToAddFromCmdStr(strToBuf);
+        List<String> toAdd = WindowOutputBuffer.getStringsToAddFromCmdStr(strToBuf);
         for ( String currentStrToAdd : toAdd ) {
             this.addToWinBuf(currentStrToAdd, iteration);
         }
@@ -543,7 +1005,7 @@ public class WindowOutputBuffer
      * @param strToParse string with a command
      * @return list of strings, each has a command or a block of regular text
      */
-    private List<String> getStringsToAddFromCmdStr(final String strToParse) {
+    static List<String> getStringsToAddFromCmdStr(final String strToParse) {
         List<String> strResult = new ArrayList<>();
         int curIndex;
         int lastAddedIndex;
@@ -653,10 +1115,10 @@ public class WindowOutputBuffer
      */
     @Override
     protected synchronized void addCmdWhole(final String wholeCmdCharsToBuffer) {
-        WinBufEvent beforeEvent = this.generateEvent(WinBufEventType.ON_BEFORE_CMD_SENT,
+        WinBufEventStatus beforeStatus = this.fireEvent(WinBufEventType.ON_BEFORE_CMD_SENT,
                                                         wholeCmdCharsToBuffer); // our command
         //
-        if ( WinBufEventStatus.WB_EVENT_OK != beforeEvent.getEventStatus() ) {
+        if ( WinBufEventStatus.WB_EVENT_OK != beforeStatus ) {
             // after "before"-actions event was stoped in some way
             // just do not add a command
             return;
@@ -665,8 +1127,8 @@ public class WindowOutputBuffer
         // second arguments is crucial (as empty string with zero-length):
         super.doAddWhole(wholeCmdCharsToBuffer, WINDOW_ANY_CMD_LENGTH);
         //
-        this.generateEvent(WinBufEventType.ON_AFTER_CMD_SENT,
-                            wholeCmdCharsToBuffer);
+        this.fireEvent(WinBufEventType.ON_AFTER_CMD_SENT,
+                        wholeCmdCharsToBuffer);
     }
     
     
@@ -703,57 +1165,95 @@ public class WindowOutputBuffer
         this.outputText(outputStr);
     }
     
+    /**
+     * Sliced part of the buffer goes to the output without a copy of the part.
+     * @param slice part of buffer to be shown (valid only during the call)
+     */
+    @Override
+    protected synchronized void outputSlice(final CharSequence slice) {
+        if ( WindowOutputBuffer.hasCmdChars(slice) ) {
+            this.output(slice.toString());
+            return;
+        }
+        //
+        this.outputText(slice);
+    }
+    
     /**
      * Output regular text into terminal's console.
      * It is crucial to output the symbols into correct terminal's area,
      * so we put characters symbol-by-symbol, generating events at each of them.
      * @param outputStr final sting to place into console
      */
-    private void outputText(final String outputStr) {
-        char[] outputChars = outputStr.toCharArray();
-        for ( int i = 0; i < outputChars.length; i++ ) {
-            final String currentOutputSymbol = String.valueOf(outputChars[ i ]);
+    private void outputText(final CharSequence outputStr) {
+        final int outputLength = outputStr.length();
+        for ( int i = 0; i < outputLength; i++ ) {
+            final String currentOutputSymbol = WindowOutputBuffer.getSymbolStr(outputStr.charAt(i));
             final int currentOutputSymbolLength = currentOutputSymbol.length();
             //
-            WinBufEvent beforeEvent = this.generateEvent(WinBufEventType.ON_BEFORE_OUTPUT_CHAR,
+            WinBufEventStatus beforeStatus = this.fireEvent(WinBufEventType.ON_BEFORE_OUTPUT_CHAR,
                                                             currentOutputSymbolLength,
                                                             currentOutputSymbol);
-            if ( WinBufEventStatus.WB_EVENT_ABORT == beforeEvent.getEventStatus() ) {
+            if ( WinBufEventStatus.WB_EVENT_ABORT == beforeStatus ) {
                 // event's callback said we must stop
                 return;
             }
-            if ( WinBufEventStatus.WB_EVENT_IGNORE == beforeEvent.getEventStatus() ) {
+            if ( WinBufEventStatus.WB_EVENT_IGNORE == beforeStatus ) {
                 // event's callback blocked output
                 continue;
             }
             //
             super.output(currentOutputSymbol);
             //
-            this.generateEvent(WinBufEventType.ON_AFTER_OUTPUT_CHAR,
-                                currentOutputSymbolLength,
-                                currentOutputSymbol);
+            this.fireEvent(WinBufEventType.ON_AFTER_OUTPUT_CHAR,
+                            currentOutputSymbolLength,
+                            currentOutputSymbol);
         }
     }
     
+    /**
+     * Each printed char is a string for its events and output: the same string is given for the same char.
+     * Pages are shared by all buffers, a page filled by two threads at once only costs a few extra strings.
+     * @param symbol char of regular text
+     * @return one-char string
+     */
+    private static String getSymbolStr(final char symbol) {
+        final int pageIndex = symbol >> SYMBOL_PAGE_BITS;
+        String[] page = SYMBOL_STRS[ pageIndex ];
+        if ( null == page ) {
+            page = new String[ 1 << SYMBOL_PAGE_BITS ];
+            SYMBOL_STRS[ pageIndex ] = page;
+        }
+        //
+        final int symbolIndex = symbol & ((1 << SYMBOL_PAGE_BITS) - 1);
+        String symbolStr = page[ symbolIndex ];
+        if ( null == symbolStr ) {
+            symbolStr = String.valueOf(symbol);
+            page[ symbolIndex ] = symbolStr;
+        }
+        //
+        return symbolStr;
+    }
+    
     /**
      * Output command (special char/escape sequence) into terminal's console.
      * Put it at once, only one event pair is generated.
      * @param outputStr final sting to place into console
      */
     private void outputCmdText(final String outputCmdStr) {
-        WinBufEvent beforeEvent = this.generateEvent(WinBufEventType.ON_BEFORE_OUTPUT_CMD,
+        WinBufEventStatus beforeStatus = this.fireEvent(WinBufEventType.ON_BEFORE_OUTPUT_CMD,
                                                         WINDOW_ANY_CMD_LENGTH,
                                                         outputCmdStr);
-        if ( WinBufEventStatus.WB_EVENT_OK != beforeEvent.getEventStatus() ) {
+        if ( WinBufEventStatus.WB_EVENT_OK != beforeStatus ) {
             // stop adding this command
             return;
         }
         //
         super.output(outputCmdStr);
         //
-        this.generateEvent(WinBufEventType.ON_AFTER_OUTPUT_CMD,
-                            WINDOW_ANY_CMD_LENGTH,
-                            outputCmdStr);
+        this.fireEvent(WinBufEventType.ON_AFTER_OUTPUT_CMD,
+                        WINDOW_ANY_CMD_LENGTH,
+                        outputCmdStr);
     }
     
     
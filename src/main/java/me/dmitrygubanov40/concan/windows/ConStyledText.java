@@ -0,0 +1,315 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConStyles;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+
+
+/**
+ * Immutable styled text: a sequence of runs, each run is text with its attributes
+ * (font color, background, styles) kept as a ready brush.
+ * Is built with 'ConStyledText.Builder', or parsed once from a string with escape sequences
+ * ('fromAnsi()'), and then can be printed any number of times:
+ * the window takes the brush of each run as it is, the text is added
+ * to the window buffer directly - nothing is parsed while printing.
+ * Attributes are absolute (a run without color has the default one),
+ * the zone's brush is restored after the text.
+ * Good for repeated status and banner lines.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConStyledText implements ConWinPrintable
+{
+    
+    private final String[] texts;
+    private final ConWinOutBrush[] brushes;
+    // commands of the brushes (to keep the output in the zone's storage)
+    private final String[] brushCmds;
+    private final int length;
+    
+    
+    
+    private ConStyledText(final List<String> runTexts,
+                            final List<ConWinOutBrush> runBrushes,
+                            final List<String> runCmds) {
+        this.texts = runTexts.toArray(new String[ 0 ]);
+        this.brushes = runBrushes.toArray(new ConWinOutBrush[ 0 ]);
+        this.brushCmds = runCmds.toArray(new String[ 0 ]);
+        int textLength = 0;
+        for ( String curText : this.texts ) textLength += curText.length();
+        this.length = textLength;
+    }
+    
+    /**
+     * Parse a string with escape sequences (colors and styles) once.
+     * @param ansiStr text with color and style commands
+     * @return styled text of the string
+     * @throws NullPointerException when there is no string
+     * @throws IllegalArgumentException for special chars or commands other than colors and styles
+     */
+    public static ConStyledText fromAnsi(final String ansiStr) throws NullPointerException, IllegalArgumentException {
+        if ( null == ansiStr ) {
+            String excMsg = "There is no string to make styled text of";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        final Builder builder = new Builder();
+        int textStart = 0;
+        int i = 0;
+        while ( i < ansiStr.length() ) {
+            final char curChar = ansiStr.charAt(i);
+            if ( ConUt.isPrintableChar(curChar) ) {
+                i++;
+                continue;
+            }
+            if ( ConUt.ESC.charAt(0) != curChar || !ansiStr.startsWith(ConUt.ESC_CMD_SEPARATOR, i + 1) ) {
+                String excMsg = "Styled text can have only colors and styles, got special char "
+                                    + (int) curChar + " at " + i;
+                throw new IllegalArgumentException(excMsg);
+            }
+            //
+            // escape sequence ends with its first letter
+            int cmdEnd = i + 2;
+            while ( cmdEnd < ansiStr.length() && !Character.isLetter(ansiStr.charAt(cmdEnd)) ) cmdEnd++;
+            if ( cmdEnd >= ansiStr.length() ) {
+                String excMsg = "Escape sequence is not finished at " + i;
+                throw new IllegalArgumentException(excMsg);
+            }
+            final String cmd = ansiStr.substring(i, cmdEnd + 1);
+            if ( !ConWinOutBrush.isColorEscCommand(cmd)
+                    && !ConWinOutBrush.isBackgroundEscCommand(cmd)
+                    && !ConWinOutBrush.isStyleEscCommand(cmd) ) {
+                String excMsg = "Styled text can have only colors and styles, got command at " + i;
+                throw new IllegalArgumentException(excMsg);
+            }
+            //
+            builder.append(ansiStr.substring(textStart, i));
+            builder.brush.analyseAndUpdateBrush(cmd);
+            i = cmdEnd + 1;
+            textStart = i;
+        }
+        builder.append(ansiStr.substring(textStart));
+        //
+        return builder.build();
+    }
+    
+    
+    
+    /**
+     * @return number of (visual) chars
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+    
+    /**
+     * @return no new lines: styled text has no special chars
+     */
+    @Override
+    public int countLines() {
+        return 0;
+    }
+    
+    public int getRunsCount() {
+        return this.texts.length;
+    }
+    
+    public String getRunText(final int runIndex) {
+        return this.texts[ runIndex ];
+    }
+    
+    /**
+     * @param runIndex index of the run
+     * @return copy of the run's brush
+     */
+    public ConWinOutBrush getRunBrush(final int runIndex) {
+        return new ConWinOutBrush(this.brushes[ runIndex ]);
+    }
+    
+    /**
+     * @return text without attributes
+     */
+    public String getPlainText() {
+        return String.join("", this.texts);
+    }
+    
+    /**
+     * @return the text with escape sequences (as it could be printed)
+     */
+    public String toAnsi() {
+        final StringBuilder ansi = new StringBuilder();
+        for ( int i = 0; i < this.texts.length; i++ ) {
+            ansi.append(this.brushCmds[ i ]).append(this.texts[ i ]);
+        }
+        return ansi.toString();
+    }
+    
+    
+    
+    /**
+     * The same sequence of commands means the same attributes.
+     * @param brush brush of a run
+     * @return commands to set the brush from any state
+     */
+    private static String brushToCmd(final ConWinOutBrush brush) {
+        final String color = brush.getBrushColor();
+        final String background = brush.getBrushBackground();
+        final StringBuilder cmd = new StringBuilder(ConUt.RESET);
+        cmd.append(color.isEmpty() ? ConUt.COLOR_DEFAULT : color);
+        cmd.append(background.isEmpty() ? ConUt.BACKGROUND_DEFAULT : background);
+        for ( ConStyles curStyle : brush.getBrushStyles() ) {
+            cmd.append(curStyle.getStyleCmd());
+        }
+        return cmd.toString();
+    }
+    
+    
+    
+    /**
+     * Print into the zone of a window (the zone's brush is back after the text).
+     * @param zone where to print
+     * @param isNewLine add a new line after the text
+     */
+    @Override
+    public void printTo(final ConWinOut zone, final boolean isNewLine) {
+        zone.print(this, isNewLine);
+    }
+    
+    /**
+     * All runs go into the zone: the zone takes brushes and text as they are.
+     * @param zone where to print
+     */
+    void addRunsTo(final ConWinOut zone) {
+        for ( int i = 0; i < this.texts.length; i++ ) {
+            zone.addStyledRun(this.brushes[ i ], this.brushCmds[ i ], this.texts[ i ]);
+        }
+    }
+    
+    
+    
+    @Override
+    public boolean equals(final Object other) {
+        if ( this == other ) return true;
+        if ( !(other instanceof ConStyledText) ) return false;
+        //
+        final ConStyledText otherText = (ConStyledText) other;
+        return Arrays.equals(this.texts, otherText.texts)
+                && Arrays.equals(this.brushCmds, otherText.brushCmds);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.texts) + Arrays.hashCode(this.brushCmds);
+    }
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ": [runs: " + this.texts.length
+                    + ", text: " + this.getPlainText() + "]";
+        return str;
+    }
+    
+    
+    ////////////////////////////
+    
+    
+    /**
+     * Text is appended with the current attributes,
+     * runs with the same attributes are joined.
+     */
+    public static class Builder
+    {
+    
+        // attributes of the next text
+        private final ConWinOutBrush brush;
+    
+        private final List<String> runTexts;
+        private final List<ConWinOutBrush> runBrushes;
+        private final List<String> runCmds;
+    
+        //////////////////
+    
+        public Builder() {
+            this.brush = new ConWinOutBrush();
+            this.runTexts = new ArrayList<>();
+            this.runBrushes = new ArrayList<>();
+            this.runCmds = new ArrayList<>();
+        }
+    
+        public Builder color(final ConCol color) {
+            this.brush.setBrushColor(ConUt.COLOR(color));
+            return this;
+        }
+    
+        public Builder background(final ConCol background) {
+            this.brush.setBrushBackground(ConUt.BACKGROUND(background));
+            return this;
+        }
+    
+        /**
+         * @param style style to add (an opposite style removes the first one, 'RESET' - all attributes)
+         * @return the builder
+         */
+        public Builder style(final ConStyles style) {
+            if ( ConStyles.RESET == style ) return this.plain();
+            //
+            if ( ConStyles.NONE != style ) this.brush.addBrushStyle(style);
+            return this;
+        }
+    
+        /**
+         * Back to default color, background, and no styles.
+         * @return the builder
+         */
+        public Builder plain() {
+            this.brush.analyseAndUpdateBrush(ConUt.RESET);
+            return this;
+        }
+    
+        /**
+         * @param text printable text (no special chars) with current attributes
+         * @return the builder
+         * @throws NullPointerException when there is no text
+         * @throws IllegalArgumentException for special chars in the text
+         */
+        public Builder append(final CharSequence text) throws NullPointerException, IllegalArgumentException {
+            if ( null == text ) {
+                String excMsg = "There is no text to append to styled text";
+                throw new NullPointerException(excMsg);
+            }
+            for ( int i = 0; i < text.length(); i++ ) {
+                if ( !ConUt.isPrintableChar(text.charAt(i)) ) {
+                    String excMsg = "Styled text cannot have special chars, got "
+                                        + (int) text.charAt(i) + " at " + i;
+                    throw new IllegalArgumentException(excMsg);
+                }
+            }
+            if ( text.length() <= 0 ) return this;
+            //
+            final String cmd = ConStyledText.brushToCmd(this.brush);
+            final int lastRun = this.runTexts.size() - 1;
+            if ( lastRun >= 0 && cmd.equals(this.runCmds.get(lastRun)) ) {
+                this.runTexts.set(lastRun, this.runTexts.get(lastRun) + text);
+                return this;
+            }
+            this.runTexts.add(text.toString());
+            this.runBrushes.add(new ConWinOutBrush(this.brush));
+            this.runCmds.add(cmd);
+            return this;
+        }
+    
+        public ConStyledText build() {
+            return new ConStyledText(this.runTexts, this.runBrushes, this.runCmds);
+        }
+    
+    }
+    
+    
+    
+}
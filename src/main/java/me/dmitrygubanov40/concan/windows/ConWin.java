@@ -1,14 +1,37 @@
 package me.dmitrygubanov40.concan.windows;
 
 import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.nio.CharBuffer;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import me.dmitrygubanov40.concan.buffer.OutputQuality;
+import me.dmitrygubanov40.concan.buffer.OutputSink;
 import me.dmitrygubanov40.concan.paint.ConBorderRectType;
 import me.dmitrygubanov40.concan.paint.ConDraw;
 import me.dmitrygubanov40.concan.paint.ConDrawFill;
+import me.dmitrygubanov40.concan.strain.JfrFrameRenderEvent;
+import me.dmitrygubanov40.concan.strain.LatencyHistogram;
+import me.dmitrygubanov40.concan.strain.OutputCountersSnapshot;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.strain.PrintLatency;
 import me.dmitrygubanov40.concan.utility.ConCol;
 import me.dmitrygubanov40.concan.utility.ConCord;
-import me.dmitrygubanov40.concan.utility.ConUt;
 import me.dmitrygubanov40.concan.utility.Term;
+import me.dmitrygubanov40.concan.winbuffer.WinBufAsyncDelivery;
+import me.dmitrygubanov40.concan.winbuffer.WinBufAsyncPolicy;
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventListener;
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventType;
+import me.dmitrygubanov40.concan.winbuffer.WinBufFastListener;
+import me.dmitrygubanov40.concan.winbuffer.WinBufListenerProfiler;
+import me.dmitrygubanov40.concan.winbuffer.WinBufSlowListenerHandler;
 
 
 
@@ -39,6 +62,15 @@ public class ConWin
     private static final boolean DEFAULT_WINZONE_MULTITHREAD;
     private static final boolean DEFAULT_WINZONE_SCROLLABLE;
     
+    // output accounting scope prefix, full scope is i.e. "window-1"
+    public static final String STATS_SCOPE_PREFIX;
+    
+    // source of windows' ids
+    private static final AtomicInteger windowsCounter;
+    
+    // numbers are formatted here before printing (reused by each thread)
+    private static final ThreadLocal<StringBuilder> numberChars;
+    
     static {
         minPosOrderedPair = new ConCord(0, 0);
         //
@@ -58,10 +90,36 @@ public class ConWin
         //
         DEFAULT_WINZONE_MULTITHREAD = false;
         DEFAULT_WINZONE_SCROLLABLE = false;
+        //
+        STATS_SCOPE_PREFIX = "window-";
+        windowsCounter = new AtomicInteger(0);
+        //
+        numberChars = ThreadLocal.withInitial(StringBuilder::new);
     }
     
     ////////////
     
+    // unique number of the window (in order of creation)
+    private final int id;
+    
+    // duration of 'print()' calls
+    private final LatencyHistogram renderLatency;
+    // start of measurements ('System.nanoTime()'), rates are counted since it
+    private volatile long statsSinceNs;
+    
+    // one print at a time in the zone (waiting for it is the 'enqueue' phase)
+    private final Object printLock;
+    // phases of prints, 'null' when are not measured
+    private volatile PrintLatency printLatency;
+    // prints which are waiting for the window or in progress
+    private final AtomicInteger pendingPrints;
+    // bounded queue of prints done by another thread, 'null' - callers print themselves
+    private volatile ConWinQueue queue;
+    // queue is started and stopped one at a time
+    private final Object queueLock;
+    // frame is to be redrawn when the output quality is restored
+    private final AtomicBoolean isFrameRedrawDelayed;
+    
     // window output area itslef (we put chars here)
     private ConWinOut zone;
     
@@ -87,6 +145,17 @@ public class ConWin
     
     // Blank constrcutor for inner builder (see end of class).
     private ConWin() {
+        this.id = ConWin.windowsCounter.incrementAndGet();
+        this.renderLatency = new LatencyHistogram();
+        this.statsSinceNs = System.nanoTime();
+        //
+        this.printLock = new Object();
+        this.printLatency = null;
+        this.pendingPrints = new AtomicInteger(0);
+        this.queue = null;
+        this.queueLock = new Object();
+        this.isFrameRedrawDelayed = new AtomicBoolean(false);
+        //
         // can be re-declared in builder:
         this.isMultithread = ConWin.DEFAULT_WINZONE_MULTITHREAD;
         this.isScrollable = ConWin.DEFAULT_WINZONE_SCROLLABLE;
@@ -123,7 +192,7 @@ public class ConWin
     /**
      * Guarantee console place to be clean for the window.
      */
-    private void clearPlaceForWindow() {
+    void clearPlaceForWindow() {
         final ConCord leftTop = this.position;
         //
         // linear sizes are "less" in coordinates:
@@ -177,13 +246,334 @@ public class ConWin
                                             WINZONE_TERM_RESTORATION_STATE);
         this.zone.startNewStorage(setStorageLines);
         this.zone.setScrollable(this.isScrollable);
+        this.zone.setOutputCounters(OutputStats.scope(this.getStatsScope()));
+    }
+    
+    
+    
+    /**
+     * @return unique number of the window
+     */
+    public int getId() {
+        return this.id;
+    }
+    
+    /**
+     * @return name of the window in output accounting ('OutputStats')
+     */
+    public String getStatsScope() {
+        return ConWin.STATS_SCOPE_PREFIX + this.id;
+    }
+    
+    /**
+     * @return what the window has sent to the terminal so far
+     */
+    public OutputCountersSnapshot getOutputStats() {
+        return this.zone.getOutputCounters().snapshot();
+    }
+    
+    /**
+     * @return durations of 'print()' calls (output to the terminal included)
+     */
+    public LatencyHistogram getRenderLatency() {
+        return this.renderLatency;
+    }
+    
+    long getStatsSinceNs() {
+        return this.statsSinceNs;
+    }
+    
+    ConWinOut getZone() {
+        return this.zone;
+    }
+    
+    /**
+     * Set output counters, scrolls, events and latencies of the window to zero.
+     */
+    public void resetStats() {
+        this.zone.resetCounters();
+        this.renderLatency.reset();
+        final PrintLatency latency = this.printLatency;
+        if ( null != latency ) latency.reset();
+        this.statsSinceNs = System.nanoTime();
+    }
+    
+    /**
+     * Start measuring of print phases ('PrintPhase'): enqueue, parse, render, write.
+     * Costs a few 'System.nanoTime()' calls per print and per terminal write.
+     * @return phases of prints (the same object if measuring is already on)
+     */
+    public PrintLatency enablePrintLatency() {
+        synchronized ( this.printLock ) {
+            if ( null == this.printLatency ) {
+                this.printLatency = new PrintLatency();
+                this.zone.setPrintLatency(this.printLatency);
+            }
+            //
+            return this.printLatency;
+        }
+    }
+    
+    /**
+     * Stop measuring of print phases.
+     */
+    public void disablePrintLatency() {
+        synchronized ( this.printLock ) {
+            this.printLatency = null;
+            this.zone.setPrintLatency(null);
+        }
+    }
+    
+    /**
+     * @return phases of prints, 'null' when are not measured
+     */
+    public PrintLatency getPrintLatency() {
+        return this.printLatency;
+    }
+    
+    /**
+     * Listen to events of the window's buffer (flushes, chars and commands output).
+     * Listeners are called synchronously in the printing thread.
+     * @param listener to add
+     * @throws NullPointerException when there is no listener
+     */
+    public void addOutputListener(final WinBufEventListener listener) throws NullPointerException {
+        if ( null == listener ) {
+            String excMsg = "There is no listener to add to window " + this.id;
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.zone.addEventListener(listener);
+    }
+    /**
+     * Listen only to some events of the window's buffer
+     * (events nobody listens to are not created at all).
+     * @param listener to add
+     * @param eventTypes types the listener wants to get
+     * @throws NullPointerException when there is no listener or types
+     */
+    public void addOutputListener(final WinBufEventListener listener,
+                                    final Set<WinBufEventType> eventTypes)
+                    throws NullPointerException {
+        if ( null == listener || null == eventTypes ) {
+            String excMsg = "There is no listener or event types to add to window " + this.id;
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.zone.addEventListener(listener, eventTypes);
+    }
+    public void removeOutputListener(final WinBufEventListener listener) {
+        this.zone.removeEventListener(listener);
+    }
+    /**
+     * Allocation-free listening to some events of the window's buffer.
+     * @param listener to add
+     * @param eventTypes types the listener wants to get
+     * @throws NullPointerException when there is no listener or types
+     */
+    public void addOutputListener(final WinBufFastListener listener,
+                                    final Set<WinBufEventType> eventTypes)
+                    throws NullPointerException {
+        if ( null == listener || null == eventTypes ) {
+            String excMsg = "There is no listener or event types to add to window " + this.id;
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.zone.addFastListener(listener, eventTypes);
+    }
+    public void removeOutputListener(final WinBufFastListener listener) {
+        this.zone.removeFastListener(listener);
+    }
+    /**
+     * Listen to events of the window's buffer out of the printing thread:
+     * events are queued and delivered by the executor (remove it as usual).
+     * @param listener to add
+     * @param eventTypes types the listener wants to get
+     * @param capacity max events in the listener's queue
+     * @param policy what to do when the queue is full
+     * @param executor where the listener is called ('null' - shared daemon threads)
+     * @return delivery of the listener (queue state and counters)
+     * @throws NullPointerException when there is no listener, types or policy
+     */
+    public WinBufAsyncDelivery addAsyncOutputListener(final WinBufEventListener listener,
+                                                        final Set<WinBufEventType> eventTypes,
+                                                        final int capacity,
+                                                        final WinBufAsyncPolicy policy,
+                                                        final Executor executor)
+                    throws NullPointerException {
+        if ( null == listener || null == eventTypes ) {
+            String excMsg = "There is no listener or event types to add to window " + this.id;
+            throw new NullPointerException(excMsg);
+        }
+        //
+        return this.zone.addAsyncListener(listener, eventTypes, capacity, policy, executor);
+    }
+    public WinBufAsyncDelivery addAsyncOutputListener(final WinBufEventListener listener,
+                                                        final Set<WinBufEventType> eventTypes,
+                                                        final int capacity,
+                                                        final WinBufAsyncPolicy policy) {
+        return this.addAsyncOutputListener(listener, eventTypes, capacity, policy, null);
+    }
+    
+    /**
+     * Start measuring of each buffer listener by event type.
+     * @param thresholdMs listeners with p99 above it are slow
+     * @param handler callback about slow listeners ('null' - see 'getSlowListeners()' of the profiler)
+     * @return new profiler of the window's listeners
+     */
+    public WinBufListenerProfiler enableListenerProfiler(final double thresholdMs,
+                                                        final WinBufSlowListenerHandler handler) {
+        final WinBufListenerProfiler profiler = new WinBufListenerProfiler(thresholdMs);
+        profiler.setSlowListenerHandler(handler);
+        this.zone.setListenerProfiler(profiler);
+        //
+        return profiler;
+    }
+    public void disableListenerProfiler() {
+        this.zone.setListenerProfiler(null);
+    }
+    /**
+     * @return profiler of the window's listeners, 'null' when are not measured
+     */
+    public WinBufListenerProfiler getListenerProfiler() {
+        return this.zone.getListenerProfiler();
+    }
+    
+    /**
+     * @return prints which are waiting for the window or in progress (queue depth)
+     */
+    public int getPendingPrints() {
+        return this.pendingPrints.get();
+    }
+    
+    /**
+     * Calling threads only queue their prints, the prints are done by the executor:
+     * a slow terminal does not stall them (see 'ConWinQueuePolicy' for a full queue).
+     * Prints of the window keep their order.
+     * @param capacity max prints in the queue
+     * @param policy what to do when the queue is full
+     * @param executor where prints are done ('null' - shared daemon threads)
+     * @return new queue of the window
+     * @throws NullPointerException when there is no policy
+     * @throws IllegalArgumentException with non-positive capacity
+     * @throws IllegalStateException when the window already has a queue ('stopQueue()' first)
+     */
+    public ConWinQueue startQueue(final int capacity,
+                                    final ConWinQueuePolicy policy,
+                                    final Executor executor)
+                                        throws NullPointerException, IllegalArgumentException,
+                                                IllegalStateException {
+        synchronized ( this.queueLock ) {
+            if ( null != this.queue ) {
+                String excMsg = "Window #" + this.id + " already has an output queue, stop it first";
+                throw new IllegalStateException(excMsg);
+            }
+            //
+            final ConWinQueue newQueue = new ConWinQueue(this, capacity, policy, executor);
+            this.queue = newQueue;
+            return newQueue;
+        }
+    }
+    public ConWinQueue startQueue(final int capacity, final ConWinQueuePolicy policy)
+                                        throws NullPointerException, IllegalArgumentException,
+                                                IllegalStateException {
+        return this.startQueue(capacity, policy, null);
+    }
+    /**
+     * Scheduler: the window's queue, a new one when there is no queue yet.
+     * @param capacity max prints in a new queue
+     * @param policy what to do when a new queue is full
+     * @return output queue of the window
+     */
+    ConWinQueue getOrStartQueue(final int capacity, final ConWinQueuePolicy policy) {
+        synchronized ( this.queueLock ) {
+            if ( null != this.queue ) return this.queue;
+            return this.startQueue(capacity, policy, null);
+        }
+    }
+    /**
+     * Callers print themselves again. Returns when already queued prints are done:
+     * prints after the call go after them. Must not be called from the window's prints
+     * (i.e. from its output listeners), the queue would wait for itself.
+     */
+    public void stopQueue() {
+        synchronized ( this.queueLock ) {
+            final ConWinQueue oldQueue = this.queue;
+            if ( null == oldQueue ) return;
+            //
+            oldQueue.close();
+            this.queue = null;
+        }
+    }
+    /**
+     * @return output queue of the window, 'null' when there is no queue
+     */
+    public ConWinQueue getQueue() {
+        return this.queue;
+    }
+    
+    /**
+     * Overlays (i.e. 'ConWinHud') take the lock not to break a print in progress.
+     * @return lock of the window's prints
+     */
+    Object getPrintLock() {
+        return this.printLock;
+    }
+    
+    
+    
+    /**
+     * Make the window visible via JMX (jconsole, VisualVM...)
+     * as "me.dmitrygubanov40.concan:type=ConWin,id=N".
+     * Registration is optional, the window stays in memory until it is unregistered.
+     * @return name of the registered MBean
+     * @throws IllegalStateException when MBean cannot be registered
+     */
+    public ObjectName registerMBean() throws IllegalStateException {
+        final ObjectName mbeanName = ConWinMonitor.getObjectName(this.id);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        //
+        if ( server.isRegistered(mbeanName) ) return mbeanName;
+        //
+        try {
+            server.registerMBean(new ConWinMonitor(this), mbeanName);
+        } catch ( JMException jmxExc ) {
+            String excMsg = "Cannot register MBean of window " + this.id + ": " + jmxExc.getMessage();
+            throw new IllegalStateException(excMsg);
+        }
+        //
+        return mbeanName;
+    }
+    
+    /**
+     * Remove the window's MBean (if it was registered).
+     */
+    public void unregisterMBean() {
+        final ObjectName mbeanName = ConWinMonitor.getObjectName(this.id);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        //
+        try {
+            if ( server.isRegistered(mbeanName) ) server.unregisterMBean(mbeanName);
+        } catch ( JMException jmxExc ) {
+            // was unregistered at the same time
+        }
+    }
+    
+    /**
+     * The window is not used any more: its queue is stopped, its MBean is unregistered
+     * and its output accounting scope is forgotten (global counters keep its values).
+     */
+    public void dispose() {
+        this.stopQueue();
+        this.unregisterMBean();
+        OutputStats.removeScope(this.getStatsScope());
     }
     
     /**
      * Get left top coordinate fo output text zone in the window.
      * @return ConCord zone start position
      */
-    private ConCord getZonePos() {
+    ConCord getZonePos() {
         final ConCord zonePosShift = new ConCord(this.border.getLeftWidth(), this.border.getTopWidth());
         final ConCord winZonePos = this.position.plus(zonePosShift);
         //
@@ -193,7 +583,7 @@ public class ConWin
      * Calculate real width for text zone (output area).
      * @return width (in characters)
      */
-    private int getZoneWidth() {
+    int getZoneWidth() {
         int zoneWidth = this.width - this.border.getLeftWidth() - this.border.getRightWidth();
         //
         return zoneWidth;
@@ -202,7 +592,7 @@ public class ConWin
      * Calculate real height for text zone (output area).
      * @return height (in characters)
      */
-    private int getZoneHeight() {
+    int getZoneHeight() {
         int zoneHeight = this.height - this.border.getTopWidth() - this.border.getBottomWidth();
         //
         return zoneHeight;
@@ -355,39 +745,356 @@ public class ConWin
     /**
      * This text will be put into window (exactly to the end of current text).
      * After text is added buffer is flushed (to wee the result immediately).
+     * Prints from different threads are done one by one.
      * @param strData text line we send to output in window output zone
      * @throws NullPointerException if there is no string to output
      */
     public void print(final String strData) throws NullPointerException {
-        if ( null == strData ) {
+        this.printChars(strData, false);
+    }
+    /**
+     * Text is copied into window's buffer as it is, no string is created
+     * (the caller may reuse its 'StringBuilder' after the call).
+     * @param charsData text we send to output in window output zone
+     * @throws NullPointerException if there is no text to output
+     */
+    public void print(final CharSequence charsData) throws NullPointerException {
+        this.printChars(charsData, false);
+    }
+    /**
+     * @param chars array with text we send to output in window output zone
+     * @param offset first char of the text
+     * @param length number of chars in the text
+     * @throws NullPointerException if there is no array
+     * @throws IndexOutOfBoundsException when the text is out of the array
+     */
+    public void print(final char[] chars, final int offset, final int length)
+                    throws NullPointerException, IndexOutOfBoundsException {
+        if ( null == chars ) {
+            String excMsg = "There are no chars to print in window";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.printChars(CharBuffer.wrap(chars, offset, length), false);
+    }
+    public void print(final int number) {
+        this.printChars(ConWin.formatNumber().append(number), false);
+    }
+    public void print(final long number) {
+        this.printChars(ConWin.formatNumber().append(number), false);
+    }
+    public void print(final double number) {
+        this.printChars(ConWin.formatNumber().append(number), false);
+    }
+    /**
+     * New line version of 'print'.
+     * @param strData text line we send to output in window output zone with '\n'
+     */
+    public void println(final String strData) {
+        // (as with string concatenation: 'null' is printed)
+        this.printChars(String.valueOf(strData), true);
+    }
+    public void println(final CharSequence charsData) {
+        this.printChars(charsData, true);
+    }
+    public void println(final int number) {
+        this.printChars(ConWin.formatNumber().append(number), true);
+    }
+    public void println(final long number) {
+        this.printChars(ConWin.formatNumber().append(number), true);
+    }
+    public void println(final double number) {
+        this.printChars(ConWin.formatNumber().append(number), true);
+    }
+    
+    /**
+     * @return empty builder of the thread to format a number in
+     */
+    private static StringBuilder formatNumber() {
+        final StringBuilder chars = ConWin.numberChars.get();
+        chars.setLength(0);
+        //
+        return chars;
+    }
+    
+    /**
+     * Common body of all prints.
+     * @param charsData text we send to output in window output zone
+     * @param isNewLine put new line after the text
+     * @throws NullPointerException if there is no text to output
+     */
+    private void printChars(final CharSequence charsData, final boolean isNewLine)
+                    throws NullPointerException {
+        if ( null == charsData ) {
             String excMsg = "There is no string to print in window";
             throw new NullPointerException(excMsg);
         }
         //
-        if ( strData.length() <= 0 ) {
+        if ( charsData.length() <= 0 && !isNewLine ) {
             // no real job
             return;
         }
         //
-        this.zone.print(strData);
-        this.zone.flush();
+        this.printInZone(charsData, isNewLine);
     }
+    
     /**
-     * New line version of 'print'.
-     * @param strData text line we send to output in window output zone with '\n'
+     * Formatted text is rendered into the window buffer directly
+     * (see 'ConWinFormat' for conversions and color directives).
+     * @param format compiled format
+     * @param args arguments of the format ('ConWinFormat.args()' can be used)
+     * @throws NullPointerException if there is no format
+     * @throws IllegalArgumentException when arguments do not suit the format
      */
-    public void println(final String strData) {
-        final String strDataNewLine = strData + ConUt.LF;
+    public void printf(final ConWinFormat format, final ConWinFormat.Args args)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == format ) {
+            String excMsg = "There is no format to print in window";
+            throw new NullPointerException(excMsg);
+        }
+        format.checkArgs(args);
+        //
+        this.printInZone(format, args);
+    }
+    /**
+     * @param pattern format string (compiled once and cached)
+     * @param args arguments of the format
+     */
+    public void printf(final String pattern, final ConWinFormat.Args args) {
+        this.printf(ConWinFormat.of(pattern), args);
+    }
+    /**
+     * Convenient version with boxed arguments (not allocation-free).
+     * @param pattern format string (compiled once and cached)
+     * @param args arguments of the format
+     */
+    public void printf(final String pattern, final Object... args) {
+        final ConWinFormat.Args formatArgs = ConWinFormat.args();
+        for ( Object curArg : args ) formatArgs.addObject(curArg);
+        //
+        this.printf(ConWinFormat.of(pattern), formatArgs);
+    }
+    
+    /**
+     * Styled text of the markup is put into the window buffer with ready
+     * escape sequences (see 'ConWinMarkup' for tags and placeholders).
+     * @param markup compiled markup
+     * @param args values of the placeholders
+     * @throws NullPointerException if there is no markup
+     * @throws IllegalArgumentException when there are less values than placeholders
+     */
+    public void printMarkup(final ConWinMarkup markup, final CharSequence... args)
+                    throws NullPointerException, IllegalArgumentException {
+        this.printMarkup(markup, args, false);
+    }
+    /**
+     * @param markup markup string (compiled once and cached)
+     * @param args values of the placeholders
+     */
+    public void printMarkup(final String markup, final CharSequence... args) {
+        this.printMarkup(ConWinMarkup.of(markup), args, false);
+    }
+    public void printlnMarkup(final ConWinMarkup markup, final CharSequence... args) {
+        this.printMarkup(markup, args, true);
+    }
+    public void printlnMarkup(final String markup, final CharSequence... args) {
+        this.printMarkup(ConWinMarkup.of(markup), args, true);
+    }
+    private void printMarkup(final ConWinMarkup markup, final CharSequence[] args, final boolean isNewLine)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == markup ) {
+            String excMsg = "There is no markup to print in window";
+            throw new NullPointerException(excMsg);
+        }
+        markup.checkArgs(args);
+        //
+        this.printInZone(markup, args, isNewLine);
+    }
+    
+    /**
+     * Styled text goes to the window without any parsing
+     * (see 'ConStyledText').
+     * @param styled text to print
+     * @throws NullPointerException if there is no styled text
+     */
+    public void print(final ConStyledText styled) throws NullPointerException {
+        this.printStyled(styled, false);
+    }
+    public void println(final ConStyledText styled) throws NullPointerException {
+        this.printStyled(styled, true);
+    }
+    private void printStyled(final ConStyledText styled, final boolean isNewLine)
+                    throws NullPointerException {
+        if ( null == styled ) {
+            String excMsg = "There is no styled text to print in window";
+            throw new NullPointerException(excMsg);
+        }
         //
-        this.print(strDataNewLine);
+        this.printInZone(styled, isNewLine);
+    }
+    
+    /**
+     * Print of text prepared for many windows (see 'ConWinGroup').
+     * @param pieces prepared text
+     * @param isNewLine put new line after the text
+     */
+    void printPieces(final ConWinPieces pieces, final boolean isNewLine) {
+        this.printInZone(pieces, isNewLine);
+    }
+    
+    /**
+     * Everything the window printed goes to the terminal immediately,
+     * even when the output is held by 'OutputSink' (coalescing).
+     */
+    public void flush() {
+        synchronized ( this.printLock ) {
+            this.zone.flush();
+        }
+        OutputSink.flush();
+    }
+    
+    /**
+     * One print in the zone: prints from different threads are done one by one,
+     * the buffer is flushed after it, and its time is measured.
+     * With the output queue the print is only queued: the queue gets a copy
+     * (the caller may change its data after the call). Without the queue
+     * nothing is allocated for the print.
+     * @param chars text to print
+     * @param isNewLine put new line after the text
+     */
+    private void printInZone(final CharSequence chars, final boolean isNewLine) {
+        final ConWinQueue curQueue = this.queue;
+        if ( null != curQueue && curQueue.offer(new ConWinText(chars).toQueued(), isNewLine) ) return;
+        // no queue, or it is stopped meanwhile (and its prints are done)
+        this.printNow(chars, isNewLine);
+    }
+    private void printInZone(final ConWinFormat format, final ConWinFormat.Args args) {
+        final ConWinQueue curQueue = this.queue;
+        if ( null != curQueue && curQueue.offer(new ConWinFormat.Print(format, args).toQueued(), false) ) return;
+        this.printNow(format, args);
+    }
+    private void printInZone(final ConWinMarkup markup, final CharSequence[] args, final boolean isNewLine) {
+        final ConWinQueue curQueue = this.queue;
+        if ( null != curQueue && curQueue.offer(new ConWinMarkup.Print(markup, args).toQueued(), isNewLine) ) return;
+        this.printNow(markup, args, isNewLine);
+    }
+    private void printInZone(final ConWinPrintable printable, final boolean isNewLine) {
+        final ConWinQueue curQueue = this.queue;
+        if ( null != curQueue && curQueue.offer(printable.toQueued(), isNewLine) ) return;
+        this.printNow(printable, isNewLine);
+    }
+    
+    /**
+     * Print in the calling thread (the window's queue does it as well).
+     * @param printable what to print
+     * @param isNewLine put new line after the text
+     */
+    void printNow(final ConWinPrintable printable, final boolean isNewLine) {
+        final long startNs = this.beginPrintNow();
+        try {
+            synchronized ( this.printLock ) {
+                final PrintLatency latency = this.beginZonePrint(startNs);
+                printable.printTo(this.zone, isNewLine);
+                this.endZonePrint(latency);
+            }
+        } finally {
+            this.endPrintNow(startNs);
+        }
+    }
+    private void printNow(final CharSequence chars, final boolean isNewLine) {
+        final long startNs = this.beginPrintNow();
+        try {
+            synchronized ( this.printLock ) {
+                final PrintLatency latency = this.beginZonePrint(startNs);
+                if ( isNewLine ) this.zone.println(chars);
+                else             this.zone.print(chars);
+                this.endZonePrint(latency);
+            }
+        } finally {
+            this.endPrintNow(startNs);
+        }
+    }
+    private void printNow(final ConWinFormat format, final ConWinFormat.Args args) {
+        final long startNs = this.beginPrintNow();
+        try {
+            synchronized ( this.printLock ) {
+                final PrintLatency latency = this.beginZonePrint(startNs);
+                format.printTo(this.zone, args, false);
+                this.endZonePrint(latency);
+            }
+        } finally {
+            this.endPrintNow(startNs);
+        }
+    }
+    private void printNow(final ConWinMarkup markup, final CharSequence[] args, final boolean isNewLine) {
+        final long startNs = this.beginPrintNow();
+        try {
+            synchronized ( this.printLock ) {
+                final PrintLatency latency = this.beginZonePrint(startNs);
+                markup.printTo(this.zone, args, isNewLine);
+                this.endZonePrint(latency);
+            }
+        } finally {
+            this.endPrintNow(startNs);
+        }
+    }
+    
+    /**
+     * @return start of the print (it is waiting for the window from now on)
+     */
+    private long beginPrintNow() {
+        final long startNs = System.nanoTime();
+        this.pendingPrints.incrementAndGet();
+        return startNs;
+    }
+    
+    /**
+     * Under the print lock: the print itself starts.
+     * @param startNs start of the print
+     * @return phases of the print, 'null' when they are not measured
+     */
+    private PrintLatency beginZonePrint(final long startNs) {
+        final PrintLatency latency = this.printLatency;
+        if ( null != latency ) latency.beginPrint(startNs);
+        return latency;
+    }
+    
+    /**
+     * Under the print lock: the print goes to the terminal.
+     * @param latency phases of the print ('beginZonePrint()')
+     */
+    private void endZonePrint(final PrintLatency latency) {
+        this.zone.flush();
+        if ( null != latency ) latency.endPrint();
+    }
+    
+    /**
+     * @param startNs start of the print ('beginPrintNow()')
+     */
+    private void endPrintNow(final long startNs) {
+        this.pendingPrints.decrementAndGet();
+        if ( OutputStats.isEnabled() ) this.renderLatency.recordSince(startNs);
     }
     
     
     
     /**
      * Public access re-drawer of border lines and the caption.
+     * With degraded output quality (slow terminal) the frame is redrawn
+     * when full quality is back (see 'OutputQuality').
      */
     public void redrawFrame() {
+        if ( OutputQuality.isDegraded() ) {
+            if ( this.isFrameRedrawDelayed.compareAndSet(false, true) ) {
+                OutputQuality.runOnRestore(this::redrawDelayedFrame);
+            }
+            return;
+        }
+        //
+        final JfrFrameRenderEvent jfrEvent = new JfrFrameRenderEvent();
+        final long bytesBefore = jfrEvent.isEnabled() ? OutputStats.global().getBytes() : 0;
+        jfrEvent.begin();
+        //
         Term.get().save();
         //
         // these methods do not save and restore console state:
@@ -396,6 +1103,19 @@ public class ConWin
         this.refreshCaption();
         //
         Term.get().restore();
+        //
+        if ( jfrEvent.shouldCommit() ) {
+            jfrEvent.windowId = this.id;
+            jfrEvent.bytes = OutputStats.global().getBytes() - bytesBefore;
+            jfrEvent.commit();
+        }
+    }
+    
+    private void redrawDelayedFrame() {
+        this.isFrameRedrawDelayed.set(false);
+        synchronized ( this.printLock ) {
+            this.redrawFrame();
+        }
     }
     
     
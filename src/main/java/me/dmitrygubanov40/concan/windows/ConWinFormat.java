@@ -0,0 +1,646 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConStyles;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+
+
+/**
+ * Compiled printf-style format for 'ConWin.printf()'.
+ * The format string is parsed once (and cached by 'of()'), then each print
+ * renders primitive arguments straight into a reused per-thread builder:
+ * no boxing, no temporary strings.
+ * Conversions: '%[-][0][+][width][.precision](d|f|s)', '%n' and '%%'.
+ *  - d: 'int'/'long',
+ *  - f: 'double' (or 'long') with fixed precision (6 by default), rounded half up,
+ *  - s: any 'CharSequence' (precision cuts it), numbers are allowed as well.
+ * Directives '%{name}' are compiled into ready escape sequences:
+ * '%{red}' - text color ('ConCol' name), '%{bg:navy}' - background,
+ * '%{bold}' - style ('ConStyles' name), '%{default}'/'%{bg:default}' - default colors.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConWinFormat
+{
+    
+    private static final int DEFAULT_PRECISION;
+    private static final int MAX_PRECISION;
+    // doubles with more digits (than a double keeps exactly) are formatted by 'String.format()'
+    private static final double MAX_FIXED_VALUE;
+    private static final long[] POWERS_OF_TEN;
+    
+    // kinds of segments (except conversion chars)
+    private static final char LITERAL;
+    private static final char COMMAND;
+    
+    // compiled formats by their strings (not more than 'MAX_CACHED')
+    private static final Map<String, ConWinFormat> cache;
+    private static final int MAX_CACHED;
+    
+    // each thread renders and collects its arguments here
+    private static final ThreadLocal<StringBuilder> renderChars;
+    private static final ThreadLocal<Args> threadArgs;
+    
+    static {
+        DEFAULT_PRECISION = 6;
+        MAX_PRECISION = 15;
+        MAX_FIXED_VALUE = 1e14;
+        POWERS_OF_TEN = new long[ 19 ];
+        POWERS_OF_TEN[ 0 ] = 1L;
+        for ( int i = 1; i < POWERS_OF_TEN.length; i++ ) POWERS_OF_TEN[ i ] = POWERS_OF_TEN[ i - 1 ] * 10L;
+        //
+        LITERAL = 0;
+        COMMAND = 1;
+        //
+        cache = new ConcurrentHashMap<>();
+        MAX_CACHED = 1024;
+        //
+        renderChars = ThreadLocal.withInitial(StringBuilder::new);
+        threadArgs = ThreadLocal.withInitial(Args::new);
+    }
+    
+    ////////////
+    
+    /**
+     * Arguments of one print, kept as primitives.
+     * Reuse it ('clear()'), or take the thread's one with 'ConWinFormat.args()'.
+     */
+    public static final class Args
+    {
+        public static final int MAX_ARGS;
+    
+        private static final byte KIND_LONG;
+        private static final byte KIND_DOUBLE;
+        private static final byte KIND_TEXT;
+    
+        static {
+            MAX_ARGS = 16;
+            //
+            KIND_LONG = 0;
+            KIND_DOUBLE = 1;
+            KIND_TEXT = 2;
+        }
+    
+        private final byte[] kinds;
+        private final long[] longs;
+        private final double[] doubles;
+        private final CharSequence[] texts;
+        private int count;
+    
+        public Args() {
+            this.kinds = new byte[ MAX_ARGS ];
+            this.longs = new long[ MAX_ARGS ];
+            this.doubles = new double[ MAX_ARGS ];
+            this.texts = new CharSequence[ MAX_ARGS ];
+            this.count = 0;
+        }
+    
+        public Args add(final long value) {
+            this.kinds[ this.next() ] = KIND_LONG;
+            this.longs[ this.count++ ] = value;
+            return this;
+        }
+        public Args add(final int value) {
+            return this.add((long) value);
+        }
+        public Args add(final double value) {
+            this.kinds[ this.next() ] = KIND_DOUBLE;
+            this.doubles[ this.count++ ] = value;
+            return this;
+        }
+        public Args add(final CharSequence value) {
+            this.kinds[ this.next() ] = KIND_TEXT;
+            this.texts[ this.count++ ] = (null == value) ? "null" : value;
+            return this;
+        }
+    
+        /**
+         * Boxed argument (numbers and texts are recognized).
+         * @param value any argument
+         * @return the arguments
+         */
+        public Args addObject(final Object value) {
+            if ( value instanceof Double || value instanceof Float ) {
+                return this.add(((Number) value).doubleValue());
+            }
+            if ( value instanceof Number ) {
+                return this.add(((Number) value).longValue());
+            }
+            if ( value instanceof CharSequence ) {
+                return this.add((CharSequence) value);
+            }
+            return this.add(String.valueOf(value));
+        }
+    
+        public int getCount() {
+            return this.count;
+        }
+    
+        /**
+         * Forget all the arguments (and references to texts).
+         * @return the arguments
+         */
+        public Args clear() {
+            for ( int i = 0; i < this.count; i++ ) this.texts[ i ] = null;
+            this.count = 0;
+            return this;
+        }
+    
+        private int next() throws IllegalStateException {
+            if ( this.count >= MAX_ARGS ) {
+                String excMsg = "Format cannot have more than " + MAX_ARGS + " arguments";
+                throw new IllegalStateException(excMsg);
+            }
+            return this.count;
+        }
+    }
+    
+    /**
+     * Format with its arguments as a print of a window.
+     */
+    static final class Print implements ConWinPrintable
+    {
+        private final ConWinFormat format;
+        private final Args args;
+    
+        Print(final ConWinFormat initFormat, final Args initArgs) {
+            this.format = initFormat;
+            this.args = initArgs;
+        }
+    
+        @Override
+        public void printTo(final ConWinOut zone, final boolean isNewLine) {
+            this.format.printTo(zone, this.args, isNewLine);
+        }
+    
+        @Override
+        public int length() {
+            return this.format.pattern.length();
+        }
+    
+        /**
+         * @return rendered text (the caller may reuse its arguments)
+         */
+        @Override
+        public ConWinPrintable toQueued() {
+            return new ConWinText(this.format.render(this.args).toString());
+        }
+    }
+    
+    ////////////
+    
+    /**
+     * Compiled piece of the format.
+     */
+    private static final class Segment
+    {
+        // 0 - literal text, 1 - command, or conversion char
+        private final char kind;
+        private final String text;
+        private final boolean isLeft;
+        private final boolean isZeroPad;
+        private final boolean isPlus;
+        private final int width;
+        private final int precision;
+    
+        private Segment(final char initKind,
+                        final String initText,
+                        final boolean initLeft,
+                        final boolean initZeroPad,
+                        final boolean initPlus,
+                        final int initWidth,
+                        final int initPrecision) {
+            this.kind = initKind;
+            this.text = initText;
+            this.isLeft = initLeft;
+            this.isZeroPad = initZeroPad;
+            this.isPlus = initPlus;
+            this.width = initWidth;
+            this.precision = initPrecision;
+        }
+    
+        private boolean isLiteral() {
+            return ( LITERAL == this.kind );
+        }
+        private boolean isCommand() {
+            return ( COMMAND == this.kind );
+        }
+    }
+    
+    ////////////
+    
+    private final String pattern;
+    private final Segment[] segments;
+    private final int argsCount;
+    
+    
+    
+    /**
+     * @param initPattern format string
+     * @throws NullPointerException when there is no format
+     * @throws IllegalArgumentException with bad conversion or directive
+     */
+    public ConWinFormat(final String initPattern)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == initPattern ) {
+            String excMsg = "There is no format string to compile";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.pattern = initPattern;
+        this.segments = ConWinFormat.compile(initPattern);
+        //
+        int conversions = 0;
+        for ( Segment curSegment : this.segments ) {
+            if ( !curSegment.isLiteral() && !curSegment.isCommand() ) conversions++;
+        }
+        this.argsCount = conversions;
+    }
+    
+    /**
+     * Compiled format from the cache (compiled at first use).
+     * @param pattern format string
+     * @return the format
+     */
+    public static ConWinFormat of(final String pattern) {
+        ConWinFormat format = ConWinFormat.cache.get(pattern);
+        if ( null != format ) return format;
+        //
+        format = new ConWinFormat(pattern);
+        if ( ConWinFormat.cache.size() < ConWinFormat.MAX_CACHED ) {
+            ConWinFormat.cache.putIfAbsent(pattern, format);
+        }
+        return format;
+    }
+    
+    /**
+     * @return empty arguments of the thread (valid until the next call in the thread)
+     */
+    public static Args args() {
+        return ConWinFormat.threadArgs.get().clear();
+    }
+    
+    
+    
+    public String getPattern() {
+        return this.pattern;
+    }
+    
+    /**
+     * @return number of arguments the format needs
+     */
+    public int getArgsCount() {
+        return this.argsCount;
+    }
+    
+    
+    
+    /**
+     * Parse the format into segments.
+     * Non-printable chars of literal text become separate commands
+     * (window buffer parses them one by one anyway).
+     */
+    private static Segment[] compile(final String pattern) throws IllegalArgumentException {
+        List<Segment> result = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        //
+        int i = 0;
+        while ( i < pattern.length() ) {
+            final char curChar = pattern.charAt(i);
+            if ( '%' != curChar ) {
+                if ( ConUt.isPrintableChar(curChar) ) {
+                    literal.append(curChar);
+                } else {
+                    ConWinFormat.addLiteral(result, literal);
+                    result.add(ConWinFormat.command(String.valueOf(curChar)));
+                }
+                i++;
+                continue;
+            }
+            //
+            if ( i + 1 >= pattern.length() ) {
+                throw ConWinFormat.badFormat(pattern, i);
+            }
+            final char nextChar = pattern.charAt(i + 1);
+            if ( '%' == nextChar ) {
+                literal.append('%');
+                i += 2;
+                continue;
+            }
+            if ( 'n' == nextChar ) {
+                ConWinFormat.addLiteral(result, literal);
+                result.add(ConWinFormat.command(ConUt.LF));
+                i += 2;
+                continue;
+            }
+            if ( '{' == nextChar ) {
+                final int closeIndex = pattern.indexOf('}', i + 2);
+                if ( closeIndex < 0 ) throw ConWinFormat.badFormat(pattern, i);
+                ConWinFormat.addLiteral(result, literal);
+                result.add(ConWinFormat.command(ConWinFormat.directive(pattern.substring(i + 2, closeIndex))));
+                i = closeIndex + 1;
+                continue;
+            }
+            //
+            // conversion: flags, width, precision, char
+            int index = i + 1;
+            boolean isLeft = false;
+            boolean isZeroPad = false;
+            boolean isPlus = false;
+            for ( ; index < pattern.length(); index++ ) {
+                final char flag = pattern.charAt(index);
+                if ( '-' == flag )      isLeft = true;
+                else if ( '0' == flag ) isZeroPad = true;
+                else if ( '+' == flag ) isPlus = true;
+                else break;
+            }
+            int width = 0;
+            while ( index < pattern.length() && Character.isDigit(pattern.charAt(index)) ) {
+                width = width * 10 + (pattern.charAt(index++) - '0');
+            }
+            int precision = -1;
+            if ( index < pattern.length() && '.' == pattern.charAt(index) ) {
+                precision = 0;
+                index++;
+                while ( index < pattern.length() && Character.isDigit(pattern.charAt(index)) ) {
+                    precision = precision * 10 + (pattern.charAt(index++) - '0');
+                }
+            }
+            if ( index >= pattern.length() ) throw ConWinFormat.badFormat(pattern, i);
+            //
+            final char conversion = pattern.charAt(index);
+            switch ( conversion ) {
+                case 'd':
+                    if ( precision >= 0 ) throw ConWinFormat.badFormat(pattern, i);
+                    break;
+                case 'f':
+                    if ( precision < 0 ) precision = DEFAULT_PRECISION;
+                    if ( precision > MAX_PRECISION ) throw ConWinFormat.badFormat(pattern, i);
+                    break;
+                case 's':
+                    if ( isZeroPad || isPlus ) throw ConWinFormat.badFormat(pattern, i);
+                    break;
+                default:
+                    throw ConWinFormat.badFormat(pattern, i);
+            }
+            ConWinFormat.addLiteral(result, literal);
+            result.add(new Segment(conversion, null, isLeft, isZeroPad && !isLeft, isPlus, width, precision));
+            i = index + 1;
+        }
+        ConWinFormat.addLiteral(result, literal);
+        //
+        return result.toArray(new Segment[ 0 ]);
+    }
+    
+    private static void addLiteral(final List<Segment> result, final StringBuilder literal) {
+        if ( literal.length() <= 0 ) return;
+        //
+        result.add(new Segment(LITERAL, literal.toString(), false, false, false, 0, -1));
+        literal.setLength(0);
+    }
+    
+    private static Segment command(final String cmd) {
+        return new Segment(COMMAND, cmd, false, false, false, 0, -1);
+    }
+    
+    /**
+     * @param name directive inside '%{...}'
+     * @return escape sequence of the directive
+     * @throws IllegalArgumentException for unknown color or style
+     */
+    static String directive(final String name) throws IllegalArgumentException {
+        String key = name.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+        boolean isBackground = false;
+        if ( key.startsWith("BG:") ) {
+            isBackground = true;
+            key = key.substring(3).trim();
+        }
+        //
+        if ( "DEFAULT".equals(key) ) {
+            return isBackground ? ConUt.BACKGROUND_DEFAULT : ConUt.COLOR_DEFAULT;
+        }
+        for ( ConCol curColor : ConCol.values() ) {
+            if ( curColor.name().equals(key) ) {
+                return isBackground ? ConUt.BACKGROUND(curColor) : ConUt.COLOR(curColor);
+            }
+        }
+        if ( !isBackground ) {
+            for ( ConStyles curStyle : ConStyles.values() ) {
+                if ( ConStyles.NONE != curStyle && curStyle.getStyleName().equals(key) ) {
+                    return curStyle.getStyleCmd();
+                }
+            }
+        }
+        //
+        String excMsg = "Unknown color or style in format directive: '" + name + "'";
+        throw new IllegalArgumentException(excMsg);
+    }
+    
+    private static IllegalArgumentException badFormat(final String pattern, final int index) {
+        String excMsg = "Bad conversion in format '" + pattern + "' at index " + index;
+        return new IllegalArgumentException(excMsg);
+    }
+    
+    
+    
+    /**
+     * Render the format with the arguments to text (commands are in it as well).
+     * @param args arguments of conversions in order
+     * @return thread's builder with the text (valid until the next render in the thread)
+     * @throws IllegalArgumentException when arguments do not suit the format
+     */
+    public CharSequence render(final Args args) throws IllegalArgumentException {
+        final StringBuilder out = ConWinFormat.renderChars.get();
+        out.setLength(0);
+        this.checkArgs(args);
+        //
+        int argIndex = 0;
+        for ( Segment curSegment : this.segments ) {
+            if ( curSegment.isLiteral() || curSegment.isCommand() ) {
+                out.append(curSegment.text);
+            } else {
+                this.renderArg(out, curSegment, args, argIndex++);
+            }
+        }
+        //
+        return out;
+    }
+    
+    /**
+     * Print into the zone: text runs are copied straight from the rendered chars,
+     * commands are sent as precompiled strings.
+     * @param zone where to print
+     * @param args arguments of conversions in order
+     * @param isNewLine put new line after the text
+     */
+    void printTo(final ConWinOut zone, final Args args, final boolean isNewLine) {
+        final StringBuilder out = ConWinFormat.renderChars.get();
+        out.setLength(0);
+        this.checkArgs(args);
+        //
+        int argIndex = 0;
+        int runStart = 0;
+        for ( int i = 0; i < this.segments.length; i++ ) {
+            final Segment curSegment = this.segments[ i ];
+            if ( curSegment.isCommand() ) {
+                zone.addToZone(out, runStart, out.length());
+                runStart = out.length();
+                // new line at the very end is printed as 'print()' does it
+                final boolean isLast = (i == this.segments.length - 1);
+                if ( isLast && !isNewLine && ConUt.LF.equals(curSegment.text) ) {
+                    zone.addToZone(ConUt.BLF);
+                } else {
+                    zone.addToZone(curSegment.text);
+                }
+            } else if ( curSegment.isLiteral() ) {
+                out.append(curSegment.text);
+            } else {
+                this.renderArg(out, curSegment, args, argIndex++);
+            }
+        }
+        //
+        if ( isNewLine ) {
+            zone.addToZone(out, runStart, out.length());
+            zone.addToZone(ConUt.BLF);
+        } else {
+            zone.print(out, runStart, out.length());
+        }
+    }
+    
+    /**
+     * @param args arguments to check
+     * @throws IllegalArgumentException when number of arguments is not the format's one
+     */
+    void checkArgs(final Args args) throws IllegalArgumentException {
+        if ( null == args || args.getCount() != this.argsCount ) {
+            String excMsg = "Format '" + this.pattern + "' needs " + this.argsCount + " arguments, given: "
+                                + ((null == args) ? 0 : args.getCount());
+            throw new IllegalArgumentException(excMsg);
+        }
+    }
+    
+    
+    
+    private void renderArg(final StringBuilder out,
+                            final Segment segment,
+                            final Args args,
+                            final int argIndex)
+                    throws IllegalArgumentException {
+        final int start = out.length();
+        final byte kind = args.kinds[ argIndex ];
+        //
+        switch ( segment.kind ) {
+            case 'd':
+                if ( Args.KIND_LONG != kind ) throw this.badArg(segment, argIndex);
+                if ( segment.isPlus && args.longs[ argIndex ] >= 0 ) out.append('+');
+                out.append(args.longs[ argIndex ]);
+                break;
+            case 'f':
+                if ( Args.KIND_TEXT == kind ) throw this.badArg(segment, argIndex);
+                final double value = (Args.KIND_DOUBLE == kind)
+                                        ? args.doubles[ argIndex ]
+                                        : (double) args.longs[ argIndex ];
+                ConWinFormat.appendFixed(out, value, segment.precision, segment.isPlus);
+                break;
+            case 's':
+            default:
+                if ( Args.KIND_TEXT == kind ) {
+                    final CharSequence text = args.texts[ argIndex ];
+                    final int end = (segment.precision >= 0)
+                                        ? Math.min(segment.precision, text.length())
+                                        : text.length();
+                    out.append(text, 0, end);
+                } else if ( Args.KIND_LONG == kind ) {
+                    out.append(args.longs[ argIndex ]);
+                } else {
+                    out.append(args.doubles[ argIndex ]);
+                }
+                break;
+        }
+        //
+        ConWinFormat.pad(out, start, segment);
+    }
+    
+    private IllegalArgumentException badArg(final Segment segment, final int argIndex) {
+        String excMsg = "Argument " + argIndex + " does not suit conversion '%" + segment.kind
+                            + "' of format '" + this.pattern + "'";
+        return new IllegalArgumentException(excMsg);
+    }
+    
+    /**
+     * Fixed-point double without 'Double.toString()': rounded to a long of the precision.
+     */
+    private static void appendFixed(final StringBuilder out,
+                                    final double value,
+                                    final int precision,
+                                    final boolean isPlus) {
+        if ( Double.isNaN(value) || Double.isInfinite(value) ) {
+            if ( isPlus && value > 0 ) out.append('+');
+            out.append(value);
+            return;
+        }
+        final boolean isNegative = (value < 0.0) || (0.0 == value && 1.0 / value < 0.0);
+        final double abs = Math.abs(value);
+        final double scaledValue = abs * POWERS_OF_TEN[ precision ];
+        long scaled = (long) scaledValue;
+        if ( abs >= MAX_FIXED_VALUE / POWERS_OF_TEN[ precision ] ) {
+            // too many digits for a long: decimal rounding is needed (rare, allocates)
+            out.append(String.format(Locale.ROOT, (isPlus ? "%+." : "%.") + precision + "f", value));
+            return;
+        }
+        // half-up as 'String.format()' does: a tie is the decimal whose double the value is
+        // ('1.035' is one, though its double is less), other values are compared exactly
+        final double tie = (2 * scaled + 1) / (2.0 * POWERS_OF_TEN[ precision ]);
+        if ( tie == abs || Math.fma(abs, POWERS_OF_TEN[ precision ], -(scaled + 0.5)) > 0 ) scaled++;
+        //
+        final long intPart = scaled / POWERS_OF_TEN[ precision ];
+        final long fracPart = scaled % POWERS_OF_TEN[ precision ];
+        //
+        if ( isNegative )   out.append('-');
+        else if ( isPlus )  out.append('+');
+        out.append(intPart);
+        if ( precision > 0 ) {
+            out.append('.');
+            for ( int i = precision - 1; i > 0 && fracPart < POWERS_OF_TEN[ i ]; i-- ) out.append('0');
+            out.append(fracPart);
+        }
+    }
+    
+    /**
+     * Pad the rendered field up to the width.
+     */
+    private static void pad(final StringBuilder out, final int start, final Segment segment) {
+        final int padding = segment.width - (out.length() - start);
+        if ( padding <= 0 ) return;
+        //
+        if ( segment.isLeft ) {
+            for ( int i = 0; i < padding; i++ ) out.append(' ');
+            return;
+        }
+        //
+        int padAt = start;
+        char padChar = ' ';
+        if ( segment.isZeroPad && 's' != segment.kind ) {
+            padChar = '0';
+            // zeros go after the sign
+            if ( out.length() > start && ('-' == out.charAt(start) || '+' == out.charAt(start)) ) padAt++;
+        }
+        for ( int i = 0; i < padding; i++ ) out.insert(padAt, padChar);
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ": " + this.pattern;
+    }
+    
+    
+    
+}
@@ -0,0 +1,137 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+
+/**
+ * Group of windows which get the same output (i.e. a combined log and a component's log).
+ * Text is prepared once for all the windows: it is split into text and commands,
+ * and commands are checked, only layout and output remain for each window.
+ * Styled text and markup are compiled once anyway.
+ * Windows print one by one in the order they were added.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public class ConWinGroup
+{
+    
+    private final List<ConWin> windows;
+    
+    
+    
+    /**
+     * @param initWindows windows of the group
+     * @throws NullPointerException when a window is null
+     */
+    public ConWinGroup(final ConWin... initWindows) throws NullPointerException {
+        this.windows = new CopyOnWriteArrayList<>();
+        for ( ConWin curWindow : initWindows ) {
+            this.add(curWindow);
+        }
+    }
+    
+    
+    
+    /**
+     * @param window window to add (the same window is added once)
+     * @throws NullPointerException when there is no window
+     */
+    public void add(final ConWin window) throws NullPointerException {
+        if ( null == window ) {
+            String excMsg = "Cannot add null-window to the group";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        if ( !this.windows.contains(window) ) this.windows.add(window);
+    }
+    
+    public void remove(final ConWin window) {
+        this.windows.remove(window);
+    }
+    
+    /**
+     * @return copy of the windows list
+     */
+    public List<ConWin> getWindows() {
+        return new ArrayList<>(this.windows);
+    }
+    
+    public int size() {
+        return this.windows.size();
+    }
+    
+    
+    
+    /**
+     * Print the text in all the windows.
+     * @param charsData text to print
+     * @throws NullPointerException if there is no text to output
+     */
+    public void print(final CharSequence charsData) throws NullPointerException {
+        this.printPieces(charsData, false);
+    }
+    public void println(final CharSequence charsData) throws NullPointerException {
+        this.printPieces(charsData, true);
+    }
+    
+    private void printPieces(final CharSequence charsData, final boolean isNewLine)
+                    throws NullPointerException {
+        if ( null == charsData ) {
+            String excMsg = "There is no string to print in window group";
+            throw new NullPointerException(excMsg);
+        }
+        if ( charsData.length() <= 0 && !isNewLine ) return;
+        //
+        final ConWinPieces pieces = new ConWinPieces(charsData.toString());
+        for ( ConWin curWindow : this.windows ) {
+            curWindow.printPieces(pieces, isNewLine);
+        }
+    }
+    
+    /**
+     * @param styled styled text to print in all the windows
+     * @throws NullPointerException if there is no styled text
+     */
+    public void print(final ConStyledText styled) throws NullPointerException {
+        for ( ConWin curWindow : this.windows ) {
+            curWindow.print(styled);
+        }
+    }
+    public void println(final ConStyledText styled) throws NullPointerException {
+        for ( ConWin curWindow : this.windows ) {
+            curWindow.println(styled);
+        }
+    }
+    
+    /**
+     * @param markup compiled markup to print in all the windows
+     * @param args values of the placeholders
+     * @throws NullPointerException if there is no markup
+     * @throws IllegalArgumentException when there are less values than placeholders
+     */
+    public void printMarkup(final ConWinMarkup markup, final CharSequence... args)
+                    throws NullPointerException, IllegalArgumentException {
+        for ( ConWin curWindow : this.windows ) {
+            curWindow.printMarkup(markup, args);
+        }
+    }
+    public void printlnMarkup(final ConWinMarkup markup, final CharSequence... args)
+                    throws NullPointerException, IllegalArgumentException {
+        for ( ConWin curWindow : this.windows ) {
+            curWindow.printlnMarkup(markup, args);
+        }
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName() + ": [windows: " + this.windows.size() + "]";
+        return str;
+    }
+    
+    
+    
+}
@@ -0,0 +1,306 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import me.dmitrygubanov40.concan.buffer.OutputQuality;
+import me.dmitrygubanov40.concan.buffer.OutputSink;
+import me.dmitrygubanov40.concan.paint.ConBorderRectType;
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.utility.ConCord;
+import me.dmitrygubanov40.concan.utility.ConUt;
+import me.dmitrygubanov40.concan.utility.Term;
+
+
+
+/**
+ * On-screen performance overlay of a window:
+ *  - fps: prints of the window per second,
+ *  - out: bytes per second to the terminal (HUD's own output excluded),
+ *  - flush: flushes per second (all buffers),
+ *  - queue: prints waiting for the window or in progress,
+ *  - p99: render latency of the window's prints.
+ * Values are read from lock-free counters ('OutputStats' must be enabled)
+ * at a fixed low rate by a daemon thread, and only changed cells are redrawn
+ * (with degraded 'OutputQuality' - at a lower rate).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConWinHud
+{
+    
+    public static final long DEFAULT_PERIOD_MS;
+    private static final long MIN_PERIOD_MS;
+    
+    private static final int HUD_WIDTH;
+    private static final int HUD_LINES;
+    
+    private static final String THREAD_NAME;
+    
+    static {
+        DEFAULT_PERIOD_MS = 500;
+        MIN_PERIOD_MS = 50;
+        //
+        // zone of 24 chars and 5 lines inside the single border
+        HUD_WIDTH = 26;
+        HUD_LINES = 5;
+        //
+        THREAD_NAME = "concan-hud";
+    }
+    
+    ////////////
+    
+    // window we are watching
+    private final ConWin target;
+    // window the values are shown in
+    private final ConWin hud;
+    private final long periodMs;
+    
+    // HUD writes go to the HUD window's scope (to exclude them from the rates)
+    private final OutputCounters hudCounters;
+    private final ConUt tool;
+    
+    // lines on the screen now ('null' - area is not drawn)
+    private final String[] shownLines;
+    
+    // previous sample to count rates
+    private long lastSampleNs;
+    private long lastPrints;
+    private long lastBytes;
+    private long lastFlushes;
+    
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> ticking;
+    // ticks of the timer (timer thread only)
+    private long ticks;
+    
+    
+    
+    /**
+     * Create hidden HUD, see 'show()'.
+     * @param initPos left top corner of the HUD
+     * @param initTarget window to watch
+     * @param initPeriodMs time between updates
+     * @throws NullPointerException when there is no position or window
+     * @throws IllegalArgumentException with too short period
+     */
+    public ConWinHud(final ConCord initPos, final ConWin initTarget, final long initPeriodMs)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == initPos || null == initTarget ) {
+            String excMsg = "HUD needs a position and a window to watch";
+            throw new NullPointerException(excMsg);
+        }
+        if ( initPeriodMs < ConWinHud.MIN_PERIOD_MS ) {
+            String excMsg = "HUD update period must be at least " + ConWinHud.MIN_PERIOD_MS
+                                + " ms, given: " + initPeriodMs;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.target = initTarget;
+        this.periodMs = initPeriodMs;
+        this.hud = new ConWin.Builder()
+                            .size(ConWinHud.HUD_WIDTH, ConWinHud.HUD_LINES + 2)
+                            .pos(initPos)
+                            .border(ConBorderRectType.SINGLE)
+                            .caption("HUD #" + initTarget.getId())
+                            .ready();
+        //
+        this.hudCounters = OutputStats.scope(this.hud.getStatsScope());
+        this.tool = new ConUt();
+        this.tool.setOutputCounters(this.hudCounters);
+        //
+        this.shownLines = new String[ ConWinHud.HUD_LINES ];
+        this.timer = null;
+        this.ticking = null;
+        this.ticks = 0;
+    }
+    public ConWinHud(final ConCord initPos, final ConWin initTarget) {
+        this(initPos, initTarget, ConWinHud.DEFAULT_PERIOD_MS);
+    }
+    
+    
+    
+    public ConWin getTarget() {
+        return this.target;
+    }
+    
+    public long getPeriodMs() {
+        return this.periodMs;
+    }
+    
+    public synchronized boolean isVisible() {
+        return (null != this.ticking);
+    }
+    
+    
+    
+    /**
+     * Draw the HUD and start updates.
+     */
+    public synchronized void show() {
+        if ( this.isVisible() ) return;
+        //
+        if ( null == this.timer ) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread hudThread = new Thread(task, ConWinHud.THREAD_NAME);
+                hudThread.setDaemon(true);
+                return hudThread;
+            });
+        }
+        //
+        synchronized ( this.target.getPrintLock() ) {
+            this.hud.clearPlaceForWindow();
+            this.hud.redrawFrame();
+        }
+        // new area: every cell is to be drawn, rates start now
+        for ( int i = 0; i < this.shownLines.length; i++ ) this.shownLines[ i ] = null;
+        this.takeSample(System.nanoTime());
+        //
+        this.ticking = this.timer.scheduleAtFixedRate(this::tick,
+                                                        this.periodMs, this.periodMs,
+                                                        TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop updates and clear the HUD's area.
+     */
+    public synchronized void hide() {
+        if ( !this.isVisible() ) return;
+        //
+        this.ticking.cancel(false);
+        this.ticking = null;
+        //
+        synchronized ( this.target.getPrintLock() ) {
+            this.hud.clearPlaceForWindow();
+        }
+    }
+    
+    /**
+     * Show the HUD when it is hidden, hide otherwise.
+     * @return is the HUD visible now
+     */
+    public synchronized boolean toggle() {
+        if ( this.isVisible() ) this.hide();
+        else                    this.show();
+        //
+        return this.isVisible();
+    }
+    
+    /**
+     * Hide the HUD and stop its thread (cannot be shown again).
+     */
+    public synchronized void close() {
+        this.hide();
+        this.hud.dispose();
+        //
+        if ( null != this.timer ) {
+            this.timer.shutdownNow();
+        }
+    }
+    
+    
+    
+    private void takeSample(final long sampleNs) {
+        this.lastSampleNs = sampleNs;
+        this.lastPrints = this.target.getRenderLatency().getCount();
+        this.lastBytes = OutputStats.global().getBytes() - this.hudCounters.getBytes();
+        this.lastFlushes = OutputStats.global().snapshot().getFlushes();
+    }
+    
+    /**
+     * One update (timer thread), errors must not stop the timer.
+     */
+    private void tick() {
+        // slow terminal: frames are dropped, the next drawn one has the latest values
+        if ( 0 != ++this.ticks % OutputQuality.getFrameDivisor() ) return;
+        //
+        try {
+            final String[] newLines = this.composeLines();
+            //
+            synchronized ( this ) {
+                if ( null == this.ticking ) return;// hidden meanwhile
+                synchronized ( this.target.getPrintLock() ) {
+                    this.drawChanges(newLines);
+                }
+            }
+        } catch ( RuntimeException tickExc ) {
+            // the next tick will try again
+        }
+    }
+    
+    /**
+     * @return current values as lines of the zone width
+     */
+    private String[] composeLines() {
+        final long prevSampleNs = this.lastSampleNs;
+        final long prevPrints = this.lastPrints;
+        final long prevBytes = this.lastBytes;
+        final long prevFlushes = this.lastFlushes;
+        //
+        final long sampleNs = System.nanoTime();
+        this.takeSample(sampleNs);
+        final double seconds = Math.max(1L, sampleNs - prevSampleNs) / 1_000_000_000.0;
+        //
+        final String[] lines = new String[ ConWinHud.HUD_LINES ];
+        lines[ 0 ] = String.format(Locale.ROOT, "fps   %10.1f", (this.lastPrints - prevPrints) / seconds);
+        lines[ 1 ] = String.format(Locale.ROOT, "out   %10.1f KB/s", (this.lastBytes - prevBytes) / seconds / 1024.0);
+        lines[ 2 ] = String.format(Locale.ROOT, "flush %10.1f /s", (this.lastFlushes - prevFlushes) / seconds);
+        lines[ 3 ] = String.format(Locale.ROOT, "queue %10d", this.target.getPendingPrints());
+        lines[ 4 ] = String.format(Locale.ROOT, "p99   %10.3f ms", this.target.getRenderLatency().getPercentileMs(99.0));
+        //
+        final int zoneWidth = this.hud.getZoneWidth();
+        for ( int i = 0; i < lines.length; i++ ) {
+            lines[ i ] = ConWinHud.fitWidth(lines[ i ], zoneWidth);
+        }
+        //
+        return lines;
+    }
+    
+    private static String fitWidth(final String line, final int width) {
+        if ( line.length() >= width ) return line.substring(0, width);
+        //
+        return line + Term.EMPTY_CHAR.repeat(width - line.length());
+    }
+    
+    /**
+     * Send only the changed part of each line.
+     * @param newLines lines to show
+     */
+    private void drawChanges(final String[] newLines) {
+        final ConCord zonePos = this.hud.getZonePos();
+        boolean isSaved = false;
+        //
+        for ( int row = 0; row < newLines.length; row++ ) {
+            final String oldLine = this.shownLines[ row ];
+            final String newLine = newLines[ row ];
+            //
+            int first = 0;
+            int last = newLine.length() - 1;
+            if ( null != oldLine ) {
+                while ( first <= last && oldLine.charAt(first) == newLine.charAt(first) ) first++;
+                while ( last >= first && oldLine.charAt(last) == newLine.charAt(last) ) last--;
+            }
+            if ( first > last ) continue;// nothing changed
+            //
+            if ( !isSaved ) {
+                Term.get().save();
+                this.tool.sendColor(Term.get().color());
+                this.tool.sendBackground(Term.get().background());
+                isSaved = true;
+            }
+            this.tool.sendGoto(zonePos.plus(new ConCord(first, row)));
+            final String changedCells = newLine.substring(first, last + 1);
+            OutputSink.write(changedCells, this.hudCounters);
+            //
+            this.shownLines[ row ] = newLine;
+        }
+        //
+        if ( isSaved ) Term.get().restore();
+    }
+    
+    
+    
+}
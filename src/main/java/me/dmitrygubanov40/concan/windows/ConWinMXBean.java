@@ -0,0 +1,105 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.Map;
+
+
+
+/**
+ * Management interface of a window, see 'ConWin.registerMBean()'.
+ * Rates are given for the time since the window creation or the last reset.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public interface ConWinMXBean
+{
+    
+    public int getWindowId();
+    
+    public String getStatsScope();
+    
+    /**
+     * @return time since the window creation or the last counters reset
+     */
+    public long getMeasuredTimeMs();
+    
+    
+    
+    /**
+     * @return calls of 'print()'/'println()'
+     */
+    public long getPrints();
+    
+    public double getPrintsPerSecond();
+    
+    /**
+     * @return UTF-8 bytes the window has sent to the terminal
+     */
+    public long getBytes();
+    
+    public double getBytesPerSecond();
+    
+    public long getFlushes();
+    
+    public long getAutoflushes();
+    
+    public double getFlushesPerSecond();
+    
+    public long getScrolls();
+    
+    
+    
+    public int getStorageLines();
+    
+    public long getStorageBytesEstimate();
+    
+    
+    
+    /**
+     * @return events of the window's buffer by type name
+     */
+    public Map<String, Long> getEventCounts();
+    
+    public long getEventsDispatched();
+    
+    
+    
+    // time of 'print()' (window output included)
+    public double getRenderLatencyMeanMs();
+    
+    public double getRenderLatencyP50Ms();
+    
+    public double getRenderLatencyP90Ms();
+    
+    public double getRenderLatencyP99Ms();
+    
+    public double getRenderLatencyP999Ms();
+    
+    public double getRenderLatencyMaxMs();
+    
+    /**
+     * @return p99 of print phases by phase name (empty when phases are not measured)
+     */
+    public Map<String, Double> getPrintPhasesP99Ms();
+    
+    /**
+     * @return prints in the window's output queue (0 without the queue)
+     */
+    public int getQueueDepth();
+    
+    /**
+     * @return prints dropped by the window's output queue (0 without the queue)
+     */
+    public long getQueueDropped();
+    
+    
+    
+    /**
+     * Set all counters and latencies of the window to zero.
+     */
+    public void resetCounters();
+    
+    /**
+     * @return lines kept in the window's storage (empty when the storage is off)
+     */
+    public String[] dumpStorage();
+    
+}
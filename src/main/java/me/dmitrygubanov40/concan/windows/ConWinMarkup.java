@@ -0,0 +1,477 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.dmitrygubanov40.concan.utility.ConStyles;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+
+
+/**
+ * Compiled inline markup for styled text in windows: '[red]ERROR[/] [bold]{0}[/]'.
+ * The markup is parsed once (and cached by 'of()') into runs of text,
+ * each run knows the ready escape sequences to put before it,
+ * so printing sends them to the window without generating or parsing them.
+ * Syntax:
+ *  - '[red]' - text color ('ConCol' name), '[bg:navy]' - background,
+ *    '[bold]' - style ('ConStyles' name), '[default]'/'[bg:default]' - default colors,
+ *  - '[/]' - closes the last opened tag (what was before it is restored),
+ *    tags which are still open are closed at the end of the text,
+ *  - '{0}', '{1}'... - placeholders for variable parts (any 'CharSequence'),
+ *  - '[[' and '{{' - the chars themselves.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConWinMarkup
+{
+    
+    // compiled markups by their strings (not more than 'MAX_CACHED')
+    private static final Map<String, ConWinMarkup> cache;
+    private static final int MAX_CACHED;
+    
+    static {
+        cache = new ConcurrentHashMap<>();
+        MAX_CACHED = 1024;
+    }
+    
+    ////////////
+    
+    /**
+     * Kinds of steps, 'RESTORE_*' steps put back what the zone had before printing.
+     */
+    private enum StepKind
+    {
+        TEXT, ARG, COMMAND, RESTORE_COLOR, RESTORE_BACKGROUND, RESTORE_STYLE
+    }
+    
+    private enum TagKind
+    {
+        COLOR, BACKGROUND, STYLE
+    }
+    
+    /**
+     * One compiled piece: text, placeholder, or command.
+     */
+    private static final class Step
+    {
+        private final StepKind kind;
+        private final String text;
+        private final int argIndex;
+        private final ConStyles style;
+    
+        private Step(final StepKind initKind, final String initText, final int initArgIndex, final ConStyles initStyle) {
+            this.kind = initKind;
+            this.text = initText;
+            this.argIndex = initArgIndex;
+            this.style = initStyle;
+        }
+    }
+    
+    /**
+     * Opened tag while compiling.
+     */
+    private static final class Tag
+    {
+        private final TagKind kind;
+        private final String cmd;
+        private final ConStyles style;
+    
+        private Tag(final TagKind initKind, final String initCmd, final ConStyles initStyle) {
+            this.kind = initKind;
+            this.cmd = initCmd;
+            this.style = initStyle;
+        }
+    }
+    
+    /**
+     * Markup with its placeholder values as a print of a window.
+     */
+    static final class Print implements ConWinPrintable
+    {
+        private final ConWinMarkup markup;
+        private final CharSequence[] args;
+    
+        Print(final ConWinMarkup initMarkup, final CharSequence[] initArgs) {
+            this.markup = initMarkup;
+            this.args = initArgs;
+        }
+    
+        @Override
+        public void printTo(final ConWinOut zone, final boolean isNewLine) {
+            this.markup.printTo(zone, this.args, isNewLine);
+        }
+    
+        @Override
+        public int length() {
+            int chars = this.markup.markup.length();
+            for ( CharSequence curArg : this.args ) chars += String.valueOf(curArg).length();
+            return chars;
+        }
+    
+        /**
+         * @return the same markup with values copied into strings
+         */
+        @Override
+        public ConWinPrintable toQueued() {
+            final CharSequence[] argsCopy = new String[ this.args.length ];
+            for ( int i = 0; i < this.args.length; i++ ) argsCopy[ i ] = String.valueOf(this.args[ i ]);
+            return new Print(this.markup, argsCopy);
+        }
+    
+        /**
+         * @return new lines of the markup and of the values
+         */
+        @Override
+        public int countLines() {
+            int lines = this.markup.countLines();
+            for ( CharSequence curArg : this.args ) lines += ConWinText.countLines(curArg);
+            return lines;
+        }
+    }
+    
+    ////////////
+    
+    private final String markup;
+    private final Step[] steps;
+    private final int argsCount;
+    // the text ends with a new line (printed as 'print()' does it)
+    private final boolean isEndLF;
+    // some tags restore what the zone had before
+    private final boolean isZoneBrushNeeded;
+    
+    
+    
+    /**
+     * @param initMarkup markup to compile
+     * @throws NullPointerException when there is no markup
+     * @throws IllegalArgumentException for wrong markup
+     */
+    public ConWinMarkup(final String initMarkup) throws NullPointerException, IllegalArgumentException {
+        if ( null == initMarkup ) {
+            String excMsg = "Markup string is null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.markup = initMarkup;
+        //
+        final List<Step> result = new ArrayList<>();
+        final Deque<Tag> openTags = new ArrayDeque<>();
+        final StringBuilder literal = new StringBuilder();
+        int maxArgIndex = -1;
+        //
+        int i = 0;
+        final int last = initMarkup.length() - ((initMarkup.endsWith(ConUt.LF)) ? 1 : 0);
+        while ( i < last ) {
+            final char curChar = initMarkup.charAt(i);
+            if ( ('[' == curChar || '{' == curChar) && i + 1 < last && curChar == initMarkup.charAt(i + 1) ) {
+                literal.append(curChar);
+                i += 2;
+                continue;
+            }
+            if ( '[' == curChar || '{' == curChar ) {
+                final int close = initMarkup.indexOf(('[' == curChar) ? ']' : '}', i + 1);
+                if ( close < 0 || close >= last ) throw this.badMarkup("not closed '" + curChar + "'", i);
+                final String inside = initMarkup.substring(i + 1, close);
+                //
+                ConWinMarkup.flushLiteral(result, literal);
+                if ( '{' == curChar ) {
+                    final int argIndex = this.parseArgIndex(inside, i);
+                    result.add(new Step(StepKind.ARG, null, argIndex, null));
+                    maxArgIndex = Math.max(maxArgIndex, argIndex);
+                } else if ( "/".equals(inside) ) {
+                    if ( openTags.isEmpty() ) throw this.badMarkup("'[/]' without an opened tag", i);
+                    ConWinMarkup.closeTag(result, openTags);
+                } else {
+                    final Tag tag = this.parseTag(inside, i);
+                    openTags.push(tag);
+                    result.add(new Step(StepKind.COMMAND, tag.cmd, -1, null));
+                }
+                i = close + 1;
+                continue;
+            }
+            if ( !ConUt.isPrintableChar(curChar) ) {
+                // special chars are commands of the window
+                ConWinMarkup.flushLiteral(result, literal);
+                result.add(new Step(StepKind.COMMAND, String.valueOf(curChar), -1, null));
+                i++;
+                continue;
+            }
+            literal.append(curChar);
+            i++;
+        }
+        ConWinMarkup.flushLiteral(result, literal);
+        while ( !openTags.isEmpty() ) {
+            ConWinMarkup.closeTag(result, openTags);
+        }
+        //
+        this.steps = result.toArray(new Step[ 0 ]);
+        this.argsCount = maxArgIndex + 1;
+        this.isEndLF = (last < initMarkup.length());
+        boolean isRestoring = false;
+        for ( Step curStep : this.steps ) {
+            if ( StepKind.TEXT != curStep.kind && StepKind.ARG != curStep.kind && StepKind.COMMAND != curStep.kind ) {
+                isRestoring = true;
+            }
+        }
+        this.isZoneBrushNeeded = isRestoring;
+    }
+    
+    /**
+     * Compiled markup from the cache (compiled once).
+     * @param markup markup string
+     * @return compiled markup
+     * @throws NullPointerException when there is no markup
+     * @throws IllegalArgumentException for wrong markup
+     */
+    public static ConWinMarkup of(final String markup) throws NullPointerException, IllegalArgumentException {
+        if ( null == markup ) {
+            String excMsg = "Markup string is null";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        ConWinMarkup compiled = ConWinMarkup.cache.get(markup);
+        if ( null == compiled ) {
+            compiled = new ConWinMarkup(markup);
+            if ( ConWinMarkup.cache.size() < ConWinMarkup.MAX_CACHED ) ConWinMarkup.cache.putIfAbsent(markup, compiled);
+        }
+        return compiled;
+    }
+    
+    
+    
+    public String getMarkup() {
+        return this.markup;
+    }
+    
+    /**
+     * @return how many placeholder values printing needs (the greatest index + 1)
+     */
+    public int getArgsCount() {
+        return this.argsCount;
+    }
+    
+    
+    
+    /**
+     * @return new lines of the markup (without placeholder values)
+     */
+    int countLines() {
+        int lines = this.isEndLF ? 1 : 0;
+        for ( Step curStep : this.steps ) {
+            if ( StepKind.COMMAND == curStep.kind && ConUt.LF.equals(curStep.text) ) lines++;
+        }
+        return lines;
+    }
+    
+    private static void flushLiteral(final List<Step> result, final StringBuilder literal) {
+        if ( literal.length() <= 0 ) return;
+        //
+        result.add(new Step(StepKind.TEXT, literal.toString(), -1, null));
+        literal.setLength(0);
+    }
+    
+    private int parseArgIndex(final String inside, final int position) throws IllegalArgumentException {
+        if ( inside.isEmpty() || inside.length() > 3 ) throw this.badMarkup("bad placeholder '{" + inside + "}'", position);
+        for ( int i = 0; i < inside.length(); i++ ) {
+            if ( !Character.isDigit(inside.charAt(i)) ) throw this.badMarkup("bad placeholder '{" + inside + "}'", position);
+        }
+        return Integer.parseInt(inside);
+    }
+    
+    /**
+     * @param inside name of the tag (without brackets)
+     * @param position where the tag is
+     * @return opened tag with its command
+     * @throws IllegalArgumentException for unknown tag, or style which cannot be closed
+     */
+    private Tag parseTag(final String inside, final int position) throws IllegalArgumentException {
+        final String cmd;
+        try {
+            cmd = ConWinFormat.directive(inside);
+        } catch ( IllegalArgumentException directiveExc ) {
+            throw this.badMarkup("unknown tag '[" + inside + "]'", position);
+        }
+        //
+        final ConStyles style = ConStyles.getByCmd(cmd);
+        if ( ConStyles.NONE == style ) {
+            if ( ConWinOutBrush.isBackgroundEscCommand(cmd) ) return new Tag(TagKind.BACKGROUND, cmd, null);
+            return new Tag(TagKind.COLOR, cmd, null);
+        }
+        if ( null == style.getOppositeStyleOrNull() ) throw this.badMarkup("tag '[" + inside + "]' cannot be closed", position);
+        return new Tag(TagKind.STYLE, cmd, style);
+    }
+    
+    /**
+     * What closing of the last tag does: the same kind of an outer tag is repeated,
+     * with no outer tag the zone's state (before printing) is restored.
+     * @param result compiled steps
+     * @param openTags opened tags, the last is removed
+     */
+    private static void closeTag(final List<Step> result, final Deque<Tag> openTags) {
+        final Tag tag = openTags.pop();
+        for ( Tag curOuter : openTags ) {
+            if ( tag.kind != curOuter.kind ) continue;
+            //
+            if ( TagKind.STYLE != tag.kind ) {
+                result.add(new Step(StepKind.COMMAND, curOuter.cmd, -1, null));
+                return;
+            }
+            // the same style is still on, or the opposite one must be back
+            if ( tag.style == curOuter.style ) return;
+            if ( tag.style.getOppositeStyleOrNull() == curOuter.style ) {
+                result.add(new Step(StepKind.COMMAND, curOuter.cmd, -1, null));
+                return;
+            }
+        }
+        //
+        switch ( tag.kind ) {
+            case COLOR:
+                result.add(new Step(StepKind.RESTORE_COLOR, null, -1, null));
+                break;
+            case BACKGROUND:
+                result.add(new Step(StepKind.RESTORE_BACKGROUND, null, -1, null));
+                break;
+            default:
+                result.add(new Step(StepKind.RESTORE_STYLE, null, -1, tag.style));
+                break;
+        }
+    }
+    
+    private IllegalArgumentException badMarkup(final String problem, final int position) {
+        String excMsg = "Wrong markup '" + this.markup + "' at " + position + ": " + problem;
+        return new IllegalArgumentException(excMsg);
+    }
+    
+    
+    
+    /**
+     * Print the markup into the zone.
+     * Text and placeholder values go to the zone's buffer as char ranges,
+     * commands are added whole, without parsing.
+     * @param zone where to print
+     * @param args placeholder values ('null' is printed as "null")
+     * @param isNewLine add a new line after the text
+     */
+    void printTo(final ConWinOut zone, final CharSequence[] args, final boolean isNewLine) {
+        this.checkArgs(args);
+        // (copy: the zone's brush is changed by the commands)
+        final ConWinOutBrush zoneBrush = this.isZoneBrushNeeded ? new ConWinOutBrush(zone.getZoneBrush()) : null;
+        //
+        for ( Step curStep : this.steps ) {
+            if ( StepKind.TEXT == curStep.kind ) {
+                zone.addToZone(curStep.text, 0, curStep.text.length());
+            } else if ( StepKind.ARG == curStep.kind ) {
+                final CharSequence curArg = ConWinMarkup.getArg(args, curStep);
+                zone.addToZone(curArg, 0, curArg.length());
+            } else {
+                final String cmd = ConWinMarkup.getStepCmd(curStep, zoneBrush);
+                if ( null != cmd ) zone.addCmdToZone(cmd);
+            }
+        }
+        //
+        if ( this.isEndLF && isNewLine ) zone.addCmdToZone(ConUt.LF);
+        if ( this.isEndLF || isNewLine ) zone.addToZone(ConUt.BLF);
+    }
+    
+    /**
+     * Text with escape sequences which printing of the markup sends
+     * (tags closed at the top level restore the default colors and styles).
+     * @param args placeholder values ('null' is "null")
+     * @return text with commands
+     * @throws IllegalArgumentException when there are less values than placeholders
+     */
+    public String render(final CharSequence... args) throws IllegalArgumentException {
+        return this.render(args, new ConWinOutBrush());
+    }
+    /**
+     * @param args placeholder values ('null' is "null")
+     * @param zoneBrush brush of the zone before printing
+     * @return text with commands
+     * @throws IllegalArgumentException when there are less values than placeholders
+     */
+    String render(final CharSequence[] args, final ConWinOutBrush zoneBrush) throws IllegalArgumentException {
+        this.checkArgs(args);
+        //
+        final StringBuilder out = new StringBuilder();
+        for ( Step curStep : this.steps ) {
+            if ( StepKind.TEXT == curStep.kind ) {
+                out.append(curStep.text);
+            } else if ( StepKind.ARG == curStep.kind ) {
+                out.append(ConWinMarkup.getArg(args, curStep));
+            } else {
+                final String cmd = ConWinMarkup.getStepCmd(curStep, zoneBrush);
+                if ( null != cmd ) out.append(cmd);
+            }
+        }
+        if ( this.isEndLF ) out.append(ConUt.LF);
+        //
+        return out.toString();
+    }
+    
+    private static CharSequence getArg(final CharSequence[] args, final Step step) {
+        return (null == args[ step.argIndex ]) ? "null" : args[ step.argIndex ];
+    }
+    
+    /**
+     * @param step command or restoring step
+     * @param zoneBrush brush of the zone before printing
+     * @return command of the step, 'null' when nothing is to be sent
+     */
+    private static String getStepCmd(final Step step, final ConWinOutBrush zoneBrush) {
+        switch ( step.kind ) {
+            case RESTORE_COLOR:
+                final String color = zoneBrush.getBrushColor();
+                return color.isEmpty() ? ConUt.COLOR_DEFAULT : color;
+            case RESTORE_BACKGROUND:
+                final String background = zoneBrush.getBrushBackground();
+                return background.isEmpty() ? ConUt.BACKGROUND_DEFAULT : background;
+            case RESTORE_STYLE:
+                return ConWinMarkup.getRestoreStyleCmd(zoneBrush, step.style);
+            default:
+                return step.text;
+        }
+    }
+    
+    /**
+     * Turn the style back: the opposite style is put only when the zone did not have the style.
+     * @param zoneBrush brush of the zone before printing
+     * @param style style of the closed tag
+     * @return command of the opposite style, 'null' when the zone had the style
+     */
+    private static String getRestoreStyleCmd(final ConWinOutBrush zoneBrush, final ConStyles style) {
+        final ConStyles opposite = style.getOppositeStyleOrNull();
+        if ( zoneBrush.hasBrushStyle(style) ) return null;
+        // without any of the pair the style is off ('BOLD_OFF' closes nothing)
+        if ( zoneBrush.hasBrushStyle(opposite) || !style.getStyleName().endsWith("_OFF") ) {
+            return opposite.getStyleCmd();
+        }
+        return null;
+    }
+    
+    /**
+     * @param args placeholder values to check
+     * @throws IllegalArgumentException when there are less values than placeholders
+     */
+    void checkArgs(final CharSequence[] args) throws IllegalArgumentException {
+        final int given = (null == args) ? 0 : args.length;
+        if ( given < this.argsCount ) {
+            String excMsg = "Markup '" + this.markup + "' needs " + this.argsCount + " values, given: " + given;
+            throw new IllegalArgumentException(excMsg);
+        }
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName() + ": " + this.markup;
+        return str;
+    }
+    
+    
+    
+}
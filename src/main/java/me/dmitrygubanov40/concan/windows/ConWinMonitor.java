@@ -0,0 +1,231 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import me.dmitrygubanov40.concan.strain.OutputCountersSnapshot;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.strain.PrintLatency;
+import me.dmitrygubanov40.concan.strain.PrintPhase;
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventType;
+
+
+
+/**
+ * JMX view of a window: output accounting, scrolling, storage,
+ * buffer events and print latency.
+ * Registered MBean keeps the window in memory until 'ConWin.unregisterMBean()'.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class ConWinMonitor implements ConWinMXBean
+{
+    
+    private final ConWin window;
+    
+    
+    
+    ConWinMonitor(final ConWin initWindow) {
+        this.window = initWindow;
+    }
+    
+    
+    
+    /**
+     * @param windowId id of the window
+     * @return name of the window's MBean, i.e. "me.dmitrygubanov40.concan:type=ConWin,id=1"
+     */
+    static ObjectName getObjectName(final int windowId) {
+        try {
+            return new ObjectName(OutputStats.MBEAN_DOMAIN + ":type=ConWin,id=" + windowId);
+        } catch ( MalformedObjectNameException nameExc ) {
+            String excMsg = "Cannot compose MBean name of window " + windowId + ": " + nameExc.getMessage();
+            throw new IllegalStateException(excMsg);
+        }
+    }
+    
+    
+    
+    private OutputCountersSnapshot getOutput() {
+        return this.window.getOutputStats();
+    }
+    
+    private double getPerSecond(final long value) {
+        final long measuredNs = System.nanoTime() - this.window.getStatsSinceNs();
+        if ( measuredNs <= 0 ) return 0.0;
+        //
+        return value * 1_000_000_000.0 / measuredNs;
+    }
+    
+    private double getLatencyMs(final double percentile) {
+        return this.window.getRenderLatency().getPercentileMs(percentile);
+    }
+    
+    
+    
+    @Override
+    public int getWindowId() {
+        return this.window.getId();
+    }
+    
+    @Override
+    public String getStatsScope() {
+        return this.window.getStatsScope();
+    }
+    
+    @Override
+    public long getMeasuredTimeMs() {
+        return (System.nanoTime() - this.window.getStatsSinceNs()) / 1_000_000L;
+    }
+    
+    @Override
+    public long getPrints() {
+        return this.window.getRenderLatency().getCount();
+    }
+    
+    @Override
+    public double getPrintsPerSecond() {
+        return this.getPerSecond(this.getPrints());
+    }
+    
+    @Override
+    public long getBytes() {
+        return this.getOutput().getBytes();
+    }
+    
+    @Override
+    public double getBytesPerSecond() {
+        return this.getPerSecond(this.getBytes());
+    }
+    
+    @Override
+    public long getFlushes() {
+        return this.getOutput().getFlushes();
+    }
+    
+    @Override
+    public long getAutoflushes() {
+        return this.getOutput().getAutoflushes();
+    }
+    
+    @Override
+    public double getFlushesPerSecond() {
+        return this.getPerSecond(this.getFlushes());
+    }
+    
+    @Override
+    public long getScrolls() {
+        return this.window.getZone().getScrollsCount();
+    }
+    
+    @Override
+    public int getStorageLines() {
+        return this.window.getZone().getStorageLines();
+    }
+    
+    @Override
+    public long getStorageBytesEstimate() {
+        return this.window.getZone().getStorageBytes();
+    }
+    
+    @Override
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for ( Map.Entry<WinBufEventType, Long> curCount : this.window.getZone().getEventCounts().entrySet() ) {
+            counts.put(curCount.getKey().getTypeName(), curCount.getValue());
+        }
+        //
+        return counts;
+    }
+    
+    @Override
+    public long getEventsDispatched() {
+        long dispatched = 0;
+        for ( long curCount : this.window.getZone().getEventCounts().values() ) dispatched += curCount;
+        //
+        return dispatched;
+    }
+    
+    @Override
+    public double getRenderLatencyMeanMs() {
+        return this.window.getRenderLatency().getMeanNs() / 1_000_000.0;
+    }
+    
+    @Override
+    public double getRenderLatencyP50Ms() {
+        return this.getLatencyMs(50.0);
+    }
+    
+    @Override
+    public double getRenderLatencyP90Ms() {
+        return this.getLatencyMs(90.0);
+    }
+    
+    @Override
+    public double getRenderLatencyP99Ms() {
+        return this.getLatencyMs(99.0);
+    }
+    
+    @Override
+    public double getRenderLatencyP999Ms() {
+        return this.getLatencyMs(99.9);
+    }
+    
+    @Override
+    public double getRenderLatencyMaxMs() {
+        return this.window.getRenderLatency().getMaxNs() / 1_000_000.0;
+    }
+    
+    @Override
+    public Map<String, Double> getPrintPhasesP99Ms() {
+        Map<String, Double> phases = new LinkedHashMap<>();
+        final PrintLatency latency = this.window.getPrintLatency();
+        if ( null == latency ) return phases;
+        //
+        for ( PrintPhase curPhase : PrintPhase.values() ) {
+            phases.put(curPhase.getPhaseName(), latency.getPercentileMs(curPhase, 99.0));
+        }
+        //
+        return phases;
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        final ConWinQueue queue = this.window.getQueue();
+        return (null == queue) ? 0 : queue.getDepth();
+    }
+    
+    @Override
+    public long getQueueDropped() {
+        final ConWinQueue queue = this.window.getQueue();
+        return (null == queue) ? 0 : queue.getDropped();
+    }
+    
+    
+    
+    @Override
+    public void resetCounters() {
+        this.window.resetStats();
+    }
+    
+    @Override
+    public String[] dumpStorage() {
+        try {
+            List<String> lines = this.window.getZone().getOutputLines();
+            return lines.toArray(new String[ 0 ]);
+        } catch ( IllegalStateException offExc ) {
+            // storage is off
+            return new String[ 0 ];
+        } catch ( ConcurrentModificationException busyExc ) {
+            String excMsg = "Window " + this.window.getId() + " is printing now, try again";
+            throw new IllegalStateException(excMsg);
+        }
+    }
+    
+    
+    
+}
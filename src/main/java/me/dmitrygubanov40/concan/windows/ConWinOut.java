@@ -2,9 +2,18 @@ package me.dmitrygubanov40.concan.windows;
 
 
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
+import me.dmitrygubanov40.concan.buffer.OutputSink;
 import me.dmitrygubanov40.concan.paint.ConDraw;
 import me.dmitrygubanov40.concan.paint.ConDrawFill;
+import me.dmitrygubanov40.concan.strain.JfrScrollEvent;
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+import me.dmitrygubanov40.concan.strain.PrintLatency;
 import me.dmitrygubanov40.concan.utility.ConCord;
 import me.dmitrygubanov40.concan.utility.ConUt;
 import me.dmitrygubanov40.concan.utility.Term;
@@ -17,7 +26,7 @@ import me.dmitrygubanov40.concan.winbuffer.*;
  * Essential part of any window with inner refreshment.
  * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
  */
-class ConWinOut implements WinBufEventListener
+class ConWinOut implements WinBufFastListener
 {
     
     // console manipulation helper
@@ -64,10 +73,18 @@ class ConWinOut implements WinBufEventListener
     
     // helper to keep all the styles in the zone
     private ConWinOutBrush zoneBrush;
+    // brush of the zone while styled text is printed
+    private final ConWinOutBrush styledSavedBrush;
     
     // use of SAVE/RESTORE every time we use (auto-) flush
     private boolean useTermRestore;
     
+    // accounting of the zone output (shared with temporary inner zones)
+    private OutputCounters outputCounters;
+    
+    // number of scroll steps since the start (or reset)
+    private volatile long scrollsCount;
+    
     
     ////////////
     
@@ -102,8 +119,12 @@ class ConWinOut implements WinBufEventListener
         this.specialCharProcessor = new ConWinOutSpecChars(this.zoneWidth);
         //
         this.zoneBrush = new ConWinOutBrush();
+        this.styledSavedBrush = new ConWinOutBrush();
         //
         this.useTermRestore = true;
+        //
+        this.outputCounters = OutputStats.global();
+        this.scrollsCount = 0;
     }
     
     /**
@@ -115,7 +136,16 @@ class ConWinOut implements WinBufEventListener
             return;
         }
         //
-        this.zoneBuf.addEventListener(this);
+        // autoflush events are not needed (so they are not even created)
+        final Set<WinBufEventType> zoneEventTypes = EnumSet.of(WinBufEventType.ON_BEFORE_FLUSH,
+                                                                WinBufEventType.ON_AFTER_FLUSH,
+                                                                WinBufEventType.ON_BEFORE_CMD_SENT,
+                                                                WinBufEventType.ON_AFTER_CMD_SENT,
+                                                                WinBufEventType.ON_BEFORE_OUTPUT_CHAR,
+                                                                WinBufEventType.ON_AFTER_OUTPUT_CHAR,
+                                                                WinBufEventType.ON_BEFORE_OUTPUT_CMD,
+                                                                WinBufEventType.ON_AFTER_OUTPUT_CMD);
+        this.zoneBuf.addFastListener(this, zoneEventTypes);
     }
     
     /**
@@ -219,6 +249,112 @@ class ConWinOut implements WinBufEventListener
         return this.useTermRestore;
     }
     
+    /**
+     * Count all output of the zone (buffer, cursor moves, brushes) in the scope.
+     * @param counters window's counters
+     */
+    public void setOutputCounters(final OutputCounters counters) {
+        this.zoneBuf.setOutputCounters(counters);
+        this.consoleTool.setOutputCounters(counters);
+        this.outputCounters = counters;
+    }
+    public OutputCounters getOutputCounters() {
+        return this.outputCounters;
+    }
+    
+    /**
+     * Report flushes and writes of the zone to print phases.
+     * @param latency window's print phases, 'null' to stop
+     */
+    public void setPrintLatency(final PrintLatency latency) {
+        this.zoneBuf.setPrintLatency(latency);
+        this.consoleTool.setPrintLatency(latency);
+    }
+    public PrintLatency getPrintLatency() {
+        return this.zoneBuf.getPrintLatency();
+    }
+    
+    /**
+     * Extra listeners of the zone's buffer (called after the zone itself).
+     * @param listener to add
+     */
+    public void addEventListener(final WinBufEventListener listener) {
+        this.zoneBuf.addEventListener(listener);
+    }
+    public void addEventListener(final WinBufEventListener listener,
+                                    final Set<WinBufEventType> eventTypes) {
+        this.zoneBuf.addEventListener(listener, eventTypes);
+    }
+    public void removeEventListener(final WinBufEventListener listener) {
+        this.zoneBuf.removeEventListener(listener);
+    }
+    public WinBufAsyncDelivery addAsyncListener(final WinBufEventListener listener,
+                                                final Set<WinBufEventType> eventTypes,
+                                                final int capacity,
+                                                final WinBufAsyncPolicy policy,
+                                                final Executor executor) {
+        return this.zoneBuf.addAsyncListener(listener, eventTypes, capacity, policy, executor);
+    }
+    public void addFastListener(final WinBufFastListener listener,
+                                final Set<WinBufEventType> eventTypes) {
+        if ( this == listener ) return;// zone has its own types
+        //
+        this.zoneBuf.addFastListener(listener, eventTypes);
+    }
+    public void removeFastListener(final WinBufFastListener listener) {
+        if ( this == listener ) return;// zone cannot work without it
+        //
+        this.zoneBuf.removeFastListener(listener);
+    }
+    
+    /**
+     * Measure listeners of the zone's buffer (the zone itself included).
+     * @param profiler where to record, 'null' to stop
+     */
+    public void setListenerProfiler(final WinBufListenerProfiler profiler) {
+        this.zoneBuf.setListenerProfiler(profiler);
+    }
+    public WinBufListenerProfiler getListenerProfiler() {
+        return this.zoneBuf.getListenerProfiler();
+    }
+    
+    
+    
+    public long getScrollsCount() {
+        return this.scrollsCount;
+    }
+    
+    /**
+     * @return number of lines in the zone's storage
+     */
+    public int getStorageLines() {
+        return this.storage.getLinesCount();
+    }
+    
+    /**
+     * @return estimated memory held by the zone's storage
+     */
+    public long getStorageBytes() {
+        return this.storage.getEstimatedBytes();
+    }
+    
+    /**
+     * @return events dispatched by the zone's buffer, by type
+     */
+    public Map<WinBufEventType, Long> getEventCounts() {
+        return this.zoneBuf.getEventCounts();
+    }
+    
+    /**
+     * Set scrolls, events and output counters of the zone to zero
+     * (global counters are never reset from a zone).
+     */
+    public void resetCounters() {
+        this.scrollsCount = 0;
+        this.zoneBuf.resetEventCounts();
+        if ( OutputStats.global() != this.outputCounters ) this.outputCounters.reset();
+    }
+    
     
     ////////////////////////////
     // Events
@@ -226,48 +362,56 @@ class ConWinOut implements WinBufEventListener
     
     
     /**
-     * Head caller of all events.
-     * @param event which we got from buffer
+     * Head caller of all events (no event objects are created for the zone).
+     * @param source buffer of the zone
+     * @param eventType only subscribed types come here (see 'installEvents()')
+     * @param eventFlags states or conditions of the event
+     * @param eventText text of the event
+     * @param eventStatus status after previous listeners
+     * @return status of the event after the zone
      */
     @Override
-    public void onWindowOutputBufferEvent(final WinBufEvent event) {
-        WinBufEventType eventType = event.getEventType();
-        //
-        if ( WinBufEventType.ON_BEFORE_FLUSH == eventType ) {
-            this.onBeforeFlush(event);
-        }
-        if ( WinBufEventType.ON_AFTER_FLUSH == eventType ) {
-            this.onAfterFlush(event);
-        }
-        //
-        /* do not need now
-        if ( WinBufEventType.ON_BEFORE_AUTOFLUSH == eventType ) {
-            this.OnBeforeAutoflush(event);
-        }
-        if ( WinBufEventType.ON_AFTER_AUTOFLUSH == eventType ) {
-            this.OnAfterAutoflush(event);
-        }
-        */
-        //
-        if ( WinBufEventType.ON_BEFORE_CMD_SENT == eventType ) {
-            this.OnBeforeCmdSent(event);
-        }
-        if ( WinBufEventType.ON_AFTER_CMD_SENT == eventType ) {
-            this.OnAfterCmdSent(event);
+    public WinBufEventStatus onWindowOutputBufferEvent(final WindowOutputBuffer source,
+                                                        final WinBufEventType eventType,
+                                                        final int eventFlags,
+                                                        final CharSequence eventText,
+                                                        final WinBufEventStatus eventStatus) {
+        // buffer always gives strings
+        final String eventStr = eventText.toString();
+        //
+        switch ( eventType ) {
+            case ON_BEFORE_FLUSH:
+                this.onBeforeFlush(source, eventFlags);
+                break;
+            case ON_AFTER_FLUSH:
+                this.onAfterFlush();
+                break;
+            //
+            case ON_BEFORE_CMD_SENT:
+                this.OnBeforeCmdSent(source);
+                break;
+            case ON_AFTER_CMD_SENT:
+                this.OnAfterCmdSent(source, eventStr);
+                break;
+            //
+            case ON_BEFORE_OUTPUT_CHAR:
+                return this.onBeforeOutputChar(eventStatus);
+            case ON_AFTER_OUTPUT_CHAR:
+                this.OnAfterOutputChar(eventFlags, eventStr);
+                break;
+            case ON_BEFORE_OUTPUT_CMD:
+                this.OnBeforeOutputCmd();
+                break;
+            case ON_AFTER_OUTPUT_CMD:
+                this.OnAfterOutputCmd(eventStr);
+                break;
+            //
+            default:
+                // autoflush events are not needed now
+                break;
         }
         //
-        if ( WinBufEventType.ON_BEFORE_OUTPUT_CHAR == eventType ) {
-            this.onBeforeOutputChar(event);
-        }
-        if ( WinBufEventType.ON_AFTER_OUTPUT_CHAR == eventType ) {
-            this.OnAfterOutputChar(event);
-        }
-        if ( WinBufEventType.ON_BEFORE_OUTPUT_CMD == eventType ) {
-            this.OnBeforeOutputCmd(event);
-        }
-        if ( WinBufEventType.ON_AFTER_OUTPUT_CMD == eventType ) {
-            this.OnAfterOutputCmd(event);
-        }
+        return eventStatus;
     }
     
     
@@ -275,11 +419,9 @@ class ConWinOut implements WinBufEventListener
     /**
      * Reaction at the beginning of any command to be executed.
      * Find mother-buffer and flush it.
-     * @param event 
+     * @param eventBuffer buffer of the zone
      */
-    private void OnBeforeCmdSent(final WinBufEvent event) {
-        final WindowOutputBuffer eventBuffer = (WindowOutputBuffer) event.getSource();
-        //
+    private void OnBeforeCmdSent(final WindowOutputBuffer eventBuffer) {
         // everything before the command will be output:
         eventBuffer.flush();
     }
@@ -288,12 +430,10 @@ class ConWinOut implements WinBufEventListener
      * Reaction after the the command was added.
      * Any single special char must be processed (including cursor behavior),
      * and non-blocked escape sequences (checked by winbuf earlier) must be immediately printed.
-     * @param event 
+     * @param eventBuffer buffer of the zone
+     * @param outStr the command
      */
-    private void OnAfterCmdSent(final WinBufEvent event) {
-        final WindowOutputBuffer eventBuffer = (WindowOutputBuffer) event.getSource();
-        final String outStr = event.getEventText();
-        //
+    private void OnAfterCmdSent(final WindowOutputBuffer eventBuffer, final String outStr) {
         if ( outStr.length() == 1 ) {
             // case of single special character,
             // synchronize de-facto behavior and console condition
@@ -312,12 +452,10 @@ class ConWinOut implements WinBufEventListener
     /**
      * Reaction at the beginning of any 'flush' operation.
      * Process the case when the flushing string will overcome the possible width.
-     * @param event 
+     * @param eventBuffer buffer of the zone
+     * @param outStrLength string length evaluation (event flags)
      */
-    private void onBeforeFlush(final WinBufEvent event) {
-        // here in the flag we have string length evaluation
-        final int outStrLength = event.getEventFlags();
-        //
+    private void onBeforeFlush(final WindowOutputBuffer eventBuffer, final int outStrLength) {
         // keep coordinates and style of output before output
         if ( this.getTermSaveStatus() ) {
             Term.get().save();
@@ -328,7 +466,6 @@ class ConWinOut implements WinBufEventListener
         if ( alreadyPrintedLength + outStrLength > this.zoneWidth ) {
             // output of the current buffer will overstep window's width
             // slice out possible symbols, and go next line
-            final WindowOutputBuffer eventBuffer = (WindowOutputBuffer) event.getSource();
             int sliceLength = this.zoneWidth - alreadyPrintedLength;
             //
             if ( sliceLength > 0 ) {
@@ -345,12 +482,8 @@ class ConWinOut implements WinBufEventListener
     /**
      * Reaction after the 'flush' operation.
      * Is called after every single portion of printing to the console.
-     * @param event 
      */
-    private void onAfterFlush(final WinBufEvent event) {
-        //final String outStr = event.getEventText();
-        //final int outStrLength = event.getEventFlags();
-        //
+    private void onAfterFlush() {
         // Save current brush to the archive of this line (can be updated).
         // Crucial to do it here as long as 'flush' is used at each output.
         this.storage.saveLineBrush(this.zoneBrush);
@@ -382,9 +515,11 @@ class ConWinOut implements WinBufEventListener
     /**
      * Reaction at the beginning of any visual symbol putting.
      * Have to prepare cursor position.
-     * @param event 
+     * @param eventStatus status after previous listeners
+     * @return status of the event ('WB_EVENT_IGNORE' when the symbol must not be printed)
      */
-    private void onBeforeOutputChar(final WinBufEvent event) {
+    private WinBufEventStatus onBeforeOutputChar(final WinBufEventStatus eventStatus) {
+        WinBufEventStatus status = eventStatus;
         // before output to zone must move console cursor
         try {
             //
@@ -393,7 +528,7 @@ class ConWinOut implements WinBufEventListener
         } catch ( OutOfTerminalWindowException termBorderExc ) {
             // failed to move cursor to the necessary position
             // the symbol will not be printed into console
-            event.updateEventStatus(WinBufEventStatus.WB_EVENT_IGNORE);
+            status = WinBufEventStatus.WB_EVENT_IGNORE;
             // now will be moved somewhere in the nearest position
             this.consoleTool.sendGoto( termBorderExc.getAllowedCoords() );
         }
@@ -407,19 +542,19 @@ class ConWinOut implements WinBufEventListener
         //
         // now restore brush settings - output necessary commands
         final String brushToRestore = this.zoneBrush.getBrush();
-        System.out.print(brushToRestore);
+        OutputSink.write(brushToRestore, this.outputCounters);
+        //
+        return status;
     }
     
     /**
      * Reaction after the character was put into console.
      * Must recalculate current cursor position in the zone,
      * and then save the output which had happened.
-     * @param event 
+     * @param outputLength length of the output (event flags)
+     * @param outStr the character
      */
-    private void OnAfterOutputChar(final WinBufEvent event) {
-        final String outStr = event.getEventText();
-        final int outputLength = event.getEventFlags();
-        //
+    private void OnAfterOutputChar(final int outputLength, final String outStr) {
         final int newX = this.zoneCursorPos.getX() + outputLength;
         final int oldY = this.zoneCursorPos.getY();
         this.zoneCursorPos = new ConCord(newX, oldY);
@@ -430,9 +565,8 @@ class ConWinOut implements WinBufEventListener
     /**
      * Reaction at the beginning of command output.
      * Also, it better to prepare cursor position.
-     * @param event 
      */
-    private void OnBeforeOutputCmd(final WinBufEvent event) {
+    private void OnBeforeOutputCmd() {
         try {
             //
             this.takeTerminalCursorPosition();
@@ -449,12 +583,9 @@ class ConWinOut implements WinBufEventListener
      * was put into console.
      * After command we do not need to move cursor in the zone.
      * The last output will keep the style and color of output.
-     * @param event 
+     * @param outStr the command
      */
-    private void OnAfterOutputCmd(final WinBufEvent event) {
-        final String outStr = event.getEventText();
-        //final int outStrLength = event.getEventFlags();
-        //
+    private void OnAfterOutputCmd(final String outStr) {
         // update current brush (if it is brush command)
         // maybe it is a font color or a font background, etc.
         this.zoneBrush.analyseAndUpdateBrush(outStr);
@@ -471,13 +602,80 @@ class ConWinOut implements WinBufEventListener
      * Call the zone to add this string to output zone.
      * @param str text line we will add to the zone
      */
-    private void addToZone(final String str) {
+    void addToZone(final String str) {
         if ( null == str || str.length() <= 0 ) {
             // no empty strings
             return;
         }
         this.zoneBuf.addToWinBuf(str);
     }
+    /**
+     * @param chars text we will add to the zone
+     * @param start first char of the text
+     * @param end char after the text
+     */
+    void addToZone(final CharSequence chars, final int start, final int end) {
+        if ( end <= start ) {
+            // no empty strings
+            return;
+        }
+        this.zoneBuf.addToWinBuf(chars, start, end);
+    }
+    
+    /**
+     * Add text which is known to be printable (no checks).
+     * @param text text without commands
+     */
+    void addTextToZone(final String text) {
+        this.zoneBuf.addTextToWinBuf(text, 0, text.length());
+    }
+    
+    /**
+     * Add one command which is not parsed (see 'WindowOutputBuffer.addSingleCmdToWinBuf()').
+     * @param cmd special char or single escape sequence
+     */
+    void addCmdToZone(final String cmd) {
+        this.zoneBuf.addSingleCmdToWinBuf(cmd);
+    }
+    
+    /**
+     * Print styled text: brushes of its runs are taken by the zone as they are,
+     * and the text goes to the buffer without parsing.
+     * The brush of the zone is restored after the text.
+     * @param styled text to print
+     * @param isNewLine add a new line after the text
+     */
+    void print(final ConStyledText styled, final boolean isNewLine) {
+        this.styledSavedBrush.setBrush(this.zoneBrush);
+        //
+        styled.addRunsTo(this);
+        //
+        this.zoneBuf.flush();
+        this.storage.saveOutputCmd(this.styledSavedBrush.getBrush());
+        this.zoneBrush.setBrush(this.styledSavedBrush);
+        if ( isNewLine ) this.addToZone(ConUt.BLF);
+    }
+    
+    /**
+     * One run of styled text: the text before it is output with its own brush,
+     * the run's commands are kept in the storage (for scrolling).
+     * @param brush brush of the run
+     * @param brushCmd the same brush as commands
+     * @param text printable text of the run
+     */
+    void addStyledRun(final ConWinOutBrush brush, final String brushCmd, final String text) {
+        this.zoneBuf.flush();
+        this.storage.saveOutputCmd(brushCmd);
+        this.zoneBrush.setBrush(brush);
+        this.zoneBuf.addTextToWinBuf(text, 0, text.length());
+    }
+    
+    /**
+     * @return current (live) brush of the zone
+     */
+    ConWinOutBrush getZoneBrush() {
+        return this.zoneBrush;
+    }
     
     /**
      * Output everything we already have in buffer.
@@ -502,6 +700,50 @@ class ConWinOut implements WinBufEventListener
         //
         this.addToZone(strToAdd);
     }
+    /**
+     * Add output from outter source without making a string of it
+     * ('StringBuilder' can be reused by the caller after the call).
+     * @param chars text we will add to the zone
+     */
+    public void print(final CharSequence chars) {
+        if ( chars instanceof String ) {
+            this.print((String) chars);
+            return;
+        }
+        if ( null == chars || chars.length() <= 0 ) {
+            // no empty strings
+            return;
+        }
+        //
+        this.print(chars, 0, chars.length());
+    }
+    /**
+     * @param chars text we will add to the zone
+     * @param start first char of the text
+     * @param end char after the text
+     */
+    void print(final CharSequence chars, final int start, final int end) {
+        if ( end <= start ) return;
+        //
+        // the same as 'parseLFs()' does with a string
+        if ( ConUt.LF.charAt(0) == chars.charAt(end - 1) ) {
+            this.addToZone(chars, start, end - 1);
+            this.addToZone(ConUt.BLF);
+            return;
+        }
+        //
+        this.addToZone(chars, start, end);
+    }
+    /**
+     * Add output with the new line after it.
+     * @param chars text we will add to the zone
+     */
+    public void println(final CharSequence chars) {
+        if ( null != chars ) {
+            this.addToZone(chars, 0, chars.length());
+        }
+        this.addToZone(ConUt.BLF);
+    }
     
     /**
      * Directly print some text in the zone, borders-safe.
@@ -551,6 +793,8 @@ class ConWinOut implements WinBufEventListener
                                                         clearBeforePrint,
                                                         this.isAsyncSafe,
                                                         USE_TERM_RESTORE);
+        printZone.setOutputCounters(this.outputCounters);
+        printZone.setPrintLatency(this.getPrintLatency());
         printZone.turnOffStorage();// unscrollable zone without buffer
         printZone.addToZone(str);
         printZone.flush();
@@ -720,6 +964,10 @@ class ConWinOut implements WinBufEventListener
         // zone cannot scroll - so, ignore:
         if ( !this.isScrollable() ) return;
         //
+        final JfrScrollEvent jfrEvent = new JfrScrollEvent();
+        final long bytesBefore = jfrEvent.isEnabled() ? this.outputCounters.getBytes() : 0;
+        jfrEvent.begin();
+        //
         ArrayList<String> prevLines = this.storage.getSavedOutputLines();
         //
         // Install new, temp zone for output of storage lines.
@@ -735,6 +983,8 @@ class ConWinOut implements WinBufEventListener
                                                             USE_TERM_RESTORE);
         // It must be unscrollable zone without buffer
         // (only one output):
+        tempScrollZone.setOutputCounters(this.outputCounters);
+        tempScrollZone.setPrintLatency(this.getPrintLatency());
         tempScrollZone.turnOffStorage();
         tempScrollZone.setScrollable(false);
         //
@@ -774,9 +1024,17 @@ class ConWinOut implements WinBufEventListener
         //
         //
         this.zoneCursorScrolledDown++;// remember how many lines have been scrolled
+        this.scrollsCount++;
         //
         // re-calculate cursor position within the zone after scrolling
         this.takeTerminalCursorPosition();
+        //
+        if ( jfrEvent.shouldCommit() ) {
+            jfrEvent.scope = this.outputCounters.getScope();
+            jfrEvent.lines = prevLines.size() - firstShownLineIndex;
+            jfrEvent.bytes = this.outputCounters.getBytes() - bytesBefore;
+            jfrEvent.commit();
+        }
     }
     
     
@@ -269,6 +269,56 @@ public class ConWinOutBrush
     
     
     
+    /**
+     * @return font color command ('' - default color)
+     */
+    public String getBrushColor() {
+        return this.brushColor.toString();
+    }
+    
+    /**
+     * @return font background command ('' - default background)
+     */
+    public String getBrushBackground() {
+        return this.brushBackground.toString();
+    }
+    
+    /**
+     * @param style console style to check
+     * @return is the style applied
+     */
+    public boolean hasBrushStyle(final ConStyles style) {
+        return this.brushStyles.contains(style);
+    }
+    
+    /**
+     * @return copy of applied styles (in order of applying)
+     */
+    public List<ConStyles> getBrushStyles() {
+        return new ArrayList<>(this.brushStyles);
+    }
+    
+    /**
+     * Take all the state of the other brush (without new objects).
+     * @param brushToCopy brush to be copied
+     * @throws NullPointerException in case there is nothing to copy
+     */
+    public void setBrush(final ConWinOutBrush brushToCopy) throws NullPointerException {
+        if ( null == brushToCopy ) {
+            String excMsg = "There is no brush to copy";
+            throw new NullPointerException(excMsg);
+        }
+        //
+        this.brushColor.setLength(0);
+        this.brushColor.append(brushToCopy.brushColor);
+        this.brushBackground.setLength(0);
+        this.brushBackground.append(brushToCopy.brushBackground);
+        this.brushStyles.clear();
+        this.brushStyles.addAll(brushToCopy.brushStyles);
+    }
+    
+    
+    
     /**
      * Will add new console style if style is not applied already.
      * Skips the same (already applied) style.
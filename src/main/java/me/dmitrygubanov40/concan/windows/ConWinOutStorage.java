@@ -25,9 +25,14 @@ class ConWinOutStorage
     // maximum of such lines in archive
     private final static int MAX_LINES_LIMIT;
     
+    // memory of a line besides its chars (line object, builder, saved brush)
+    private final static int ESTIMATED_LINE_OVERHEAD_BYTES;
+    
     static {
         DEFAULT_LINES_LIMIT = 100;
         MAX_LINES_LIMIT = 10000;
+        //
+        ESTIMATED_LINE_OVERHEAD_BYTES = 96;
     }
     
     
@@ -57,6 +62,9 @@ class ConWinOutStorage
     // safe mode for multi-threading
     private final boolean isAsyncSafe;
     
+    // chars in all saved lines (can be read from other threads, i.e. by monitoring)
+    private volatile long storedChars;
+    
     
     ////////////////////////
     
@@ -94,6 +102,8 @@ class ConWinOutStorage
         this.linesWidth = initWidth;
         this.linesLimit = initLinesLimit;
         //
+        this.storedChars = 0;
+        //
         // storage supposed to be an "empty link"
         if ( 0 == initLinesLimit ) this.turnOff();
         //
@@ -115,6 +125,32 @@ class ConWinOutStorage
         return this.linesLimit;
     }
     
+    /**
+     * @return number of lines in memory ('0' for the storage which is off)
+     */
+    public int getLinesCount() {
+        final ConWinOutStorageList<OutputBufferString> lines = this.savedLines;
+        if ( this.isOff || null == lines ) return 0;
+        //
+        return lines.size();
+    }
+    
+    /**
+     * @return number of chars in all saved lines
+     */
+    public long getStoredChars() {
+        return this.storedChars;
+    }
+    
+    /**
+     * Rough memory estimation: two bytes per char and fixed overhead per line.
+     * @return estimated number of bytes held by the storage
+     */
+    public long getEstimatedBytes() {
+        return this.getStoredChars() * Character.BYTES
+                + (long) this.getLinesCount() * ConWinOutStorage.ESTIMATED_LINE_OVERHEAD_BYTES;
+    }
+    
     
     
     /**
@@ -146,6 +182,7 @@ class ConWinOutStorage
         //
         this.savedLines = null;
         this.savedBrushes = null;
+        this.storedChars = 0;
     }
     
     /**
@@ -214,6 +251,7 @@ class ConWinOutStorage
         final int lastLineIndex = this.savedLines.size() - 1;
         OutputBufferString lastLine = this.savedLines.get(lastLineIndex);
         lastLine.append(textToAppend);
+        this.storedChars += textToAppend.length();
     }
     
     /**
@@ -277,6 +315,12 @@ class ConWinOutStorage
                                         ? halfList
                                         : screenAndLine;
             //
+            long deletedChars = 0;
+            for ( int i = 0; i < elementsToDelete; i++ ) {
+                deletedChars += this.savedLines.get(i).length();
+            }
+            this.storedChars -= deletedChars;
+            //
             this.savedLines.removeFirst(elementsToDelete);
             // also, synchroniously remove brushes in the archive
             this.savedBrushes.removeFirst(elementsToDelete);
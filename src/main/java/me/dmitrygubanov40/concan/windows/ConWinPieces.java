@@ -0,0 +1,78 @@
+package me.dmitrygubanov40.concan.windows;
+
+import me.dmitrygubanov40.concan.utility.ConUt;
+import me.dmitrygubanov40.concan.winbuffer.WinBufPieces;
+
+
+
+/**
+ * Text prepared once to be printed in many windows (see 'ConWinGroup'):
+ * it is split into regular text and commands, commands are checked,
+ * so each window only adds the pieces to its buffer.
+ * Text which cannot be split safely is kept whole and parsed by each window as usual.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class ConWinPieces implements ConWinPrintable
+{
+    
+    private final WinBufPieces pieces;
+    // the text ends with a new line (printed as 'print()' does it)
+    private final boolean isEndLF;
+    private final int length;
+    
+    
+    
+    /**
+     * @param text text to prepare
+     */
+    ConWinPieces(final String text) {
+        this.isEndLF = text.endsWith(ConUt.LF);
+        this.length = text.length();
+        this.pieces = new WinBufPieces(this.isEndLF ? text.substring(0, text.length() - 1) : text);
+    }
+    
+    
+    
+    /**
+     * @return length of the text (with commands)
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+    
+    /**
+     * @return new lines of the text
+     */
+    @Override
+    public int countLines() {
+        int lines = this.isEndLF ? 1 : 0;
+        for ( int i = 0; i < this.pieces.getCount(); i++ ) lines += ConWinText.countLines(this.pieces.getPiece(i));
+        return lines;
+    }
+    
+    /**
+     * @param zone where to print
+     * @param isNewLine add a new line after the text
+     */
+    @Override
+    public void printTo(final ConWinOut zone, final boolean isNewLine) {
+        if ( this.pieces.isRaw() ) {
+            zone.addToZone(this.pieces.getPiece(0));
+        } else {
+            for ( int i = 0; i < this.pieces.getCount(); i++ ) {
+                final String curPiece = this.pieces.getPiece(i);
+                if ( curPiece.isEmpty() ) continue;
+                //
+                if ( this.pieces.isCmd(i) ) zone.addCmdToZone(curPiece);
+                else                        zone.addTextToZone(curPiece);
+            }
+        }
+        //
+        if ( this.isEndLF && isNewLine ) zone.addCmdToZone(ConUt.LF);
+        if ( this.isEndLF || isNewLine ) zone.addToZone(ConUt.BLF);
+    }
+    
+    
+    
+}
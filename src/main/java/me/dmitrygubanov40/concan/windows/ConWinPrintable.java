@@ -0,0 +1,40 @@
+package me.dmitrygubanov40.concan.windows;
+
+/**
+ * Anything a window prints: text, format or markup with its arguments,
+ * styled text, text prepared for a group of windows.
+ * Queued prints are done later in another thread, so the queue keeps
+ * 'toQueued()' of the print, which does not depend on the caller's data any more.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+interface ConWinPrintable
+{
+    
+    /**
+     * Put the data into the zone (the window's print lock is held).
+     * @param zone where to print
+     * @param isNewLine add a new line after the data
+     */
+    public void printTo(final ConWinOut zone, final boolean isNewLine);
+    
+    /**
+     * @return approximate chars of the print (commands included)
+     */
+    public int length();
+    
+    /**
+     * @return the same print which the caller cannot change (immutable prints are themselves)
+     */
+    public default ConWinPrintable toQueued() {
+        return this;
+    }
+    
+    /**
+     * Used when the print is dropped, to tell how many lines were skipped.
+     * @return new lines in the print ('isNewLine' is not counted)
+     */
+    public default int countLines() {
+        return 0;
+    }
+    
+}
@@ -0,0 +1,557 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import me.dmitrygubanov40.concan.strain.OutputCounters;
+import me.dmitrygubanov40.concan.strain.OutputStats;
+
+
+
+/**
+ * Bounded output queue of a window: prints are queued by the calling thread
+ * and done by an executor, so a slow terminal does not stall the callers.
+ * Only one drain runs at a time, so prints keep their order.
+ * What happens when the queue is full is set by 'ConWinQueuePolicy'.
+ * Queues of windows added to 'ConWinScheduler' are printed by the scheduler.
+ * Closed queue prints what it has, and refuses new prints after that
+ * (callers print themselves, after the queued prints).
+ * See 'ConWin.startQueue()'.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConWinQueue
+{
+    
+    // shared executor of all queues without their own one
+    private static final ExecutorService DEFAULT_EXECUTOR;
+    private static final AtomicInteger threadsCounter;
+    
+    // line which is printed instead of collapsed prints ("... 12 lines skipped")
+    private static final String SKIPPED_PREFIX;
+    private static final String SKIPPED_SUFFIX;
+    
+    static {
+        threadsCounter = new AtomicInteger(0);
+        DEFAULT_EXECUTOR = Executors.newCachedThreadPool(task -> {
+            Thread printThread = new Thread(task, "concan-print-" + threadsCounter.incrementAndGet());
+            printThread.setDaemon(true);
+            return printThread;
+        });
+        //
+        SKIPPED_PREFIX = "... ";
+        SKIPPED_SUFFIX = " lines skipped";
+    }
+    
+    ////////////
+    
+    /**
+     * One queued print (its data does not change after it is queued).
+     */
+    private static final class Job
+    {
+        private final ConWinPrintable printable;
+        private final boolean isNewLine;
+    
+        private Job(final ConWinPrintable initPrintable, final boolean initIsNewLine) {
+            this.printable = initPrintable;
+            this.isNewLine = initIsNewLine;
+        }
+    }
+    
+    ////////////
+    
+    private final ConWin window;
+    // output of the window (to know the real cost of prints)
+    private final OutputCounters counters;
+    private final int capacity;
+    private final ConWinQueuePolicy policy;
+    private final Executor executor;
+    // prints the queue instead of the executor ('null' - the queue drains itself)
+    private volatile ConWinScheduler scheduler;
+    
+    // all the state below is guarded by the lock
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    // signalled when a drain (or one print of the scheduler) is over
+    private final Condition drained;
+    private final Deque<Job> jobs;
+    // lines collapsed since the last "skipped" line
+    private long skippedLines;
+    // is a drain already scheduled or running
+    private boolean draining;
+    // no more prints are taken
+    private boolean closed;
+    private int maxDepth;
+    
+    private final LongAdder printed;
+    private final LongAdder dropped;
+    private final LongAdder collapsed;
+    private final LongAdder failed;
+    
+    
+    
+    /**
+     * @param initWindow window to print in
+     * @param initCapacity max prints in the queue
+     * @param initPolicy what to do when the queue is full
+     * @param initExecutor where prints are done ('null' - shared daemon threads)
+     * @throws NullPointerException when there is no window or policy
+     * @throws IllegalArgumentException with non-positive capacity
+     */
+    ConWinQueue(final ConWin initWindow,
+                final int initCapacity,
+                final ConWinQueuePolicy initPolicy,
+                final Executor initExecutor)
+                    throws NullPointerException, IllegalArgumentException {
+        if ( null == initWindow || null == initPolicy ) {
+            String excMsg = "Output queue needs a window and a queue policy";
+            throw new NullPointerException(excMsg);
+        }
+        if ( initCapacity <= 0 ) {
+            String excMsg = "Output queue must have positive capacity, given: " + initCapacity;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.window = initWindow;
+        this.counters = OutputStats.scope(initWindow.getStatsScope());
+        this.capacity = initCapacity;
+        this.policy = initPolicy;
+        this.executor = (null == initExecutor) ? ConWinQueue.DEFAULT_EXECUTOR : initExecutor;
+        this.scheduler = null;
+        //
+        this.lock = new ReentrantLock();
+        this.notFull = this.lock.newCondition();
+        this.drained = this.lock.newCondition();
+        this.jobs = new ArrayDeque<>();
+        this.skippedLines = 0;
+        this.draining = false;
+        this.closed = false;
+        this.maxDepth = 0;
+        //
+        this.printed = new LongAdder();
+        this.dropped = new LongAdder();
+        this.collapsed = new LongAdder();
+        this.failed = new LongAdder();
+    }
+    
+    
+    
+    public ConWinQueuePolicy getPolicy() {
+        return this.policy;
+    }
+    
+    public int getCapacity() {
+        return this.capacity;
+    }
+    
+    /**
+     * @return prints in the queue now
+     */
+    public int getDepth() {
+        this.lock.lock();
+        try {
+            return this.jobs.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the greatest depth the queue had
+     */
+    public int getMaxDepth() {
+        this.lock.lock();
+        try {
+            return this.maxDepth;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    public long getPrinted() {
+        return this.printed.sum();
+    }
+    
+    /**
+     * @return prints which were dropped (collapsed ones included)
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+    
+    /**
+     * @return lines which were replaced by "skipped" lines
+     */
+    public long getCollapsedLines() {
+        return this.collapsed.sum();
+    }
+    
+    /**
+     * @return prints which ended with an exception
+     */
+    public long getFailed() {
+        return this.failed.sum();
+    }
+    
+    /**
+     * @return nothing is queued or being printed
+     */
+    public boolean isIdle() {
+        this.lock.lock();
+        try {
+            return this.isIdleNow();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the queue was closed ('ConWin.stopQueue()')
+     */
+    public boolean isClosed() {
+        this.lock.lock();
+        try {
+            return this.closed;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait till everything queued is printed.
+     * @param timeoutMs max time to wait
+     * @return is the queue idle
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    public boolean awaitIdle(final long timeoutMs) throws InterruptedException {
+        long leftNs = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.lock.lock();
+        try {
+            while ( !this.isIdleNow() ) {
+                if ( leftNs <= 0 ) return false;
+                leftNs = this.drained.awaitNanos(leftNs);
+            }
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Under the lock.
+     * @return nothing is queued or being printed
+     */
+    private boolean isIdleNow() {
+        return this.jobs.isEmpty() && 0 == this.skippedLines && !this.draining;
+    }
+    
+    /**
+     * Under the lock: a drain or a print of the scheduler is over.
+     */
+    private void endDraining() {
+        this.draining = false;
+        this.drained.signalAll();
+    }
+    
+    
+    
+    /**
+     * Calling thread: queue the print by the policy.
+     * Data must not change after the call (see 'ConWinPrintable.toQueued()').
+     * @param printable what to print
+     * @param isNewLine put new line after the text
+     * @return 'false' when the queue is closed: the caller prints itself
+     *          (the queue has already printed everything)
+     */
+    boolean offer(final ConWinPrintable printable, final boolean isNewLine) {
+        final Job job = new Job(printable, isNewLine);
+        final ConWinScheduler curScheduler;
+        this.lock.lock();
+        try {
+            final boolean isQueued = !this.closed && this.enqueue(job);
+            // closed before the call, or while waiting for space (BLOCK)
+            if ( this.closed ) {
+                // queued prints go first
+                while ( !this.isIdleNow() ) this.drained.awaitUninterruptibly();
+                return false;
+            }
+            if ( !isQueued ) return true;
+            //
+            this.maxDepth = Math.max(this.maxDepth, this.jobs.size());
+            curScheduler = this.scheduler;
+            if ( null == curScheduler ) {
+                if ( this.draining ) return true;
+                this.draining = true;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        //
+        if ( null != curScheduler ) curScheduler.wakeUp(this);
+        else                        this.scheduleDrain();
+        return true;
+    }
+    
+    /**
+     * Under the lock.
+     * @param job print to queue
+     * @return is the print queued (a closed queue does not take it, see 'offer()')
+     */
+    private boolean enqueue(final Job job) {
+        if ( this.jobs.size() < this.capacity ) {
+            this.addCollapsedLine();
+            this.jobs.addLast(job);
+            return true;
+        }
+        //
+        switch ( this.policy ) {
+            case BLOCK:
+                try {
+                    while ( this.jobs.size() >= this.capacity && !this.closed ) this.notFull.await();
+                } catch ( InterruptedException interruptExc ) {
+                    Thread.currentThread().interrupt();
+                    this.dropped.increment();
+                    return false;
+                }
+                if ( this.closed ) return false;
+                this.jobs.addLast(job);
+                return true;
+            case DROP_OLDEST:
+                this.jobs.pollFirst();
+                this.dropped.increment();
+                this.jobs.addLast(job);
+                return true;
+            case COLLAPSE:
+                final long lines = ConWinQueue.countLines(job);
+                this.skippedLines += lines;
+                this.collapsed.add(lines);
+                this.dropped.increment();
+                return false;
+            case DROP_NEWEST:
+            default:
+                this.dropped.increment();
+                return false;
+        }
+    }
+    
+    /**
+     * Under the lock: "skipped" line takes its place before the next print
+     * (it is not counted in the capacity).
+     */
+    private void addCollapsedLine() {
+        if ( 0 == this.skippedLines ) return;
+        //
+        final String skipped = ConWinQueue.SKIPPED_PREFIX + this.skippedLines + ConWinQueue.SKIPPED_SUFFIX;
+        this.jobs.addLast(new Job(new ConWinText(skipped), true));
+        this.skippedLines = 0;
+    }
+    
+    /**
+     * @param job dropped print
+     * @return lines of the print (at least one)
+     */
+    private static long countLines(final Job job) {
+        long lines = job.isNewLine ? 1 : 0;
+        lines += job.printable.countLines();
+        return Math.max(1, lines);
+    }
+    
+    private void scheduleDrain() {
+        try {
+            this.executor.execute(this::drain);
+        } catch ( RejectedExecutionException rejectExc ) {
+            // executor is shut down: prints stay in the queue
+            this.lock.lock();
+            try {
+                this.endDraining();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Executor thread: print all queued data.
+     */
+    private void drain() {
+        while ( true ) {
+            final Job job;
+            final ConWinScheduler curScheduler;
+            this.lock.lock();
+            try {
+                curScheduler = this.scheduler;
+                // the queue could be given to a scheduler meanwhile
+                job = (null == curScheduler) ? this.pollJob() : null;
+                if ( null == job ) this.endDraining();
+            } finally {
+                this.lock.unlock();
+            }
+            //
+            if ( null == job ) {
+                if ( null != curScheduler ) curScheduler.wakeUp(this);
+                return;
+            }
+            this.printJob(job);
+        }
+    }
+    
+    /**
+     * Under the lock: the next print ("skipped" line goes when the queue is empty).
+     * @return the print, 'null' when there is nothing to print
+     */
+    private Job pollJob() {
+        if ( this.jobs.isEmpty() ) this.addCollapsedLine();
+        final Job job = this.jobs.pollFirst();
+        if ( null != job ) this.notFull.signal();
+        //
+        return job;
+    }
+    
+    private void printJob(final Job job) {
+        try {
+            this.window.printNow(job.printable, job.isNewLine);
+            this.printed.increment();
+        } catch ( RuntimeException printExc ) {
+            // a broken print must not stop the queue
+            this.failed.increment();
+        }
+    }
+    
+    
+    
+    /**
+     * Print everything queued and take no more prints ('ConWin.stopQueue()').
+     * A running drain is waited for, what is left is printed in the calling thread
+     * (the executor may be shut down). Must not be called from a print of the queue.
+     */
+    void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            // blocked callers print themselves after the queue
+            this.notFull.signalAll();
+            while ( true ) {
+                while ( this.draining ) this.drained.awaitUninterruptibly();
+                final Job job = this.pollJob();
+                if ( null == job ) return;
+                //
+                this.draining = true;
+                this.lock.unlock();
+                try {
+                    this.printJob(job);
+                } finally {
+                    this.lock.lock();
+                    this.endDraining();
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * @param newScheduler who prints the queue, 'null' - the queue drains itself again
+     */
+    void setScheduler(final ConWinScheduler newScheduler) {
+        this.lock.lock();
+        try {
+            this.scheduler = newScheduler;
+            if ( null != newScheduler || this.draining ) return;
+            if ( this.jobs.isEmpty() && 0 == this.skippedLines ) return;
+            this.draining = true;
+        } finally {
+            this.lock.unlock();
+        }
+        //
+        this.scheduleDrain();
+    }
+    
+    /**
+     * Scheduler: is there something to print.
+     * @return the queue has prints (or a "skipped" line)
+     */
+    boolean hasPrints() {
+        this.lock.lock();
+        try {
+            return !this.jobs.isEmpty() || 0 != this.skippedLines;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Scheduler: print the next queued data.
+     * @return bytes the print sent to the terminal (chars of the print if output is not counted),
+     *          '0' when there was nothing to print (or it is printed by the queue itself)
+     */
+    int printNext() {
+        final Job job;
+        this.lock.lock();
+        try {
+            // the queue still drains itself (it was just given to the scheduler)
+            if ( this.draining ) return 0;
+            job = this.pollJob();
+            if ( null == job ) return 0;
+            this.draining = true;
+        } finally {
+            this.lock.unlock();
+        }
+        //
+        final long bytesBefore = this.counters.getBytes();
+        boolean isDrainNeeded = false;
+        try {
+            this.printJob(job);
+        } finally {
+            this.lock.lock();
+            try {
+                this.endDraining();
+                // the queue was removed from the scheduler meanwhile
+                if ( null == this.scheduler && (!this.jobs.isEmpty() || 0 != this.skippedLines) ) {
+                    this.draining = true;
+                    isDrainNeeded = true;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+        if ( isDrainNeeded ) this.scheduleDrain();
+        //
+        final long bytes = this.counters.getBytes() - bytesBefore;
+        if ( bytes > 0 ) return (int) Math.min(Integer.MAX_VALUE, bytes);
+        return ConWinQueue.chars(job);
+    }
+    
+    /**
+     * @param job queued print
+     * @return approximate chars of the print
+     */
+    private static int chars(final Job job) {
+        final int chars = job.printable.length() + (job.isNewLine ? 1 : 0);
+        return Math.max(1, chars);
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ": [policy: " + this.policy.getPolicyName()
+                    + ", depth: " + this.getDepth() + "/" + this.capacity
+                    + ", printed: " + this.getPrinted()
+                    + ", dropped: " + this.getDropped()
+                    + ", failed: " + this.getFailed() + "]";
+        return str;
+    }
+    
+    
+    
+}
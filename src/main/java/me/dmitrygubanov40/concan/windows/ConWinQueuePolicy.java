@@ -0,0 +1,53 @@
+package me.dmitrygubanov40.concan.windows;
+
+/**
+ * What to do with a print when the window's output queue is full (see 'ConWin.startQueue()').
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public enum ConWinQueuePolicy
+{
+    
+    // printing thread waits for free space (nothing is lost, the caller may stall)
+    BLOCK           ("block"),
+    // the new print is dropped
+    DROP_NEWEST     ("dropNewest"),
+    // the oldest queued print is dropped to make space for the new one
+    DROP_OLDEST     ("dropOldest"),
+    // new prints are dropped, and one "N lines skipped" line is printed instead of them
+    COLLAPSE        ("collapse");
+    
+    ////////////////////////////
+    
+    private final String policyName;
+    
+    ////////////////////////////
+    
+    
+    /**
+     * @param initPolicyName text code of the policy
+     */
+    ConWinQueuePolicy(final String initPolicyName) {
+        this.policyName = initPolicyName;
+    }
+    
+    
+    
+    /**
+     * @return string of policy name
+     */
+    public String getPolicyName() {
+        return this.policyName;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String className = this.getClass().getSimpleName();
+        String str = className + ": " + this.policyName;
+        return str;
+    }
+    
+    
+    
+}
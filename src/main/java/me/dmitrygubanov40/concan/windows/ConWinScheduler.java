@@ -0,0 +1,525 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+
+/**
+ * Shares the terminal between windows: output queues of the windows
+ * (see 'ConWin.startQueue()') are printed by the scheduler.
+ * Windows of one priority are printed by one thread with deficit round-robin:
+ * each round (frame) a window may send about 'quantum * weight' bytes to the terminal,
+ * so a flooding log window cannot take the bandwidth of the others.
+ * Each priority has its own thread, which does not start prints while windows
+ * with greater priority have something to print, and they never wait for its prints:
+ * so a small status window keeps low latency while a log window is flooding.
+ * A window with greater priority which prints all the time holds the windows with less priority.
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+public final class ConWinScheduler
+{
+    
+    // bytes per round of a window with weight '1'
+    public static final int DEFAULT_QUANTUM;
+    private static final int MIN_QUANTUM;
+    private static final int MAX_WEIGHT;
+    // queue of a window without its own one
+    private static final int DEFAULT_QUEUE_CAPACITY;
+    // waiting is not endless (i.e. to notice closing)
+    private static final long MAX_WAIT_MS;
+    
+    private static final AtomicInteger schedulersCounter;
+    
+    static {
+        DEFAULT_QUANTUM = 1024;
+        MIN_QUANTUM = 64;
+        MAX_WEIGHT = 1000;
+        DEFAULT_QUEUE_CAPACITY = 1024;
+        MAX_WAIT_MS = 100;
+        //
+        schedulersCounter = new AtomicInteger(0);
+    }
+    
+    ////////////
+    
+    /**
+     * Scheduled window with its share.
+     */
+    private static final class Entry
+    {
+        private final ConWin window;
+        private final ConWinQueue queue;
+        private final int weight;
+        // bytes the window may send in this round (thread of the lane only)
+        private long deficit;
+        private final LongAdder printedBytes;
+    
+        private Entry(final ConWin initWindow, final ConWinQueue initQueue, final int initWeight) {
+            this.window = initWindow;
+            this.queue = initQueue;
+            this.weight = initWeight;
+            this.deficit = 0;
+            this.printedBytes = new LongAdder();
+        }
+    }
+    
+    /**
+     * Windows of one priority with their thread.
+     */
+    private static final class Lane
+    {
+        private final int priority;
+        // the list is replaced on changes
+        private volatile List<Entry> entries;
+        private final Condition workAdded;
+        // new prints since the lane looked at the queues (under the scheduler's lock)
+        private boolean isWorkAdded;
+        // the lane is printing (or is about to)
+        private volatile boolean isBusy;
+        private volatile boolean isClosed;
+    
+        private Lane(final int initPriority, final Condition initWorkAdded) {
+            this.priority = initPriority;
+            this.entries = new ArrayList<>();
+            this.workAdded = initWorkAdded;
+            this.isWorkAdded = false;
+            this.isBusy = false;
+            this.isClosed = false;
+        }
+    }
+    
+    ////////////
+    
+    private final int quantum;
+    private final int id;
+    // lanes print in their own threads ('false' - only by 'serveOnce()', for tests)
+    private final boolean hasLaneThreads;
+    
+    // lanes by priority, greater first (the list is replaced on changes)
+    private volatile List<Lane> lanes;
+    
+    private final ReentrantLock lock;
+    // some lane has nothing to print now
+    private final Condition laneIdle;
+    private volatile boolean isRunning;
+    
+    private final LongAdder rounds;
+    
+    
+    
+    /**
+     * @param initQuantum bytes per round of a window with weight '1'
+     * @param initHasLaneThreads 'false' - nothing is printed but by 'serveOnce()' (tests)
+     * @throws IllegalArgumentException with too small quantum
+     */
+    ConWinScheduler(final int initQuantum, final boolean initHasLaneThreads) throws IllegalArgumentException {
+        if ( initQuantum < ConWinScheduler.MIN_QUANTUM ) {
+            String excMsg = "Scheduler quantum must be at least " + ConWinScheduler.MIN_QUANTUM
+                                + " bytes, given: " + initQuantum;
+            throw new IllegalArgumentException(excMsg);
+        }
+        //
+        this.quantum = initQuantum;
+        this.id = ConWinScheduler.schedulersCounter.incrementAndGet();
+        this.hasLaneThreads = initHasLaneThreads;
+        this.lanes = new ArrayList<>();
+        this.lock = new ReentrantLock();
+        this.laneIdle = this.lock.newCondition();
+        this.isRunning = true;
+        this.rounds = new LongAdder();
+    }
+    /**
+     * @param initQuantum bytes per round of a window with weight '1'
+     * @throws IllegalArgumentException with too small quantum
+     */
+    public ConWinScheduler(final int initQuantum) throws IllegalArgumentException {
+        this(initQuantum, true);
+    }
+    public ConWinScheduler() {
+        this(ConWinScheduler.DEFAULT_QUANTUM);
+    }
+    
+    
+    
+    /**
+     * Window's prints are done by the scheduler from now on.
+     * A window without an output queue gets one (blocking, nothing is lost).
+     * @param window window to schedule
+     * @param weight share of the bandwidth among windows of the same priority (from 1)
+     * @param priority windows with greater priority are printed first
+     * @throws NullPointerException when there is no window
+     * @throws IllegalArgumentException with wrong weight, or the window is already scheduled
+     * @throws IllegalStateException when the scheduler is closed
+     */
+    public synchronized void add(final ConWin window, final int weight, final int priority)
+                    throws NullPointerException, IllegalArgumentException, IllegalStateException {
+        if ( null == window ) {
+            String excMsg = "Cannot schedule null-window";
+            throw new NullPointerException(excMsg);
+        }
+        if ( weight < 1 || weight > ConWinScheduler.MAX_WEIGHT ) {
+            String excMsg = "Window weight must be from 1 to " + ConWinScheduler.MAX_WEIGHT + ", given: " + weight;
+            throw new IllegalArgumentException(excMsg);
+        }
+        if ( null != this.findEntry(window) ) {
+            String excMsg = "Window #" + window.getId() + " is already scheduled";
+            throw new IllegalArgumentException(excMsg);
+        }
+        if ( !this.isRunning ) {
+            String excMsg = "Scheduler is closed";
+            throw new IllegalStateException(excMsg);
+        }
+        //
+        final ConWinQueue queue = window.getOrStartQueue(ConWinScheduler.DEFAULT_QUEUE_CAPACITY,
+                                                            ConWinQueuePolicy.BLOCK);
+        //
+        Lane lane = this.findLane(priority);
+        if ( null == lane ) lane = this.openLane(priority);
+        final List<Entry> newEntries = new ArrayList<>(lane.entries);
+        newEntries.add(new Entry(window, queue, weight));
+        lane.entries = newEntries;
+        queue.setScheduler(this);
+        //
+        this.wakeUp(queue);
+    }
+    public void add(final ConWin window, final int weight) {
+        this.add(window, weight, 0);
+    }
+    
+    /**
+     * The window's queue drains itself again.
+     * @param window scheduled window
+     */
+    public synchronized void remove(final ConWin window) {
+        for ( Lane curLane : this.lanes ) {
+            for ( Entry curEntry : curLane.entries ) {
+                if ( curEntry.window != window ) continue;
+                //
+                final List<Entry> newEntries = new ArrayList<>(curLane.entries);
+                newEntries.remove(curEntry);
+                curLane.entries = newEntries;
+                if ( newEntries.isEmpty() ) this.closeLane(curLane);
+                curEntry.queue.setScheduler(null);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Stop the scheduler, queues of the windows drain themselves again.
+     */
+    public synchronized void close() {
+        this.isRunning = false;
+        for ( Lane curLane : this.lanes ) {
+            this.closeLane(curLane);
+            for ( Entry curEntry : curLane.entries ) {
+                curEntry.queue.setScheduler(null);
+            }
+        }
+    }
+    
+    private Entry findEntry(final ConWin window) {
+        for ( Lane curLane : this.lanes ) {
+            for ( Entry curEntry : curLane.entries ) {
+                if ( curEntry.window == window ) return curEntry;
+            }
+        }
+        return null;
+    }
+    
+    private Lane findLane(final int priority) {
+        for ( Lane curLane : this.lanes ) {
+            if ( curLane.priority == priority ) return curLane;
+        }
+        return null;
+    }
+    
+    /**
+     * Under the monitor: new lane with its thread.
+     * @param priority priority of the lane's windows
+     * @return the lane
+     */
+    private Lane openLane(final int priority) {
+        final Lane lane = new Lane(priority, this.lock.newCondition());
+        final List<Lane> newLanes = new ArrayList<>(this.lanes);
+        newLanes.add(lane);
+        newLanes.sort(Comparator.comparingInt((Lane curLane) -> curLane.priority).reversed());
+        this.lanes = newLanes;
+        if ( !this.hasLaneThreads ) return lane;
+        //
+        final Thread laneThread = new Thread(() -> this.runLane(lane),
+                                                "concan-scheduler-" + this.id + "-" + priority);
+        laneThread.setDaemon(true);
+        laneThread.start();
+        return lane;
+    }
+    
+    /**
+     * Under the monitor: the lane's thread ends, lanes with less priority do not wait for it.
+     * @param lane lane without windows
+     */
+    private void closeLane(final Lane lane) {
+        final List<Lane> newLanes = new ArrayList<>(this.lanes);
+        newLanes.remove(lane);
+        this.lanes = newLanes;
+        //
+        this.lock.lock();
+        try {
+            lane.isClosed = true;
+            lane.workAdded.signal();
+            this.laneIdle.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    
+    
+    public int getQuantum() {
+        return this.quantum;
+    }
+    
+    /**
+     * @return scheduled windows
+     */
+    public int size() {
+        int size = 0;
+        for ( Lane curLane : this.lanes ) size += curLane.entries.size();
+        return size;
+    }
+    
+    /**
+     * @param window scheduled window
+     * @return bytes the window sent to the terminal by the scheduler, '0' for unknown windows
+     */
+    public long getPrintedBytes(final ConWin window) {
+        final Entry entry = this.findEntry(window);
+        return (null == entry) ? 0 : entry.printedBytes.sum();
+    }
+    
+    /**
+     * @return rounds (frames) of all priorities
+     */
+    public long getRounds() {
+        return this.rounds.sum();
+    }
+    
+    
+    
+    /**
+     * Queue: there is something new to print.
+     * @param queue queue of a scheduled window
+     */
+    void wakeUp(final ConWinQueue queue) {
+        this.lock.lock();
+        try {
+            for ( Lane curLane : this.lanes ) {
+                for ( Entry curEntry : curLane.entries ) {
+                    if ( curEntry.queue != queue ) continue;
+                    //
+                    curLane.isWorkAdded = true;
+                    curLane.workAdded.signal();
+                    return;
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Thread of the lane: prints while there is something to print, then waiting.
+     * @param lane windows of one priority
+     */
+    private void runLane(final Lane lane) {
+        while ( this.isRunning && !lane.isClosed ) {
+            this.lock.lock();
+            try {
+                if ( !lane.isWorkAdded ) lane.workAdded.await(ConWinScheduler.MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+                lane.isWorkAdded = false;
+                lane.isBusy = true;
+            } catch ( InterruptedException interruptExc ) {
+                return;
+            } finally {
+                this.lock.unlock();
+            }
+            //
+            try {
+                while ( this.isRunning && !lane.isClosed && this.serveNext(lane) ) {
+                    // next print
+                }
+            } finally {
+                this.lock.lock();
+                try {
+                    lane.isBusy = false;
+                    this.laneIdle.signalAll();
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Waits while lanes with greater priority have something to print.
+     * @param lane lane which is going to print
+     * @return can the lane print
+     */
+    private boolean awaitHigherLanes(final Lane lane) {
+        this.lock.lock();
+        try {
+            while ( this.isHigherLaneBusy(lane) ) {
+                if ( !this.isRunning || lane.isClosed ) return false;
+                this.laneIdle.await(ConWinScheduler.MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch ( InterruptedException interruptExc ) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Under the lock.
+     * @param lane lane which is going to print
+     * @return lanes with greater priority print (or are going to)
+     */
+    private boolean isHigherLaneBusy(final Lane lane) {
+        for ( Lane curLane : this.lanes ) {
+            if ( curLane.priority <= lane.priority ) break;
+            if ( curLane.isBusy ) return true;
+            for ( Entry curEntry : curLane.entries ) {
+                if ( curEntry.queue.hasPrints() ) return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * One print of the lane's window which still has its deficit
+     * (the real bytes of the print are taken from the deficit).
+     * 'false' is returned as well when the window's queue still drains itself
+     * (it was just given to the scheduler): the lane waits, and the queue wakes it up
+     * at the end of its drain ('ConWinQueue.drain()'), 'MAX_WAIT_MS' is only the last resort.
+     * @param lane windows of one priority
+     * @return was something printed
+     */
+    private boolean serveNext(final Lane lane) {
+        if ( !this.awaitHigherLanes(lane) ) return false;
+        //
+        return this.printNext(lane);
+    }
+    
+    /**
+     * Tests: one print of the lane in the calling thread (see 'serveNext()').
+     * Lanes with greater priority are not waited for: nothing is printed while they have prints.
+     * @param priority priority of the lane
+     * @return was something printed
+     */
+    boolean serveOnce(final int priority) {
+        final Lane lane = this.findLane(priority);
+        if ( null == lane ) return false;
+        //
+        this.lock.lock();
+        try {
+            if ( this.isHigherLaneBusy(lane) ) return false;
+        } finally {
+            this.lock.unlock();
+        }
+        return this.printNext(lane);
+    }
+    
+    /**
+     * The next print of the lane (greater priorities are already checked).
+     * @param lane windows of one priority
+     * @return was something printed
+     */
+    private boolean printNext(final Lane lane) {
+        final List<Entry> curEntries = lane.entries;
+        Entry next = null;
+        boolean hasPrints = false;
+        for ( Entry curEntry : curEntries ) {
+            if ( !curEntry.queue.hasPrints() ) {
+                // idle window does not save its share, but the next print goes at once
+                curEntry.deficit = this.getShare(curEntry);
+                continue;
+            }
+            hasPrints = true;
+            if ( curEntry.deficit > 0 ) {
+                next = curEntry;
+                break;
+            }
+        }
+        if ( !hasPrints ) return false;
+        if ( null == next ) next = this.startRound(curEntries);
+        //
+        final int printedBytes = next.queue.printNext();
+        // the queue finishes its own drain, and wakes the lane up then
+        if ( 0 == printedBytes ) return false;
+        next.deficit -= printedBytes;
+        next.printedBytes.add(printedBytes);
+        return true;
+    }
+    
+    /**
+     * All windows with prints have spent their deficits: new round(s).
+     * Rounds which would print nothing are not spun, their quanta are given at once.
+     * @param curEntries windows of one priority
+     * @return the window to print next
+     */
+    private Entry startRound(final List<Entry> curEntries) {
+        long roundsNeeded = Long.MAX_VALUE;
+        for ( Entry curEntry : curEntries ) {
+            if ( !curEntry.queue.hasPrints() ) continue;
+            //
+            final long share = this.getShare(curEntry);
+            roundsNeeded = Math.min(roundsNeeded, (share - curEntry.deficit) / share);
+        }
+        if ( Long.MAX_VALUE == roundsNeeded ) {
+            // the only prints were just taken by a queue itself
+            roundsNeeded = 1;
+        }
+        //
+        Entry next = null;
+        for ( Entry curEntry : curEntries ) {
+            if ( !curEntry.queue.hasPrints() ) continue;
+            //
+            curEntry.deficit += roundsNeeded * this.getShare(curEntry);
+            if ( null == next && curEntry.deficit > 0 ) next = curEntry;
+        }
+        this.rounds.add(roundsNeeded);
+        return (null == next) ? curEntries.get(0) : next;
+    }
+    
+    /**
+     * @param entry scheduled window
+     * @return bytes the window may send per round
+     */
+    private long getShare(final Entry entry) {
+        return (long) this.quantum * entry.weight;
+    }
+    
+    
+    
+    @Override
+    public String toString() {
+        String str = this.getClass().getSimpleName()
+                    + ": [windows: " + this.size()
+                    + ", priorities: " + this.lanes.size()
+                    + ", quantum: " + this.quantum
+                    + ", rounds: " + this.getRounds() + "]";
+        return str;
+    }
+    
+    
+    
+}
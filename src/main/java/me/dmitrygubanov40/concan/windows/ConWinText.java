@@ -0,0 +1,72 @@
+package me.dmitrygubanov40.concan.windows;
+
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+
+
+/**
+ * Text print of a window (commands in the text are parsed by the window).
+ * @author Dmitry Gubanov, dmitry.gubanov40@gmail.com
+ */
+final class ConWinText implements ConWinPrintable
+{
+    
+    private final CharSequence chars;
+    
+    
+    
+    /**
+     * @param initChars text to print (it is not copied)
+     */
+    ConWinText(final CharSequence initChars) {
+        this.chars = initChars;
+    }
+    
+    
+    
+    @Override
+    public void printTo(final ConWinOut zone, final boolean isNewLine) {
+        if ( isNewLine ) zone.println(this.chars);
+        else             zone.print(this.chars);
+    }
+    
+    @Override
+    public int length() {
+        return this.chars.length();
+    }
+    
+    /**
+     * @return text copied into a string (unless it is a string already)
+     */
+    @Override
+    public ConWinPrintable toQueued() {
+        if ( this.chars instanceof String ) return this;
+        //
+        return new ConWinText(this.chars.toString());
+    }
+    
+    /**
+     * @return new lines in the text
+     */
+    @Override
+    public int countLines() {
+        return ConWinText.countLines(this.chars);
+    }
+    
+    /**
+     * @param chars any text, 'null' has no lines
+     * @return new lines in the text
+     */
+    static int countLines(final CharSequence chars) {
+        if ( null == chars ) return 0;
+        //
+        int lines = 0;
+        for ( int i = 0; i < chars.length(); i++ ) {
+            if ( ConUt.LF.charAt(0) == chars.charAt(i) ) lines++;
+        }
+        return lines;
+    }
+    
+    
+    
+}
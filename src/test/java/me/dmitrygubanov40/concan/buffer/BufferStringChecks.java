@@ -0,0 +1,50 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+/**
+ * Checks shared by tests of all the 'BufferString' implementations.
+ */
+final class BufferStringChecks
+{
+    
+    private BufferStringChecks() {
+    }
+    
+    ////////////////
+    
+    /**
+     * Random appends, slices and deletes (half of them from the head) must work as with 'StringBuilder'.
+     * @param factory makes an empty buffer string: not safe for many threads or safe
+     * @param maxFillerLength appended strings are up to this number of 'x' and a number
+     */
+    static void checkAsStringBuilder(final Function<Boolean, BufferString> factory, final int maxFillerLength) {
+        final Random rnd = new Random(40);
+        for ( boolean curSafe : new boolean[] { false, true } ) {
+            BufferString str = factory.apply(curSafe);
+            StringBuilder expected = new StringBuilder();
+            //
+            for ( int i = 0; i < 3000; i++ ) {
+                if ( rnd.nextInt(3) > 0 || expected.length() == 0 ) {
+                    final String add = "x".repeat(rnd.nextInt(maxFillerLength + 1)) + rnd.nextInt(100000);
+                    str.append(add);
+                    expected.append(add);
+                } else {
+                    final int start = rnd.nextBoolean() ? 0 : rnd.nextInt(expected.length());
+                    final int end = start + rnd.nextInt(expected.length() - start + 1);
+                    assertEquals(expected.substring(start, end), str.slice(start, end).toString());
+                    str.delete(start, end);
+                    expected.delete(start, end);
+                }
+                assertEquals(expected.length(), str.length());
+                assertEquals(expected.toString(), str.toString());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,86 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class OutputBufferChunksTest
+{
+    
+    @Test
+    public void testLargeAppendAndHead() {
+        final int chunkSize = OutputBufferChunkPool.CHUNK_SIZE;
+        OutputBufferChunks str = new OutputBufferChunks(false);
+        StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < chunkSize * 3; i++ ) expected.append((char) ('a' + i % 26));
+        //
+        str.append(expected.toString());
+        assertEquals(3, str.getChunksCount());
+        assertEquals(expected.toString(), str.toString());
+        assertEquals(expected.charAt(chunkSize + 5), str.charAt(chunkSize + 5));
+        //
+        // whole first chunk is given back
+        str.delete(0, chunkSize + 10);
+        expected.delete(0, chunkSize + 10);
+        assertEquals(2, str.getChunksCount());
+        assertEquals(expected.toString(), str.toString());
+        //
+        str.clear();
+        assertEquals(0, str.length());
+        assertEquals(0, str.getChunksCount());
+    }
+    
+    @Test
+    public void testAsStringBuilder() {
+        BufferStringChecks.checkAsStringBuilder(OutputBufferChunks::new, 1000);
+    }
+    
+    @Test
+    public void testWriteTo() {
+        OutputBufferChunks str = new OutputBufferChunks(false);
+        final String text = "0123456789".repeat(OutputBufferChunkPool.CHUNK_SIZE);
+        str.append(text);
+        str.delete(0, 7);
+        //
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes);
+        str.writeTo(out);
+        out.flush();
+        assertEquals(text.substring(7), bytes.toString());
+    }
+    
+    @Test
+    public void testAppendTo() {
+        OutputBufferChunks str = new OutputBufferChunks(true);
+        final String text = "0123456789".repeat(OutputBufferChunkPool.CHUNK_SIZE);
+        str.append(text);
+        str.delete(0, 13);
+        //
+        StringBuilder out = new StringBuilder("held:");
+        str.appendTo(out);
+        assertEquals("held:" + text.substring(13), out.toString());
+    }
+    
+    @Test
+    public void testOwnOutputAtFlush() {
+        final List<String> written = new ArrayList<>();
+        OutputBuffer buf = new OutputBuffer(OutputBufferChunkPool.CHUNK_SIZE * 4, false, false) {
+            @Override
+            protected void output(final String outputStr) {
+                written.add(outputStr);
+            }
+        };
+        final String text = "0123456789".repeat(OutputBufferChunkPool.CHUNK_SIZE / 4);
+        buf.add(text);
+        // segmented content goes through the overridden 'output()' too
+        buf.flush();
+        assertEquals(List.of(text), written);
+    }
+    
+}
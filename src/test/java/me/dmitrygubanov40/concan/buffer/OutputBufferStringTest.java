@@ -0,0 +1,64 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.nio.CharBuffer;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class OutputBufferStringTest
+{
+    
+    @Test
+    public void testHeadSlicing() {
+        OutputBufferString str = new OutputBufferString(false);
+        str.append("0123456789");
+        //
+        assertEquals("012", str.slice(0, 3).toString());
+        str.delete(0, 3);
+        assertEquals("3456789", str.toString());
+        assertEquals(7, str.length());
+        //
+        str.append("abcdefghijklmnopqrstuvwxyz");
+        assertEquals("3456789abcdefghijklmnopqrstuvwxyz", str.toString());
+        assertEquals("9ab", str.substring(6, 9));
+        //
+        str.clear();
+        assertEquals(0, str.length());
+        assertEquals("", str.getLastAddedStr());
+    }
+    
+    @Test
+    public void testAsStringBuilder() {
+        BufferStringChecks.checkAsStringBuilder(OutputBufferString::new, 0);
+    }
+    
+    @Test
+    public void testAppendChars() {
+        OutputBufferString str = new OutputBufferString(false);
+        StringBuilder chars = new StringBuilder("--abc--");
+        str.append(chars, 2, 5);
+        str.append(CharBuffer.wrap("0123".toCharArray(), 1, 2), 0, 2);
+        assertEquals("abc12", str.toString());
+        //
+        // last chars are copied to a string only when it is asked
+        chars.setLength(0);
+        assertEquals("12", str.getLastAddedStr());
+        str.delete(0, 1);
+        assertEquals("12", str.getLastAddedStr());
+        str.append(chars, 0, 0);
+        str.delete(1, 4);
+        assertEquals("", str.getLastAddedStr());
+        assertEquals("b", str.toString());
+    }
+    
+    @Test
+    public void testBadRange() {
+        OutputBufferString str = new OutputBufferString(false);
+        str.append("abc");
+        assertThrows(StringIndexOutOfBoundsException.class, () -> str.substring(2, 4));
+        assertThrows(StringIndexOutOfBoundsException.class, () -> str.delete(-1, 2));
+    }
+    
+}
@@ -0,0 +1,157 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class OutputQualityTest
+{
+    
+    private static final long MS_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    ////////////////
+    
+    @Test
+    public void testReduceColors() {
+        // cube colors
+        assertEquals("\u001b[38;5;196mred", OutputQuality.reduceColors("\u001b[38;2;255;0;0mred"));
+        assertEquals("\u001b[48;5;40m", OutputQuality.reduceColors("\u001b[48;2;10;200;30m"));
+        assertEquals("\u001b[38;5;16m\u001b[38;5;231m",
+                        OutputQuality.reduceColors("\u001b[38;2;0;0;0m\u001b[38;2;255;255;255m"));
+        // grays
+        assertEquals("\u001b[48;5;233m", OutputQuality.reduceColors("\u001b[48;2;18;18;18m"));
+        assertEquals("\u001b[38;5;244m", OutputQuality.reduceColors("\u001b[38;2;128;128;128m"));
+    }
+    
+    @Test
+    public void testKeepOtherCommands() {
+        final String plain = "text \u001b[38;5;12m\u001b[1m\u001b[2;3H";
+        assertSame(plain, OutputQuality.reduceColors(plain));
+        // not finished command stays as it is
+        assertEquals("a\u001b[38;2;1;2mb\u001b[38;5;16m",
+                        OutputQuality.reduceColors("a\u001b[38;2;1;2mb\u001b[38;2;0;0;0m"));
+    }
+    
+    ////////////////
+    
+    private static void write(final long writeNs) {
+        OutputQuality.beginWrite();
+        OutputQuality.endWrite(writeNs);
+    }
+    
+    /**
+     * Quality measured from scratch with time of the test.
+     */
+    private static AtomicLong start() {
+        final AtomicLong nowNs = new AtomicLong(1_000_000_000L);
+        OutputQuality.setClock(nowNs::get);
+        OutputQuality.enable();
+        OutputQuality.reset();
+        return nowNs;
+    }
+    
+    private static void stop() {
+        OutputQuality.disable();
+        OutputQuality.setClock(null);
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testDegradeBySlowWrites() {
+        start();
+        try {
+            final long degradationsBefore = OutputQuality.getDegradations();
+            // each write weighs 1/8: 10 ms writes make the mean 5.5 ms at the sixth one
+            for ( int i = 0; i < 5; i++ ) write(10 * MS_NS);
+            assertFalse(OutputQuality.isDegraded());
+            assertEquals(1, OutputQuality.getFrameDivisor());
+            write(10 * MS_NS);
+            assertTrue(OutputQuality.isDegraded());
+            assertTrue(OutputQuality.getWriteLatencyMs() >= OutputQuality.DEFAULT_DEGRADE_MS);
+            assertTrue(OutputQuality.getFrameDivisor() > 1);
+            assertEquals(1, OutputQuality.getDegradations() - degradationsBefore);
+            // already degraded: not counted again
+            write(10 * MS_NS);
+            assertEquals(1, OutputQuality.getDegradations() - degradationsBefore);
+        } finally {
+            stop();
+        }
+    }
+    
+    @Test
+    public void testDegradeByBacklog() {
+        start();
+        try {
+            for ( int i = 0; i < 4; i++ ) OutputQuality.beginWrite();
+            // three writes wait: still fine
+            OutputQuality.endWrite(0);
+            assertFalse(OutputQuality.isDegraded());
+            OutputQuality.beginWrite();
+            OutputQuality.beginWrite();
+            // four writes wait, even fast ones
+            OutputQuality.endWrite(0);
+            assertTrue(OutputQuality.isDegraded());
+            assertEquals(4, OutputQuality.getBacklog());
+            for ( int i = 0; i < 4; i++ ) OutputQuality.endWrite(0);
+            assertEquals(0, OutputQuality.getBacklog());
+        } finally {
+            stop();
+        }
+    }
+    
+    @Test
+    public void testRestore() {
+        final AtomicLong nowNs = start();
+        try {
+            for ( int i = 0; i < 6; i++ ) write(10 * MS_NS);
+            assertTrue(OutputQuality.isDegraded());
+            // idle link halves the mean, but degraded quality is kept for a second
+            nowNs.addAndGet(500 * MS_NS);
+            OutputQuality.check();
+            nowNs.addAndGet(400 * MS_NS);
+            OutputQuality.check();
+            assertTrue(OutputQuality.isDegraded());
+            // writes in progress keep it too
+            nowNs.addAndGet(100 * MS_NS);
+            OutputQuality.beginWrite();
+            OutputQuality.check();
+            assertTrue(OutputQuality.isDegraded());
+            OutputQuality.endWrite(0);
+            OutputQuality.check();
+            assertFalse(OutputQuality.isDegraded());
+            assertTrue(OutputQuality.getWriteLatencyMs() < OutputQuality.DEFAULT_RESTORE_MS);
+        } finally {
+            stop();
+        }
+    }
+    
+    @Test
+    public void testRunOnRestore() throws InterruptedException {
+        final AtomicLong nowNs = start();
+        try {
+            // full quality: the task runs at once
+            final CountDownLatch atOnce = new CountDownLatch(1);
+            OutputQuality.runOnRestore(atOnce::countDown);
+            assertTrue(atOnce.await(5, TimeUnit.SECONDS));
+            //
+            for ( int i = 0; i < 6; i++ ) write(10 * MS_NS);
+            final CountDownLatch redraw = new CountDownLatch(1);
+            OutputQuality.runOnRestore(redraw::countDown);
+            assertFalse(redraw.await(50, TimeUnit.MILLISECONDS));
+            // the redraw waits for full quality
+            nowNs.addAndGet(1000 * MS_NS);
+            for ( int i = 0; i < 4; i++ ) OutputQuality.check();
+            assertFalse(OutputQuality.isDegraded());
+            assertTrue(redraw.await(5, TimeUnit.SECONDS));
+        } finally {
+            stop();
+        }
+    }
+    
+}
@@ -0,0 +1,182 @@
+package me.dmitrygubanov40.concan.buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class OutputSinkTest
+{
+    
+    /**
+     * Terminal which keeps everything written to it.
+     */
+    private static final class Capture
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final PrintStream terminal = System.out;
+    
+        Capture() {
+            System.setOut(new PrintStream(this.bytes, true, StandardCharsets.UTF_8));
+        }
+    
+        String text() {
+            synchronized ( this.bytes ) {
+                return this.bytes.toString(StandardCharsets.UTF_8);
+            }
+        }
+    
+        /**
+         * Sink writes at once again, the terminal is given back.
+         */
+        void close() {
+            OutputSink.disableCoalescing();
+            System.setOut(this.terminal);
+        }
+    }
+    
+    ////////////////
+    
+    private static String chars(final char ch, final int count) {
+        return String.valueOf(ch).repeat(count);
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testWriteAtOnce() {
+        Capture capture = new Capture();
+        try {
+            OutputSink.disableCoalescing();
+            final long writesBefore = OutputSink.getTerminalWrites();
+            OutputSink.write("ab");
+            OutputSink.write("");
+            assertEquals("ab", capture.text());
+            assertEquals(1, OutputSink.getTerminalWrites() - writesBefore);
+            assertEquals(0, OutputSink.getPendingChars());
+        } finally {
+            capture.close();
+        }
+    }
+    
+    @Test
+    public void testThreshold() {
+        Capture capture = new Capture();
+        try {
+            // the deadline is far, only the threshold writes
+            OutputSink.setCoalescing(1_000_000, 64);
+            final long writesBefore = OutputSink.getTerminalWrites();
+            OutputSink.write(OutputSinkTest.chars('a', 40));
+            OutputSink.write(OutputSinkTest.chars('b', 23));
+            assertEquals("", capture.text());
+            assertEquals(63, OutputSink.getPendingChars());
+            OutputSink.write("c");
+            // held chars go in one write
+            assertEquals(OutputSinkTest.chars('a', 40) + OutputSinkTest.chars('b', 23) + "c", capture.text());
+            assertEquals(1, OutputSink.getTerminalWrites() - writesBefore);
+            assertEquals(0, OutputSink.getPendingChars());
+        } finally {
+            capture.close();
+        }
+    }
+    
+    @Test
+    public void testDeadline() throws InterruptedException {
+        Capture capture = new Capture();
+        try {
+            OutputSink.setCoalescing(200_000, OutputSink.DEFAULT_FLUSH_THRESHOLD);
+            final long writeNs = System.nanoTime();
+            OutputSink.write("x");
+            OutputSink.write("y");
+            // the timer writes what is held
+            final long deadlineMs = System.currentTimeMillis() + 5000;
+            while ( capture.text().isEmpty() && System.currentTimeMillis() < deadlineMs ) {
+                Thread.sleep(1);
+            }
+            assertEquals("xy", capture.text());
+            assertTrue(System.nanoTime() - writeNs >= 200_000_000L);
+            assertEquals(0, OutputSink.getPendingChars());
+        } finally {
+            capture.close();
+        }
+    }
+    
+    @Test
+    public void testFlush() {
+        Capture capture = new Capture();
+        try {
+            OutputSink.setCoalescing(1_000_000, OutputSink.DEFAULT_FLUSH_THRESHOLD);
+            OutputSink.write("held");
+            assertEquals("", capture.text());
+            OutputSink.flush();
+            assertEquals("held", capture.text());
+            assertEquals(0, OutputSink.getPendingChars());
+            // turning coalescing off writes held chars too
+            OutputSink.write("more");
+            OutputSink.disableCoalescing();
+            assertEquals("heldmore", capture.text());
+        } finally {
+            capture.close();
+        }
+    }
+    
+    @Test
+    public void testOrder() throws InterruptedException {
+        Capture capture = new Capture();
+        try {
+            OutputSink.setCoalescing(1_000, 256);
+            final int threads = 4;
+            final int writes = 500;
+            List<Thread> writers = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ ) {
+                final int writerNum = i;
+                writers.add(new Thread(() -> {
+                    for ( int j = 0; j < writes; j++ ) OutputSink.write(writerNum + ":" + j + ";");
+                }));
+            }
+            for ( Thread curWriter : writers ) curWriter.start();
+            for ( Thread curWriter : writers ) curWriter.join();
+            OutputSink.flush();
+            // writes are not broken, each writer's ones keep their order
+            final int[] nextWrite = new int[ threads ];
+            for ( String curWrite : capture.text().split(";") ) {
+                final String[] parts = curWrite.split(":");
+                final int writerNum = Integer.parseInt(parts[ 0 ]);
+                assertEquals(nextWrite[ writerNum ], Integer.parseInt(parts[ 1 ]));
+                nextWrite[ writerNum ]++;
+            }
+            for ( int i = 0; i < threads; i++ ) assertEquals(writes, nextWrite[ i ]);
+        } finally {
+            capture.close();
+        }
+    }
+    
+    @Test
+    public void testExitHook() {
+        Capture capture = new Capture();
+        try {
+            OutputSink.setCoalescing(1_000_000, OutputSink.DEFAULT_FLUSH_THRESHOLD);
+            final Thread hook = OutputSink.getExitHook();
+            assertNotNull(hook);
+            // added once
+            OutputSink.setCoalescing(500_000, OutputSink.DEFAULT_FLUSH_THRESHOLD);
+            assertSame(hook, OutputSink.getExitHook());
+            assertTrue(Runtime.getRuntime().removeShutdownHook(hook));
+            Runtime.getRuntime().addShutdownHook(hook);
+            // at exit held chars are written
+            OutputSink.write("last");
+            assertEquals("", capture.text());
+            hook.run();
+            assertEquals("last", capture.text());
+        } finally {
+            capture.close();
+        }
+    }
+    
+}
@@ -0,0 +1,147 @@
+package me.dmitrygubanov40.concan.input;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.dmitrygubanov40.concan.utility.ConCord;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConInputDecoderTest
+{
+    
+    private static void feed(final ConInputDecoder decoder, final String str) {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        decoder.feed(bytes, 0, bytes.length);
+    }
+    
+    private static ConInputEvent key(final ConKey key, final int modifiers) {
+        return ConInputEvent.ofKey(key, modifiers);
+    }
+    
+    private static ConInputEvent chr(final int codePoint, final int modifiers) {
+        return ConInputEvent.ofChar(codePoint, modifiers);
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testChars() {
+        List<ConInputEvent> events = new ArrayList<>();
+        ConInputDecoder decoder = new ConInputDecoder(events::add);
+        feed(decoder, "a\u00e9\r\t\u007f");
+        assertEquals(List.of(chr('a', 0), chr(0xE9, 0), key(ConKey.ENTER, 0),
+                                key(ConKey.TAB, 0), key(ConKey.BACKSPACE, 0)), events);
+        // char split between reads
+        events.clear();
+        final byte[] euro = "\u20ac".getBytes(StandardCharsets.UTF_8);
+        decoder.feed(euro, 0, 1);
+        assertTrue(events.isEmpty());
+        assertTrue(decoder.hasPending());
+        decoder.feed(euro, 1, 2);
+        assertEquals(List.of(chr(0x20AC, 0)), events);
+        assertFalse(decoder.hasPending());
+        // broken char
+        events.clear();
+        decoder.feed(new byte[] { (byte) 0xC3, 'b' }, 0, 2);
+        assertEquals(List.of(chr(0xFFFD, 0), chr('b', 0)), events);
+    }
+    
+    @Test
+    public void testCtrlAlt() {
+        List<ConInputEvent> events = new ArrayList<>();
+        ConInputDecoder decoder = new ConInputDecoder(events::add);
+        feed(decoder, "\u0003\u0000\u001bx\u001b\u00e9\u001b\u0003");
+        assertEquals(List.of(chr('c', ConInputEvent.CTRL),
+                                chr(' ', ConInputEvent.CTRL),
+                                chr('x', ConInputEvent.ALT),
+                                chr(0xE9, ConInputEvent.ALT),
+                                chr('c', ConInputEvent.ALT | ConInputEvent.CTRL)), events);
+        assertTrue(events.get(4).isCtrl());
+        assertTrue(events.get(4).isAlt());
+        assertFalse(events.get(4).isShift());
+    }
+    
+    @Test
+    public void testFunctionKeys() {
+        List<ConInputEvent> events = new ArrayList<>();
+        ConInputDecoder decoder = new ConInputDecoder(events::add);
+        feed(decoder, "\u001b[A\u001bOB\u001b[1;5C\u001b[3~\u001b[5;2~\u001b[15~\u001bOP\u001b[Z");
+        assertEquals(List.of(key(ConKey.UP, 0),
+                                key(ConKey.DOWN, 0),
+                                key(ConKey.RIGHT, ConInputEvent.CTRL),
+                                key(ConKey.DELETE, 0),
+                                key(ConKey.PAGE_UP, ConInputEvent.SHIFT),
+                                key(ConKey.F5, 0),
+                                key(ConKey.F1, 0),
+                                key(ConKey.TAB, ConInputEvent.SHIFT)), events);
+        // unknown sequence is skipped
+        events.clear();
+        feed(decoder, "\u001b[99~q");
+        assertEquals(List.of(chr('q', 0)), events);
+    }
+    
+    @Test
+    public void testLoneEscape() {
+        List<ConInputEvent> events = new ArrayList<>();
+        ConInputDecoder decoder = new ConInputDecoder(events::add);
+        feed(decoder, "\u001b");
+        assertTrue(events.isEmpty());
+        assertTrue(decoder.hasPending());
+        decoder.flush();
+        assertEquals(List.of(key(ConKey.ESCAPE, 0)), events);
+        assertFalse(decoder.hasPending());
+        // sequence split between reads
+        events.clear();
+        feed(decoder, "\u001b[1;");
+        feed(decoder, "3D");
+        assertEquals(List.of(key(ConKey.LEFT, ConInputEvent.ALT)), events);
+    }
+    
+    @Test
+    public void testPaste() {
+        List<ConInputEvent> events = new ArrayList<>();
+        ConInputDecoder decoder = new ConInputDecoder(events::add);
+        feed(decoder, "x\u001b[200~one\r\ntwo\rthree\u001b[2");
+        assertEquals(List.of(chr('x', 0)), events);
+        // paste waits for its end even after 'flush()'
+        decoder.flush();
+        assertEquals(1, events.size());
+        feed(decoder, "01~y");
+        assertEquals(List.of(chr('x', 0), ConInputEvent.ofPaste("one\ntwo\nthree"), chr('y', 0)), events);
+        // keys inside a paste are text
+        events.clear();
+        feed(decoder, "\u001b[200~\u001b[A\u0003\u001b[201~");
+        assertEquals(List.of(ConInputEvent.ofPaste("\u001b[A\u0003")), events);
+    }
+    
+    @Test
+    public void testMouse() {
+        List<ConInputEvent> events = new ArrayList<>();
+        ConInputDecoder decoder = new ConInputDecoder(events::add);
+        feed(decoder, "\u001b[<0;10;5M\u001b[<32;11;5M\u001b[<0;11;5m\u001b[<64;1;1M\u001b[<21;3;4M\u001b[<35;2;2M");
+        assertEquals(List.of(
+                ConInputEvent.ofMouse(ConMouseAction.PRESS, 0, new ConCord(9, 4), 0),
+                ConInputEvent.ofMouse(ConMouseAction.DRAG, 0, new ConCord(10, 4), 0),
+                ConInputEvent.ofMouse(ConMouseAction.RELEASE, 0, new ConCord(10, 4), 0),
+                ConInputEvent.ofMouse(ConMouseAction.WHEEL_UP, ConInputEvent.NO_BUTTON, new ConCord(0, 0), 0),
+                ConInputEvent.ofMouse(ConMouseAction.PRESS, 1, new ConCord(2, 3),
+                                        ConInputEvent.SHIFT | ConInputEvent.CTRL),
+                ConInputEvent.ofMouse(ConMouseAction.MOVE, ConInputEvent.NO_BUTTON, new ConCord(1, 1), 0)),
+                events);
+    }
+    
+    @Test
+    public void testParseNumbers() {
+        assertArrayEquals(new int[] { 1, 5 }, ConInputDecoder.parseNumbers("1;5"));
+        assertArrayEquals(new int[] { 0, 2 }, ConInputDecoder.parseNumbers(";2"));
+        assertArrayEquals(new int[ 0 ], ConInputDecoder.parseNumbers(""));
+        assertNull(ConInputDecoder.parseNumbers("?1"));
+        assertNull(ConInputDecoder.parseNumbers("1234567890"));
+    }
+    
+}
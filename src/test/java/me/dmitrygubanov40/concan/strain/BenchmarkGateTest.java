@@ -0,0 +1,66 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class BenchmarkGateTest
+{
+    
+    private static BenchmarkResult result(final String name, final String size, final long sampleNs) {
+        return new BenchmarkResult(name, Map.of("size", size), new long[] { sampleNs, sampleNs, sampleNs }, 0);
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testPassed() {
+        final List<BenchmarkResult> baseline = List.of(result("print", "10", 1_000_000L),
+                                                        result("print", "20", 2_000_000L));
+        final List<BenchmarkResult> current = List.of(result("print", "20", 2_000_000L),
+                                                        result("print", "10", 1_000_000L));
+        BenchmarkGate gate = new BenchmarkGate();
+        final List<BenchmarkComparison> comparisons = gate.compare(baseline, current);
+        assertEquals(2, comparisons.size());
+        assertTrue(BenchmarkGate.getUnmatched(baseline, current).isEmpty());
+        assertEquals(BenchmarkGate.EXIT_OK,
+                        BenchmarkGate.report(comparisons, BenchmarkGate.getUnmatched(baseline, current)));
+    }
+    
+    @Test
+    public void testRegressed() {
+        final List<BenchmarkResult> baseline = List.of(result("print", "10", 1_000_000L));
+        final List<BenchmarkResult> current = List.of(result("print", "10", 2_000_000L));
+        final List<BenchmarkComparison> comparisons = new BenchmarkGate().compare(baseline, current);
+        assertTrue(BenchmarkGate.hasRegressions(comparisons));
+        assertEquals(BenchmarkGate.EXIT_REGRESSED, BenchmarkGate.report(comparisons));
+    }
+    
+    @Test
+    public void testNothingCompared() {
+        final List<BenchmarkResult> baseline = List.of(result("print", "10", 1_000_000L));
+        final List<BenchmarkResult> current = List.of(result("scroll", "10", 1_000_000L));
+        final List<BenchmarkComparison> comparisons = new BenchmarkGate().compare(baseline, current);
+        assertTrue(comparisons.isEmpty());
+        assertEquals(BenchmarkGate.EXIT_INCOMPLETE, BenchmarkGate.report(comparisons));
+        assertEquals(BenchmarkGate.EXIT_INCOMPLETE, BenchmarkGate.report(List.of()));
+    }
+    
+    @Test
+    public void testUnmatchedBaseline() {
+        final List<BenchmarkResult> baseline = List.of(result("print", "10", 1_000_000L),
+                                                        result("print", "20", 2_000_000L));
+        final List<BenchmarkResult> current = List.of(result("print", "10", 1_000_000L),
+                                                        result("print", "30", 3_000_000L));
+        final List<BenchmarkComparison> comparisons = new BenchmarkGate().compare(baseline, current);
+        assertEquals(1, comparisons.size());
+        final List<String> unmatched = BenchmarkGate.getUnmatched(baseline, current);
+        assertEquals(List.of("print[size=20]"), unmatched);
+        assertEquals(BenchmarkGate.EXIT_INCOMPLETE, BenchmarkGate.report(comparisons, unmatched));
+    }
+    
+}
@@ -0,0 +1,43 @@
+package me.dmitrygubanov40.concan.strain;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class LatencyHistogramTest
+{
+    
+    @Test
+    public void testBucketBounds() {
+        final long[] values = { 0, 1, 7, 8, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE };
+        for ( long curValue : values ) {
+            final int index = LatencyHistogram.getBucketIndex(curValue);
+            final long upper = LatencyHistogram.getBucketUpperNs(index);
+            assertTrue(curValue <= upper);
+            // error is not more than 1/8 of the value
+            assertTrue(upper - curValue <= curValue / 8);
+        }
+    }
+    
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNs(99.0));
+        //
+        for ( int i = 1; i <= 1000; i++ ) histogram.record(i * 1000L);
+        //
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMaxNs());
+        assertEquals(500_500.0, histogram.getMeanNs(), 0.001);
+        //
+        final long p50 = histogram.getPercentileNs(50.0);
+        assertTrue(p50 >= 500_000L && p50 <= 500_000L * 9 / 8);
+        assertEquals(1_000_000L, histogram.getPercentileNs(100.0));
+        //
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNs(50.0));
+    }
+    
+}
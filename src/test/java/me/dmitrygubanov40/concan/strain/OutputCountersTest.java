@@ -0,0 +1,111 @@
+package me.dmitrygubanov40.concan.strain;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class OutputCountersTest
+{
+    
+    @Test
+    public void testCountWrite() {
+        OutputCounters counters = OutputStats.scope("test-count-write");
+        counters.reset();
+        // 'a' - 1 byte, 'e' with acute - 2, euro - 3, a pair of surrogates - 4
+        counters.countWrite("a\u00e9\u20ac\ud83d\ude00");
+        OutputCountersSnapshot snapshot = counters.snapshot();
+        assertEquals(1, snapshot.getWrites());
+        assertEquals(1 + 2 + 3 + 4, snapshot.getBytes());
+        assertEquals(4, snapshot.getPrintable());
+        assertEquals(0, snapshot.getGotos());
+        assertEquals(0, snapshot.getSgr());
+        //
+        counters.reset();
+        assertEquals(0, counters.getBytes());
+        assertEquals(0, counters.snapshot().getWrites());
+    }
+    
+    @Test
+    public void testSequences() {
+        OutputCounters counters = OutputStats.scope("test-sequences");
+        counters.reset();
+        // goto (6 bytes), color (5 bytes), two visible chars, CR and LF (not visible)
+        counters.countWrite("\033[2;3Hok\033[31m\r\n");
+        OutputCountersSnapshot snapshot = counters.snapshot();
+        assertEquals(6 + 2 + 5 + 2, snapshot.getBytes());
+        assertEquals(1, snapshot.getGotos());
+        assertEquals(1, snapshot.getSgr());
+        assertEquals(2, snapshot.getPrintable());
+        // broken sequence is counted till the end, it is neither goto nor color
+        counters.countWrite("x\033[12;");
+        snapshot = counters.snapshot();
+        assertEquals(2, snapshot.getWrites());
+        assertEquals(15 + 1 + 5, snapshot.getBytes());
+        assertEquals(1, snapshot.getGotos());
+        assertEquals(3, snapshot.getPrintable());
+        // nothing is counted for nothing
+        counters.countWrite(null);
+        assertEquals(2, counters.snapshot().getWrites());
+    }
+    
+    @Test
+    public void testParent() {
+        OutputCounters counters = OutputStats.scope("test-parent");
+        counters.reset();
+        final OutputCountersSnapshot globalBefore = OutputStats.global().snapshot();
+        counters.countWrite("abc");
+        counters.countFlush();
+        counters.countFlush();
+        counters.countAutoflush();
+        //
+        OutputCountersSnapshot snapshot = counters.snapshot();
+        assertEquals(2, snapshot.getFlushes());
+        assertEquals(1, snapshot.getAutoflushes());
+        assertEquals(1, snapshot.getExplicitFlushes());
+        // global counters have it too (other tests may count at the same time, so not less)
+        final OutputCountersSnapshot globalAdded = OutputStats.global().snapshot().minus(globalBefore);
+        assertTrue(globalAdded.getBytes() >= 3);
+        assertTrue(globalAdded.getWrites() >= 1);
+        assertTrue(globalAdded.getFlushes() >= 2);
+        assertTrue(globalAdded.getAutoflushes() >= 1);
+    }
+    
+    @Test
+    public void testDisabled() {
+        OutputCounters counters = OutputStats.scope("test-disabled");
+        counters.reset();
+        OutputStats.setEnabled(false);
+        try {
+            counters.countWrite("abc");
+            counters.countFlush();
+            counters.countAutoflush();
+        } finally {
+            OutputStats.setEnabled(true);
+        }
+        OutputCountersSnapshot snapshot = counters.snapshot();
+        assertEquals(0, snapshot.getBytes());
+        assertEquals(0, snapshot.getWrites());
+        assertEquals(0, snapshot.getFlushes());
+    }
+    
+    @Test
+    public void testScopes() {
+        assertSame(OutputStats.global(), OutputStats.scope(OutputStats.GLOBAL_SCOPE));
+        assertSame(OutputStats.global(), OutputStats.scope(null));
+        //
+        OutputCounters counters = OutputStats.scope("test-scopes");
+        assertSame(counters, OutputStats.scope("test-scopes"));
+        assertEquals("test-scopes", counters.getScope());
+        counters.countWrite("abc");
+        assertTrue(OutputStats.snapshotAll().containsKey("test-scopes"));
+        // removed scope is forgotten, the next call starts it again
+        OutputStats.removeScope("test-scopes");
+        assertFalse(OutputStats.snapshotAll().containsKey("test-scopes"));
+        OutputCounters newCounters = OutputStats.scope("test-scopes");
+        assertNotSame(counters, newCounters);
+        assertEquals(0, newCounters.getBytes());
+        OutputStats.removeScope("test-scopes");
+    }
+    
+}
@@ -0,0 +1,96 @@
+package me.dmitrygubanov40.concan.strain;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class WorkloadTest
+{
+    
+    private static final int CHUNKS = 200;
+    
+    ////////////////
+    
+    /**
+     * @param magic file signature
+     * @param version format version
+     * @return file with the header only
+     */
+    private static Path header(final int magic, final int version) throws IOException {
+        final Path file = Files.createTempFile("concan-workload", ".bin");
+        try ( DataOutputStream out = new DataOutputStream(Files.newOutputStream(file)) ) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeUTF("plainLog");
+            out.writeLong(1);
+            out.writeInt(0);
+        }
+        return file;
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testSeeds() {
+        for ( WorkloadProfile curProfile : WorkloadProfile.values() ) {
+            final Workload workload = Workload.generate(curProfile, 42, WorkloadTest.CHUNKS);
+            final Workload same = Workload.generate(curProfile, 42, WorkloadTest.CHUNKS);
+            final Workload other = Workload.generate(curProfile, 43, WorkloadTest.CHUNKS);
+            assertEquals(WorkloadTest.CHUNKS, workload.getChunks().size());
+            assertEquals(curProfile.getProfileName(), workload.getName());
+            assertEquals(42, workload.getSeed());
+            // same seed - same output, other seed - other output
+            assertEquals(workload.getChunks(), same.getChunks(), curProfile.toString());
+            assertNotEquals(workload.getChunks(), other.getChunks(), curProfile.toString());
+        }
+        assertThrows(IllegalArgumentException.class, () -> Workload.generate(WorkloadProfile.PLAIN_LOG, 1, 0));
+    }
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Path file = Files.createTempFile("concan-workload", ".bin");
+        final Path again = Files.createTempFile("concan-workload", ".bin");
+        try {
+            for ( WorkloadProfile curProfile : WorkloadProfile.values() ) {
+                final Workload workload = Workload.generate(curProfile, 7, WorkloadTest.CHUNKS);
+                workload.record(file);
+                final Workload loaded = Workload.load(file);
+                assertEquals(workload.getName(), loaded.getName());
+                assertEquals(workload.getSeed(), loaded.getSeed());
+                assertEquals(workload.getChunks(), loaded.getChunks());
+                // replay gives the same bytes, and the loaded one is saved the same
+                StringBuilder replayed = new StringBuilder();
+                loaded.replay(replayed::append);
+                assertEquals(String.join("", workload.getChunks()), replayed.toString());
+                loaded.record(again);
+                assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(again));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(again);
+        }
+    }
+    
+    @Test
+    public void testBadHeader() throws IOException {
+        final Path valid = WorkloadTest.header(0x4343574C, 1);
+        final Path badMagic = WorkloadTest.header(0x12345678, 1);
+        final Path badVersion = WorkloadTest.header(0x4343574C, 2);
+        try {
+            assertEquals(0, Workload.load(valid).getChunks().size());
+            assertThrows(IOException.class, () -> Workload.load(badMagic));
+            assertThrows(IOException.class, () -> Workload.load(badVersion));
+        } finally {
+            Files.deleteIfExists(valid);
+            Files.deleteIfExists(badMagic);
+            Files.deleteIfExists(badVersion);
+        }
+    }
+    
+}
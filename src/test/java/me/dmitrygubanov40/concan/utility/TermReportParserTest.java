@@ -0,0 +1,141 @@
+package me.dmitrygubanov40.concan.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class TermReportParserTest
+{
+    
+    /**
+     * Keeps everything the parser gives.
+     */
+    private static final class Received implements TermReportParser.Receiver
+    {
+        boolean isCursorAwaited = true;
+        final List<String> reports = new ArrayList<>();
+        final ByteArrayOutputStream input = new ByteArrayOutputStream();
+    
+        @Override
+        public boolean isCursorAwaited() {
+            return this.isCursorAwaited;
+        }
+    
+        @Override
+        public void onCursorReport(final int row, final int column) {
+            this.reports.add("cursor " + row + "," + column);
+        }
+    
+        @Override
+        public void onSizeReport(final int rows, final int columns) {
+            this.reports.add("size " + rows + "," + columns);
+        }
+    
+        @Override
+        public void onDeviceAttributes(final String attributes) {
+            this.reports.add("device " + attributes);
+        }
+    
+        @Override
+        public void onInput(final byte[] input) {
+            this.input.write(input, 0, input.length);
+        }
+    
+        String getInput() {
+            return this.input.toString(StandardCharsets.UTF_8);
+        }
+    }
+    
+    ////////////////
+    
+    private static void feed(final TermReportParser parser, final String str) {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        parser.feed(bytes, 0, bytes.length);
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testReports() {
+        Received received = new Received();
+        TermReportParser parser = new TermReportParser(received);
+        feed(parser, "\033[12;40R\033[8;25;80t\033[?62;22c");
+        assertEquals(List.of("cursor 12,40", "size 25,80", "device 62;22"), received.reports);
+        assertEquals("", received.getInput());
+    }
+    
+    @Test
+    public void testInputAroundReports() {
+        Received received = new Received();
+        TermReportParser parser = new TermReportParser(received);
+        feed(parser, "ab\033[3;4Rcd\033[A\u00e9");
+        assertEquals(List.of("cursor 3,4"), received.reports);
+        // arrow key is not a report
+        assertEquals("abcd\033[A\u00e9", received.getInput());
+    }
+    
+    @Test
+    public void testSplitReport() {
+        Received received = new Received();
+        TermReportParser parser = new TermReportParser(received);
+        feed(parser, "\033");
+        feed(parser, "[1");
+        assertTrue(parser.isInSequence());
+        feed(parser, "2;4");
+        feed(parser, "0R");
+        assertFalse(parser.isInSequence());
+        assertEquals(List.of("cursor 12,40"), received.reports);
+        assertEquals("", received.getInput());
+    }
+    
+    @Test
+    public void testCursorNotAwaited() {
+        Received received = new Received();
+        received.isCursorAwaited = false;
+        TermReportParser parser = new TermReportParser(received);
+        // the same as 'Shift' + 'F3' in xterm
+        feed(parser, "\033[1;2R");
+        assertTrue(received.reports.isEmpty());
+        assertEquals("\033[1;2R", received.getInput());
+    }
+    
+    @Test
+    public void testNotReports() {
+        Received received = new Received();
+        TermReportParser parser = new TermReportParser(received);
+        feed(parser, "\033[12R\033[4;25;80t\033[62c\033x");
+        assertTrue(received.reports.isEmpty());
+        assertEquals("\033[12R\033[4;25;80t\033[62c\033x", received.getInput());
+    }
+    
+    @Test
+    public void testFlush() {
+        Received received = new Received();
+        TermReportParser parser = new TermReportParser(received);
+        // lone 'Esc' key
+        feed(parser, "\033");
+        assertEquals("", received.getInput());
+        parser.flush();
+        assertEquals("\033", received.getInput());
+        assertFalse(parser.isInSequence());
+        // broken sequence
+        feed(parser, "\033[12\n");
+        assertEquals("\033\033[12\n", received.getInput());
+    }
+    
+    @Test
+    public void testParseNumbers() {
+        assertArrayEquals(new int[] { 12, 40 }, TermReportParser.parseNumbers("12;40", 2));
+        assertNull(TermReportParser.parseNumbers("12;40", 3));
+        assertNull(TermReportParser.parseNumbers("12;", 2));
+        assertNull(TermReportParser.parseNumbers("?1;2", 2));
+        assertNull(TermReportParser.parseNumbers("1234567890;1", 2));
+    }
+    
+}
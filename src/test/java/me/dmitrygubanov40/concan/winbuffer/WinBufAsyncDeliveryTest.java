@@ -0,0 +1,186 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class WinBufAsyncDeliveryTest
+{
+    
+    /**
+     * Keeps tasks till the test runs them.
+     */
+    private static final class ManualExecutor implements Executor
+    {
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+        @Override
+        public void execute(final Runnable task) {
+            this.tasks.add(task);
+        }
+    
+        void runAll() {
+            Runnable task;
+            while ( null != (task = this.tasks.poll()) ) task.run();
+        }
+    }
+    
+    ////////////////
+    
+    private static WinBufAsyncDelivery subscribe(final WindowOutputBuffer buf,
+                                                    final List<String> got,
+                                                    final int capacity,
+                                                    final WinBufAsyncPolicy policy,
+                                                    final Executor executor) {
+        return buf.addAsyncListener(event -> got.add(event.getEventText()),
+                                    EnumSet.of(WinBufEventType.ON_AFTER_OUTPUT_CHAR),
+                                    capacity,
+                                    policy,
+                                    executor);
+    }
+    
+    private static void generate(final WindowOutputBuffer buf, final String... texts) {
+        for ( String curText : texts ) buf.generateEvent(WinBufEventType.ON_AFTER_OUTPUT_CHAR, curText);
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testOrder() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        ManualExecutor executor = new ManualExecutor();
+        List<String> got = new ArrayList<>();
+        WinBufAsyncDelivery delivery = subscribe(buf, got, 16, WinBufAsyncPolicy.BLOCK, executor);
+        //
+        generate(buf, "1", "2", "3", "4", "5");
+        // nothing in the printing thread, one drain is scheduled for all
+        assertTrue(got.isEmpty());
+        assertEquals(5, delivery.getQueueSize());
+        assertEquals(1, executor.tasks.size());
+        assertFalse(delivery.isIdle());
+        executor.runAll();
+        assertEquals(List.of("1", "2", "3", "4", "5"), got);
+        assertEquals(5, delivery.getDelivered());
+        assertTrue(delivery.isIdle());
+    }
+    
+    @Test
+    public void testDropNewest() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        ManualExecutor executor = new ManualExecutor();
+        List<String> got = new ArrayList<>();
+        WinBufAsyncDelivery delivery = subscribe(buf, got, 2, WinBufAsyncPolicy.DROP_NEWEST, executor);
+        //
+        generate(buf, "1", "2", "3", "4");
+        executor.runAll();
+        assertEquals(List.of("1", "2"), got);
+        assertEquals(2, delivery.getDropped());
+        assertEquals(2, delivery.getDelivered());
+    }
+    
+    @Test
+    public void testDropOldest() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        ManualExecutor executor = new ManualExecutor();
+        List<String> got = new ArrayList<>();
+        WinBufAsyncDelivery delivery = subscribe(buf, got, 2, WinBufAsyncPolicy.DROP_OLDEST, executor);
+        //
+        generate(buf, "1", "2", "3", "4");
+        executor.runAll();
+        assertEquals(List.of("3", "4"), got);
+        assertEquals(2, delivery.getDropped());
+    }
+    
+    @Test
+    public void testBlock() throws InterruptedException {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, true);
+        ManualExecutor executor = new ManualExecutor();
+        List<String> got = Collections.synchronizedList(new ArrayList<>());
+        WinBufAsyncDelivery delivery = subscribe(buf, got, 1, WinBufAsyncPolicy.BLOCK, executor);
+        //
+        generate(buf, "1");
+        Thread printer = new Thread(() -> generate(buf, "2"));
+        printer.start();
+        // the printing thread waits for free space
+        final long deadlineMs = System.currentTimeMillis() + 5000;
+        while ( Thread.State.WAITING != printer.getState() && System.currentTimeMillis() < deadlineMs ) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, printer.getState());
+        assertTrue(got.isEmpty());
+        // drain makes space, nothing is lost
+        while ( printer.isAlive() || !executor.tasks.isEmpty() ) {
+            executor.runAll();
+            printer.join(10);
+        }
+        executor.runAll();
+        assertEquals(List.of("1", "2"), got);
+        assertEquals(0, delivery.getDropped());
+    }
+    
+    @Test
+    public void testFailedListener() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        ManualExecutor executor = new ManualExecutor();
+        List<String> got = new ArrayList<>();
+        WinBufAsyncDelivery delivery = buf.addAsyncListener(event -> {
+                                                                if ( "2".equals(event.getEventText()) ) {
+                                                                    throw new IllegalStateException("broken");
+                                                                }
+                                                                got.add(event.getEventText());
+                                                            },
+                                                            EnumSet.allOf(WinBufEventType.class),
+                                                            4,
+                                                            WinBufAsyncPolicy.BLOCK,
+                                                            executor);
+        generate(buf, "1", "2", "3");
+        executor.runAll();
+        // a broken call does not stop the delivery
+        assertEquals(List.of("1", "3"), got);
+        assertEquals(1, delivery.getFailed());
+        assertEquals(2, delivery.getDelivered());
+    }
+    
+    @Test
+    public void testSyncOrAsync() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        WinBufEventListener asyncListener = event -> { };
+        WinBufAsyncDelivery delivery = buf.addAsyncListener(asyncListener,
+                                                            EnumSet.of(WinBufEventType.ON_AFTER_FLUSH),
+                                                            4,
+                                                            WinBufAsyncPolicy.DROP_NEWEST,
+                                                            new ManualExecutor());
+        // more types for the same delivery
+        assertSame(delivery, buf.addAsyncListener(asyncListener,
+                                                    EnumSet.of(WinBufEventType.ON_BEFORE_FLUSH),
+                                                    4,
+                                                    WinBufAsyncPolicy.DROP_NEWEST,
+                                                    null));
+        assertThrows(IllegalStateException.class, () -> buf.addEventListener(asyncListener));
+        assertThrows(IllegalStateException.class,
+                        () -> buf.addEventListener(asyncListener, EnumSet.of(WinBufEventType.ON_AFTER_FLUSH)));
+        //
+        WinBufEventListener syncListener = event -> { };
+        buf.addEventListener(syncListener);
+        assertThrows(IllegalStateException.class,
+                        () -> buf.addAsyncListener(syncListener,
+                                                    EnumSet.of(WinBufEventType.ON_AFTER_FLUSH),
+                                                    4,
+                                                    WinBufAsyncPolicy.BLOCK,
+                                                    null));
+        // after removal the listener may be added in another way
+        buf.removeEventListener(asyncListener);
+        buf.addEventListener(asyncListener);
+        assertTrue(buf.isAlreadyListener(asyncListener));
+    }
+    
+}
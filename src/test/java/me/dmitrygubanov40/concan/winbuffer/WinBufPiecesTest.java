@@ -0,0 +1,67 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class WinBufPiecesTest
+{
+    
+    @Test
+    public void testPlainText() {
+        WinBufPieces pieces = new WinBufPieces("plain text");
+        assertFalse(pieces.isRaw());
+        assertEquals(1, pieces.getCount());
+        assertEquals("plain text", pieces.getPiece(0));
+        assertFalse(pieces.isCmd(0));
+        //
+        assertEquals(1, new WinBufPieces("").getCount());
+        assertThrows(NullPointerException.class, () -> new WinBufPieces(null));
+    }
+    
+    @Test
+    public void testSplit() {
+        final String red = ConUt.COLOR(ConCol.RED);
+        WinBufPieces pieces = new WinBufPieces("E1 " + red + "disk\tfull" + ConUt.COLOR_DEFAULT);
+        assertFalse(pieces.isRaw());
+        assertEquals(6, pieces.getCount());
+        final String[] expected = { "E1 ", red, "disk", "\t", "full", ConUt.COLOR_DEFAULT };
+        final boolean[] expectedCmds = { false, true, false, true, false, true };
+        for ( int i = 0; i < expected.length; i++ ) {
+            assertEquals(expected[ i ], pieces.getPiece(i));
+            assertEquals(expectedCmds[ i ], pieces.isCmd(i));
+        }
+    }
+    
+    @Test
+    public void testRaw() {
+        // banned command: the whole text is left to the buffer
+        final String banned = "top" + ConUt.ESC + "[2J" + "text";
+        WinBufPieces pieces = new WinBufPieces(banned);
+        assertTrue(pieces.isRaw());
+        assertEquals(1, pieces.getCount());
+        assertEquals(banned, pieces.getPiece(0));
+        // the buffer rejects it as usual
+        WindowOutputBuffer buf = new WindowOutputBuffer(100, false);
+        assertThrows(IllegalArgumentException.class, () -> buf.addToWinBuf(banned));
+    }
+    
+    @Test
+    public void testTextWithoutParsing() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(100, false);
+        buf.addTextToWinBuf("--text--", 2, 6);
+        // text without parsing cannot bring a command in, banned or not
+        assertThrows(IllegalArgumentException.class,
+                        () -> buf.addTextToWinBuf("top" + ConUt.ESC + "[2J", 0, 7));
+        assertThrows(IllegalArgumentException.class, () -> buf.addTextToWinBuf("a\nb", 0, 3));
+        // the part without commands is fine
+        buf.addTextToWinBuf("a\nb", 2, 3);
+        assertThrows(IllegalArgumentException.class, () -> buf.addSingleCmdToWinBuf(ConUt.ESC + "[2J"));
+        assertThrows(IllegalArgumentException.class, () -> buf.addSingleCmdToWinBuf("text"));
+    }
+    
+}
@@ -0,0 +1,187 @@
+package me.dmitrygubanov40.concan.winbuffer;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class WindowOutputBufferTest
+{
+    
+    /**
+     * Fast listener which keeps what it got and answers with the given status.
+     */
+    private static final class Recorder implements WinBufFastListener
+    {
+        final List<String> got = new ArrayList<>();
+        final String name;
+        final WinBufEventStatus answer;
+    
+        Recorder(final String initName, final WinBufEventStatus initAnswer) {
+            this.name = initName;
+            this.answer = initAnswer;
+        }
+    
+        @Override
+        public WinBufEventStatus onWindowOutputBufferEvent(final WindowOutputBuffer source,
+                                                            final WinBufEventType eventType,
+                                                            final int eventFlags,
+                                                            final CharSequence eventText,
+                                                            final WinBufEventStatus eventStatus) {
+            this.got.add(this.name + " " + eventType.getTypeName() + " " + eventFlags + " " + eventText
+                            + " " + eventStatus);
+            return (null == this.answer) ? eventStatus : this.answer;
+        }
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testTypedDispatch() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        Recorder flushOnly = new Recorder("flush", null);
+        Recorder all = new Recorder("all", null);
+        buf.addFastListener(flushOnly, EnumSet.of(WinBufEventType.ON_BEFORE_FLUSH));
+        buf.addFastListener(all);
+        assertTrue(buf.hasEventListeners(WinBufEventType.ON_BEFORE_FLUSH));
+        assertTrue(buf.isAlreadyListener(flushOnly));
+        //
+        buf.generateEvent(WinBufEventType.ON_BEFORE_FLUSH, 3, "abc");
+        buf.generateEvent(WinBufEventType.ON_AFTER_CMD_SENT, "x");
+        assertEquals(List.of("flush onBeforeFlush 3 abc WB_EVENT_OK"), flushOnly.got);
+        assertEquals(List.of("all onBeforeFlush 3 abc WB_EVENT_OK", "all onAfterCmdSent 0 x WB_EVENT_OK"), all.got);
+        // more types are added to the listener's ones, not doubled
+        buf.addFastListener(flushOnly, EnumSet.of(WinBufEventType.ON_AFTER_FLUSH, WinBufEventType.ON_BEFORE_FLUSH));
+        flushOnly.got.clear();
+        buf.generateEvent(WinBufEventType.ON_BEFORE_FLUSH);
+        buf.generateEvent(WinBufEventType.ON_AFTER_FLUSH);
+        assertEquals(2, flushOnly.got.size());
+        // removed listener gets nothing
+        buf.removeFastListener(all);
+        all.got.clear();
+        buf.generateEvent(WinBufEventType.ON_AFTER_CMD_SENT);
+        assertTrue(all.got.isEmpty());
+        assertFalse(buf.hasEventListeners(WinBufEventType.ON_AFTER_CMD_SENT));
+        assertFalse(buf.isAlreadyListener(all));
+    }
+    
+    @Test
+    public void testAdapter() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        List<WinBufEvent> events = new ArrayList<>();
+        WinBufEventListener listener = event -> {
+            events.add(event);
+            event.updateEventStatus(WinBufEventStatus.WB_EVENT_IGNORE);
+        };
+        buf.addEventListener(listener, EnumSet.of(WinBufEventType.ON_BEFORE_OUTPUT_CHAR));
+        assertTrue(buf.isAlreadyListener(listener));
+        //
+        final WinBufEvent generated = buf.generateEvent(WinBufEventType.ON_BEFORE_OUTPUT_CHAR, 1, "z");
+        assertEquals(1, events.size());
+        final WinBufEvent got = events.get(0);
+        assertSame(buf, got.getSource());
+        assertEquals(WinBufEventType.ON_BEFORE_OUTPUT_CHAR, got.getEventType());
+        assertEquals(1, got.getEventFlags());
+        assertEquals("z", got.getEventText());
+        // status set by the old-style listener comes back to the generated event
+        assertEquals(WinBufEventStatus.WB_EVENT_IGNORE, generated.getEventStatus());
+        // each delivery has its own event object
+        buf.generateEvent(WinBufEventType.ON_BEFORE_OUTPUT_CHAR, 1, "z");
+        assertNotSame(events.get(0), events.get(1));
+        //
+        buf.removeEventListener(listener);
+        assertFalse(buf.isAlreadyListener(listener));
+    }
+    
+    @Test
+    public void testAbort() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        Recorder ignoring = new Recorder("ignoring", WinBufEventStatus.WB_EVENT_IGNORE);
+        Recorder aborting = new Recorder("aborting", WinBufEventStatus.WB_EVENT_ABORT);
+        Recorder last = new Recorder("last", null);
+        buf.addFastListener(ignoring);
+        buf.addFastListener(aborting);
+        buf.addFastListener(last);
+        //
+        final WinBufEvent event = buf.generateEvent(WinBufEventType.ON_BEFORE_CMD_SENT, "cmd");
+        assertEquals(WinBufEventStatus.WB_EVENT_ABORT, event.getEventStatus());
+        assertEquals(1, ignoring.got.size());
+        // the next listener gets the status of the previous one
+        assertEquals(List.of("aborting onBeforeCmdSent 0 cmd WB_EVENT_IGNORE"), aborting.got);
+        // nobody is called after an abort
+        assertTrue(last.got.isEmpty());
+        // inner events: an aborted flush has no "after" event
+        ignoring.got.clear();
+        aborting.got.clear();
+        buf.flush();
+        assertEquals(List.of("ignoring onBeforeFlush 0  WB_EVENT_OK"), ignoring.got);
+        assertEquals(1, aborting.got.size());
+        assertTrue(last.got.isEmpty());
+    }
+    
+    @Test
+    public void testEventCounts() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        Recorder afterFlush = new Recorder("after", null);
+        buf.addFastListener(afterFlush, EnumSet.of(WinBufEventType.ON_AFTER_FLUSH));
+        // inner events without listeners are not even counted
+        buf.flush();
+        assertEquals(1L, (long) buf.getEventCounts().get(WinBufEventType.ON_AFTER_FLUSH));
+        assertEquals(0L, (long) buf.getEventCounts().get(WinBufEventType.ON_BEFORE_FLUSH));
+        assertEquals(1, afterFlush.got.size());
+        buf.resetEventCounts();
+        assertEquals(0L, (long) buf.getEventCounts().get(WinBufEventType.ON_AFTER_FLUSH));
+    }
+    
+    @Test
+    public void testProfiler() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        WinBufListenerProfiler profiler = new WinBufListenerProfiler(0.000001, 1);
+        List<WinBufListener> reported = new ArrayList<>();
+        profiler.setSlowListenerHandler((listener, eventType, p99Ns, count) -> reported.add(listener));
+        buf.setListenerProfiler(profiler);
+        WinBufEventListener slow = event -> {
+            try {
+                Thread.sleep(1);
+            } catch ( InterruptedException exc ) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        buf.addEventListener(slow);
+        //
+        buf.generateEvent(WinBufEventType.ON_AFTER_FLUSH);
+        buf.generateEvent(WinBufEventType.ON_AFTER_FLUSH);
+        // timings are kept for the listener itself, not for its adapter
+        assertEquals(List.of(slow), profiler.getListeners());
+        assertEquals(2, profiler.getCount(slow));
+        // reported once for the type
+        assertEquals(List.of(slow), reported);
+        assertEquals(1, profiler.getSlowListeners().size());
+        //
+        buf.setListenerProfiler(null);
+        buf.generateEvent(WinBufEventType.ON_AFTER_FLUSH);
+        assertEquals(2, profiler.getCount(slow));
+    }
+    
+    @Test
+    public void testCharEvents() {
+        WindowOutputBuffer buf = new WindowOutputBuffer(10, false);
+        List<CharSequence> texts = new ArrayList<>();
+        // nothing goes to the terminal
+        buf.addFastListener((source, eventType, eventFlags, eventText, eventStatus) -> {
+                                texts.add(eventText);
+                                return WinBufEventStatus.WB_EVENT_IGNORE;
+                            },
+                            EnumSet.of(WinBufEventType.ON_BEFORE_OUTPUT_CHAR));
+        buf.addToWinBuf("ab\u0436a");
+        buf.flush();
+        assertEquals(List.of("a", "b", "\u0436", "a"), texts);
+        // the same char is the same string, not a new one each time
+        assertSame(texts.get(0), texts.get(3));
+    }
+    
+}
@@ -0,0 +1,54 @@
+package me.dmitrygubanov40.concan.windows;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConStyles;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConStyledTextTest
+{
+    
+    @Test
+    public void testFromAnsi() {
+        final String ansi = ConUt.COLOR(ConCol.RED) + "ERROR " + ConUt.BOLD + "disk" + ConUt.RESET + " full";
+        ConStyledText text = ConStyledText.fromAnsi(ansi);
+        //
+        assertEquals(3, text.getRunsCount());
+        assertEquals("ERROR disk full", text.getPlainText());
+        assertEquals(15, text.length());
+        assertEquals(ConUt.COLOR(ConCol.RED), text.getRunBrush(1).getBrushColor());
+        assertTrue(text.getRunBrush(1).hasBrushStyle(ConStyles.BOLD));
+        assertEquals("", text.getRunBrush(2).getBrushColor());
+        // parsed again from its own commands it is the same
+        assertEquals(text, ConStyledText.fromAnsi(text.toAnsi()));
+    }
+    
+    @Test
+    public void testBuilder() {
+        ConStyledText text = new ConStyledText.Builder()
+                                    .color(ConCol.RED).append("ERR").append("OR")
+                                    .plain().append(" ")
+                                    .style(ConStyles.BOLD).append("disk")
+                                    .build();
+        //
+        assertEquals(3, text.getRunsCount());
+        assertEquals("ERROR", text.getRunText(0));
+        assertEquals(ConStyledText.fromAnsi(ConUt.COLOR(ConCol.RED) + "ERROR" + ConUt.RESET + " " + ConUt.BOLD + "disk"),
+                        text);
+    }
+    
+    @Test
+    public void testBadText() {
+        assertThrows(IllegalArgumentException.class, () -> ConStyledText.fromAnsi("line\nline"));
+        assertThrows(IllegalArgumentException.class, () -> ConStyledText.fromAnsi("up" + ConUt.ESC + "[2A"));
+        assertThrows(IllegalArgumentException.class, () -> new ConStyledText.Builder().append("tab\t"));
+        assertThrows(NullPointerException.class, () -> ConStyledText.fromAnsi(null));
+    }
+    
+    
+    
+}
@@ -0,0 +1,56 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConWinFormatTest
+{
+    
+    @Test
+    public void testConversions() {
+        ConWinFormat format = ConWinFormat.of("[%d|%5d|%-5d|%05d|%+d] [%s|%6s|%-6s|%.2s]");
+        ConWinFormat.Args args = ConWinFormat.args();
+        args.add(7).add(-42).add(42L).add(-42).add(3);
+        args.add("abc").add("abc").add("abc").add("abc");
+        //
+        assertEquals(9, format.getArgsCount());
+        assertEquals("[7|  -42|42   |-0042|+3] [abc|   abc|abc   |ab]", format.render(args).toString());
+        assertSame(format, ConWinFormat.of("[%d|%5d|%-5d|%05d|%+d] [%s|%6s|%-6s|%.2s]"));
+    }
+    
+    @Test
+    public void testAsStringFormat() {
+        final String[] patterns = { "%f", "%.0f", "%.1f", "%.3f", "%+.2f", "%10.4f", "%-10.2f|", "%08.3f" };
+        final Random rnd = new Random(41);
+        for ( int i = 0; i < 20000; i++ ) {
+            final String curPattern = patterns[ i % patterns.length ];
+            final double curValue = (rnd.nextDouble() - 0.5) * Math.pow(10, rnd.nextInt(12));
+            ConWinFormat.Args args = ConWinFormat.args().add(curValue);
+            //
+            assertEquals(String.format(Locale.ROOT, curPattern, curValue),
+                            ConWinFormat.of(curPattern).render(args).toString());
+        }
+        // decimal ties round up
+        assertEquals("1.04 2.5 -0.1", ConWinFormat.of("%.2f %.1f %.1f")
+                                            .render(ConWinFormat.args().add(1.035).add(2.45).add(-0.05)).toString());
+    }
+    
+    @Test
+    public void testBadFormats() {
+        assertThrows(IllegalArgumentException.class, () -> ConWinFormat.of("%"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinFormat.of("%x"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinFormat.of("%.2d"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinFormat.of("%{no such color}"));
+        //
+        ConWinFormat format = ConWinFormat.of("%d");
+        assertThrows(IllegalArgumentException.class, () -> format.render(ConWinFormat.args().add("text")));
+    }
+    
+    
+    
+}
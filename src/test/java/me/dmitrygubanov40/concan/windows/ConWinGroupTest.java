@@ -0,0 +1,130 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.EnumSet;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConUt;
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventStatus;
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventType;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConWinGroupTest
+{
+    
+    /**
+     * Window which keeps all chars and commands it sent to the terminal.
+     */
+    private static ConWin window(final StringBuilder sent) {
+        ConWin window = new ConWin.Builder().size(30, 6).pos(2, 1).scrollable().lines(50).build();
+        window.addOutputListener((source, eventType, eventFlags, eventText, eventStatus) -> {
+                                        sent.append(eventText);
+                                        return eventStatus;
+                                    },
+                                    EnumSet.of(WinBufEventType.ON_AFTER_OUTPUT_CHAR,
+                                                WinBufEventType.ON_AFTER_OUTPUT_CMD));
+        return window;
+    }
+    
+    /**
+     * The terminal's output is not needed, only what windows sent.
+     */
+    private static PrintStream muteTerminal() {
+        final PrintStream terminal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return terminal;
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testWindows() {
+        final PrintStream terminal = ConWinGroupTest.muteTerminal();
+        try {
+            ConWin window = ConWinGroupTest.window(new StringBuilder());
+            ConWinGroup group = new ConWinGroup(window, window);
+            assertEquals(1, group.size());
+            group.add(window);
+            assertEquals(1, group.size());
+            assertThrows(NullPointerException.class, () -> group.add(null));
+            assertThrows(NullPointerException.class, () -> group.print((CharSequence) null));
+            // the list is a copy
+            group.getWindows().clear();
+            assertEquals(1, group.size());
+            group.remove(window);
+            assertEquals(0, group.size());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testGroupPrint() {
+        final PrintStream terminal = ConWinGroupTest.muteTerminal();
+        try {
+            StringBuilder sent1 = new StringBuilder();
+            StringBuilder sent2 = new StringBuilder();
+            ConWin window1 = ConWinGroupTest.window(sent1);
+            ConWin window2 = ConWinGroupTest.window(sent2);
+            ConWinGroup group = new ConWinGroup(window1, window2);
+            //
+            final String red = ConUt.COLOR(ConCol.RED);
+            group.println("line 1");
+            group.print("E" + red + "2\t" + ConUt.COLOR_DEFAULT + "x\n");
+            assertTrue(sent1.toString().contains("line 1"));
+            assertTrue(sent1.toString().contains("E" + red + "2"));
+            assertEquals(sent1.toString(), sent2.toString());
+            // removed window prints nothing
+            group.remove(window2);
+            group.print("only first");
+            assertTrue(sent1.toString().contains("only first"));
+            assertFalse(sent2.toString().contains("only first"));
+            //
+            window1.dispose();
+            window2.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testPiecesAsPrint() {
+        final PrintStream terminal = ConWinGroupTest.muteTerminal();
+        try {
+            StringBuilder printed = new StringBuilder();
+            StringBuilder piecesPrinted = new StringBuilder();
+            ConWin window = ConWinGroupTest.window(printed);
+            ConWin piecesWindow = ConWinGroupTest.window(piecesPrinted);
+            // prepared pieces go out as the text printed as usual
+            final String[] texts = { "plain", "", "a" + ConUt.COLOR(ConCol.GREEN) + "b\tc\n",
+                                        ConUt.BOLD + "bold" + ConUt.BOLD_OFF + "\n", "\n" };
+            for ( String curText : texts ) {
+                for ( boolean curNewLine : new boolean[] { false, true } ) {
+                    if ( curNewLine ) window.println(curText);
+                    else              window.print(curText);
+                    piecesWindow.printPieces(new ConWinPieces(curText), curNewLine);
+                    assertEquals(printed.toString(), piecesPrinted.toString());
+                }
+            }
+            final String withCmd = "abc" + ConUt.BOLD + "\n";
+            assertEquals(withCmd.length(), new ConWinPieces(withCmd).length());
+            // banned command is rejected in the same way
+            final String banned = "top" + ConUt.ESC + "[2J";
+            assertThrows(IllegalArgumentException.class, () -> window.print(banned));
+            assertThrows(IllegalArgumentException.class,
+                            () -> piecesWindow.printPieces(new ConWinPieces(banned), false));
+            //
+            window.dispose();
+            piecesWindow.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+}
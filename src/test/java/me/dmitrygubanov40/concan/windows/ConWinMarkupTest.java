@@ -0,0 +1,82 @@
+package me.dmitrygubanov40.concan.windows;
+
+import me.dmitrygubanov40.concan.utility.ConCol;
+import me.dmitrygubanov40.concan.utility.ConStyles;
+import me.dmitrygubanov40.concan.utility.ConUt;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConWinMarkupTest
+{
+    
+    @Test
+    public void testCompile() {
+        ConWinMarkup markup = ConWinMarkup.of("[red]ERROR[/] [bold]{1}[/] [[{{0}}] [bg:navy]{0}");
+        assertEquals(2, markup.getArgsCount());
+        assertSame(markup, ConWinMarkup.of("[red]ERROR[/] [bold]{1}[/] [[{{0}}] [bg:navy]{0}"));
+        assertEquals(0, ConWinMarkup.of("plain text\n").getArgsCount());
+        //
+        assertThrows(IllegalArgumentException.class, () -> markup.checkArgs(new CharSequence[] { "one" }));
+        markup.checkArgs(new CharSequence[] { "one", "two", "three" });
+    }
+    
+    @Test
+    public void testBadMarkups() {
+        assertThrows(IllegalArgumentException.class, () -> ConWinMarkup.of("[no such color]text"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinMarkup.of("text[/]"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinMarkup.of("[red text"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinMarkup.of("{x}"));
+        assertThrows(IllegalArgumentException.class, () -> ConWinMarkup.of("[reset]text"));
+        assertThrows(NullPointerException.class, () -> ConWinMarkup.of(null));
+    }
+    
+    @Test
+    public void testRender() {
+        ConWinMarkup markup = ConWinMarkup.of("[red]ERR[/] {0}: [bg:navy]{1}[/] [[x{{1}\n");
+        assertEquals(ConUt.COLOR(ConCol.RED) + "ERR" + ConUt.COLOR_DEFAULT + " disk: "
+                        + ConUt.BACKGROUND(ConCol.NAVY) + "full" + ConUt.BACKGROUND_DEFAULT + " [x{1}\n",
+                        markup.render("disk", "full"));
+        // 'null' value is printed as it is
+        assertEquals(ConUt.COLOR(ConCol.RED) + "ERR" + ConUt.COLOR_DEFAULT + " null: "
+                        + ConUt.BACKGROUND(ConCol.NAVY) + "" + ConUt.BACKGROUND_DEFAULT + " [x{1}\n",
+                        markup.render(null, ""));
+        assertThrows(IllegalArgumentException.class, () -> markup.render("disk"));
+    }
+    
+    @Test
+    public void testNestedTags() {
+        // closed inner tag gives back the outer one of the same kind
+        assertEquals(ConUt.COLOR(ConCol.RED) + "a" + ConUt.COLOR(ConCol.BLUE) + "b" + ConUt.COLOR(ConCol.RED) + "c"
+                        + ConUt.COLOR_DEFAULT + "d",
+                        ConWinMarkup.of("[red]a[blue]b[/]c[/]d").render());
+        // tags of other kinds do not matter, not closed tags are closed at the end
+        assertEquals(ConUt.COLOR(ConCol.RED) + "a" + ConUt.BACKGROUND(ConCol.NAVY) + "b" + ConUt.BACKGROUND_DEFAULT
+                        + "c" + ConUt.COLOR_DEFAULT,
+                        ConWinMarkup.of("[red]a[bg:navy]b[/]c").render());
+    }
+    
+    @Test
+    public void testRestoreZone() {
+        final String bold = ConStyles.BOLD.getStyleCmd();
+        final String boldOff = ConStyles.BOLD.getOppositeStyleOrNull().getStyleCmd();
+        ConWinMarkup markup = ConWinMarkup.of("[red][bold]a[/]b[/]c");
+        // zone's color is back, bold is turned off
+        ConWinOutBrush zoneBrush = new ConWinOutBrush();
+        zoneBrush.setBrushColor(ConUt.COLOR(ConCol.GREEN));
+        assertEquals(ConUt.COLOR(ConCol.RED) + bold + "a" + boldOff + "b" + ConUt.COLOR(ConCol.GREEN) + "c",
+                        markup.render(new CharSequence[ 0 ], zoneBrush));
+        // zone is bold already: nothing to turn off
+        zoneBrush.addBrushStyle(ConStyles.BOLD);
+        assertEquals(ConUt.COLOR(ConCol.RED) + bold + "a" + "b" + ConUt.COLOR(ConCol.GREEN) + "c",
+                        markup.render(new CharSequence[ 0 ], zoneBrush));
+        // the same style inside does not turn it off
+        assertEquals(bold + "a" + bold + "b" + "c" + boldOff,
+                        ConWinMarkup.of("[bold]a[bold]b[/]c").render());
+    }
+    
+    
+    
+}
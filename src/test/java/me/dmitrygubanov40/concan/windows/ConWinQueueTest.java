@@ -0,0 +1,275 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventType;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConWinQueueTest
+{
+    
+    /**
+     * Keeps tasks till the test runs them.
+     */
+    private static final class ManualExecutor implements Executor
+    {
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+        @Override
+        public void execute(final Runnable task) {
+            this.tasks.add(task);
+        }
+    
+        void runAll() {
+            Runnable task;
+            while ( null != (task = this.tasks.poll()) ) task.run();
+        }
+    }
+    
+    ////////////////
+    
+    /**
+     * Window which keeps all chars it sent to the terminal.
+     */
+    private static ConWin window(final StringBuffer sent) {
+        ConWin window = new ConWin.Builder().size(30, 6).pos(2, 1).scrollable().lines(50).build();
+        window.addOutputListener((source, eventType, eventFlags, eventText, eventStatus) -> {
+                                        sent.append(eventText);
+                                        return eventStatus;
+                                    },
+                                    EnumSet.of(WinBufEventType.ON_AFTER_OUTPUT_CHAR));
+        return window;
+    }
+    
+    /**
+     * The terminal's output is not needed, only what windows sent.
+     */
+    private static PrintStream muteTerminal() {
+        final PrintStream terminal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return terminal;
+    }
+    
+    private static void awaitState(final Thread thread, final Thread.State state) throws InterruptedException {
+        final long deadlineMs = System.currentTimeMillis() + 5000;
+        while ( state != thread.getState() && System.currentTimeMillis() < deadlineMs ) {
+            Thread.sleep(1);
+        }
+        assertEquals(state, thread.getState());
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testDropNewest() {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(2, ConWinQueuePolicy.DROP_NEWEST, executor);
+            //
+            window.print("1");
+            window.print("2");
+            window.print("3");
+            // nothing in the printing thread
+            assertEquals("", sent.toString());
+            assertEquals(2, queue.getDepth());
+            executor.runAll();
+            assertEquals("12", sent.toString());
+            assertEquals(2, queue.getPrinted());
+            assertEquals(1, queue.getDropped());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testDropOldest() {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(2, ConWinQueuePolicy.DROP_OLDEST, executor);
+            //
+            window.print("1");
+            window.print("2");
+            window.print("3");
+            executor.runAll();
+            assertEquals("23", sent.toString());
+            assertEquals(1, queue.getDropped());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testCollapse() {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(1, ConWinQueuePolicy.COLLAPSE, executor);
+            //
+            window.println("a");
+            window.println("b");
+            window.println("c\nd");
+            executor.runAll();
+            // dropped lines are told by one line after the queued ones
+            final String text = sent.toString();
+            assertTrue(text.startsWith("a"));
+            assertTrue(text.contains("... 3 lines skipped"));
+            assertFalse(text.contains("b"));
+            assertEquals(3, queue.getCollapsedLines());
+            assertEquals(2, queue.getDropped());
+            assertTrue(queue.isIdle());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testCollapseMarkup() {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(1, ConWinQueuePolicy.COLLAPSE, executor);
+            //
+            window.println("a");
+            // lines of the markup and of its values are counted
+            window.printlnMarkup("[bold]b[/]\nc {0}", "d\ne");
+            window.printMarkup("f\n");
+            executor.runAll();
+            assertTrue(sent.toString().contains("... 4 lines skipped"));
+            assertEquals(4, queue.getCollapsedLines());
+            assertEquals(2, queue.getDropped());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testBlock() throws InterruptedException {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(2, ConWinQueuePolicy.BLOCK, executor);
+            //
+            window.print("1");
+            window.print("2");
+            Thread printer = new Thread(() -> window.print("3"));
+            printer.start();
+            // the printing thread waits for free space
+            ConWinQueueTest.awaitState(printer, Thread.State.WAITING);
+            assertEquals("", sent.toString());
+            // drain makes space, nothing is lost
+            while ( printer.isAlive() || !executor.tasks.isEmpty() ) {
+                executor.runAll();
+                printer.join(10);
+            }
+            assertEquals("123", sent.toString());
+            assertEquals(0, queue.getDropped());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testStopQueue() throws InterruptedException {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(4, ConWinQueuePolicy.BLOCK, executor);
+            assertThrows(IllegalStateException.class, () -> window.startQueue(4, ConWinQueuePolicy.BLOCK));
+            //
+            window.print("1");
+            window.print("2");
+            assertFalse(queue.awaitIdle(10));
+            // stop waits for the queued prints
+            Thread stopper = new Thread(window::stopQueue);
+            stopper.start();
+            ConWinQueueTest.awaitState(stopper, Thread.State.WAITING);
+            assertTrue(queue.isClosed());
+            // a print during the stop goes after the queued ones
+            Thread printer = new Thread(() -> window.print("3"));
+            printer.start();
+            ConWinQueueTest.awaitState(printer, Thread.State.WAITING);
+            assertEquals("", sent.toString());
+            executor.runAll();
+            stopper.join(5000);
+            printer.join(5000);
+            assertFalse(stopper.isAlive());
+            assertFalse(printer.isAlive());
+            assertTrue(queue.awaitIdle(10));
+            assertNull(window.getQueue());
+            // callers print themselves
+            window.print("4");
+            assertEquals("1234", sent.toString());
+            // and a new queue may be started
+            ConWinQueue newQueue = window.startQueue(4, ConWinQueuePolicy.BLOCK, executor);
+            assertNotSame(queue, newQueue);
+            window.print("5");
+            executor.runAll();
+            assertEquals("12345", sent.toString());
+            window.dispose();
+            assertNull(window.getQueue());
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testStopFullQueue() throws InterruptedException {
+        final PrintStream terminal = ConWinQueueTest.muteTerminal();
+        try {
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinQueueTest.window(sent);
+            ManualExecutor executor = new ManualExecutor();
+            ConWinQueue queue = window.startQueue(2, ConWinQueuePolicy.BLOCK, executor);
+            //
+            window.print("1");
+            window.print("2");
+            // the third print waits for space in the full queue
+            Thread printer = new Thread(() -> window.print("3"));
+            printer.start();
+            ConWinQueueTest.awaitState(printer, Thread.State.WAITING);
+            // the stop wakes it up: it prints itself after the queue
+            Thread stopper = new Thread(window::stopQueue);
+            stopper.start();
+            ConWinQueueTest.awaitState(stopper, Thread.State.WAITING);
+            executor.runAll();
+            stopper.join(5000);
+            printer.join(5000);
+            assertFalse(stopper.isAlive());
+            assertFalse(printer.isAlive());
+            assertEquals("123", sent.toString());
+            assertEquals(0, queue.getDropped());
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+}
@@ -0,0 +1,223 @@
+package me.dmitrygubanov40.concan.windows;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import me.dmitrygubanov40.concan.winbuffer.WinBufEventType;
+import me.dmitrygubanov40.concan.winbuffer.WinBufFastListener;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+
+public class ConWinSchedulerTest
+{
+    
+    /**
+     * Keeps tasks till the test runs them.
+     */
+    private static final class ManualExecutor implements Executor
+    {
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+        @Override
+        public void execute(final Runnable task) {
+            this.tasks.add(task);
+        }
+    
+        void runAll() {
+            Runnable task;
+            while ( null != (task = this.tasks.poll()) ) task.run();
+        }
+    }
+    
+    ////////////////
+    
+    /**
+     * Window with its own queue (drained by the executor when it is not scheduled),
+     * which keeps all chars it sent to the terminal.
+     */
+    private static ConWin window(final StringBuffer sent, final ManualExecutor executor) {
+        ConWin window = new ConWin.Builder().size(60, 6).pos(2, 1).scrollable().lines(50).build();
+        window.addOutputListener((source, eventType, eventFlags, eventText, eventStatus) -> {
+                                        sent.append(eventText);
+                                        return eventStatus;
+                                    },
+                                    EnumSet.of(WinBufEventType.ON_AFTER_OUTPUT_CHAR));
+        window.startQueue(1024, ConWinQueuePolicy.BLOCK, executor);
+        return window;
+    }
+    
+    /**
+     * The terminal's output is not needed, only what windows sent.
+     */
+    private static PrintStream muteTerminal() {
+        final PrintStream terminal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return terminal;
+    }
+    
+    private static int serveAll(final ConWinScheduler scheduler, final int priority) {
+        int prints = 0;
+        while ( scheduler.serveOnce(priority) ) prints++;
+        return prints;
+    }
+    
+    ////////////////
+    
+    @Test
+    public void testWeights() {
+        final PrintStream terminal = ConWinSchedulerTest.muteTerminal();
+        try {
+            ManualExecutor executor = new ManualExecutor();
+            ConWin light = ConWinSchedulerTest.window(new StringBuffer(), executor);
+            ConWin heavy = ConWinSchedulerTest.window(new StringBuffer(), executor);
+            ConWinScheduler scheduler = new ConWinScheduler(64, false);
+            scheduler.add(light, 1);
+            scheduler.add(heavy, 3);
+            assertEquals(2, scheduler.size());
+            final String line = "x".repeat(40);
+            for ( int i = 0; i < 200; i++ ) {
+                light.println(line);
+                heavy.println(line);
+            }
+            // nothing is printed but by the scheduler
+            assertTrue(executor.tasks.isEmpty());
+            assertEquals(200, light.getQueue().getDepth());
+            //
+            for ( int i = 0; i < 120; i++ ) assertTrue(scheduler.serveOnce(0));
+            // both still have prints: bytes are shared by weights
+            assertTrue(light.getQueue().getDepth() > 0);
+            assertTrue(heavy.getQueue().getDepth() > 0);
+            final double lightBytes = scheduler.getPrintedBytes(light);
+            final double heavyBytes = scheduler.getPrintedBytes(heavy);
+            assertTrue(lightBytes > 0);
+            assertEquals(3.0, heavyBytes / lightBytes, 0.5);
+            assertTrue(scheduler.getRounds() > 0);
+            //
+            scheduler.close();
+            executor.runAll();
+            assertTrue(light.getQueue().isIdle());
+            light.dispose();
+            heavy.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testPriorities() {
+        final PrintStream terminal = ConWinSchedulerTest.muteTerminal();
+        try {
+            ManualExecutor executor = new ManualExecutor();
+            StringBuffer sent = new StringBuffer();
+            ConWin status = ConWinSchedulerTest.window(sent, executor);
+            ConWin log = ConWinSchedulerTest.window(sent, executor);
+            ConWinScheduler scheduler = new ConWinScheduler(64, false);
+            scheduler.add(status, 1, 1);
+            scheduler.add(log, 1, 0);
+            log.print("a");
+            log.print("b");
+            status.print("S");
+            status.print("T");
+            // the log waits while the status window has prints
+            assertFalse(scheduler.serveOnce(0));
+            assertEquals("", sent.toString());
+            assertEquals(2, ConWinSchedulerTest.serveAll(scheduler, 1));
+            assertEquals(2, ConWinSchedulerTest.serveAll(scheduler, 0));
+            assertEquals("STab", sent.toString());
+            // a new status print holds the log again
+            log.print("c");
+            status.print("U");
+            assertFalse(scheduler.serveOnce(0));
+            assertTrue(scheduler.serveOnce(1));
+            assertTrue(scheduler.serveOnce(0));
+            assertEquals("STabUc", sent.toString());
+            //
+            scheduler.close();
+            status.dispose();
+            log.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testHandover() {
+        final PrintStream terminal = ConWinSchedulerTest.muteTerminal();
+        try {
+            ManualExecutor executor = new ManualExecutor();
+            StringBuffer sent = new StringBuffer();
+            ConWin window = ConWinSchedulerTest.window(sent, executor);
+            ConWinScheduler scheduler = new ConWinScheduler(64, false);
+            // the queue's drain is scheduled, but not run yet
+            window.print("1");
+            window.print("2");
+            assertEquals(1, executor.tasks.size());
+            scheduler.add(window, 1);
+            // the queue still drains itself: the scheduler does not print
+            assertFalse(scheduler.serveOnce(0));
+            assertEquals("", sent.toString());
+            // the drain gives its prints to the scheduler
+            executor.runAll();
+            assertEquals("", sent.toString());
+            assertEquals(2, ConWinSchedulerTest.serveAll(scheduler, 0));
+            assertEquals("12", sent.toString());
+            //
+            scheduler.close();
+            window.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+    @Test
+    public void testChangesDuringPrint() {
+        final PrintStream terminal = ConWinSchedulerTest.muteTerminal();
+        try {
+            ManualExecutor executor = new ManualExecutor();
+            StringBuffer sent = new StringBuffer();
+            StringBuffer sentNew = new StringBuffer();
+            ConWin window = ConWinSchedulerTest.window(sent, executor);
+            ConWin newWindow = ConWinSchedulerTest.window(sentNew, executor);
+            ConWinScheduler scheduler = new ConWinScheduler(64, false);
+            scheduler.add(window, 1);
+            // while the first print is in progress one window comes and the other goes
+            final WinBufFastListener changer = (source, eventType, eventFlags, eventText, eventStatus) -> {
+                if ( "1".contentEquals(eventText) ) {
+                    scheduler.add(newWindow, 1);
+                    scheduler.remove(window);
+                }
+                return eventStatus;
+            };
+            window.addOutputListener(changer, EnumSet.of(WinBufEventType.ON_AFTER_OUTPUT_CHAR));
+            window.print("1");
+            window.print("2");
+            window.print("3");
+            assertTrue(scheduler.serveOnce(0));
+            assertEquals("1", sent.toString());
+            assertEquals(1, scheduler.size());
+            // the removed window drains itself again, nothing is lost
+            assertEquals(1, executor.tasks.size());
+            executor.runAll();
+            assertEquals("123", sent.toString());
+            // the new one is printed by the scheduler
+            newWindow.print("n");
+            assertTrue(executor.tasks.isEmpty());
+            assertEquals(1, ConWinSchedulerTest.serveAll(scheduler, 0));
+            assertEquals("n", sentNew.toString());
+            //
+            scheduler.close();
+            window.dispose();
+            newWindow.dispose();
+        } finally {
+            System.setOut(terminal);
+        }
+    }
+    
+}